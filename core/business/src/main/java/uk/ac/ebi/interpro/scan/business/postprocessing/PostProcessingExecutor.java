@@ -0,0 +1,191 @@
+package uk.ac.ebi.interpro.scan.business.postprocessing;
+
+import org.apache.log4j.Logger;
+import uk.ac.ebi.interpro.scan.model.raw.RawMatch;
+import uk.ac.ebi.interpro.scan.model.raw.RawProtein;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the per-protein post-processing of a batch of proteins, splitting the batch into partitions
+ * that are processed in parallel (fork / join) on a pool of threads shared by all the post-processors
+ * it is injected into.
+ * <p/>
+ * The proteins are always processed, and the results collected, in the iteration order of the batch,
+ * so the output is the same whatever the number of threads.  With a single thread (the default) the
+ * proteins are processed on the calling thread.
+ */
+public class PostProcessingExecutor implements Serializable {
+
+    private static final Logger LOGGER = Logger.getLogger(PostProcessingExecutor.class.getName());
+
+    private int threads = 1;
+
+    private int proteinsPerTask = 16;
+
+    private transient volatile ForkJoinPool pool;
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param threads to post-process the proteins of a batch with: 1 to process them on the calling thread,
+     *                0 (or less) for as many threads as there are available processors.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getProteinsPerTask() {
+        return proteinsPerTask;
+    }
+
+    /**
+     * @param proteinsPerTask the number of proteins below which a partition of the batch is not split any further.
+     */
+    public void setProteinsPerTask(int proteinsPerTask) {
+        if (proteinsPerTask < 1) {
+            throw new IllegalArgumentException("The number of proteins per task must be at least 1: " + proteinsPerTask);
+        }
+        this.proteinsPerTask = proteinsPerTask;
+    }
+
+    /**
+     * @return the number of threads the proteins of a batch are post-processed with.
+     */
+    public int getParallelism() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Post-processes each protein of the batch.
+     *
+     * @param proteinIdToRawProteinMap the batch of unfiltered proteins.
+     * @param processor                to filter the matches of a single protein.
+     * @return a Map of the protein IDs to the filtered proteins, without those the processor returned null for.
+     */
+    public <T extends RawMatch> Map<String, RawProtein<T>> process(final Map<String, RawProtein<T>> proteinIdToRawProteinMap,
+                                                                  final PostProcessor.ProteinProcessor<T> processor) {
+        final List<String> proteinIds = new ArrayList<>(proteinIdToRawProteinMap.size());
+        final List<RawProtein<T>> rawProteins = new ArrayList<>(proteinIdToRawProteinMap.size());
+        for (Map.Entry<String, RawProtein<T>> entry : proteinIdToRawProteinMap.entrySet()) {
+            proteinIds.add(entry.getKey());
+            rawProteins.add(entry.getValue());
+        }
+        final List<RawProtein<T>> filteredProteins = processAll(proteinIds, rawProteins, processor);
+        final Map<String, RawProtein<T>> proteinIdToFilteredProtein = new HashMap<>();
+        for (int i = 0; i < proteinIds.size(); i++) {
+            if (filteredProteins.get(i) != null) {
+                proteinIdToFilteredProtein.put(proteinIds.get(i), filteredProteins.get(i));
+            }
+        }
+        return proteinIdToFilteredProtein;
+    }
+
+    /**
+     * Post-processes each protein of the batch.
+     *
+     * @param rawProteins the batch of unfiltered proteins.
+     * @param processor   to filter the matches of a single protein (the protein identifier being the key).
+     * @return the filtered proteins, in the iteration order of the batch, without those the processor returned null for.
+     */
+    public <T extends RawMatch> Set<RawProtein<T>> process(final Set<RawProtein<T>> rawProteins,
+                                                           final PostProcessor.ProteinProcessor<T> processor) {
+        final List<String> proteinIds = new ArrayList<>(rawProteins.size());
+        final List<RawProtein<T>> proteins = new ArrayList<>(rawProteins);
+        for (RawProtein<T> rawProtein : proteins) {
+            proteinIds.add(rawProtein.getProteinIdentifier());
+        }
+        final Set<RawProtein<T>> filteredProteins = new LinkedHashSet<>();
+        for (RawProtein<T> filteredProtein : processAll(proteinIds, proteins, processor)) {
+            if (filteredProtein != null) {
+                filteredProteins.add(filteredProtein);
+            }
+        }
+        return filteredProteins;
+    }
+
+    private <T extends RawMatch> List<RawProtein<T>> processAll(final List<String> proteinIds,
+                                                                final List<RawProtein<T>> rawProteins,
+                                                                final PostProcessor.ProteinProcessor<T> processor) {
+        final PartitionTask<T> task = new PartitionTask<>(proteinIds, rawProteins, processor, 0, rawProteins.size());
+        if (getParallelism() <= 1 || rawProteins.size() <= proteinsPerTask) {
+            // Not forked, which would otherwise be on the common pool
+            task.processRange();
+        } else {
+            getPool().invoke(task);
+        }
+        return task.filteredProteins;
+    }
+
+    private ForkJoinPool getPool() {
+        if (pool == null) {
+            synchronized (this) {
+                if (pool == null) {
+                    LOGGER.debug("Creating a pool of " + getParallelism() + " post-processing threads.");
+                    pool = new ForkJoinPool(getParallelism());
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Processes the proteins of the partition [start, end) of the batch, splitting it in two while it
+     * holds more than proteinsPerTask proteins.  Each protein only writes its own slot of the results.
+     */
+    private final class PartitionTask<T extends RawMatch> extends RecursiveAction {
+
+        private final List<String> proteinIds;
+
+        private final List<RawProtein<T>> rawProteins;
+
+        private final PostProcessor.ProteinProcessor<T> processor;
+
+        private final int start;
+
+        private final int end;
+
+        private final List<RawProtein<T>> filteredProteins;
+
+        PartitionTask(List<String> proteinIds, List<RawProtein<T>> rawProteins, PostProcessor.ProteinProcessor<T> processor, int start, int end) {
+            this(proteinIds, rawProteins, processor, start, end, new ArrayList<>(rawProteins));
+        }
+
+        private PartitionTask(List<String> proteinIds, List<RawProtein<T>> rawProteins, PostProcessor.ProteinProcessor<T> processor,
+                              int start, int end, List<RawProtein<T>> filteredProteins) {
+            this.proteinIds = proteinIds;
+            this.rawProteins = rawProteins;
+            this.processor = processor;
+            this.start = start;
+            this.end = end;
+            this.filteredProteins = filteredProteins;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= proteinsPerTask) {
+                processRange();
+            } else {
+                final int middle = (start + end) >>> 1;
+                invokeAll(new PartitionTask<>(proteinIds, rawProteins, processor, start, middle, filteredProteins),
+                        new PartitionTask<>(proteinIds, rawProteins, processor, middle, end, filteredProteins));
+            }
+        }
+
+        void processRange() {
+            for (int i = start; i < end; i++) {
+                filteredProteins.set(i, processor.processProtein(proteinIds.get(i), rawProteins.get(i)));
+            }
+        }
+    }
+}
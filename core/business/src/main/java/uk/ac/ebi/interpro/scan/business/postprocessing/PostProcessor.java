@@ -21,4 +21,20 @@ public interface PostProcessor<T extends RawMatch> extends Serializable {
      */
     Map<String, RawProtein<T>> process(Map<String, RawProtein<T>> proteinIdToRawMatchMap);
 
+    /**
+     * Post-processes the matches of a single protein, independently of the other proteins of the batch,
+     * so that a {@link PostProcessingExecutor} may process the proteins of a batch in parallel.
+     * <p/>
+     * Implementations must only read the reference data they share (e.g. clans, thresholds),
+     * which is therefore loaded before the proteins are processed.
+     */
+    interface ProteinProcessor<T extends RawMatch> {
+
+        /**
+         * @param proteinId  key of the protein in the batch.
+         * @param rawProtein with the unfiltered matches.
+         * @return the protein with the filtered matches, or null to leave the protein out of the results.
+         */
+        RawProtein<T> processProtein(String proteinId, RawProtein<T> rawProtein);
+    }
 }
@@ -2,6 +2,7 @@ package uk.ac.ebi.interpro.scan.business.postprocessing.cdd;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
+import uk.ac.ebi.interpro.scan.business.postprocessing.PostProcessingExecutor;
 import uk.ac.ebi.interpro.scan.business.postprocessing.PostProcessor;
 import uk.ac.ebi.interpro.scan.model.raw.CDDRawMatch;
 import uk.ac.ebi.interpro.scan.model.raw.ProfileScanRawMatch;
@@ -9,9 +10,11 @@ import uk.ac.ebi.interpro.scan.model.raw.RPSBlastRawMatch;
 import uk.ac.ebi.interpro.scan.model.raw.RawProtein;
 
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Performs the simple post-processing required for CDD member
@@ -28,11 +31,20 @@ public class CDDPostProcessing<T extends RPSBlastRawMatch> implements PostProces
 
     private List<RPSBlastRawMatch.HitType> hitTypes;
 
+    private PostProcessingExecutor executor = new PostProcessingExecutor();
+
     @Required
     public void setHitTypes(List<RPSBlastRawMatch.HitType> hitTypes) {
         this.hitTypes = hitTypes;
     }
 
+    /**
+     * @param executor to post-process the proteins of a batch with (by default one protein at a time).
+     */
+    public void setExecutor(PostProcessingExecutor executor) {
+        this.executor = executor;
+    }
+
     /**
      * Performs post processing for RPSBlast based member databases  (e.g. CDD).
      * Very simple filter - if the hittype Specific  is included in the List of
@@ -50,19 +62,16 @@ public class CDDPostProcessing<T extends RPSBlastRawMatch> implements PostProces
             LOGGER.warn("The RPSBlastProcessing class has been initialised such that NO matches will pass. " +
                     "(The list of acceptable hit types is empty).");
         }
-        Map<String, RawProtein<T>> filteredMatches = new HashMap<>();
-        for (String candidateProteinId : proteinIdToRawMatchMap.keySet()) {
-            RawProtein<T> candidateRawProtein = proteinIdToRawMatchMap.get(candidateProteinId);
+        final Set<RPSBlastRawMatch.HitType> acceptedHitTypes = Collections.unmodifiableSet(new HashSet<>(hitTypes));
+        return executor.process(proteinIdToRawMatchMap, (proteinId, candidateRawProtein) -> {
             RawProtein<T> filteredProtein = new RawProtein<>(candidateRawProtein.getProteinIdentifier());
             for (T rawMatch : candidateRawProtein.getMatches()) {
-                if (hitTypes.contains(rawMatch.getHitType())) {
+                if (acceptedHitTypes.contains(rawMatch.getHitType())) {
                     filteredProtein.addMatch(rawMatch);
                 }
             }
-            if (filteredProtein.getMatches() != null && filteredProtein.getMatches().size() > 0) {
-                filteredMatches.put(candidateProteinId, filteredProtein);
-            }
-        }
-        return filteredMatches;
+            // Proteins left without matches are not passed on.
+            return filteredProtein.getMatches() != null && filteredProtein.getMatches().size() > 0 ? filteredProtein : null;
+        });
     }
 }
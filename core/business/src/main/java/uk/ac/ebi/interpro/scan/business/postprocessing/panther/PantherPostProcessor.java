@@ -1,12 +1,12 @@
 package uk.ac.ebi.interpro.scan.business.postprocessing.panther;
 
 import org.apache.log4j.Logger;
+import uk.ac.ebi.interpro.scan.business.postprocessing.PostProcessingExecutor;
 import uk.ac.ebi.interpro.scan.model.raw.PantherRawMatch;
 import uk.ac.ebi.interpro.scan.model.raw.RawProtein;
 import uk.ac.ebi.interpro.scan.util.Utilities;
 
 import java.io.Serializable;
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -22,6 +22,8 @@ public class PantherPostProcessor implements Serializable {
 
     private final double eValueCutoff;
 
+    private PostProcessingExecutor executor = new PostProcessingExecutor();
+
     public PantherPostProcessor(double eValue) {
         this.eValueCutoff = eValue;
     }
@@ -30,6 +32,13 @@ public class PantherPostProcessor implements Serializable {
         return eValueCutoff;
     }
 
+    /**
+     * @param executor to post-process the proteins of a batch with (by default one protein at a time).
+     */
+    public void setExecutor(PostProcessingExecutor executor) {
+        this.executor = executor;
+    }
+
     /**
      * Returns a set of filtered matches.
      *
@@ -38,14 +47,14 @@ public class PantherPostProcessor implements Serializable {
      */
     public Set<RawProtein<PantherRawMatch>> process(Set<RawProtein<PantherRawMatch>> rawProteins) {
         LOGGER.info("Filtering PANTHER raw matches...");
-        Set<RawProtein<PantherRawMatch>> filteredMatches = new HashSet<>();
+        Set<RawProtein<PantherRawMatch>> filteredMatches = executor.process(rawProteins, (proteinId, rawProtein) -> processProtein(rawProtein));
         int rawMatchCounter = 0;
         int filteredMatchesCounter = 0;
         for (RawProtein<PantherRawMatch> rawProtein : rawProteins) {
             rawMatchCounter += rawProtein.getMatches().size();
-            RawProtein<PantherRawMatch> filtered = processProtein(rawProtein);
+        }
+        for (RawProtein<PantherRawMatch> filtered : filteredMatches) {
             filteredMatchesCounter += filtered.getMatches().size();
-            filteredMatches.add(filtered);
         }
         String filterMessage =  "Finished filtering of PANTHER raw matches. Printing out Summary... \n"
             + "Original number of raw matches: " + rawMatchCounter + "\n"
@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Required;
 import uk.ac.ebi.interpro.scan.business.postprocessing.pfam_A.model.PfamClan;
 import uk.ac.ebi.interpro.scan.business.postprocessing.pfam_A.model.PfamClanData;
 import uk.ac.ebi.interpro.scan.business.postprocessing.pfam_A.model.PfamModel;
+import uk.ac.ebi.interpro.scan.io.ReferenceDataRegistry;
 
 import java.io.*;
 import java.util.ArrayList;
@@ -102,8 +103,6 @@ public class ClanFileParser implements Serializable {
 
     private PfamClanData clanData;
 
-    private static final Object CLAN_LOCK = new Object();
-
     @Required
     public void setPfamASeedFile(String pfamASeedFile) {
         this.pfamASeedFile = pfamASeedFile;
@@ -117,7 +116,8 @@ public class ClanFileParser implements Serializable {
     /**
      * Lazy-loads and returns the PfamClanData object that contains
      * all the details of Pfam clans and nesting relationships
-     * between models.
+     * between models.  The files are parsed once per JVM
+     * (see {@link ReferenceDataRegistry}), so the object is shared.
      *
      * @return the PfamClanData object that contains
      *         all the details of Pfam clans and nesting relationships
@@ -126,14 +126,8 @@ public class ClanFileParser implements Serializable {
      *                     clan data file.
      */
     public PfamClanData getClanData() throws IOException {
-        if (clanData == null) {
-            synchronized (CLAN_LOCK) {
-                if (clanData == null) {
-                    buildClanAndModelModel();
-                }
-            }
-        }
-        return clanData;
+        return ReferenceDataRegistry.getInstance().get("pfam-clans", this::buildClanAndModelModel,
+                new File(pfamASeedFile), new File(pfamCFile));
     }
 
     /**
@@ -142,12 +136,14 @@ public class ClanFileParser implements Serializable {
      * This object is then used to build the proper data model, held
      * in PfamClanData.  The RecordHolder object is then discarded.
      *
+     * @return the PfamClanData object built.
      * @throws IOException in the event of a problem reading the file.
      */
-    private void buildClanAndModelModel() throws IOException {
+    private synchronized PfamClanData buildClanAndModelModel() throws IOException {
         clanData = new PfamClanData();
         parsePfamASeed();
         parsePfamC();
+        return clanData;
     }
 
     private void parsePfamASeed() throws IOException {
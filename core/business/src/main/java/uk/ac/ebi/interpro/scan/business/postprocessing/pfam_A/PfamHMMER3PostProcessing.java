@@ -3,9 +3,11 @@ package uk.ac.ebi.interpro.scan.business.postprocessing.pfam_A;
 import uk.ac.ebi.interpro.scan.model.DCStatus;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
+import uk.ac.ebi.interpro.scan.business.postprocessing.PostProcessingExecutor;
 import uk.ac.ebi.interpro.scan.business.postprocessing.pfam_A.model.PfamClan;
 import uk.ac.ebi.interpro.scan.business.postprocessing.pfam_A.model.PfamClanData;
 import uk.ac.ebi.interpro.scan.business.postprocessing.pfam_A.model.PfamModel;
+import uk.ac.ebi.interpro.scan.io.ReferenceDataRegistry;
 import uk.ac.ebi.interpro.scan.model.Hmmer3Match;
 import uk.ac.ebi.interpro.scan.model.raw.PfamHmmer3RawMatch;
 import uk.ac.ebi.interpro.scan.model.raw.RawMatch;
@@ -36,6 +38,8 @@ public class PfamHMMER3PostProcessing implements Serializable {
 
     private String pfamHmmDataPath;
 
+    private PostProcessingExecutor executor = new PostProcessingExecutor();
+
     @Required
     public void setClanFileParser(ClanFileParser clanFileParser) {
         this.clanFileParser = clanFileParser;
@@ -56,6 +60,13 @@ public class PfamHMMER3PostProcessing implements Serializable {
         this.pfamHmmDataPath = pfamHmmDataPath;
     }
 
+    /**
+     * @param executor to post-process the proteins of a batch with (by default one protein at a time).
+     */
+    public void setExecutor(PostProcessingExecutor executor) {
+        this.executor = executor;
+    }
+
     /**
      * Post-processes raw results for Pfam HMMER3 in the batch requested.
      *
@@ -88,18 +99,21 @@ public class PfamHMMER3PostProcessing implements Serializable {
             e.printStackTrace();
         }
 
-        for (String proteinId : proteinIdToRawMatchMap.keySet()) {
+        // The clans and nested models are only read from here on, so are shared by the proteins processed in parallel
+        final Map<String, Set<String>> sharedNestedModelsMap = nestedModelsMap;
+        final SeedAlignmentDataRetriever.SeedAlignmentData sharedSeedAlignmentData = seedAlignmentData;
+        proteinIdToRawProteinMap.putAll(executor.process(proteinIdToRawMatchMap, (proteinId, rawProtein) -> {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Pfam A post processing: processing protein " + proteinId);
             }
             List<SeedAlignment> seedAlignments = null;
-            if (seedAlignmentData != null) {
-                seedAlignments = seedAlignmentData.getSeedAlignments(proteinId);
+            if (sharedSeedAlignmentData != null) {
+                seedAlignments = sharedSeedAlignmentData.getSeedAlignments(proteinId);
             }
 
             Utilities.verboseLog(25,"Pfam A post processing: processing protein " + proteinId);
-            proteinIdToRawProteinMap.put(proteinId, processProtein(proteinIdToRawMatchMap.get(proteinId), nestedModelsMap, seedAlignments));
-        }
+            return processProtein(rawProtein, sharedNestedModelsMap, seedAlignments);
+        }));
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug(new StringBuilder().append("Batch containing").append(proteinIdToRawMatchMap.size()).append(" proteins took ").append(((double) (System.nanoTime() - startNanos)) / 1.0e9d).append(" s to run.").toString());
         }
@@ -117,7 +131,7 @@ public class PfamHMMER3PostProcessing implements Serializable {
      *                             methods where this protein was part of the seed alignment.
      * @return a List of filtered matches.
      */
-    private RawProtein processProtein(final RawProtein<PfamHmmer3RawMatch> rawProteinUnfiltered, final Map<String, Set<String>> nestedModelsMap, final List<SeedAlignment> seedAlignments) {
+    private RawProtein<PfamHmmer3RawMatch> processProtein(final RawProtein<PfamHmmer3RawMatch> rawProteinUnfiltered, final Map<String, Set<String>> nestedModelsMap, final List<SeedAlignment> seedAlignments) {
         int verboseLevel = 25;
         Utilities.verboseLog(verboseLevel,"Start processProtein ---oo--");
         RawProtein<PfamHmmer3RawMatch> filteredMatches = new RawProtein<PfamHmmer3RawMatch>(rawProteinUnfiltered.getProteinIdentifier());
@@ -378,7 +392,18 @@ public class PfamHMMER3PostProcessing implements Serializable {
     }
 
 
+    /**
+     * Returns the nested models of each Pfam model, parsed from the Pfam HMM data file once per JVM
+     * (see {@link ReferenceDataRegistry}).
+     *
+     * @return an unmodifiable Map of model accession to the accessions of the models nested in it.
+     * @throws IOException if the Pfam HMM data file can not be read.
+     */
     public Map<String, Set<String>> getPfamHmmData() throws IOException {
+        return Collections.unmodifiableMap(ReferenceDataRegistry.getInstance().get("pfam-nested-models", this::parsePfamHmmData, new File(pfamHmmDataPath)));
+    }
+
+    private Map<String, Set<String>> parsePfamHmmData() throws IOException {
         LOGGER.debug("Starting to parse hmm data file.");
         Utilities.verboseLog("Starting to parse hmm data file -- " + pfamHmmDataPath);
         Map<String, String> domainNameToAccesstion = new HashMap<>();
@@ -516,7 +541,7 @@ public class PfamHMMER3PostProcessing implements Serializable {
             }
             altPfamHmmData.put(accession, domainAccessions);
         }
-        return altPfamHmmData;
+        return Collections.unmodifiableMap(altPfamHmmData);
     }
 
 }
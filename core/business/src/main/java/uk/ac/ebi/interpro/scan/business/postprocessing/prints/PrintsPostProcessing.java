@@ -3,6 +3,8 @@ package uk.ac.ebi.interpro.scan.business.postprocessing.prints;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
 import org.springframework.core.io.Resource;
+import uk.ac.ebi.interpro.scan.business.postprocessing.PostProcessingExecutor;
+import uk.ac.ebi.interpro.scan.io.ReferenceDataRegistry;
 import uk.ac.ebi.interpro.scan.io.prints.FingerPRINTSHierarchyDBParser;
 import uk.ac.ebi.interpro.scan.model.raw.PrintsRawMatch;
 import uk.ac.ebi.interpro.scan.model.raw.RawProtein;
@@ -48,6 +50,8 @@ public class PrintsPostProcessing implements Serializable {
 
     private static final Object HIERCH_DB_LOCK = new Object();
 
+    private PostProcessingExecutor executor = new PostProcessingExecutor();
+
     @Required
     public void setHierarchyDBParser(FingerPRINTSHierarchyDBParser hierarchyDBParser) {
         this.hierarchyDBParser = hierarchyDBParser;
@@ -58,6 +62,13 @@ public class PrintsPostProcessing implements Serializable {
         this.fingerPRINTSHierarchyDB = fingerPRINTSHierarchyDB;
     }
 
+    /**
+     * @param executor to post-process the proteins of a batch with (by default one protein at a time).
+     */
+    public void setExecutor(PostProcessingExecutor executor) {
+        this.executor = executor;
+    }
+
     /**
      * Post-processes raw results for Pfam HMMER3 in the batch requested.
      *
@@ -71,21 +82,23 @@ public class PrintsPostProcessing implements Serializable {
                     if (hierarchyDBParser == null || fingerPRINTSHierarchyDB == null) {
                         throw new IllegalStateException("The PrintsPostProcessing class requires the injection of a FingerPRINTSHierarchyDBParser and a fingerPRINTSHierarchyDB resource.");
                     }
-                    printsModelData = hierarchyDBParser.parse(fingerPRINTSHierarchyDB);
-                    allPrintsModelIDs = new ArrayList<String>(printsModelData.size());
-                    for (FingerPRINTSHierarchyDBParser.HierachyDBEntry entry : printsModelData.values()) {
-                        allPrintsModelIDs.add(entry.getId());
+                    // Parsed once per JVM, so shared by all the PRINTS post-processors
+                    final Map<String, FingerPRINTSHierarchyDBParser.HierachyDBEntry> modelData = ReferenceDataRegistry.getInstance().get(
+                            "prints-hierarchy", () -> hierarchyDBParser.parse(fingerPRINTSHierarchyDB), fingerPRINTSHierarchyDB);
+                    final List<String> modelIDs = new ArrayList<String>(modelData.size());
+                    for (FingerPRINTSHierarchyDBParser.HierachyDBEntry entry : modelData.values()) {
+                        modelIDs.add(entry.getId());
                     }
-                    allPrintsModelIDs = Collections.unmodifiableList(allPrintsModelIDs);
+                    // Only read from here on, so shared by the proteins processed in parallel
+                    allPrintsModelIDs = Collections.unmodifiableList(modelIDs);
+                    printsModelData = Collections.unmodifiableMap(modelData);
                 }
             }
         }
 
 
-        Map<String, RawProtein<PrintsRawMatch>> proteinIdToFilteredMatch = new HashMap<String, RawProtein<PrintsRawMatch>>();
-        for (String proteinId : proteinIdToRawMatchMap.keySet()) {
-            proteinIdToFilteredMatch.put(proteinId, processProtein(proteinIdToRawMatchMap.get(proteinId)));
-        }
+        Map<String, RawProtein<PrintsRawMatch>> proteinIdToFilteredMatch =
+                executor.process(proteinIdToRawMatchMap, (proteinId, rawProtein) -> processProtein(rawProtein));
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Total of " + getMatchCountDEBUG(proteinIdToRawMatchMap) + " raw matches passed in and " + getMatchCountDEBUG(proteinIdToFilteredMatch) + " passed out.");
         }
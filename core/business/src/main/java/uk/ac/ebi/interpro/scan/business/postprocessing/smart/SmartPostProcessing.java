@@ -2,6 +2,8 @@ package uk.ac.ebi.interpro.scan.business.postprocessing.smart;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
+import uk.ac.ebi.interpro.scan.business.postprocessing.PostProcessingExecutor;
+import uk.ac.ebi.interpro.scan.io.ReferenceDataRegistry;
 import uk.ac.ebi.interpro.scan.io.smart.SmartOverlappingFileParser;
 import uk.ac.ebi.interpro.scan.io.smart.SmartOverlaps;
 import uk.ac.ebi.interpro.scan.io.smart.SmartThresholdFileParser;
@@ -47,6 +49,7 @@ public class SmartPostProcessing implements Serializable {
     private ProteinDAO proteinDAO;
     private SmartOverlaps smartOverlaps;
     private SmartThresholds smartThresholds;
+    private PostProcessingExecutor executor = new PostProcessingExecutor();
 
 
     @Required
@@ -80,6 +83,13 @@ public class SmartPostProcessing implements Serializable {
         this.proteinDAO = proteinDAO;
     }
 
+    /**
+     * @param executor to post-process the proteins of a batch with (by default one protein at a time).
+     */
+    public void setExecutor(PostProcessingExecutor executor) {
+        this.executor = executor;
+    }
+
     /**
      * Perform post processing.
      *
@@ -90,14 +100,23 @@ public class SmartPostProcessing implements Serializable {
     public Map<String, RawProtein<SmartRawMatch>> process(Map<String, RawProtein<SmartRawMatch>> proteinIdToRawProteinMap) throws IOException {
 
         // Parse resources if they exist
+        final boolean licensed = smartResourceManager.isLicensed();
+        if (licensed && (smartThresholds == null || smartOverlaps == null)) {
+            // Licensed resources are present, so parse them (once per JVM), before the proteins are (possibly in parallel) processed.
+            final ReferenceDataRegistry registry = ReferenceDataRegistry.getInstance();
+            final SmartThresholds thresholds = registry.get("smart-thresholds",
+                    () -> thresholdFileParser.parse(smartResourceManager.getThresholdFileResource()),
+                    smartResourceManager.getThresholdFileResource());
+            smartOverlaps = registry.get("smart-overlaps",
+                    () -> overlappingFileParser.parse(smartResourceManager.getOverlappingFileResource(), thresholds),
+                    smartResourceManager.getOverlappingFileResource(), smartResourceManager.getThresholdFileResource());
+            smartThresholds = thresholds;
+        }
         final Map<String, RawProtein<SmartRawMatch>> filteredMatches = new HashMap<String, RawProtein<SmartRawMatch>>();
-        for (RawProtein<SmartRawMatch> protein : proteinIdToRawProteinMap.values()) {
-            final RawProtein<SmartRawMatch> filteredProtein;
-            if (smartResourceManager.isLicensed()) {
-                filteredProtein = processProteinLicensed(protein);
-            } else {
-                filteredProtein = processProteinUnlicensed(protein);
-            }
+        final Map<Long, String> kinaseSequences = readKinaseSequences(proteinIdToRawProteinMap.values());
+        final Map<String, RawProtein<SmartRawMatch>> processed = executor.process(proteinIdToRawProteinMap, (proteinId, protein) ->
+                licensed ? processProteinLicensed(protein, kinaseSequences) : processProteinUnlicensed(protein, kinaseSequences));
+        for (RawProtein<SmartRawMatch> filteredProtein : processed.values()) {
             filteredMatches.put(filteredProtein.getProteinIdentifier(), filteredProtein);
         }
 
@@ -108,16 +127,10 @@ public class SmartPostProcessing implements Serializable {
      * The SMART resources are available, so running in licensed mode.
      *
      * @param smartRawMatchRawProtein to filter
+     * @param kinaseSequences         sequences of the proteins matching both kinase methods, by protein id.
      * @return a RawProtein with filtered matches.
-     * @throws IOException
      */
-    private RawProtein<SmartRawMatch> processProteinLicensed(RawProtein<SmartRawMatch> smartRawMatchRawProtein) throws IOException {
-        if (smartThresholds == null || smartOverlaps == null) {
-            // Licensed resources are present, so parse them.
-            smartThresholds = thresholdFileParser.parse(smartResourceManager.getThresholdFileResource());
-            smartOverlaps = overlappingFileParser.parse(smartResourceManager.getOverlappingFileResource(), smartThresholds);
-        }
-
+    private RawProtein<SmartRawMatch> processProteinLicensed(RawProtein<SmartRawMatch> smartRawMatchRawProtein, Map<Long, String> kinaseSequences) {
         // Lots of filters...
         smartRawMatchRawProtein = filterByDerivedSequenceEvalue(smartRawMatchRawProtein);
         smartRawMatchRawProtein = filterByDerivedDomainEvalue(smartRawMatchRawProtein);
@@ -125,7 +138,7 @@ public class SmartPostProcessing implements Serializable {
         smartRawMatchRawProtein = filterByFamilyOverlap(smartRawMatchRawProtein);
 
 
-        smartRawMatchRawProtein = filterKinaseHack(smartRawMatchRawProtein);
+        smartRawMatchRawProtein = filterKinaseHack(smartRawMatchRawProtein, kinaseSequences);
         return smartRawMatchRawProtein;
     }
 
@@ -292,23 +305,38 @@ public class SmartPostProcessing implements Serializable {
      * is all this filter does.
      *
      * @param matchRawProtein unfiltered matches
+     * @param kinaseSequences sequences of the proteins matching both kinase methods, by protein id.
      * @return filtered matches.
      */
-    private RawProtein<SmartRawMatch> processProteinUnlicensed(RawProtein<SmartRawMatch> matchRawProtein) {
+    private RawProtein<SmartRawMatch> processProteinUnlicensed(RawProtein<SmartRawMatch> matchRawProtein, Map<Long, String> kinaseSequences) {
         LOGGER.info("Smart licensed file resources are not available or readable - Smart post processing in unlicensed mode.");
-        return filterKinaseHack(matchRawProtein);
+        return filterKinaseHack(matchRawProtein, kinaseSequences);
     }
 
-
     /**
-     * If both SerineThreonine Kinase and Tyrosine Kinase are matched, need
-     * to check both kinds using the appropriate regular expressions (against
-     * the protein sequence).
+     * Reads the sequences the kinase hack needs, of the proteins matching both kinase methods, in one query
+     * before the proteins are (possibly in parallel) processed, so the processing threads do not use the DAO.
      *
-     * @param matchRawProtein Unfiltered matches
-     * @return filtered matches.
+     * @param rawProteins to process.
+     * @return the sequences of the proteins matching both kinase methods, by protein id.
      */
-    private RawProtein<SmartRawMatch> filterKinaseHack(RawProtein<SmartRawMatch> matchRawProtein) {
+    private Map<Long, String> readKinaseSequences(Collection<RawProtein<SmartRawMatch>> rawProteins) {
+        final Set<Long> kinaseProteinIds = new HashSet<Long>();
+        for (RawProtein<SmartRawMatch> rawProtein : rawProteins) {
+            if (matchesBothKinaseMethods(rawProtein)) {
+                kinaseProteinIds.add(rawProtein.getProteinDatabaseId());
+            }
+        }
+        final Map<Long, String> kinaseSequences = new HashMap<Long, String>(kinaseProteinIds.size());
+        if (!kinaseProteinIds.isEmpty()) {
+            for (Protein protein : proteinDAO.getProteinsByIds(kinaseProteinIds)) {
+                kinaseSequences.put(protein.getId(), protein.getSequence());
+            }
+        }
+        return kinaseSequences;
+    }
+
+    private static boolean matchesBothKinaseMethods(RawProtein<SmartRawMatch> matchRawProtein) {
         boolean seenS = false;
         boolean seenT = false;
         for (SmartRawMatch match : matchRawProtein.getMatches()) {
@@ -316,16 +344,29 @@ public class SmartPostProcessing implements Serializable {
             seenT |= SMART_TYR_KINASE_METHOD.equals(match.getModelId());
             seenS |= SMART_SER_THR_KINASE_METHOD.equals(match.getModelId());
         }
-        if (!(seenS && seenT)) {
+        return seenS && seenT;
+    }
+
+
+    /**
+     * If both SerineThreonine Kinase and Tyrosine Kinase are matched, need
+     * to check both kinds using the appropriate regular expressions (against
+     * the protein sequence).
+     *
+     * @param matchRawProtein Unfiltered matches
+     * @param kinaseSequences sequences of the proteins matching both kinase methods, by protein id.
+     * @return filtered matches.
+     */
+    private RawProtein<SmartRawMatch> filterKinaseHack(RawProtein<SmartRawMatch> matchRawProtein, Map<Long, String> kinaseSequences) {
+        if (!matchesBothKinaseMethods(matchRawProtein)) {
             return matchRawProtein;
         }
 
         // Have matches to both, so run regex etc.
-        final Protein protein = proteinDAO.read(matchRawProtein.getProteinDatabaseId());
-        if (protein == null) {
+        final String sequence = kinaseSequences.get(matchRawProtein.getProteinDatabaseId());
+        if (sequence == null) {
             throw new IllegalStateException("Cannot access the Protein via the protein primary key from the RawProtein object.");
         }
-        final String sequence = protein.getSequence();
         final boolean tyrosineOK = SMART_TYR_REGEX.matcher(sequence).matches();
         final boolean serineThreonineOK = SMART_SER_THR_REGEX.matcher(sequence).matches();
 
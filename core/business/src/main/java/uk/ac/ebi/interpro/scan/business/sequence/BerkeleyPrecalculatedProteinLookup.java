@@ -21,6 +21,13 @@ import javax.xml.bind.JAXBException;
 import java.io.IOException;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
 
 /**
  * Looks up precalculated matches from the Berkeley WebService.
@@ -62,13 +69,19 @@ public class BerkeleyPrecalculatedProteinLookup implements PrecalculatedProteinL
 
     private int proteinPrecalcLookupBatchSize = 100;
 
+    /**
+     * Number of batches looked up concurrently from the lookup service, while the matches of the batches
+     * already looked up are converted and persisted.
+     */
+    private int lookupConcurrency = 1;
+
     private  Map<String, SignatureLibraryRelease> analysisJobMap;
 
     private String interproscanVersion;
 
-    private Long timeLookupError = null;
+    private volatile Long timeLookupError = null;
 
-    private Long timeLookupSynchronisationError = null;
+    private volatile Long timeLookupSynchronisationError = null;
 
     private int totalLookedup = 0;
 
@@ -123,110 +136,142 @@ public class BerkeleyPrecalculatedProteinLookup implements PrecalculatedProteinL
         this.analysisJobMap = analysisJobMap;
     }
 
+    public void setProteinPrecalcLookupBatchSize(int proteinPrecalcLookupBatchSize) {
+        this.proteinPrecalcLookupBatchSize = proteinPrecalcLookupBatchSize;
+    }
+
+    public void setLookupConcurrency(int lookupConcurrency) {
+        this.lookupConcurrency = lookupConcurrency;
+    }
+
+    /**
+     * Looks up the proteins in batches of proteinPrecalcLookupBatchSize, as a pipeline: up to lookupConcurrency
+     * batches are looked up from the lookup service at the same time, while this thread converts and persists
+     * the matches of the batches already looked up, in order.  At most twice lookupConcurrency batches are
+     * looked up ahead of the conversion, so the lookups wait for the conversion if it falls behind.
+     */
     @Override
     public void run() {
 
         String proteinRange = "[" + proteinRanges.get("bottom") + "-" + proteinRanges.get("top") + "]";
 
-        Utilities.verboseLog("LookupV2 Processing  " + proteins.size() + " range: " + proteinRange );
-        int count = 0;
-        int batchCount = 0;
-
-
-        final  Set<Protein> proteinsAwaitingPrecalcLookup = new HashSet<>();
-        final  Set<Protein> precalculatedProteins = new HashSet<>();
+        Utilities.verboseLog("LookupV2 Processing  " + proteins.size() + " range: " + proteinRange + " lookup concurrency: " + lookupConcurrency);
+        final Set<Protein> precalculatedProteins = new HashSet<>();
         int proteinsCount = proteins.size();
 
-        int proteinNotInLookupCount = 0;
         //check the kv stores in proteinDAO
         proteinDAO.checkKVDBStores();
 
-        int oldProgressMeter = 0;
+        final List<Set<Protein>> batches = new ArrayList<>();
+        Set<Protein> proteinsAwaitingPrecalcLookup = new HashSet<>();
         for (Protein protein : proteins) {
-            count++;
-            if (proteinsAwaitingPrecalcLookup == null) {
-                Utilities.verboseLog(proteinRange + "proteinsAwaitingPrecalcLookup is null -- " + proteinsAwaitingPrecalcLookup);
-            }
             proteinsAwaitingPrecalcLookup.add(protein);
-            if ((proteinsAwaitingPrecalcLookup.size() >= proteinPrecalcLookupBatchSize) || (count >= proteinsCount)) {
-                batchCount++;
-                Utilities.verboseLog(proteinRange + " lookup up protein batch no. " + batchCount);
-                final Set<Protein> localPrecalculatedProteins = getPrecalculated(proteinsAwaitingPrecalcLookup, analysisJobMap);
-                boolean printedProteinKeyRep = false;
-                if (localPrecalculatedProteins != null) {
-                    Utilities.verboseLog(proteinRange + " We have precalculated proteins: " +  localPrecalculatedProteins.size());
-                    final Map<String, Protein> md5ToPrecalcProtein = new HashMap<>(localPrecalculatedProteins.size());
-                    for (Protein precalc : localPrecalculatedProteins) {
-                        md5ToPrecalcProtein.put(precalc.getMd5(), precalc);
-                    }
+            if (proteinsAwaitingPrecalcLookup.size() >= proteinPrecalcLookupBatchSize) {
+                batches.add(proteinsAwaitingPrecalcLookup);
+                proteinsAwaitingPrecalcLookup = new HashSet<>();
+            }
+        }
+        if (!proteinsAwaitingPrecalcLookup.isEmpty()) {
+            batches.add(proteinsAwaitingPrecalcLookup);
+        }
 
-                    for (Protein proteinAwaitingPrecalcLookup : proteinsAwaitingPrecalcLookup) {
-                        if (md5ToPrecalcProtein.keySet().contains(proteinAwaitingPrecalcLookup.getMd5())) {
-                            precalculatedProteins.add(md5ToPrecalcProtein.get(proteinAwaitingPrecalcLookup.getMd5()));
-                        } else {
-                            //addProteinToBatch(proteinAwaitingPrecalcLookup);
-                            String proteinKey = String.valueOf(proteinAwaitingPrecalcLookup.getId());
-                            if (! printedProteinKeyRep) {
-                                Utilities.verboseLog("md5ToPrecalcProtein does NOT contain proteinKey Rep: " + proteinKey);
-                                printedProteinKeyRep = true;
-                            }
-                            if(proteinDAO.getLevelDBStore() == null){
-                                LOGGER.error("Something wrong witht the kv store: proteinsNotInLookupDB");
-                            }
-                            proteinDAO.insertProteinNotInLookup(proteinKey, proteinAwaitingPrecalcLookup);
+        final int concurrency = Math.max(1, lookupConcurrency);
+        final ExecutorService lookupExecutor = Executors.newFixedThreadPool(concurrency, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "precalc-lookup " + proteinRange);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final Deque<Future<LookupBatch>> lookupsInFlight = new ArrayDeque<>();
+        int count = 0;
+        int batchCount = 0;
+        int oldProgressMeter = 0;
+        try {
+            final Iterator<Set<Protein>> batchIterator = batches.iterator();
+            while (batchIterator.hasNext() || !lookupsInFlight.isEmpty()) {
+                while (batchIterator.hasNext() && lookupsInFlight.size() < 2 * concurrency) {
+                    final Set<Protein> batch = batchIterator.next();
+                    lookupsInFlight.add(lookupExecutor.submit(new Callable<LookupBatch>() {
+                        @Override
+                        public LookupBatch call() {
+                            return lookupPrecalculated(batch, analysisJobMap);
                         }
-                    }
-                } else {
-                    //there are no matches or we are not using the lookup match service
-                    Utilities.verboseLog(proteinRange + " There are NO matches for these proteins: " +  proteinsAwaitingPrecalcLookup.size());
-                    for (Protein proteinAwaitingPrecalcLookup : proteinsAwaitingPrecalcLookup) {
-                        String proteinKey = String.valueOf(proteinAwaitingPrecalcLookup.getId());
-                        proteinDAO.insertProteinNotInLookup(proteinKey, proteinAwaitingPrecalcLookup);
-                        proteinNotInLookupCount ++;
-                        //addProteinToBatch(proteinAwaitingPrecalcLookup);
-                    }
+                    }));
                 }
-                precalculatedProteins.addAll(proteinsAwaitingPrecalcLookup);
+                final LookupBatch lookupBatch = lookupsInFlight.poll().get();
+                batchCount++;
+                Utilities.verboseLog(proteinRange + " lookup up protein batch no. " + batchCount);
+                storeBatch(lookupBatch, precalculatedProteins, proteinRange);
+                count += lookupBatch.getProteins().size();
 
-                // All dealt with, so clear.
-                proteinsAwaitingPrecalcLookup.clear();
-            }
-            int progressMeter = count * 100 / proteinsCount;
-            if (progressMeter % 20 == 0 && progressMeter != oldProgressMeter){
-                if (progressMeter % 40 == 0 ) {
-                    Utilities.verboseLog(10, " LookupProgress " + proteinRange + " : " + progressMeter + "%");
-                } else {
+                int progressMeter = count * 100 / proteinsCount;
+                if (progressMeter % 20 == 0 && progressMeter != oldProgressMeter){
+                    if (progressMeter % 40 == 0 ) {
+                        Utilities.verboseLog(10, " LookupProgress " + proteinRange + " : " + progressMeter + "%");
+                    } else {
 
-                    Utilities.verboseLog(20, "LookupProgress " + proteinRange + " : " + progressMeter + "%");
+                        Utilities.verboseLog(20, "LookupProgress " + proteinRange + " : " + progressMeter + "%");
+                    }
+                    oldProgressMeter = progressMeter;
                 }
-                oldProgressMeter = progressMeter;
             }
-
-        }
-
-        //add all the proteins not in the lookup to the concurrent set
-        //proteinsWithoutLookupHit.addAll(proteinsNotInLookup);
-        //TODO the following lines until end of the method is for testing only, afterwards remove
-        List<Protein> proteinsNotInLookup = null;
-        try {
-            proteinsNotInLookup = proteinDAO.getProteinsNotInLookup();
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while looking up the precalculated matches " + proteinRange, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to look up the precalculated matches " + proteinRange, e.getCause());
+        } finally {
+            lookupExecutor.shutdownNow();
         }
 
-
-        int proteinsNotInLookupCount = proteinsNotInLookup.size();
-        Utilities.verboseLog(10, "1. proteinsNotInLookupCount :  "  + proteinsNotInLookupCount);
-
-
         Utilities.verboseLog("2. Precalculated Proteins " + proteinRange + "  size: " + precalculatedProteins.size());
-        Utilities.verboseLog("2. Proteing not in LookUp Service (proteinDAO.proteinsNotInLookupCount) " + proteinRange + "  size: " + proteinsNotInLookupCount);
-
-        //Get all the proteins without a lookup hit
+        Utilities.verboseLog("2. LookupV2 Processing range: " + proteinRange + " completed");
+        Utilities.verboseLog(10, "Lookup client " + proteinRange + " " + preCalcMatchClient.getStatistics());
+    }
 
+    /**
+     * Converts and persists the matches of a batch of proteins looked up, and stores
+     * the proteins that are not in the lookup service, to be analysed locally.
+     */
+    private void storeBatch(LookupBatch lookupBatch, Set<Protein> precalculatedProteins, String proteinRange) {
+        final Set<Protein> proteinsAwaitingPrecalcLookup = lookupBatch.getProteins();
+        final Set<Protein> localPrecalculatedProteins = convertPrecalculated(lookupBatch, analysisJobMap);
+        boolean printedProteinKeyRep = false;
+        final Map<String, Protein> keyToProteinNotInLookupMap = new HashMap<>();
+        if (localPrecalculatedProteins != null) {
+            Utilities.verboseLog(proteinRange + " We have precalculated proteins: " +  localPrecalculatedProteins.size());
+            final Map<String, Protein> md5ToPrecalcProtein = new HashMap<>(localPrecalculatedProteins.size());
+            for (Protein precalc : localPrecalculatedProteins) {
+                md5ToPrecalcProtein.put(precalc.getMd5(), precalc);
+            }
 
-        Utilities.verboseLog(10, " 2. total proteinsNotInLookup   " + proteinRange + " size: " + proteinsNotInLookup.size());
-        Utilities.verboseLog("2. LookupV2 Processing range: " + proteinRange + " completed");
+            for (Protein proteinAwaitingPrecalcLookup : proteinsAwaitingPrecalcLookup) {
+                if (md5ToPrecalcProtein.keySet().contains(proteinAwaitingPrecalcLookup.getMd5())) {
+                    precalculatedProteins.add(md5ToPrecalcProtein.get(proteinAwaitingPrecalcLookup.getMd5()));
+                } else {
+                    String proteinKey = String.valueOf(proteinAwaitingPrecalcLookup.getId());
+                    if (! printedProteinKeyRep) {
+                        Utilities.verboseLog("md5ToPrecalcProtein does NOT contain proteinKey Rep: " + proteinKey);
+                        printedProteinKeyRep = true;
+                    }
+                    if(proteinDAO.getLevelDBStore() == null){
+                        LOGGER.error("Something wrong witht the kv store: proteinsNotInLookupDB");
+                    }
+                    keyToProteinNotInLookupMap.put(proteinKey, proteinAwaitingPrecalcLookup);
+                }
+            }
+        } else {
+            //there are no matches or we are not using the lookup match service
+            Utilities.verboseLog(proteinRange + " There are NO matches for these proteins: " +  proteinsAwaitingPrecalcLookup.size());
+            for (Protein proteinAwaitingPrecalcLookup : proteinsAwaitingPrecalcLookup) {
+                String proteinKey = String.valueOf(proteinAwaitingPrecalcLookup.getId());
+                keyToProteinNotInLookupMap.put(proteinKey, proteinAwaitingPrecalcLookup);
+            }
+        }
+        proteinDAO.insertProteinsNotInLookup(keyToProteinNotInLookupMap);
+        precalculatedProteins.addAll(proteinsAwaitingPrecalcLookup);
     }
 
     /**
@@ -328,11 +373,23 @@ public class BerkeleyPrecalculatedProteinLookup implements PrecalculatedProteinL
 
     @Override
     public Set<Protein> getPrecalculated(Set<Protein> proteins, Map<String, SignatureLibraryRelease> analysisJobMap) {
+        return convertPrecalculated(lookupPrecalculated(proteins, analysisJobMap), analysisJobMap);
+    }
+
+    /**
+     * First stage of {@link #getPrecalculated(Set, Map)}: gets the matches (and sites) of a batch of proteins
+     * from the lookup service.  Only calls the lookup service, so may be run concurrently for several batches.
+     *
+     * @return the batch looked up, of which the precalculated proteins are null if the lookup service
+     * can not be used, or empty if none of the proteins have been precalculated.
+     */
+    LookupBatch lookupPrecalculated(Set<Protein> proteins, Map<String, SignatureLibraryRelease> analysisJobMap) {
+        final LookupBatch lookupBatch = new LookupBatch(proteins);
         // Check if the precalc service is configure and available.
         Utilities.verboseLog(10, " Start getPrecalculated for " + proteins.size() + " proteins");
         if (!preCalcMatchClient.isConfigured()) {
             Utilities.verboseLog(10,  " preCalcMatchClient is NULL ...");
-            return null;
+            return lookupBatch;
         }
 
 
@@ -344,7 +401,7 @@ public class BerkeleyPrecalculatedProteinLookup implements PrecalculatedProteinL
             // Only proceed if the lookup client and server are in sync
             if (!isSynchronised()) {
                 Utilities.verboseLog(10, "TESTING only: The server and the client DO NOT have the same version or some other errror ");
-                return null;
+                return lookupBatch;
             } else {
                 Utilities.verboseLog(10, "TESTING only: The server and the client HAVE the same version");
             }
@@ -361,11 +418,12 @@ public class BerkeleyPrecalculatedProteinLookup implements PrecalculatedProteinL
             lookupMessageStatus = "Check MD5s of proteins analysed previously";
             final List<String> analysedMd5s = preCalcMatchClient.getMD5sOfProteinsAlreadyAnalysed(md5s);
 
-            Utilities.verboseLog(10, "GOt MD5sOfProteinsAlreadyAnalysed :" + analysedMd5s.size());
             // Check if NONE have been pre-calculated - if so, return empty set.
             if (analysedMd5s == null || analysedMd5s.size() == 0) {
-                return Collections.emptySet();
+                lookupBatch.precalculatedProteins = Collections.emptySet();
+                return lookupBatch;
             }
+            Utilities.verboseLog(10, "GOt MD5sOfProteinsAlreadyAnalysed :" + analysedMd5s.size());
 
             // Create a Set of proteins that have been precalculated - this is what will end up being returned.
             final Set<Protein> precalculatedProteins = new HashSet<Protein>(analysedMd5s.size());
@@ -378,25 +436,32 @@ public class BerkeleyPrecalculatedProteinLookup implements PrecalculatedProteinL
                 md5s[i++] = md5Upper;
                 precalculatedProteins.add(md5ToProteinMap.get(md5Upper));
             }
-//            Utilities.verboseLog(10, "precalculatedProteins: "+ precalculatedProteins.toString());
             Long startTime = null;
             startTime = System.nanoTime();
 
             lookupMessageStatus = "Get matches of proteins analysed previously";
-//            final KVSequenceEntryXML kvSequenceEntryXML = preCalcMatchClient.getMatches(md5s);
-            Utilities.verboseLog(10, "getMatchesFromLookup .. " );
-            final KVSequenceEntryXML kvSequenceEntryXML = getMatchesFromLookup(md5s);
-            Utilities.verboseLog(20, "berkeleyMatchXML: " + kvSequenceEntryXML.getMatches().toString());
-
-            //if null is returned from the lookupmatch then may need to be calculated
-            if (kvSequenceEntryXML == null) {
+            Utilities.verboseLog(10, "streamMatchesFromLookup .. " );
+            // The matches are added to the batch, and the releases they are from collected, as they are read
+            final List<KVSequenceEntry> kvSequenceEntryMatches = new ArrayList<>();
+            final Map<String, String> lookupReleases = new HashMap<>();
+            final boolean matchesRead = streamFromLookup(preCalcMatchClient::streamMatches,
+                    entry -> {
+                        kvSequenceEntryMatches.add(entry);
+                        addLookupReleases(lookupReleases, entry);
+                    },
+                    () -> {
+                        kvSequenceEntryMatches.clear();
+                        lookupReleases.clear();
+                    },
+                    md5s);
+
+            //if the matches can not be read from the lookup then may need to be calculated
+            if (!matchesRead) {
                 Utilities.verboseLog(20, "For this batch, calculate the matches locally - analysedMd5s.size =  " + analysedMd5s.size());
-                Utilities.verboseLog(20, "totalLookedup though: " + totalLookedup);
-                return Collections.emptySet();
+                lookupBatch.precalculatedProteins = Collections.emptySet();
+                return lookupBatch;
             }
 
-            totalLookedup = totalLookedup + analysedMd5s.size();
-            Utilities.verboseLog(10, "TotalLookedup: " + totalLookedup);
             long timetaken = System.nanoTime() - startTime;
             long lookupTimeMillis = 0;
             if (timetaken > 0) {
@@ -404,43 +469,67 @@ public class BerkeleyPrecalculatedProteinLookup implements PrecalculatedProteinL
             }
 
 
-            Utilities.verboseLog(10, "Time to lookup " + kvSequenceEntryXML.getMatches().size() + " matches for " + md5s.length + " proteins: " + lookupTimeMillis + " millis");
+            Utilities.verboseLog(10, "Time to lookup " + kvSequenceEntryMatches.size() + " matches for " + md5s.length + " proteins: " + lookupTimeMillis + " millis");
 
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Time to lookup " + kvSequenceEntryXML.getMatches().size() + " matches for " + md5s.length + " proteins: " + lookupTimeMillis + " millis");
+                LOGGER.debug("Time to lookup " + kvSequenceEntryMatches.size() + " matches for " + md5s.length + " proteins: " + lookupTimeMillis + " millis");
             }
-            startTime = System.nanoTime();
-            // Check if the analysis versions are consistent and then proceed
-            int precalculatedProteinsCount = precalculatedProteins.size();
-            Utilities.verboseLog(10, "Now check the version consistency : for " + precalculatedProteinsCount + " precalculatedProteins");
             //should we get CDD or SFLD sites
             boolean includeCDDorSFLD = includeCDDorSFLD(analysisJobMap);
             Utilities.verboseLog("include CDD or SFLD:  ... " + includeCDDorSFLD);
-            KVSequenceEntryXML kvSitesSequenceEntryXML = null;
 
             //Avoid null lists and go for empty lists
             List<KVSequenceEntry> kvSequenceEntrySites = new ArrayList<>();
             if(includeCDDorSFLD){
                 Utilities.verboseLog(30, "Now lookup Sites ... ");
-                kvSitesSequenceEntryXML = getSitesFromLookup(md5s);
-                if(kvSitesSequenceEntryXML != null){
-                    kvSequenceEntrySites = kvSitesSequenceEntryXML.getMatches();
+                lookupMessageStatus = "Get sites of proteins analysed previously";
+                final List<KVSequenceEntry> sites = new ArrayList<>();
+                if (streamFromLookup(preCalcMatchClient::streamSites, sites::add, sites::clear, md5s)) {
+                    kvSequenceEntrySites = sites;
                 }
-                Utilities.verboseLog(30, "lookup Sites XML:" + kvSequenceEntrySites.size() + " -- " + kvSequenceEntrySites.toString());
+                Utilities.verboseLog(30, "lookup Sites:" + kvSequenceEntrySites.size() + " -- " + kvSequenceEntrySites.toString());
             }
 
-            List<KVSequenceEntry> kvSequenceEntryMatches = new ArrayList<>();;
+            lookupBatch.precalculatedProteins = precalculatedProteins;
+            lookupBatch.kvSequenceEntryMatches = kvSequenceEntryMatches;
+            lookupBatch.lookupReleases = lookupReleases;
+            lookupBatch.kvSequenceEntrySites = kvSequenceEntrySites;
+            lookupBatch.includeCDDorSFLD = includeCDDorSFLD;
+            return lookupBatch;
 
-            if(kvSequenceEntryXML != null) {
-                kvSequenceEntryMatches = kvSequenceEntryXML.getMatches();
-            }
+        } catch (Exception e) {
+            hostAvailabilityCheck(preCalcMatchClient.getUrl());
+            displayLookupError(e, lookupMessageStatus);
+            return lookupBatch;
+        }
 
-            if (isAnalysisVersionConsistent(precalculatedProteins, kvSequenceEntryXML.getMatches(), analysisJobMap)) {
-                if(kvSequenceEntryMatches != null && kvSequenceEntrySites != null) {
-                    Utilities.verboseLog(10, "Analysis versions ARE Consistent ..  populateProteinMatches : kvSequenceEntryMatches " + kvSequenceEntryMatches.size() +
-                            " kvSequenceEntrySites: " + kvSequenceEntrySites.size());
-                }
-                lookupStoreToI5ModelDAO.populateProteinMatches(precalculatedProteins, kvSequenceEntryMatches, kvSequenceEntrySites, analysisJobMap, includeCDDorSFLD);
+    }
+
+    /**
+     * Second stage of {@link #getPrecalculated(Set, Map)}: checks the analysis versions of the matches looked up
+     * and converts them to I5 matches, persisted with the proteins.
+     *
+     * @return the precalculated proteins, or null if the lookup service can not be used for this batch.
+     */
+    Set<Protein> convertPrecalculated(LookupBatch lookupBatch, Map<String, SignatureLibraryRelease> analysisJobMap) {
+        final Set<Protein> precalculatedProteins = lookupBatch.precalculatedProteins;
+        if (precalculatedProteins == null || lookupBatch.kvSequenceEntryMatches == null) {
+            return precalculatedProteins;
+        }
+        try {
+            totalLookedup = totalLookedup + precalculatedProteins.size();
+            Utilities.verboseLog(10, "TotalLookedup: " + totalLookedup);
+            long startTime = System.nanoTime();
+            // Check if the analysis versions are consistent and then proceed
+            int precalculatedProteinsCount = precalculatedProteins.size();
+            Utilities.verboseLog(10, "Now check the version consistency : for " + precalculatedProteinsCount + " precalculatedProteins");
+            final List<KVSequenceEntry> kvSequenceEntryMatches = lookupBatch.kvSequenceEntryMatches;
+            final List<KVSequenceEntry> kvSequenceEntrySites = lookupBatch.kvSequenceEntrySites;
+
+            if (isAnalysisVersionConsistent(lookupBatch.lookupReleases, analysisJobMap)) {
+                Utilities.verboseLog(10, "Analysis versions ARE Consistent ..  populateProteinMatches : kvSequenceEntryMatches " + kvSequenceEntryMatches.size() +
+                        " kvSequenceEntrySites: " + kvSequenceEntrySites.size());
+                lookupStoreToI5ModelDAO.populateProteinMatches(precalculatedProteins, kvSequenceEntryMatches, kvSequenceEntrySites, analysisJobMap, lookupBatch.includeCDDorSFLD);
                 Utilities.verboseLog(10, "Completed Populate precalculated Protein Matches:  " + precalculatedProteins.size() );
             } else {
                 // If the member database version at lookupmatch service is different  from the analysis version in
@@ -448,21 +537,88 @@ public class BerkeleyPrecalculatedProteinLookup implements PrecalculatedProteinL
                 Utilities.verboseLog(10, "Analysis versions NOT Consistent");
                 return null;
             }
-            timetaken = System.nanoTime() - startTime;
-            lookupTimeMillis = 0;
+            long timetaken = System.nanoTime() - startTime;
+            long lookupTimeMillis = 0;
             if (timetaken > 0) {
                 lookupTimeMillis = timetaken / 1000000;
             }
-            Utilities.verboseLog(10, "Time to convert to i5 matches " + kvSequenceEntryXML.getMatches().size() + " matches for " + md5s.length + " proteins: " + lookupTimeMillis + " millis");
+            Utilities.verboseLog(10, "Time to convert to i5 matches " + kvSequenceEntryMatches.size() + " matches for " + precalculatedProteinsCount + " proteins: " + lookupTimeMillis + " millis");
 
             return precalculatedProteins;
 
         } catch (Exception e) {
-            hostAvailabilityCheck(preCalcMatchClient.getUrl());
-            displayLookupError(e, lookupMessageStatus);
+            displayLookupError(e, "Convert matches of proteins analysed previously");
             return null;
         }
+    }
+
+    /**
+     * A batch of proteins, with the matches and sites looked up for them.
+     */
+    static class LookupBatch {
+
+        private final Set<Protein> proteins;
+
+        private Set<Protein> precalculatedProteins;
+
+        private List<KVSequenceEntry> kvSequenceEntryMatches;
+
+        // Release of each signature library of the matches, e.g. key=PIRSF,value=2.84
+        private Map<String, String> lookupReleases;
+
+        private List<KVSequenceEntry> kvSequenceEntrySites;
+
+        private boolean includeCDDorSFLD;
+
+        LookupBatch(Set<Protein> proteins) {
+            this.proteins = proteins;
+        }
+
+        Set<Protein> getProteins() {
+            return proteins;
+        }
+    }
+
+    /**
+     * Streams the matches (or sites) of the MD5s from the lookup service.
+     */
+    interface LookupStream {
 
+        int stream(Consumer<KVSequenceEntry> consumer, String... md5s) throws IOException;
+    }
+
+    /**
+     * Passes the matches (or sites) of the MD5s to the consumer as they are read from the lookup service,
+     * retrying as {@link #getMatchesFromLookup(String...)} does.
+     *
+     * @param lookupStream the matches or the sites of the lookup service.
+     * @param consumer     of the entries.
+     * @param restart      discards the entries consumed so far, before a retry.
+     * @param md5s         of the proteins.
+     * @return true if the entries were all read, false if the lookup service failed.
+     */
+    boolean streamFromLookup(LookupStream lookupStream, Consumer<KVSequenceEntry> consumer, Runnable restart, String... md5s) throws InterruptedException {
+        int count = 0;
+        int maxTries = 4;
+        while (true) {
+            try {
+                if (count > 0) {
+                    restart.run();
+                }
+                lookupStream.stream(consumer, md5s);
+                return true;
+            } catch (UnmarshallingFailureException e) {  //    also covers    UnmarshalException (JAXBException e) {
+                if (++count == maxTries) {
+                    return false;
+                }
+                Thread.sleep(10 * 1000);  //wait for 10 seconds before trying again
+            } catch (IOException e) {
+                // A truncated or unreadable response is retried
+                if (++count == maxTries) {
+                    return false;
+                }
+            }
+        }
     }
 
     public KVSequenceEntryXML getMatchesFromLookup(String... md5s) throws InterruptedException {
@@ -580,19 +736,35 @@ public class BerkeleyPrecalculatedProteinLookup implements PrecalculatedProteinL
      */
     public boolean isAnalysisVersionConsistent(Set<Protein> preCalculatedProteins, List<KVSequenceEntry> kvSequenceEntries, Map<String, SignatureLibraryRelease> analysisJobMap) {
         // Collection of BerkeleyMatches of different kinds.
+        Map<String, String> lookupReleases = new HashMap<String, String>();
+        for (KVSequenceEntry kvSequenceEntry : kvSequenceEntries) {
+            addLookupReleases(lookupReleases, kvSequenceEntry);
+        }
+        return isAnalysisVersionConsistent(lookupReleases, analysisJobMap);
+    }
+
+    /**
+     * Adds the signature library and release of each of the hits of the entry.  Only the library and release
+     * columns of the hits are read.
+     */
+    static void addLookupReleases(Map<String, String> lookupReleases, KVSequenceEntry kvSequenceEntry) {
+        for (String sequenceHit : kvSequenceEntry.getSequenceHits()) {
+            lookupReleases.put(SimpleLookupMatch.signatureLibraryNameOf(sequenceHit), SimpleLookupMatch.sigLibReleaseOf(sequenceHit));
+        }
+    }
+
+    /**
+     * As {@link #isAnalysisVersionConsistent(Set, List, Map)}, from the releases of the lookup matches
+     * collected as they were read.
+     *
+     * @param lookupReleases release of each signature library of the lookup matches.
+     */
+    boolean isAnalysisVersionConsistent(Map<String, String> lookupReleases, Map<String, SignatureLibraryRelease> analysisJobMap) {
         Utilities.verboseLog("Check if AnalysisVersion Consistent  ...");
         Map<String, String> lookupAnalysesMap = new HashMap<String, String>();
-        for (KVSequenceEntry kvSequenceEntry : kvSequenceEntries) {
-            String proteinMD5 = kvSequenceEntry.getProteinMD5();
-            Set<String> sequenceHits = kvSequenceEntry.getSequenceHits();
-            for (String sequenceHit : sequenceHits) {
-                LOGGER.debug("csvMatch:" + sequenceHit);
-                SimpleLookupMatch simpleMatch = new SimpleLookupMatch(proteinMD5, sequenceHit);
-                LOGGER.debug("simpleMatch " + simpleMatch.toString());
-                String signatureLibraryReleaseVersion = simpleMatch.getSigLibRelease();
-                final SignatureLibrary sigLib = SignatureLibraryLookup.lookupSignatureLibrary(simpleMatch.getSignatureLibraryName());
-                lookupAnalysesMap.put(sigLib.getName().toUpperCase(), signatureLibraryReleaseVersion);
-            }
+        for (Map.Entry<String, String> lookupRelease : lookupReleases.entrySet()) {
+            final SignatureLibrary sigLib = SignatureLibraryLookup.lookupSignatureLibrary(lookupRelease.getKey());
+            lookupAnalysesMap.put(sigLib.getName().toUpperCase(), lookupRelease.getValue());
         }
 
         //Utilities.verboseLog("lookupAnalysesMap   ..." + lookupAnalysesMap.keySet());
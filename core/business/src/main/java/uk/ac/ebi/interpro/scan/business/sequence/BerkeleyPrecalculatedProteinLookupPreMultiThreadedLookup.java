@@ -381,19 +381,19 @@ public class BerkeleyPrecalculatedProteinLookupPreMultiThreadedLookup implements
      */
     public boolean isAnalysisVersionConsistent(Set<Protein> preCalculatedProteins, List<KVSequenceEntry> kvSequenceEntries, Map<String, SignatureLibraryRelease> analysisJobMap) {
         // Collection of BerkeleyMatches of different kinds.
-        Map<String, String> lookupAnalysesMap = new HashMap<String, String>();
+        // Only the library and release columns of the hits are read
+        Map<String, String> lookupReleases = new HashMap<String, String>();
         for (KVSequenceEntry kvSequenceEntry : kvSequenceEntries) {
-            String proteinMD5 = kvSequenceEntry.getProteinMD5();
-            Set<String> sequenceHits = kvSequenceEntry.getSequenceHits();
-            for (String sequenceHit :sequenceHits) {
+            for (String sequenceHit : kvSequenceEntry.getSequenceHits()) {
                 LOGGER.debug("csvMatch:" + sequenceHit);
-                SimpleLookupMatch simpleMatch = new SimpleLookupMatch(proteinMD5, sequenceHit);
-                LOGGER.debug("simpleMatch " + simpleMatch.toString());
-                String signatureLibraryReleaseVersion = simpleMatch.getSigLibRelease();
-                final SignatureLibrary sigLib = SignatureLibraryLookup.lookupSignatureLibrary(simpleMatch.getSignatureLibraryName());
-                lookupAnalysesMap.put(sigLib.getName().toUpperCase(), signatureLibraryReleaseVersion);
+                lookupReleases.put(SimpleLookupMatch.signatureLibraryNameOf(sequenceHit), SimpleLookupMatch.sigLibReleaseOf(sequenceHit));
             }
         }
+        Map<String, String> lookupAnalysesMap = new HashMap<String, String>();
+        for (Map.Entry<String, String> lookupRelease : lookupReleases.entrySet()) {
+            final SignatureLibrary sigLib = SignatureLibraryLookup.lookupSignatureLibrary(lookupRelease.getKey());
+            lookupAnalysesMap.put(sigLib.getName().toUpperCase(), lookupRelease.getValue());
+        }
         for (String analysisJobName : analysisJobMap.keySet()) {
             if (lookupAnalysesMap.containsKey(analysisJobName.toUpperCase())) {
                 String lookUpMatchAnalaysVersion = lookupAnalysesMap.get(analysisJobName.toUpperCase());
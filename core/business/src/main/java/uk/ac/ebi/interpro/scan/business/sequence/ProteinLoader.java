@@ -8,6 +8,7 @@ import uk.ac.ebi.interpro.scan.model.*;
 import uk.ac.ebi.interpro.scan.persistence.NucleotideSequenceDAO;
 import uk.ac.ebi.interpro.scan.persistence.OpenReadingFrameDAO;
 import uk.ac.ebi.interpro.scan.persistence.ProteinDAO;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDBValueCursor;
 import uk.ac.ebi.interpro.scan.util.Utilities;
 
 
@@ -283,16 +284,28 @@ public class ProteinLoader implements SequenceLoader<Protein> {
         long bottom = 1l;
         long top = bottom + parsedProteins.size();
         //TODO check again
-        List<Protein> storedProteins = proteinDAO.getProteins(); //original was proteinDAO.getProteins(bottom, top);
+        // Streamed from the store (original was proteinDAO.getProteins(bottom, top)) and written back in batches,
+        // so that no more than a batch of proteins is held in memory.
+        final int batchSize = Math.max(1, proteinPrecalcLookupBatchSize);
         Long count = 0L;
         //SimpleDateFormat sdf =  new SimpleDateFormat("dd/MM/yyyy HH:mm:ss:SSS");
-        for (Protein protein : storedProteins) {
-            count++;
-            String sequenceId = Long.toString(protein.getId());
-            if (count == 1 || count == 10) {
-                Utilities.verboseLog("sequenceId = " + sequenceId);
+        final Map<String, Protein> keyToProteinMap = new HashMap<>();
+        try (KVDBValueCursor<Protein> storedProteins = proteinDAO.getProteinCursor()) {
+            for (Protein protein : storedProteins) {
+                count++;
+                String sequenceId = Long.toString(protein.getId());
+                if (count == 1 || count == 10) {
+                    Utilities.verboseLog("sequenceId = " + sequenceId);
+                }
+                keyToProteinMap.put(sequenceId, protein);
+                if (keyToProteinMap.size() >= batchSize) {
+                    proteinDAO.persist(keyToProteinMap);
+                    keyToProteinMap.clear();
+                }
             }
-            proteinDAO.insert(sequenceId, protein);
+        }
+        if (!keyToProteinMap.isEmpty()) {
+            proteinDAO.persist(keyToProteinMap);
         }
         Utilities.verboseLog("Completed storing " + count + " parsed proteins into KV store, top=" + top);
     }
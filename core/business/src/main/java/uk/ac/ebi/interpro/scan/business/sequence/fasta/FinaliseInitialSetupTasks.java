@@ -79,23 +79,16 @@ public class FinaliseInitialSetupTasks {
         //TODO this is for testing, we need to revisit this approach later
         // we still need some kind of control when we have proteins in the lookup service ??
 
-        List<Protein> proteinsNotInLookup = null;
-        try {
-            proteinsNotInLookup = proteinDAO.getProteinsNotInLookup();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        int proteinsNotInLookupCount = proteinsNotInLookup.size();
+        // The IDs alone, read from the keys of the KV store, in ID order
+        final List<Long> proteinIdsNotInLookup = (topProteinId == null)
+                ? Collections.<Long>emptyList()
+                : proteinDAO.getProteinIdsNotInLookup(bottomProteinId, topProteinId);
+        int proteinsNotInLookupCount = proteinIdsNotInLookup.size();
 
         ArrayList<Long> idsWithoutLookupHit = null;
         //TODO resolve this var proteinsWithoutLookupHit
         if (proteinsNotInLookupCount > 0){
-            idsWithoutLookupHit = new ArrayList<>();
-            for (Protein protein: proteinsNotInLookup) {
-                idsWithoutLookupHit.add(protein.getId());
-            }
-            Collections.sort(idsWithoutLookupHit);
+            idsWithoutLookupHit = new ArrayList<>(proteinIdsNotInLookup);
             Utilities.verboseLog("FinaliseInitialSetupTasks ...  proteinsNotInLookupCount : " + proteinsNotInLookupCount);
         }else{
             Utilities.verboseLog("FinaliseInitialSetupTasks ...  proteinsNotInLookup is NULL : " );
@@ -20,6 +20,7 @@ import org.iq80.leveldb.Options;
 import org.apache.commons.lang3.SerializationUtils;
 
 import java.io.*;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -231,6 +232,7 @@ public class LoadFastaFileIntoDBImpl<T> implements LoadFastaFile {
             for (long bottomProteinOnSlice = bottomProteinId; bottomProteinOnSlice <= topProteinId; bottomProteinOnSlice += sliceSize) {
                 final long topProteinOnSlice = Math.min(topProteinId, bottomProteinOnSlice + sliceSize - 1);
                 List<Protein> storedProteins = proteinDAO.getProteinsBetweenIds(bottomProteinOnSlice, topProteinOnSlice);
+                final Map<String, Protein> keyToProteinMap = new HashMap<>(storedProteins.size());
 
                 for (Protein protein : storedProteins) {
                     String sequenceId = Long.toString(protein.getId());
@@ -247,9 +249,10 @@ public class LoadFastaFileIntoDBImpl<T> implements LoadFastaFile {
                             Utilities.verboseLog(30, "getOpenReadingFrames().size" + seq.getOpenReadingFrames().size());
                         }
                     }
-                    proteinDAO.insert(sequenceId, protein);
+                    keyToProteinMap.put(sequenceId, protein);
                     count++;
                 }
+                proteinDAO.persist(keyToProteinMap);
             }
             Utilities.verboseLog("Stored " + count + " parsed sequences into KVDB: " + levelDBStoreName);
 
@@ -0,0 +1,129 @@
+package uk.ac.ebi.interpro.scan.business.postprocessing;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ebi.interpro.scan.model.raw.PantherRawMatch;
+import uk.ac.ebi.interpro.scan.model.raw.RawProtein;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link PostProcessingExecutor}, in particular that the proteins are post-processed
+ * to the same results whatever the number of threads.
+ */
+public class PostProcessingExecutorTest {
+
+    private static final int PROTEIN_COUNT = 1000;
+
+    /**
+     * Keeps the matches with an even location start, and drops proteins left without matches.
+     */
+    private static final PostProcessor.ProteinProcessor<PantherRawMatch> EVEN_START_FILTER = (proteinId, rawProtein) -> {
+        final RawProtein<PantherRawMatch> filtered = new RawProtein<>(rawProtein.getProteinIdentifier());
+        for (PantherRawMatch match : rawProtein.getMatches()) {
+            if (match.getLocationStart() % 2 == 0) {
+                filtered.addMatch(match);
+            }
+        }
+        return filtered.getMatches().isEmpty() ? null : filtered;
+    };
+
+    @Test
+    public void testMapSameAsSequential() {
+        final Map<String, RawProtein<PantherRawMatch>> proteins = new HashMap<>();
+        for (RawProtein<PantherRawMatch> rawProtein : buildProteins()) {
+            proteins.put(rawProtein.getProteinIdentifier(), rawProtein);
+        }
+        final Map<String, RawProtein<PantherRawMatch>> sequential = executor(1).process(proteins, EVEN_START_FILTER);
+        final Map<String, RawProtein<PantherRawMatch>> parallel = executor(4).process(proteins, EVEN_START_FILTER);
+
+        assertTrue(sequential.size() > 0);
+        assertTrue(sequential.size() < PROTEIN_COUNT, "Proteins without matches left should be dropped");
+        assertEquals(sequential.keySet(), parallel.keySet());
+        for (String proteinId : sequential.keySet()) {
+            assertEquals(sequential.get(proteinId).getMatches(), parallel.get(proteinId).getMatches(), proteinId);
+        }
+    }
+
+    @Test
+    public void testSetKeepsOrder() {
+        final Set<RawProtein<PantherRawMatch>> proteins = new LinkedHashSet<>(buildProteins());
+        final List<String> expectedOrder = new ArrayList<>();
+        for (RawProtein<PantherRawMatch> rawProtein : executor(1).process(proteins, EVEN_START_FILTER)) {
+            expectedOrder.add(rawProtein.getProteinIdentifier());
+        }
+        for (int threads : new int[]{2, 4, 0}) {
+            final List<String> order = new ArrayList<>();
+            for (RawProtein<PantherRawMatch> rawProtein : executor(threads).process(proteins, EVEN_START_FILTER)) {
+                order.add(rawProtein.getProteinIdentifier());
+            }
+            assertEquals(expectedOrder, order, threads + " threads");
+        }
+    }
+
+    @Test
+    public void testRunsOnPoolThreads() {
+        final Map<String, RawProtein<PantherRawMatch>> proteins = new HashMap<>();
+        for (RawProtein<PantherRawMatch> rawProtein : buildProteins()) {
+            proteins.put(rawProtein.getProteinIdentifier(), rawProtein);
+        }
+        final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        executor(1).process(proteins, (proteinId, rawProtein) -> {
+            threads.add(Thread.currentThread());
+            return rawProtein;
+        });
+        assertEquals(1, threads.size());
+        assertTrue(threads.contains(Thread.currentThread()), "A single thread should process the proteins on the calling thread");
+
+        threads.clear();
+        final Map<String, RawProtein<PantherRawMatch>> results = executor(4).process(proteins, (proteinId, rawProtein) -> {
+            threads.add(Thread.currentThread());
+            return rawProtein;
+        });
+        assertEquals(PROTEIN_COUNT, results.size());
+        assertFalse(threads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void testExceptionPropagated() {
+        final Map<String, RawProtein<PantherRawMatch>> proteins = new HashMap<>();
+        for (RawProtein<PantherRawMatch> rawProtein : buildProteins()) {
+            proteins.put(rawProtein.getProteinIdentifier(), rawProtein);
+        }
+        assertThrows(IllegalStateException.class, () -> executor(4).process(proteins, (proteinId, rawProtein) -> {
+            if ("protein500".equals(proteinId)) {
+                throw new IllegalStateException("No entry for " + proteinId);
+            }
+            return rawProtein;
+        }));
+        assertThrows(IllegalArgumentException.class, () -> new PostProcessingExecutor().setProteinsPerTask(0));
+    }
+
+    private PostProcessingExecutor executor(int threads) {
+        final PostProcessingExecutor executor = new PostProcessingExecutor();
+        executor.setThreads(threads);
+        executor.setProteinsPerTask(8);
+        return executor;
+    }
+
+    private List<RawProtein<PantherRawMatch>> buildProteins() {
+        final List<RawProtein<PantherRawMatch>> proteins = new ArrayList<>();
+        for (int i = 0; i < PROTEIN_COUNT; i++) {
+            final String proteinId = "protein" + i;
+            final RawProtein<PantherRawMatch> rawProtein = new RawProtein<>(proteinId);
+            for (int start = 0; start < i % 3; start++) {
+                rawProtein.addMatch(new PantherRawMatch(proteinId, "PTHR" + i, "15.0", i + start, i + start + 50,
+                        1e-20, 100.0d, "familyName", 1, 50, 100, "[]", i + start, i + start + 50));
+            }
+            proteins.add(rawProtein);
+        }
+        return proteins;
+    }
+}
@@ -4,11 +4,13 @@ import uk.ac.ebi.interpro.scan.model.Protein;
 
 import org.iq80.leveldb.DB;
 import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDB;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDBValueCursor;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Created by IntelliJ IDEA.
@@ -133,6 +135,26 @@ public class DummyProteinDAOImpl implements uk.ac.ebi.interpro.scan.persistence.
         return null;
     }
 
+    @Override
+    public void forEachProtein(long bottom, long top, Consumer<Protein> action) {
+
+    }
+
+    @Override
+    public KVDBValueCursor<Protein> getProteinCursor(long bottom, long top) {
+        return null;
+    }
+
+    @Override
+    public KVDBValueCursor<Protein> getProteinCursor() {
+        return null;
+    }
+
+    @Override
+    public KVDBValueCursor<Protein> getProteinNotInLookupCursor(long bottom, long top) {
+        return null;
+    }
+
     @Override
     public List<Protein> getProteins(long bottom, long top) {
         return null;
@@ -143,6 +165,16 @@ public class DummyProteinDAOImpl implements uk.ac.ebi.interpro.scan.persistence.
         return null;
     }
 
+    @Override
+    public List<Long> getProteinIdsNotInLookup(long bottom, long top) {
+        return null;
+    }
+
+    @Override
+    public long countProteinsNotInLookup(long bottom, long top) {
+        return 0;
+    }
+
     @Override
     public List<Protein> getProteins() throws Exception{
         return null;
@@ -163,6 +195,11 @@ public class DummyProteinDAOImpl implements uk.ac.ebi.interpro.scan.persistence.
 
     }
 
+    @Override
+    public void insertProteinsNotInLookup(Map<String, Protein> keyToProteinMap) {
+
+    }
+
     @Override
     public void persist(byte[] key, byte[] protein){
 
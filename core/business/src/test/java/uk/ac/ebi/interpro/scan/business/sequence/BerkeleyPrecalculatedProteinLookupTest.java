@@ -0,0 +1,150 @@
+package uk.ac.ebi.interpro.scan.business.sequence;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ebi.interpro.scan.model.Protein;
+import uk.ac.ebi.interpro.scan.model.SignatureLibraryRelease;
+import uk.ac.ebi.interpro.scan.persistence.ProteinDAO;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+import uk.ac.ebi.interpro.scan.precalc.client.MatchHttpClient;
+
+import java.io.EOFException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for the pipelined {@link BerkeleyPrecalculatedProteinLookup#run()}.
+ */
+public class BerkeleyPrecalculatedProteinLookupTest {
+
+    private static final String[] RESIDUES = {"A", "C", "D", "E", "F", "G", "H", "I", "K", "L"};
+
+    private final List<Map<String, Protein>> proteinsNotInLookupBatches = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void testBatchesAreStoredInOrder() throws Exception {
+        final List<Protein> proteins = createProteins(50);
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        BerkeleyPrecalculatedProteinLookup lookup = new BerkeleyPrecalculatedProteinLookup(proteins, proteinRanges(),
+                proteinDAO(), null, new MatchHttpClient(null)) {
+            @Override
+            LookupBatch lookupPrecalculated(Set<Protein> batch, Map<String, SignatureLibraryRelease> analysisJobMap) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    // The first batches take the longest, so complete after the following ones.
+                    Thread.sleep(Math.max(1, 40 - 5 * proteinsNotInLookupBatches.size()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                return super.lookupPrecalculated(batch, analysisJobMap);
+            }
+        };
+        lookup.setProteinPrecalcLookupBatchSize(7);
+        lookup.setLookupConcurrency(3);
+        lookup.run();
+
+        assertEquals(8, proteinsNotInLookupBatches.size());
+        assertTrue(maxInFlight.get() > 1, "The batches should have been looked up concurrently");
+        assertTrue(maxInFlight.get() <= 3);
+        long previousId = 0;
+        int count = 0;
+        for (Map<String, Protein> batch : proteinsNotInLookupBatches) {
+            long minId = Long.MAX_VALUE;
+            long maxId = Long.MIN_VALUE;
+            for (Protein protein : batch.values()) {
+                minId = Math.min(minId, protein.getId());
+                maxId = Math.max(maxId, protein.getId());
+            }
+            assertTrue(minId > previousId, "The batches should be stored in protein order");
+            previousId = maxId;
+            count += batch.size();
+        }
+        assertEquals(50, count);
+    }
+
+    @Test
+    public void testLookupNotConfigured() throws Exception {
+        BerkeleyPrecalculatedProteinLookup lookup = new BerkeleyPrecalculatedProteinLookup(createProteins(5), proteinRanges(),
+                proteinDAO(), null, new MatchHttpClient(null));
+        lookup.setProteinPrecalcLookupBatchSize(100);
+        lookup.setLookupConcurrency(4);
+        lookup.run();
+
+        assertEquals(1, proteinsNotInLookupBatches.size());
+        assertEquals(5, proteinsNotInLookupBatches.get(0).size());
+    }
+
+    @Test
+    public void testTruncatedLookupStreamIsRetried() throws Exception {
+        final BerkeleyPrecalculatedProteinLookup lookup = new BerkeleyPrecalculatedProteinLookup(createProteins(5), proteinRanges(),
+                proteinDAO(), null, new MatchHttpClient(null));
+        final AtomicInteger attempts = new AtomicInteger();
+        final List<KVSequenceEntry> entries = new ArrayList<>();
+        final BerkeleyPrecalculatedProteinLookup.LookupStream truncatedOnce = (consumer, md5s) -> {
+            for (String md5 : md5s) {
+                final KVSequenceEntry entry = new KVSequenceEntry();
+                entry.setProteinMD5(md5);
+                entry.addMatch("PF00001,32.0,1,1,100");
+                consumer.accept(entry);
+                if (attempts.get() == 0) {
+                    attempts.incrementAndGet();
+                    throw new EOFException("Truncated response");
+                }
+            }
+            return md5s.length;
+        };
+
+        assertTrue(lookup.streamFromLookup(truncatedOnce, entries::add, entries::clear, "MD5A", "MD5B", "MD5C"));
+        assertEquals(3, entries.size(), "The entries read before the failure should have been discarded");
+
+        final BerkeleyPrecalculatedProteinLookup.LookupStream alwaysFails = (consumer, md5s) -> {
+            throw new EOFException("Truncated response");
+        };
+        assertFalse(lookup.streamFromLookup(alwaysFails, entries::add, entries::clear, "MD5A"));
+    }
+
+    private List<Protein> createProteins(int count) throws Exception {
+        final Field idField = Protein.class.getDeclaredField("id");
+        idField.setAccessible(true);
+        final List<Protein> proteins = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            Protein protein = new Protein("M" + RESIDUES[(int) (id / 10) % 10] + RESIDUES[(int) (id % 10)]);
+            idField.set(protein, id);
+            proteins.add(protein);
+        }
+        return proteins;
+    }
+
+    private Map<String, Long> proteinRanges() {
+        Map<String, Long> proteinRanges = new HashMap<>();
+        proteinRanges.put("bottom", 1L);
+        proteinRanges.put("top", 50L);
+        return proteinRanges;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProteinDAO proteinDAO() {
+        return (ProteinDAO) Proxy.newProxyInstance(ProteinDAO.class.getClassLoader(), new Class[]{ProteinDAO.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "insertProteinsNotInLookup":
+                            proteinsNotInLookupBatches.add(new HashMap<>((Map<String, Protein>) args[0]));
+                            return null;
+                        case "checkKVDBStores":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
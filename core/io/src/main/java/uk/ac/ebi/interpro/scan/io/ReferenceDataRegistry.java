@@ -0,0 +1,213 @@
+package uk.ac.ebi.interpro.scan.io;
+
+import org.apache.log4j.Logger;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * JVM-wide registry of the data parsed from reference files (e.g. the Pfam clans and nesting data, the PRINTS
+ * hierarchy database), so that each file is parsed once per JVM rather than by every post-processor instance,
+ * for every batch of proteins.
+ * <p/>
+ * The data is held by type and paths of the files it is parsed from, and parsed again if the size or the
+ * modification time of any of them changes.  Each data set is loaded lazily, by a single thread, while the
+ * other threads asking for it wait.  The data returned is shared, so <b>MUST NOT</b> be modified by the caller.
+ * <p/>
+ * Optionally, Serializable data is also written to a binary snapshot file next to the first of the files, which
+ * is read back (by any JVM) instead of parsing the files again, for as long as they are unchanged.  The files
+ * being unchanged does not mean the parsers are, so each snapshot also records {@link #SNAPSHOT_FORMAT_VERSION},
+ * which <b>MUST</b> be incremented whenever the data a loader returns for the same files changes.
+ */
+public final class ReferenceDataRegistry {
+
+    private static final Logger LOGGER = Logger.getLogger(ReferenceDataRegistry.class.getName());
+
+    private static final ReferenceDataRegistry INSTANCE = new ReferenceDataRegistry();
+
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    /**
+     * Version of the snapshot layout and of the data parsed by the loaders: snapshots of any other version are
+     * ignored (and replaced).
+     */
+    static final int SNAPSHOT_FORMAT_VERSION = 1;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile boolean snapshotsEnabled;
+
+    /**
+     * Parses the data from the reference files.
+     */
+    public interface Loader<T> {
+
+        T load() throws IOException;
+    }
+
+    ReferenceDataRegistry() {
+    }
+
+    public static ReferenceDataRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isSnapshotsEnabled() {
+        return snapshotsEnabled;
+    }
+
+    /**
+     * @param snapshotsEnabled true to write (and read back) binary snapshots of the Serializable data
+     *                         next to the reference files.
+     */
+    public void setSnapshotsEnabled(boolean snapshotsEnabled) {
+        this.snapshotsEnabled = snapshotsEnabled;
+    }
+
+    /**
+     * Returns the data parsed from the files, parsing them only if they have not yet been parsed in this JVM
+     * (and there is no up to date snapshot), or if they have changed since.
+     *
+     * @param type   of the data, e.g. "pfam-clans", that distinguishes different data parsed from the same files.
+     * @param loader to parse the files.
+     * @param files  the data is parsed from.
+     * @return the shared data.
+     * @throws IOException if the files can not be parsed.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String type, Loader<T> loader, File... files) throws IOException {
+        if (files.length == 0) {
+            throw new IllegalArgumentException("No reference file for " + type);
+        }
+        final StringBuilder key = new StringBuilder(type);
+        final StringBuilder version = new StringBuilder();
+        for (File file : files) {
+            key.append('|').append(file.getAbsolutePath());
+            version.append(file.length()).append(':').append(file.lastModified()).append('|');
+        }
+        final String currentVersion = version.toString();
+        Entry entry = entries.get(key.toString());
+        if (entry == null || !entry.version.equals(currentVersion)) {
+            entry = entries.compute(key.toString(), (k, existing) ->
+                    existing != null && existing.version.equals(currentVersion) ? existing : new Entry(type, currentVersion, files));
+        }
+        return (T) entry.get(loader);
+    }
+
+    /**
+     * As {@link #get(String, Loader, File...)}, for data parsed from Spring Resources.  If any of them is not a
+     * file (e.g. is in a jar), the data is parsed for the caller alone.
+     */
+    public <T> T get(String type, Loader<T> loader, Resource... resources) throws IOException {
+        final File[] files = new File[resources.length];
+        for (int i = 0; i < resources.length; i++) {
+            try {
+                files[i] = resources[i].getFile();
+            } catch (IOException e) {
+                LOGGER.debug("Not caching " + type + ": " + resources[i] + " is not a file.");
+                return loader.load();
+            }
+        }
+        return get(type, loader, files);
+    }
+
+    /**
+     * The data parsed from a given version of the files.
+     */
+    private final class Entry {
+
+        private final String type;
+
+        private final String version;
+
+        private final File[] files;
+
+        private Object data;
+
+        private boolean loaded;
+
+        private Entry(String type, String version, File[] files) {
+            this.type = type;
+            this.version = version;
+            this.files = files;
+        }
+
+        private synchronized Object get(Loader<?> loader) throws IOException {
+            if (!loaded) {
+                final File snapshot = new File(files[0].getAbsoluteFile().getParentFile(), files[0].getName() + '.' + type + SNAPSHOT_SUFFIX);
+                data = snapshotsEnabled ? readSnapshot(snapshot) : null;
+                if (data == null) {
+                    final long start = System.currentTimeMillis();
+                    data = loader.load();
+                    LOGGER.info("Parsed " + type + " reference data in " + (System.currentTimeMillis() - start) + " ms.");
+                    if (snapshotsEnabled) {
+                        writeSnapshot(snapshot);
+                    }
+                }
+                loaded = true;
+            }
+            return data;
+        }
+
+        /**
+         * @return the data of the snapshot, or null if there is no snapshot of this version of the files.
+         */
+        private Object readSnapshot(File snapshot) {
+            if (!snapshot.isFile()) {
+                return null;
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(snapshot)))) {
+                if (in.readInt() != SNAPSHOT_FORMAT_VERSION || !type.equals(in.readUTF()) || !version.equals(in.readUTF())) {
+                    LOGGER.debug("Snapshot " + snapshot + " is out of date.");
+                    return null;
+                }
+                final Object snapshotData = in.readObject();
+                LOGGER.debug("Read " + type + " reference data from snapshot " + snapshot);
+                return snapshotData;
+            } catch (IOException | ClassNotFoundException e) {
+                LOGGER.warn("Unable to read the snapshot " + snapshot + ", parsing the reference files instead: " + e);
+                return null;
+            }
+        }
+
+        /**
+         * Writes the snapshot to a temporary file that is then moved in place, so that no other JVM reads
+         * a partly written snapshot.  The data directory may not be writable, which is not an error.
+         */
+        private void writeSnapshot(File snapshot) {
+            if (!(data instanceof Serializable)) {
+                LOGGER.debug("No snapshot of " + type + ": the data is not Serializable.");
+                return;
+            }
+            File temporaryFile = null;
+            try {
+                temporaryFile = File.createTempFile(snapshot.getName(), ".tmp", snapshot.getParentFile());
+                try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+                    out.writeInt(SNAPSHOT_FORMAT_VERSION);
+                    out.writeUTF(type);
+                    out.writeUTF(version);
+                    out.writeObject(data);
+                }
+                Files.move(temporaryFile.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                LOGGER.debug("Wrote " + type + " reference data snapshot " + snapshot);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to write the snapshot " + snapshot + ": " + e);
+                if (temporaryFile != null && !temporaryFile.delete()) {
+                    temporaryFile.deleteOnExit();
+                }
+            }
+        }
+    }
+}
@@ -131,4 +131,12 @@ public interface CommandLineConversation extends Serializable {
      * @param commandInputStream data to be piped into the command.
      */
     void setCommandInputStream(InputStream commandInputStream);
+
+    /**
+     * This optional method allows the output of a command (i.e. on STDOUT) to be consumed as it is produced.
+     * If an output file is also set, the output is written to it as it is consumed.
+     *
+     * @param outputConsumer of the output of the command.
+     */
+    void setOutputConsumer(CommandOutputConsumer outputConsumer);
 }
@@ -66,6 +66,11 @@ public class CommandLineConversationImpl implements CommandLineConversation {
      */
     private InputStream commandInputStream;
 
+    /**
+     * This is an optional consumer of the output of the command, as it is produced.
+     */
+    private CommandOutputConsumer outputConsumer;
+
     /**
      * Runs a command on the command line synchronously.
      *
@@ -152,7 +157,7 @@ public class CommandLineConversationImpl implements CommandLineConversation {
         }
         Long releaseLockTime = System.currentTimeMillis();
         Long startuptime = System.currentTimeMillis() - releaseLockTime;
-        final StreamGobbler outputGobbler = new StreamGobbler(process.getInputStream(), outputFileHandle);
+        final StreamGobbler outputGobbler = new StreamGobbler(process.getInputStream(), outputFileHandle, outputConsumer);
         final StreamGobbler errorGobbler = new StreamGobbler(process.getErrorStream(), errorFileHandle);
         errorGobbler.start();
         outputGobbler.start();
@@ -203,7 +208,7 @@ public class CommandLineConversationImpl implements CommandLineConversation {
             throw exceptionThrownByGobbler;
         }
 
-        if (outputFileHandle == null) {
+        if (outputFileHandle == null && outputConsumer == null) {
             output = outputGobbler.getStreamContent();
         }
 
@@ -286,6 +291,18 @@ public class CommandLineConversationImpl implements CommandLineConversation {
         this.commandInputStream = commandInputStream;
     }
 
+    /**
+     * This optional method allows the output of a command (i.e. on STDOUT) to be consumed as it is produced.
+     * If an output file is also set, the output is written to it as it is consumed.
+     * Any exception thrown by the consumer is re-thrown by runCommand, once the command has completed.
+     *
+     * @param outputConsumer of the output of the command.
+     */
+    @Override
+    public void setOutputConsumer(CommandOutputConsumer outputConsumer) {
+        this.outputConsumer = outputConsumer;
+    }
+
     /**
      * Sets the working directory for subsequent commands.
      *
@@ -371,20 +388,26 @@ public class CommandLineConversationImpl implements CommandLineConversation {
         InputStream inputStream;
         StringBuffer stringBuffer = new StringBuffer();
         private File gobblerFileHandle;
+        private CommandOutputConsumer gobblerOutputConsumer;
 
-        private boolean stillRunning = true;
+        private volatile boolean stillRunning = true;
 
         StreamGobbler(InputStream inputStream) {
             this(inputStream, null);
         }
 
         StreamGobbler(InputStream inputStream, File outputFileHandle) {
+            this(inputStream, outputFileHandle, null);
+        }
+
+        StreamGobbler(InputStream inputStream, File outputFileHandle, CommandOutputConsumer outputConsumer) {
             // These stream gobblers really need to run as a high priority to keep up with the external process.
             this.setPriority(Thread.MAX_PRIORITY);
             this.inputStream = inputStream;
             if (outputFileHandle != null) {
                 this.gobblerFileHandle = outputFileHandle;
             }
+            this.gobblerOutputConsumer = outputConsumer;
         }
 
         public boolean isStillRunning() {
@@ -396,7 +419,9 @@ public class CommandLineConversationImpl implements CommandLineConversation {
          */
         public void run() {
             try {
-                if (gobblerFileHandle == null) {
+                if (gobblerOutputConsumer != null) {
+                    outputToConsumer();
+                } else if (gobblerFileHandle == null) {
                     outputToString();
                 } else {
                     outputToFile();
@@ -433,6 +458,52 @@ public class CommandLineConversationImpl implements CommandLineConversation {
             }
         }
 
+        /**
+         * Hands the output to the consumer as it is produced, also writing it to the output file if set.
+         * Whatever the consumer leaves unread is drained, so the external process never blocks on a full pipe.
+         */
+        private void outputToConsumer() {
+            InputStream consumedStream = inputStream;
+            try {
+                if (gobblerFileHandle != null) {
+                    consumedStream = new TeeInputStream(inputStream, new FileOutputStream(gobblerFileHandle));
+                }
+                // The stream is closed here, once drained, even if the consumer closes it
+                gobblerOutputConsumer.consume(new FilterInputStream(consumedStream) {
+                    @Override
+                    public void close() {
+                    }
+                });
+            } catch (IOException ioe) {
+                LOGGER.error("IOException thrown when attempting to consume InputStream from external process.", ioe);
+                exceptionThrownByGobbler = ioe;
+            } catch (RuntimeException re) {
+                LOGGER.error("Exception thrown when attempting to consume InputStream from external process.", re);
+                exceptionThrownByGobbler = new IOException("Unable to consume the output of the external process", re);
+            } finally {
+                try {
+                    final byte[] buffer = new byte[BUFFER_SIZE];
+                    while (consumedStream.read(buffer) != -1) {
+                        // Drain
+                    }
+                } catch (IOException ioe) {
+                    LOGGER.error("IOException thrown when attempting to drain InputStream from external process.", ioe);
+                    if (exceptionThrownByGobbler == null) {
+                        exceptionThrownByGobbler = ioe;
+                    }
+                } finally {
+                    try {
+                        consumedStream.close();
+                    } catch (IOException ioe) {
+                        LOGGER.error("IOException thrown when attempting to close InputStream from external process.", ioe);
+                        if (exceptionThrownByGobbler == null) {
+                            exceptionThrownByGobbler = ioe;
+                        }
+                    }
+                }
+            }
+        }
+
         /**
          * Uses java.nio for maximum speed / efficiency.
          */
@@ -482,4 +553,57 @@ public class CommandLineConversationImpl implements CommandLineConversation {
         }
     }
 
+
+    /**
+     * Copies everything read from the output of the external process to a file.
+     */
+    private static final class TeeInputStream extends FilterInputStream {
+
+        private final OutputStream copy;
+
+        TeeInputStream(InputStream inputStream, OutputStream copy) {
+            super(inputStream);
+            this.copy = new BufferedOutputStream(copy, BUFFER_SIZE);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b != -1) {
+                copy.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            final int readLength = super.read(buffer, offset, length);
+            if (readLength > 0) {
+                copy.write(buffer, offset, readLength);
+            }
+            return readLength;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Read rather than skip, so nothing is missing from the copy
+            final byte[] buffer = new byte[(int) Math.min(n, BUFFER_SIZE)];
+            final int readLength = read(buffer, 0, buffer.length);
+            return Math.max(readLength, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                copy.close();
+            }
+        }
+    }
 }
@@ -0,0 +1,20 @@
+package uk.ac.ebi.interpro.scan.io.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Consumes the output of a command as it is produced (e.g. parses it), rather than once the command
+ * has completed.  See {@link CommandLineConversation#setOutputConsumer(CommandOutputConsumer)}.
+ */
+public interface CommandOutputConsumer {
+
+    /**
+     * Called on a separate thread once the command has started.  Any output left unread when this method
+     * returns is discarded (or only written to the output file, if one is set).
+     *
+     * @param output of the command, that is closed by the caller.
+     * @throws IOException if the output can not be read or consumed.
+     */
+    void consume(InputStream output) throws IOException;
+}
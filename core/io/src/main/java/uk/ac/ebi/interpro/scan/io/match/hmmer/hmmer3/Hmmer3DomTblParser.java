@@ -15,8 +15,6 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Parser for HMMER3 domtbl output, based upon the working parser used in Onion....
@@ -41,15 +39,14 @@ public class Hmmer3DomTblParser {
         int rawDomainCount = 0;
         try {
             reader = new BufferedReader(new InputStreamReader(is));
+            final Hmmer3LineTokenizer tokens = new Hmmer3LineTokenizer();
             int lineNumber = 0;
             String line;
             while ((line = reader.readLine()) != null) {
                 lineNumber++;
                 // Look for a domain data line.
-                Matcher domainDataLineMatcher = DomTblDomainMatch.getDomainDataLineMatcher(line, mode);
-//                Matcher domainDataLineMatcher = DomTblDomainMatch.DOMAIN_LINE_PATTERN.matcher(line);
-                if (domainDataLineMatcher.matches()) {
-                    DomTblDomainMatch domainMatch = new DomTblDomainMatch(domainDataLineMatcher, mode);
+                if (DomTblDomainMatch.isDomainDataLine(tokens.tokenize(line), mode)) {
+                    DomTblDomainMatch domainMatch = new DomTblDomainMatch(tokens, mode);
                     String key = domainMatch.getDomTblDominLineKey();
                     domainTblLineMap.put(key, domainMatch);
                 }
@@ -0,0 +1,307 @@
+package uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3;
+
+import java.util.Arrays;
+
+/**
+ * Splits a line of HMMER3 output (full output, domtblout or the SFLD post-processed output) into its whitespace
+ * separated fields, without regular expressions.  Only the offsets of the fields are recorded: a field becomes
+ * a String only when asked for, and numbers are parsed straight from the characters of the line.
+ * <p/>
+ * Whitespace is as in the <code>\s</code> of a regular expression, so that testing the fields of a line is
+ * equivalent to matching it with the <code>\S+</code> / <code>\d+</code> patterns of the parse model classes.
+ * <p/>
+ * An instance is meant to be reused for every line of a file: it is <b>NOT THREAD SAFE</b>.
+ */
+public final class Hmmer3LineTokenizer {
+
+    /**
+     * Powers of ten that are exactly representable as doubles.
+     */
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Decimal digits that always fit in the 53 bit mantissa of a double.
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private CharSequence line;
+
+    private int[] starts = new int[32];
+
+    private int[] ends = new int[32];
+
+    private int fieldCount;
+
+    /**
+     * @param line to split into fields.
+     * @return this tokenizer, holding the fields of the line.
+     */
+    public Hmmer3LineTokenizer tokenize(CharSequence line) {
+        this.line = line;
+        fieldCount = 0;
+        final int length = line.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            final int start = i;
+            while (i < length && !isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (fieldCount == starts.length) {
+                starts = Arrays.copyOf(starts, fieldCount * 2);
+                ends = Arrays.copyOf(ends, fieldCount * 2);
+            }
+            starts[fieldCount] = start;
+            ends[fieldCount] = i;
+            fieldCount++;
+        }
+        return this;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+    }
+
+    public CharSequence getLine() {
+        return line;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @return true if the line starts with whitespace (so the first field is indented).
+     */
+    public boolean startsWithWhitespace() {
+        return line.length() > 0 && isWhitespace(line.charAt(0));
+    }
+
+    /**
+     * @return the offset in the line of the first character of the field.
+     */
+    public int getFieldStart(int field) {
+        checkField(field);
+        return starts[field];
+    }
+
+    /**
+     * @return the offset in the line following the last character of the field.
+     */
+    public int getFieldEnd(int field) {
+        checkField(field);
+        return ends[field];
+    }
+
+    /**
+     * @return true if the field is followed by whitespace (i.e. is not at the end of the line).
+     */
+    public boolean isFollowedByWhitespace(int field) {
+        return getFieldEnd(field) < line.length();
+    }
+
+    public String getField(int field) {
+        checkField(field);
+        return line.subSequence(starts[field], ends[field]).toString();
+    }
+
+    public boolean fieldEquals(int field, String value) {
+        checkField(field);
+        final int length = ends[field] - starts[field];
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(starts[field] + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends the field to the builder, without creating a String of the field.
+     */
+    public void appendField(int field, StringBuilder builder) {
+        checkField(field);
+        builder.append(line, starts[field], ends[field]);
+    }
+
+    /**
+     * @return true if the field only has ASCII digits, as matched by <code>\d+</code>.
+     */
+    public boolean isDigits(int field) {
+        checkField(field);
+        for (int i = starts[field]; i < ends[field]; i++) {
+            final char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the field only has word characters, as matched by <code>\w+</code>.
+     */
+    public boolean isWord(int field) {
+        checkField(field);
+        for (int i = starts[field]; i < ends[field]; i++) {
+            final char c = line.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the field only has letters and gaps, as matched by <code>[-a-zA-Z]+</code>
+     * (i.e. is a row of an alignment).
+     */
+    public boolean isAlignment(int field) {
+        checkField(field);
+        for (int i = starts[field]; i < ends[field]; i++) {
+            final char c = line.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '-')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses the field as {@link Integer#parseInt(String)} does.
+     *
+     * @throws NumberFormatException if the field is not an int.
+     */
+    public int getInt(int field) {
+        checkField(field);
+        int i = starts[field];
+        final int end = ends[field];
+        boolean negative = false;
+        final char first = line.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        if (i == end) {
+            throw new NumberFormatException("For input string: \"" + getField(field) + "\"");
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            final char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("For input string: \"" + getField(field) + "\"");
+            }
+            value = value * 10 + (c - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("For input string: \"" + getField(field) + "\"");
+            }
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("For input string: \"" + getField(field) + "\"");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses the field as {@link Double#parseDouble(String)} does, to the same value.
+     * <p/>
+     * Plain decimals of up to 15 significant digits with a small exponent (e.g. scores, biases,
+     * most E-values) are parsed from the characters of the field: the value is then exactly that of
+     * a single, correctly rounded, multiplication or division by a power of ten.  Anything else
+     * (e.g. E-values such as 1.3e-48) is left to {@link Double#parseDouble(String)}.
+     *
+     * @throws NumberFormatException if the field is not a number.
+     */
+    public double getDouble(int field) {
+        checkField(field);
+        final int end = ends[field];
+        int i = starts[field];
+        boolean negative = false;
+        char c = line.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int digits = 0;
+        int decimalExponent = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (mantissa != 0 || c != '0') {
+                    if (++significantDigits > MAX_EXACT_DIGITS) {
+                        return Double.parseDouble(getField(field));
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                if (fraction) {
+                    decimalExponent--;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return Double.parseDouble(getField(field));
+        }
+        if (i < end) {
+            // Only an exponent may follow
+            if (c != 'e' && c != 'E' || ++i == end) {
+                return Double.parseDouble(getField(field));
+            }
+            boolean negativeExponent = false;
+            c = line.charAt(i);
+            if (c == '-' || c == '+') {
+                negativeExponent = c == '-';
+                if (++i == end) {
+                    return Double.parseDouble(getField(field));
+                }
+            }
+            int exponent = 0;
+            for (; i < end; i++) {
+                c = line.charAt(i);
+                if (c < '0' || c > '9' || exponent > 1000) {
+                    return Double.parseDouble(getField(field));
+                }
+                exponent = exponent * 10 + (c - '0');
+            }
+            decimalExponent += negativeExponent ? -exponent : exponent;
+        }
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (decimalExponent >= 0 && decimalExponent < EXACT_POWERS_OF_TEN.length) {
+            value = mantissa * EXACT_POWERS_OF_TEN[decimalExponent];
+        } else if (decimalExponent < 0 && -decimalExponent < EXACT_POWERS_OF_TEN.length) {
+            value = mantissa / EXACT_POWERS_OF_TEN[-decimalExponent];
+        } else {
+            return Double.parseDouble(getField(field));
+        }
+        return negative ? -value : value;
+    }
+
+    private void checkField(int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new IndexOutOfBoundsException("No field " + field + " in a line of " + fieldCount + " fields: " + line);
+        }
+    }
+}
@@ -199,8 +199,6 @@ public class Hmmer3ScanMatchParser<T extends RawMatch> implements MatchParser {
     //Output File to write Gene3D parser output in ssf format suitable for Domain Finder input
     //File ssfFile = new File("C:\\Manjula\\input_for_DF.txt");
 
-    // Group 1: Uniparc protein accession
-    private static final Pattern DOMAIN_SECTION_START_PATTERN = Pattern.compile("^>>\\s+(\\S+).*$");
 
     /**
      * This interface has a single method that
@@ -264,6 +262,8 @@ public class Hmmer3ScanMatchParser<T extends RawMatch> implements MatchParser {
             Map<String, SequenceMatch> sequenceMatchMap = new HashMap();
             Map<String, DomainMatch> domains = new HashMap<String, DomainMatch>();
             StringBuilder alignSeq = new StringBuilder();
+            // Splits the lines that are parsed into fields, rather than matching them with the regexes
+            final Hmmer3LineTokenizer tokens = new Hmmer3LineTokenizer();
             DomainMatch currentDomain = null;
             //generate ssf file for Domain Finder
             //DomainFinderInputWriter dfiw = new DomainFinderInputWriter();
@@ -365,10 +365,10 @@ public class Hmmer3ScanMatchParser<T extends RawMatch> implements MatchParser {
                             if (line.startsWith(DOMAIN_SECTION_START)) {
 
                                 // Find out which model the domain matches are for and then parse them.
-                                Matcher domainSectionHeaderMatcher = DOMAIN_SECTION_START_PATTERN.matcher(line);
-                                if (domainSectionHeaderMatcher.matches()) {
+                                // The identifier is the field following DOMAIN_SECTION_START
+                                if (tokens.tokenize(line).getFieldCount() >= 2) {
                                     domains.clear();
-                                    currentModelIdentifier = domainSectionHeaderMatcher.group(1);
+                                    currentModelIdentifier = tokens.getField(1);
                                 } else {
                                     throw new ParseException("This line looks like a domain section header line, but it is not possible to parse out the sequence id.", null, line, lineNumber);
                                 }
@@ -376,14 +376,14 @@ public class Hmmer3ScanMatchParser<T extends RawMatch> implements MatchParser {
                             }
 
                             if (hmmer3ParserSupport.parseAlignments()) {
+                                tokens.tokenize(line);
                                 //to handle domain alignment
                                 if (line.startsWith(DOMAIN_ALIGNMENT_SECTION_START)) {
 
-                                    Matcher domainAlignmentMatcher = DomainMatch.DOMAIN_ALIGNMENT_LINE_PATTERN.matcher(line);
-                                    if (domainAlignmentMatcher.matches()) {
+                                    if (DomainMatch.isDomainAlignmentLine(tokens)) {
 
                                         alignSeq.setLength(0);
-                                        String domainNumber = domainAlignmentMatcher.group(1);
+                                        String domainNumber = tokens.getField(2);
                                         currentDomain = domains.get(domainNumber); //get the current domain object.
                                     } else {
                                         throw new ParseException("Unable to parse domain alignment section line", null, line, lineNumber);
@@ -392,10 +392,9 @@ public class Hmmer3ScanMatchParser<T extends RawMatch> implements MatchParser {
                                 // getting the actual alignment sequence string
 
                                 if ((currentDomain != null) && (currentSequenceIdentifier != null)) {
-                                    Matcher alignmentSequencePattern = DomainMatch.ALIGNMENT_SEQUENCE_PATTERN.matcher(line);
-                                    if (alignmentSequencePattern.matches()) {
-                                        if (alignmentSequencePattern.group(1).equals(currentSequenceIdentifier)) {
-                                            alignSeq.append(alignmentSequencePattern.group(3));
+                                    if (DomainMatch.isAlignmentSequenceLine(tokens)) {
+                                        if (tokens.fieldEquals(0, currentSequenceIdentifier)) {
+                                            tokens.appendField(2, alignSeq);
                                             currentDomain.setAlignment(alignSeq.toString());
                                         }
                                     }
@@ -413,12 +412,11 @@ public class Hmmer3ScanMatchParser<T extends RawMatch> implements MatchParser {
                         case LOOKING_FOR_DOMAIN_DATA_LINE:
 
                             // Look for a domain data line.
-                            Matcher domainDataLineMatcher = DomainMatch.DOMAIN_LINE_PATTERN.matcher(line);
                             if (line.contains(START_OF_DOMAIN_ALIGNMENT_SECTION)) {
                                 stage = ParsingStage.LOOKING_FOR_DOMAIN_SECTION;
-                            } else if (domainDataLineMatcher.matches()) {
-                                DomainMatch domainMatch = new DomainMatch(domainDataLineMatcher);
-                                String domainLineId = domainDataLineMatcher.group(1);
+                            } else if (DomainMatch.isDomainLine(tokens.tokenize(line))) {
+                                DomainMatch domainMatch = new DomainMatch(tokens);
+                                String domainLineId = tokens.getField(0);
                                 searchRecords.get(currentModelIdentifier).addDomainMatch(currentSequenceIdentifier, domainMatch);
 
                             }
@@ -102,8 +102,6 @@ public class Hmmer3SearchMatchParser<T extends RawMatch> implements MatchParser
     //Output File to write Gene3D parser output in ssf format suitable for Domain Finder input
     //File ssfFile = new File("C:\\Manjula\\input_for_DF.txt");
 
-    // Group 1: Uniparc protein accession
-    private static final Pattern DOMAIN_SECTION_START_PATTERN = Pattern.compile("^>>\\s+(\\S+).*$");
 
     /**
      * This interface has a single method that
@@ -164,6 +162,8 @@ public class Hmmer3SearchMatchParser<T extends RawMatch> implements MatchParser
             String currentSequenceIdentifier = null;
             Map<String, DomainMatch> domains = new HashMap<String, DomainMatch>();
             StringBuilder alignSeq = new StringBuilder();
+            // Splits the lines that are parsed into fields, rather than matching them with the regexes
+            final Hmmer3LineTokenizer tokens = new Hmmer3LineTokenizer();
             DomainMatch currentDomain = null;
             //generate ssf file for Domain Finder
             //DomainFinderInputWriter dfiw = new DomainFinderInputWriter();
@@ -230,7 +230,7 @@ public class Hmmer3SearchMatchParser<T extends RawMatch> implements MatchParser
                             // Due to hmmer3 beta version peculiarities we cannot currently use
                             // the inclusion threshold marking to find the end of the matches, se we take them all
                             // Original code left in comments in case we can ever put it back
-                            if (/*line.contains(END_OF_GOOD_SEQUENCE_MATCHES) || */ line.trim().length() == 0) {
+                            if (/*line.contains(END_OF_GOOD_SEQUENCE_MATCHES) || */ tokens.tokenize(line).getFieldCount() == 0) {
                                 // If there are no good sequence matches, completely stop searching this record.
                                 stage = (searchRecord.getSequenceMatches().size() == 0)
                                         ? ParsingStage.FINISHED_SEARCHING_RECORD
@@ -239,12 +239,10 @@ public class Hmmer3SearchMatchParser<T extends RawMatch> implements MatchParser
                                 currentDomain = null;
                             } else {
 
-                                Matcher sequenceMatchLineMatcher = SequenceMatch.SEQUENCE_LINE_PATTERN.matcher(line);
-                                if (sequenceMatchLineMatcher.matches()) {
+                                if (SequenceMatch.isSequenceLine(tokens)) {
                                     // Found a sequence match line above the threshold.
                                     // Make a record of the UPI.
-//                                    String upi = sequenceMatchLineMatcher.group(SequenceMatch.SEQUENCE_ID_GROUP);
-                                    SequenceMatch sequenceMatch = new SequenceMatch(sequenceMatchLineMatcher);
+                                    SequenceMatch sequenceMatch = new SequenceMatch(tokens);
                                     searchRecord.addSequenceMatch(sequenceMatch);
                                 }
                             }
@@ -256,10 +254,10 @@ public class Hmmer3SearchMatchParser<T extends RawMatch> implements MatchParser
                             if (line.startsWith(DOMAIN_SECTION_START)) {
 
                                 // Find out which model the domain matches are for and then parse them.
-                                Matcher domainSectionHeaderMatcher = DOMAIN_SECTION_START_PATTERN.matcher(line);
-                                if (domainSectionHeaderMatcher.matches()) {
+                                // The identifier is the field following DOMAIN_SECTION_START
+                                if (tokens.tokenize(line).getFieldCount() >= 2) {
                                     domains.clear();
-                                    currentSequenceIdentifier = domainSectionHeaderMatcher.group(1);
+                                    currentSequenceIdentifier = tokens.getField(1);
                                 } else {
                                     throw new ParseException("This line looks like a domain section header line, but it is not possible to parse out the sequence id.", null, line, lineNumber);
                                 }
@@ -267,14 +265,14 @@ public class Hmmer3SearchMatchParser<T extends RawMatch> implements MatchParser
                             }
 
                             if (hmmer3ParserSupport.parseAlignments()) {
+                                tokens.tokenize(line);
                                 //to handle domain alignment
                                 if (line.startsWith(DOMAIN_ALIGNMENT_SECTION_START)) {
 
-                                    Matcher domainAlignmentMatcher = DomainMatch.DOMAIN_ALIGNMENT_LINE_PATTERN.matcher(line);
-                                    if (domainAlignmentMatcher.matches()) {
+                                    if (DomainMatch.isDomainAlignmentLine(tokens)) {
 
                                         alignSeq.setLength(0);
-                                        String domainNumber = domainAlignmentMatcher.group(1);
+                                        String domainNumber = tokens.getField(2);
                                         currentDomain = domains.get(domainNumber); //get the current domain object.
                                     } else {
                                         throw new ParseException("Unable to parse domain alignment section line", null, line, lineNumber);
@@ -283,10 +281,9 @@ public class Hmmer3SearchMatchParser<T extends RawMatch> implements MatchParser
                                 // getting the actual alignment sequence string
 
                                 if ((currentDomain != null) && (currentSequenceIdentifier != null)) {
-                                    Matcher alignmentSequencePattern = DomainMatch.ALIGNMENT_SEQUENCE_PATTERN.matcher(line);
-                                    if (alignmentSequencePattern.matches()) {
-                                        if (alignmentSequencePattern.group(1).equals(currentSequenceIdentifier)) {
-                                            alignSeq.append(alignmentSequencePattern.group(3));
+                                    if (DomainMatch.isAlignmentSequenceLine(tokens)) {
+                                        if (tokens.fieldEquals(0, currentSequenceIdentifier)) {
+                                            tokens.appendField(2, alignSeq);
                                             currentDomain.setAlignment(alignSeq.toString());
                                         }
                                     }
@@ -304,12 +301,11 @@ public class Hmmer3SearchMatchParser<T extends RawMatch> implements MatchParser
                         case LOOKING_FOR_DOMAIN_DATA_LINE:
 
                             // Look for a domain data line.
-                            Matcher domainDataLineMatcher = DomainMatch.DOMAIN_LINE_PATTERN.matcher(line);
                             if (line.contains(START_OF_DOMAIN_ALIGNMENT_SECTION)) {
                                 stage = ParsingStage.LOOKING_FOR_DOMAIN_SECTION;
-                            } else if (domainDataLineMatcher.matches()) {
-                                DomainMatch domainMatch = new DomainMatch(domainDataLineMatcher);
-                                String domainLineId = domainDataLineMatcher.group(1);
+                            } else if (DomainMatch.isDomainLine(tokens.tokenize(line))) {
+                                DomainMatch domainMatch = new DomainMatch(tokens);
+                                String domainLineId = tokens.getField(0);
                                 // Account for bug in HMMER 3.0b2 (IBU-1133) -- START
                                 // This code can be removed when all member databases use fixed versions of HMMER
                                 boolean add = true;
@@ -603,6 +603,8 @@ public class SFLDHmmer3MatchParser<T extends RawMatch> implements MatchAndSitePa
             Map<String, DomainMatch> domains = new HashMap<>();
 
             SequenceMatch sequenceMatch;
+            // Splits the domain lines into fields, rather than matching them with the regex
+            final Hmmer3LineTokenizer tokens = new Hmmer3LineTokenizer();
 
             ParsingStage stage = ParsingStage.LOOKING_FOR_SEQUENCE_MATCHES;
             int lineNumber = 0;
@@ -642,11 +644,10 @@ public class SFLDHmmer3MatchParser<T extends RawMatch> implements MatchAndSitePa
                         }
                         break;
                     case LOOKING_FOR_DOMAIN_DATA_LINE:
-                        Matcher domainDataLineMatcher = SequenceDomainMatch.DOMAIN_LINE_PATTERN.matcher(line);
                         if (line.startsWith(SITE_SECTION_START)) {
                             stage = ParsingStage.LOOKING_FOR_SITE_DATA_LINE;
-                        } else if (domainDataLineMatcher.matches()) {
-                            SequenceDomainMatch sequenceDomainMatch = new SequenceDomainMatch(domainDataLineMatcher);
+                        } else if (SequenceDomainMatch.isDomainLine(tokens.tokenize(line))) {
+                            SequenceDomainMatch sequenceDomainMatch = new SequenceDomainMatch(tokens);
                             if (checkDomainCoordinates(sequenceDomainMatch)) {
                                 //we now have a match and can create a raw match
                                 DomainMatch domainMatch = new DomainMatch(sequenceDomainMatch);
@@ -1,5 +1,7 @@
 package uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3.parsemodel;
 
+import uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3.Hmmer3LineTokenizer;
+
 import java.io.Serializable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -132,6 +134,37 @@ public class DomTblDomainMatch implements Serializable {
 
     }
 
+    /**
+     * @param tokens of a domain line, i.e. one for which {@link #isDomainDataLine(Hmmer3LineTokenizer, String)} is true.
+     * @param mode   hmmsearch or hmmscan, as for {@link #getDomainDataLineMatcher(String, String)}.
+     */
+    public DomTblDomainMatch(Hmmer3LineTokenizer tokens, String mode) {
+        if (mode.equals("hmmsearch")) {
+            targetIdentifier = tokens.getField(0);
+            queryName = tokens.getField(3);
+        } else {
+            targetIdentifier = tokens.getField(3);
+            queryName = tokens.getField(0);
+        }
+        // Fields are one less than the groups of the patterns
+        sequenceEValue = tokens.getDouble(6);
+        sequenceScore = tokens.getDouble(7);
+        sequenceBias = tokens.getDouble(8);
+
+        domainCEvalue = tokens.getDouble(11);
+        domainIEvalue = tokens.getDouble(12);
+        domainScore = tokens.getDouble(13);
+        domainBias = tokens.getDouble(14);
+
+        domainHmmfrom = tokens.getInt(15);
+        domainHmmto = tokens.getInt(16);
+        domainAliFrom = tokens.getInt(17);
+        domainAliTo = tokens.getInt(18);
+        domainEnvFrom = tokens.getInt(19);
+        domainEnvTo = tokens.getInt(20);
+        domainAccuracy = 0.0;
+    }
+
     public DomTblDomainMatch(SequenceDomainMatch sequenceDomainMatch) {
 //        this.score = sequenceDomainMatch.getScore();
 //        this.bias = sequenceDomainMatch.getBias();
@@ -237,6 +270,36 @@ public class DomTblDomainMatch implements Serializable {
         }
 
     }
+    /**
+     * @return true if the line matches the pattern of {@link #getDomainDataLineMatcher(String, String)}.
+     */
+    public static boolean isDomainDataLine(Hmmer3LineTokenizer tokens, String mode) {
+        final boolean hmmsearch = mode.equals("hmmsearch");
+        if (tokens.startsWithWhitespace() || tokens.getFieldCount() < (hmmsearch ? 23 : 21)) {
+            return false;
+        }
+        if (!hmmsearch && !tokens.isFollowedByWhitespace(20)) {
+            return false;
+        }
+        if (!tokens.isDigits(2) || !tokens.isDigits(5) || !tokens.isDigits(9) || !tokens.isDigits(10)) {
+            return false;
+        }
+        for (int field = 15; field <= 20; field++) {
+            if (!tokens.isDigits(field)) {
+                return false;
+            }
+        }
+        return isFollowedBySpaceAndWhitespace(tokens, 5) && isFollowedBySpaceAndWhitespace(tokens, 8);
+    }
+
+    /**
+     * The " \\s+" separators of the patterns: a space and at least one more whitespace character.
+     */
+    private static boolean isFollowedBySpaceAndWhitespace(Hmmer3LineTokenizer tokens, int field) {
+        final int end = tokens.getFieldEnd(field);
+        return tokens.getLine().charAt(end) == ' ' && tokens.getFieldStart(field + 1) - end >= 2;
+    }
+
     /*
     public String getAlignment() {
         return alignment;
@@ -1,5 +1,7 @@
 package uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3.parsemodel;
 
+import uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3.Hmmer3LineTokenizer;
+
 import java.io.Serializable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -80,6 +82,61 @@ public class DomainMatch implements Serializable {
 
     }
 
+    /**
+     * @param tokens of a domain line, i.e. one for which {@link #isDomainLine(Hmmer3LineTokenizer)} is true.
+     */
+    public DomainMatch(Hmmer3LineTokenizer tokens) {
+        this.score = tokens.getDouble(2);
+        this.bias = tokens.getDouble(3);
+        this.cEvalue = tokens.getDouble(4);
+        this.iEvalue = tokens.getDouble(5);
+        this.hmmfrom = tokens.getInt(6);
+        this.hmmto = tokens.getInt(7);
+        this.hmmBounds = tokens.getField(8);
+        this.aliFrom = tokens.getInt(9);
+        this.aliTo = tokens.getInt(10);
+        this.envFrom = tokens.getInt(12);
+        this.envTo = tokens.getInt(13);
+        this.acc = tokens.getDouble(15);
+    }
+
+    /**
+     * @return true if the line matches {@link #DOMAIN_LINE_PATTERN}.
+     */
+    public static boolean isDomainLine(Hmmer3LineTokenizer tokens) {
+        if (!tokens.startsWithWhitespace() || tokens.getFieldCount() < 16) {
+            return false;
+        }
+        return tokens.isDigits(0)
+                && (tokens.fieldEquals(1, "!") || tokens.fieldEquals(1, "?"))
+                && tokens.isDigits(6) && tokens.isDigits(7)
+                && tokens.isDigits(9) && tokens.isDigits(10)
+                && tokens.isDigits(12) && tokens.isDigits(13);
+    }
+
+    /**
+     * @return true if the line matches {@link #DOMAIN_ALIGNMENT_LINE_PATTERN}.
+     */
+    public static boolean isDomainAlignmentLine(Hmmer3LineTokenizer tokens) {
+        return tokens.startsWithWhitespace()
+                && tokens.getFieldCount() >= 3
+                && tokens.fieldEquals(0, "==")
+                && tokens.fieldEquals(1, "domain")
+                && tokens.isDigits(2)
+                && tokens.isFollowedByWhitespace(2);
+    }
+
+    /**
+     * @return true if the line matches {@link #ALIGNMENT_SEQUENCE_PATTERN}, in which case the
+     * sequence identifier is field 0 and the aligned sequence field 2.
+     */
+    public static boolean isAlignmentSequenceLine(Hmmer3LineTokenizer tokens) {
+        return tokens.startsWithWhitespace()
+                && tokens.getFieldCount() == 4
+                && tokens.isWord(0)
+                && tokens.isAlignment(2);
+    }
+
     public DomainMatch(SequenceDomainMatch sequenceDomainMatch) {
         this.score = sequenceDomainMatch.getScore();
         this.bias = sequenceDomainMatch.getBias();
@@ -1,5 +1,7 @@
 package uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3.parsemodel;
 
+import uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3.Hmmer3LineTokenizer;
+
 import java.io.Serializable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -100,6 +102,41 @@ public class SequenceDomainMatch implements Serializable {
         this.bias = Double.parseDouble(domainLineMatcher.group(15));
     }
 
+    /**
+     * @param tokens of a domain line, i.e. one for which {@link #isDomainLine(Hmmer3LineTokenizer)} is true.
+     */
+    public SequenceDomainMatch(Hmmer3LineTokenizer tokens) {
+        // Fields are one less than the groups of the pattern
+        this.modelAccession = tokens.getField(0);
+        this.sequenceEvalue = tokens.getDouble(1);
+        this.sequenceScore = tokens.getDouble(2);
+        this.sequenceBias = tokens.getDouble(3);
+        this.hmmfrom = tokens.getInt(4);
+        this.hmmto = tokens.getInt(5);
+
+        this.hmmBounds = "..";
+        this.score = tokens.getDouble(6);
+        this.aliFrom = tokens.getInt(7);
+        this.aliTo = tokens.getInt(8);
+        this.envFrom = tokens.getInt(9);
+        this.envTo = tokens.getInt(10);
+        this.cEvalue = tokens.getDouble(11);
+        this.iEvalue = tokens.getDouble(12);
+        this.acc = tokens.getDouble(13);
+        this.bias = tokens.getDouble(14);
+    }
+
+    /**
+     * @return true if the line matches {@link #DOMAIN_LINE_PATTERN}.
+     */
+    public static boolean isDomainLine(Hmmer3LineTokenizer tokens) {
+        return !tokens.startsWithWhitespace()
+                && tokens.getFieldCount() >= 15
+                && tokens.isDigits(4) && tokens.isDigits(5)
+                && tokens.isDigits(7) && tokens.isDigits(8)
+                && tokens.isDigits(9) && tokens.isDigits(10);
+    }
+
     public String getModelAccession() {
         return modelAccession;
     }
@@ -1,5 +1,7 @@
 package uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3.parsemodel;
 
+import uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3.Hmmer3LineTokenizer;
+
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -31,6 +33,8 @@ public class SequenceMatch implements Serializable {
     public static final int SCORE_GROUP = 2;
     public static final int BIAS_GROUP = 3;
     public static final int SEQUENCE_ID_GROUP = 4;
+    // Whitespace separated field of the sequence ID (the fields before it being the E-value, score and bias groups)
+    public static final int SEQUENCE_ID_FIELD = 8;
 
     private String sequenceIdentifier;
 
@@ -49,6 +53,26 @@ public class SequenceMatch implements Serializable {
         this.sequenceIdentifier = domainLineMatcher.group(SEQUENCE_ID_GROUP);
 
     }
+
+    /**
+     * @param tokens of a sequence line, i.e. one for which {@link #isSequenceLine(Hmmer3LineTokenizer)} is true.
+     */
+    public SequenceMatch(Hmmer3LineTokenizer tokens) {
+        this.eValue = tokens.getDouble(EVALUE_GROUP - 1);
+        this.score = tokens.getDouble(SCORE_GROUP - 1);
+        this.bias = tokens.getDouble(BIAS_GROUP - 1);
+        this.sequenceIdentifier = tokens.getField(SEQUENCE_ID_FIELD);
+    }
+
+    /**
+     * @return true if the line matches {@link #SEQUENCE_LINE_PATTERN}.
+     */
+    public static boolean isSequenceLine(Hmmer3LineTokenizer tokens) {
+        return tokens.startsWithWhitespace()
+                && tokens.getFieldCount() > SEQUENCE_ID_FIELD
+                && tokens.isDigits(SEQUENCE_ID_FIELD - 1);
+    }
+
     public SequenceMatch(String  sequenceIdentifier, double eValue, double score, double bias) {
         this.sequenceIdentifier = sequenceIdentifier;
         this.eValue = eValue;
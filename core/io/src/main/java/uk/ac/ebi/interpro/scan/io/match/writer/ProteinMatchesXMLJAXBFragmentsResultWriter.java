@@ -41,6 +41,9 @@ public class ProteinMatchesXMLJAXBFragmentsResultWriter implements AutoCloseable
 
     private static final Logger LOGGER = Logger.getLogger(ProteinMatchesXMLJAXBFragmentsResultWriter.class.getName());
 
+    /* Indent of the elements of a fragment, nested in the root element of the document */
+    private static final String FRAGMENT_INDENT = "  ";
+
     //protected BufferedWriter fileWriter;
 
     private XMLStreamWriter writer;
@@ -52,13 +55,25 @@ public class ProteinMatchesXMLJAXBFragmentsResultWriter implements AutoCloseable
 
     Path xmlPath;
 
+    /* True if the proteins are written to a fragment of the document, without root element */
+    private final boolean fragment;
+
     BufferedWriter bufferedWriter;
     BufferedOutputStream bos;
     protected DateFormat dmyFormat;
     protected static final Charset characterSet = Charset.defaultCharset();
 
     public ProteinMatchesXMLJAXBFragmentsResultWriter(Path path, Class classToBind, boolean isSlimOutput) throws IOException, XMLStreamException, JAXBException {
+        this(path, classToBind, isSlimOutput, false);
+    }
+
+    /**
+     * @param fragment if true, the proteins are written without header to a fragment of the document
+     *                 (e.g. the proteins of one shard), see {@link #closeFragment()}
+     */
+    public ProteinMatchesXMLJAXBFragmentsResultWriter(Path path, Class classToBind, boolean isSlimOutput, boolean fragment) throws IOException, XMLStreamException, JAXBException {
 
+        this.fragment = fragment;
         this.dmyFormat = new SimpleDateFormat("dd-MM-yyyy");
 
         //
@@ -112,10 +127,35 @@ public class ProteinMatchesXMLJAXBFragmentsResultWriter implements AutoCloseable
 
     public void write(final OutputListElement protein,  final String sequenceType, final boolean isSlimOutput) throws IOException, JAXBException {
         //jaxb2Marshaller.marshal(writer);
-        marshaller.marshal(protein , writer);
+        if (fragment) {
+            // the XML stream writer only accepts one root element
+            writeIndented(protein);
+        } else {
+            marshaller.marshal(protein , writer);
+        }
 
     }
 
+    /**
+     * Writes the (formatted) element nested one level in the root element, so that the fragments are assembled
+     * into an indented document without formatting the whole document again, see {@link #closeFragment()}.
+     * Only the lines of markup are indented: a line starting with text content is part of a multi-line value.
+     */
+    private void writeIndented(final OutputListElement element) throws IOException, JAXBException {
+        final StringWriter elementWriter = new StringWriter();
+        marshaller.marshal(element, elementWriter);
+        try (BufferedReader lines = new BufferedReader(new StringReader(elementWriter.toString()))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.trim().startsWith("<")) {
+                    bufferedWriter.write(FRAGMENT_INDENT);
+                }
+                bufferedWriter.write(line);
+                bufferedWriter.write('\n');
+            }
+        }
+    }
+
     public String marshal(final OutputListElement outputListElement) throws JAXBException {
         StringWriter tmpWriter = new StringWriter();
         StreamResult result = new StreamResult(tmpWriter);
@@ -137,11 +177,32 @@ public class ProteinMatchesXMLJAXBFragmentsResultWriter implements AutoCloseable
         //System.out.println("");
         //bufferedWriter.close();
 
+        indent(xmlPath);
+    }
+
+    /**
+     * Closes the writer without ending the document, after writing the header or the proteins of a fragment.
+     * The elements of the fragments are already indented, so the XML file they are concatenated into is not
+     * formatted again.
+     */
+    public void closeFragment() throws XMLStreamException, IOException {
+        if (!fragment) {
+            writer.writeCharacters("\n"); // ends the start tag of the header
+            writer.flush();
+        }
+        // The XML stream writer isn't closed, as it would end the document
+        bufferedWriter.close();
+        bos.close();
+    }
+
+    /**
+     * Format (indent) the XML file
+     */
+    public static void indent(Path xmlPath) throws IOException {
         Utilities.verboseLog(20, "Format the xML file --");
         Transformer transformer = null;
 
-        try {
-            BufferedReader buf = Files.newBufferedReader(xmlPath, characterSet);
+        try (BufferedReader buf = Files.newBufferedReader(xmlPath, characterSet)) {
             String newPathName = xmlPath.toAbsolutePath().toString() + ".tmp.noindent";
             /*
             String line = buf.readLine();
@@ -46,8 +46,7 @@ public class FingerPRINTSHierarchyDBParser implements Serializable {
         if (!resource.isReadable()) {
             throw new IllegalStateException(resource.getFilename() + " is not readable");
         }
-        final Map<String, HierachyDBEntry> printsIdToDBEntry = new HashMap<String, HierachyDBEntry>() {
-        };
+        final Map<String, HierachyDBEntry> printsIdToDBEntry = new HashMap<String, HierachyDBEntry>();
         BufferedReader reader = null;
         try {
             reader = new BufferedReader(new InputStreamReader(resource.getInputStream()));
@@ -86,7 +85,7 @@ public class FingerPRINTSHierarchyDBParser implements Serializable {
         return printsIdToDBEntry;
     }
 
-    public class HierachyDBEntry {
+    public static class HierachyDBEntry implements Serializable {
 
         private String id;
 
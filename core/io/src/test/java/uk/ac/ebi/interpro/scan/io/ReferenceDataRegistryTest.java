@@ -0,0 +1,144 @@
+package uk.ac.ebi.interpro.scan.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ReferenceDataRegistry}.
+ */
+public class ReferenceDataRegistryTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    @Test
+    public void testLoadsOncePerVersion() throws Exception {
+        final ReferenceDataRegistry registry = new ReferenceDataRegistry();
+        final File file = write("data.txt", "one");
+        final ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(threads.submit((Callable<String>) () -> registry.get("lines", () -> load(file), file)));
+            }
+            for (Future<String> result : results) {
+                assertEquals("one", result.get());
+            }
+        } finally {
+            threads.shutdown();
+        }
+        assertEquals(1, loadCount.get());
+
+        // Same files, different data
+        assertEquals("ONE", registry.get("upper-case", () -> load(file).toUpperCase(), file));
+        assertEquals(2, loadCount.get());
+
+        // Changed file
+        write("data.txt", "changed");
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        assertEquals("changed", registry.get("lines", () -> load(file), file));
+        assertEquals("changed", registry.get("lines", () -> load(file), file));
+        assertEquals(3, loadCount.get());
+        assertFalse(new File(dataDirectory.toFile(), "data.txt.lines.snapshot").exists(), "Snapshots are disabled by default");
+    }
+
+    @Test
+    public void testFailedLoadRetried() throws IOException {
+        final ReferenceDataRegistry registry = new ReferenceDataRegistry();
+        final File file = write("data.txt", "one");
+        assertThrows(IOException.class, () -> registry.get("lines", () -> {
+            throw new IOException("Unreadable");
+        }, file));
+        assertEquals("one", registry.get("lines", () -> load(file), file));
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        final File file = write("data.txt", "one");
+        final File snapshot = new File(dataDirectory.toFile(), "data.txt.lines.snapshot");
+        final ReferenceDataRegistry registry = new ReferenceDataRegistry();
+        registry.setSnapshotsEnabled(true);
+        assertEquals("one", registry.get("lines", () -> load(file), file));
+        assertTrue(snapshot.isFile());
+        assertEquals(1, loadCount.get());
+
+        // Another JVM reads the snapshot rather than the file
+        final ReferenceDataRegistry otherRegistry = new ReferenceDataRegistry();
+        otherRegistry.setSnapshotsEnabled(true);
+        assertEquals("one", otherRegistry.get("lines", () -> load(file), file));
+        assertEquals(1, loadCount.get());
+
+        // An out of date snapshot is ignored (and replaced)
+        write("data.txt", "changed");
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        final ReferenceDataRegistry thirdRegistry = new ReferenceDataRegistry();
+        thirdRegistry.setSnapshotsEnabled(true);
+        assertEquals("changed", thirdRegistry.get("lines", () -> load(file), file));
+        assertEquals(2, loadCount.get());
+
+        // As is a corrupt one
+        Files.write(snapshot.toPath(), "corrupt".getBytes(StandardCharsets.UTF_8));
+        final ReferenceDataRegistry fourthRegistry = new ReferenceDataRegistry();
+        fourthRegistry.setSnapshotsEnabled(true);
+        assertEquals("changed", fourthRegistry.get("lines", () -> load(file), file));
+        assertEquals(3, loadCount.get());
+
+        // As is one of the same files, written in another format (or by other parsers)
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(snapshot))) {
+            out.writeInt(ReferenceDataRegistry.SNAPSHOT_FORMAT_VERSION + 1);
+            out.writeUTF("lines");
+            out.writeUTF(file.length() + ":" + file.lastModified() + "|");
+            out.writeObject("stale");
+        }
+        final ReferenceDataRegistry fifthRegistry = new ReferenceDataRegistry();
+        fifthRegistry.setSnapshotsEnabled(true);
+        assertEquals("changed", fifthRegistry.get("lines", () -> load(file), file));
+        assertEquals(4, loadCount.get());
+    }
+
+    @Test
+    public void testResources() throws IOException {
+        final ReferenceDataRegistry registry = new ReferenceDataRegistry();
+        final File file = write("data.txt", "one");
+        assertEquals("one", registry.get("lines", () -> load(file), new FileSystemResource(file)));
+        assertEquals("one", registry.get("lines", () -> load(file), new FileSystemResource(file)));
+        assertEquals(1, loadCount.get());
+
+        // Not a file, so not cached
+        assertEquals("one", registry.get("lines", () -> load(file), new ByteArrayResource(new byte[0])));
+        assertEquals("one", registry.get("lines", () -> load(file), new ByteArrayResource(new byte[0])));
+        assertEquals(3, loadCount.get());
+    }
+
+    private String load(File file) throws IOException {
+        loadCount.incrementAndGet();
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private File write(String name, String content) throws IOException {
+        final File file = new File(dataDirectory.toFile(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
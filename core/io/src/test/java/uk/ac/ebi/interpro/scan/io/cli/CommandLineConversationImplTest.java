@@ -4,6 +4,7 @@ import org.apache.log4j.Logger;
 
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
@@ -12,10 +13,15 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 
+import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -124,4 +130,38 @@ public class CommandLineConversationImplTest {
             fail(e.toString());
         }
     }
+
+    /**
+     * The output is consumed as it is produced, while still written to the output file in full,
+     * even though the consumer stops reading long before the end of the output.
+     */
+    @Test
+    public void testCommandWithOutputConsumer(@TempDir Path tempDir) throws IOException, InterruptedException {
+        final Path outputFile = tempDir.resolve("command_output");
+        final List<String> firstLines = new ArrayList<String>();
+        CommandLineConversation clc = new CommandLineConversationImpl();
+        clc.setOutputPathToFile(outputFile.toString(), false, false);
+        clc.setOutputConsumer(output -> {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(output));
+            firstLines.add(reader.readLine());
+            firstLines.add(reader.readLine());
+            reader.close();
+        });
+        assertEquals(0, clc.runCommand(false, "seq", "1", "100000"));
+        assertEquals(Arrays.asList("1", "2"), firstLines);
+        final List<String> lines = Files.readAllLines(outputFile);
+        assertEquals(100000, lines.size());
+        assertEquals("100000", lines.get(99999));
+        assertNull(clc.getOutput());
+    }
+
+    @Test
+    public void testCommandWithFailingOutputConsumer() {
+        CommandLineConversation clc = new CommandLineConversationImpl();
+        clc.setOutputConsumer(output -> {
+            throw new IllegalStateException("Unable to parse");
+        });
+        IOException e = assertThrows(IOException.class, () -> clc.runCommand(false, "seq", "1", "100000"));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
 }
@@ -0,0 +1,175 @@
+package uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3.parsemodel.DomainMatch;
+import uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3.parsemodel.SequenceDomainMatch;
+import uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3.parsemodel.SequenceMatch;
+import uk.ac.ebi.interpro.scan.model.raw.Gene3dHmmer3RawMatch;
+import uk.ac.ebi.interpro.scan.model.raw.RawProtein;
+import uk.ac.ebi.interpro.scan.model.raw.alignment.CigarAlignmentEncoder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+/**
+ * Parsing the lines of the hmmsearch output fixtures with the regular expressions of the parse model classes
+ * (as the HMMER3 parsers used to) against {@link Hmmer3LineTokenizer}, and the throughput of a whole
+ * {@link Hmmer3SearchMatchParser} (with alignments, as for Gene3D) over a fixture.
+ * <p/>
+ * Excluded from the default build; compile with the jmh profile and run the main method:
+ * <pre>
+ * mvn -Pdefault-test,jmh test-compile
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Hmmer3LineParsingBenchmark {
+
+    private static final String[] HMMSEARCH_OUTPUT_FILES = {
+            "data/hmmer3/hmmsearch/2hxsA00.out",
+            "data/hmmer3/hmmsearch/A0AK98-PF08239.txt",
+            "data/hmmer3/hmmsearch/CELR2-PF12003.txt",
+            "data/hmmer3/hmmsearch/Q5HDF6-1aopA02.txt",
+            "data/hmmer3/hmmsearch/pfam-small.txt"
+    };
+
+    private static final String GENE3D_OUTPUT_FILE = "data/hmmer3/hmmsearch/2hxsA00.out";
+
+    private static final String SFLD_OUTPUT_FILE = "data/sfld/sfld_match_site_output.txt";
+
+    private List<String> hmmsearchLines;
+
+    private List<String> sfldLines;
+
+    private byte[] gene3dOutput;
+
+    private Hmmer3SearchMatchParser<Gene3dHmmer3RawMatch> gene3dParser;
+
+    private final Hmmer3LineTokenizer tokens = new Hmmer3LineTokenizer();
+
+    @Setup(Level.Trial)
+    public void readFixtures() throws IOException {
+        hmmsearchLines = new ArrayList<>();
+        for (String file : HMMSEARCH_OUTPUT_FILES) {
+            hmmsearchLines.addAll(readLines(file));
+        }
+        sfldLines = readLines(SFLD_OUTPUT_FILE);
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(GENE3D_OUTPUT_FILE)) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            gene3dOutput = out.toByteArray();
+        }
+        final Gene3DHmmer3ParserSupport parserSupport = new Gene3DHmmer3ParserSupport();
+        parserSupport.setSignatureLibraryRelease("3.3.0");
+        parserSupport.setAlignmentEncoder(new CigarAlignmentEncoder());
+        parserSupport.setHmmKey(Hmmer3ParserSupport.HmmKey.NAME);
+        gene3dParser = new Hmmer3SearchMatchParser<>(null, "3.3.0");
+        gene3dParser.setParserSupport(parserSupport);
+    }
+
+    @Benchmark
+    public void hmmsearchLinesWithRegex(Blackhole blackhole) {
+        for (String line : hmmsearchLines) {
+            final Matcher domainLineMatcher = DomainMatch.DOMAIN_LINE_PATTERN.matcher(line);
+            if (domainLineMatcher.matches()) {
+                blackhole.consume(new DomainMatch(domainLineMatcher));
+                continue;
+            }
+            final Matcher sequenceLineMatcher = SequenceMatch.SEQUENCE_LINE_PATTERN.matcher(line);
+            if (sequenceLineMatcher.matches()) {
+                blackhole.consume(new SequenceMatch(sequenceLineMatcher));
+                continue;
+            }
+            final Matcher alignmentSequenceMatcher = DomainMatch.ALIGNMENT_SEQUENCE_PATTERN.matcher(line);
+            if (alignmentSequenceMatcher.matches()) {
+                blackhole.consume(alignmentSequenceMatcher.group(3));
+            }
+        }
+    }
+
+    @Benchmark
+    public void hmmsearchLinesWithTokenizer(Blackhole blackhole) {
+        for (String line : hmmsearchLines) {
+            tokens.tokenize(line);
+            if (DomainMatch.isDomainLine(tokens)) {
+                blackhole.consume(new DomainMatch(tokens));
+            } else if (SequenceMatch.isSequenceLine(tokens)) {
+                blackhole.consume(new SequenceMatch(tokens));
+            } else if (DomainMatch.isAlignmentSequenceLine(tokens)) {
+                blackhole.consume(tokens.getField(2));
+            }
+        }
+    }
+
+    @Benchmark
+    public void sfldLinesWithRegex(Blackhole blackhole) {
+        for (String line : sfldLines) {
+            final Matcher matcher = SequenceDomainMatch.DOMAIN_LINE_PATTERN.matcher(line);
+            if (matcher.matches()) {
+                blackhole.consume(new SequenceDomainMatch(matcher));
+            }
+        }
+    }
+
+    @Benchmark
+    public void sfldLinesWithTokenizer(Blackhole blackhole) {
+        for (String line : sfldLines) {
+            if (SequenceDomainMatch.isDomainLine(tokens.tokenize(line))) {
+                blackhole.consume(new SequenceDomainMatch(tokens));
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<RawProtein<Gene3dHmmer3RawMatch>> parseGene3dOutput() throws IOException {
+        return gene3dParser.parse(new ByteArrayInputStream(gene3dOutput));
+    }
+
+    private List<String> readLines(String resource) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(getClass().getClassLoader().getResourceAsStream(resource)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(Hmmer3LineParsingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,214 @@
+package uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3.parsemodel.DomTblDomainMatch;
+import uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3.parsemodel.DomainMatch;
+import uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3.parsemodel.SequenceDomainMatch;
+import uk.ac.ebi.interpro.scan.io.match.hmmer.hmmer3.parsemodel.SequenceMatch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Matcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link Hmmer3LineTokenizer}, in particular that it accepts and parses the same lines
+ * as the regular expressions of the parse model classes.
+ */
+public class Hmmer3LineTokenizerTest {
+
+    private static final String[] FULL_OUTPUT_FILES = {
+            "data/hmmer3/hmmsearch/2hxsA00.out",
+            "data/hmmer3/hmmsearch/A0AK98-PF08239.txt",
+            "data/hmmer3/hmmsearch/CELR2-PF12003.txt",
+            "data/hmmer3/hmmsearch/Q5HDF6-1aopA02.txt",
+            "data/hmmer3/hmmsearch/empty-alignment-line.txt",
+            "data/hmmer3/hmmsearch/pfam-small.txt",
+            "data/hmmer3/hmmscan/pfam-small.txt"
+    };
+
+    private static final String SFLD_OUTPUT_FILE = "data/sfld/sfld_match_site_output.txt";
+
+    private static final String DOMTBL_LINE =
+            "UPI0000054B90        -            446 PF00001              PF00001.20   268   2.1e-30  105.2  12.3   1   1   4.1e-33   3.2e-30  104.6  12.3     1   257    38   296    38   296 0.93 7 transmembrane receptor";
+
+    private final Hmmer3LineTokenizer tokens = new Hmmer3LineTokenizer();
+
+    @Test
+    public void testTokenize() {
+        tokens.tokenize("  ==  domain 1\tscore: 21.5 bits ");
+        assertTrue(tokens.startsWithWhitespace());
+        assertEquals(6, tokens.getFieldCount());
+        assertEquals("==", tokens.getField(0));
+        assertTrue(tokens.fieldEquals(1, "domain"));
+        assertFalse(tokens.fieldEquals(1, "domains"));
+        assertEquals(15, tokens.getFieldStart(3));
+        assertEquals(21, tokens.getFieldEnd(3));
+        assertTrue(tokens.isDigits(2));
+        assertFalse(tokens.isDigits(4));
+        assertTrue(tokens.isFollowedByWhitespace(5));
+        final StringBuilder builder = new StringBuilder("score");
+        tokens.appendField(5, builder);
+        assertEquals("scorebits", builder.toString());
+
+        assertEquals(0, tokens.tokenize("").getFieldCount());
+        assertEquals(0, tokens.tokenize(" \t ").getFieldCount());
+        tokens.tokenize("a");
+        assertFalse(tokens.startsWithWhitespace());
+        assertFalse(tokens.isFollowedByWhitespace(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> tokens.getField(1));
+
+        // More fields than the initial capacity
+        final StringBuilder many = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            many.append(i).append(' ');
+        }
+        tokens.tokenize(many);
+        assertEquals(100, tokens.getFieldCount());
+        assertEquals(99, tokens.getInt(99));
+    }
+
+    @Test
+    public void testGetInt() {
+        for (String value : Arrays.asList("0", "7", "+42", "-42", "00012", "2147483647", "-2147483648")) {
+            assertEquals(Integer.parseInt(value), tokens.tokenize(value).getInt(0), value);
+        }
+        for (String value : Arrays.asList("-", "+", "1.0", "12a", "2147483648", "-2147483649", "99999999999")) {
+            assertThrows(NumberFormatException.class, () -> tokens.tokenize(value).getInt(0), value);
+        }
+    }
+
+    @Test
+    public void testGetDouble() {
+        final List<String> values = new ArrayList<>(Arrays.asList(
+                "0", "0.0", "-0.0", "+0.0", "21.5", "0.00065", "6.5e-09", "1.3e-48", "9.200e-04", "1.340e+01",
+                "1E5", "1e22", "1e23", "4.9e-324", "1.7976931348623157E308", "1e400", ".5", "5.", "-.5e-3",
+                "123456789012345", "1234567890123456789", "0.1234567890123456789", "3.4028235E38",
+                "NaN", "Infinity", "-Infinity", "1.0f", "2d"));
+        final Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+            final double value = Math.pow(10, random.nextInt(80) - 40) * random.nextDouble();
+            values.add(Double.toString(value));
+            values.add(String.format(Locale.ROOT, "%." + random.nextInt(6) + "f", value));
+            values.add(String.format(Locale.ROOT, "%." + random.nextInt(17) + "e", -value));
+        }
+        for (String value : values) {
+            // Exactly the same double, e.g. -0.0 is not 0.0
+            assertEquals(Double.parseDouble(value), tokens.tokenize(" " + value + " ").getDouble(0), value);
+        }
+        for (String value : Arrays.asList("-", "e5", "1e", "1e+", "1.2.3", "1,5", "abc")) {
+            assertThrows(NumberFormatException.class, () -> tokens.tokenize(value).getDouble(0), value);
+        }
+    }
+
+    @Test
+    public void testSameLinesAsFullOutputPatterns() throws IOException {
+        int domainLines = 0;
+        int sequenceLines = 0;
+        int alignmentLines = 0;
+        for (String file : FULL_OUTPUT_FILES) {
+            for (String line : readLines(file)) {
+                tokens.tokenize(line);
+
+                final Matcher domainLineMatcher = DomainMatch.DOMAIN_LINE_PATTERN.matcher(line);
+                assertEquals(domainLineMatcher.matches(), DomainMatch.isDomainLine(tokens), line);
+                if (DomainMatch.isDomainLine(tokens)) {
+                    domainLines++;
+                    assertEquals(new DomainMatch(domainLineMatcher).toString(), new DomainMatch(tokens).toString(), line);
+                    assertEquals(domainLineMatcher.group(1), tokens.getField(0), line);
+                }
+
+                final Matcher sequenceLineMatcher = SequenceMatch.SEQUENCE_LINE_PATTERN.matcher(line);
+                assertEquals(sequenceLineMatcher.matches(), SequenceMatch.isSequenceLine(tokens), line);
+                // Domain lines also match the sequence line pattern, but only sequence lines are parsed as such
+                if (SequenceMatch.isSequenceLine(tokens) && !DomainMatch.isDomainLine(tokens)) {
+                    sequenceLines++;
+                    assertEquals(new SequenceMatch(sequenceLineMatcher).toString(), new SequenceMatch(tokens).toString(), line);
+                }
+
+                final Matcher domainAlignmentMatcher = DomainMatch.DOMAIN_ALIGNMENT_LINE_PATTERN.matcher(line);
+                assertEquals(domainAlignmentMatcher.matches(), DomainMatch.isDomainAlignmentLine(tokens), line);
+                if (DomainMatch.isDomainAlignmentLine(tokens)) {
+                    assertEquals(domainAlignmentMatcher.group(1), tokens.getField(2), line);
+                }
+
+                final Matcher alignmentSequenceMatcher = DomainMatch.ALIGNMENT_SEQUENCE_PATTERN.matcher(line);
+                assertEquals(alignmentSequenceMatcher.matches(), DomainMatch.isAlignmentSequenceLine(tokens), line);
+                if (DomainMatch.isAlignmentSequenceLine(tokens)) {
+                    alignmentLines++;
+                    assertEquals(alignmentSequenceMatcher.group(1), tokens.getField(0), line);
+                    assertEquals(alignmentSequenceMatcher.group(3), tokens.getField(2), line);
+                }
+            }
+        }
+        assertTrue(domainLines > 0);
+        assertTrue(sequenceLines > 0);
+        assertTrue(alignmentLines > 0);
+    }
+
+    @Test
+    public void testSameLinesAsSfldPattern() throws IOException {
+        int domainLines = 0;
+        for (String line : readLines(SFLD_OUTPUT_FILE)) {
+            tokens.tokenize(line);
+            final Matcher matcher = SequenceDomainMatch.DOMAIN_LINE_PATTERN.matcher(line);
+            assertEquals(matcher.matches(), SequenceDomainMatch.isDomainLine(tokens), line);
+            if (SequenceDomainMatch.isDomainLine(tokens)) {
+                domainLines++;
+                assertEquals(new SequenceDomainMatch(matcher).toString(), new SequenceDomainMatch(tokens).toString(), line);
+            }
+        }
+        assertTrue(domainLines > 0);
+    }
+
+    @Test
+    public void testSameLinesAsDomTblPatterns() {
+        final List<String> lines = Arrays.asList(
+                DOMTBL_LINE,
+                // No description
+                DOMTBL_LINE.substring(0, DOMTBL_LINE.indexOf(" 7 transmembrane")),
+                DOMTBL_LINE.substring(0, DOMTBL_LINE.indexOf(" 0.93 7 transmembrane")) + " ",
+                // A single space after the model length
+                DOMTBL_LINE.replace("268   2.1e-30", "268 2.1e-30"),
+                DOMTBL_LINE.replace("268   2.1e-30", "268\t 2.1e-30"),
+                DOMTBL_LINE.replace("446", "44x"),
+                "  " + DOMTBL_LINE,
+                "# target name        accession   tlen query name           accession   qlen   E-value  score  bias   #  of  c-Evalue  i-Evalue  score  bias  from    to  from    to  from    to  acc description of target",
+                "#-------------------",
+                "");
+        for (String mode : Arrays.asList("hmmsearch", "hmmscan")) {
+            for (String line : lines) {
+                tokens.tokenize(line);
+                final Matcher matcher = DomTblDomainMatch.getDomainDataLineMatcher(line, mode);
+                assertEquals(matcher.matches(), DomTblDomainMatch.isDomainDataLine(tokens, mode), mode + ": " + line);
+                if (DomTblDomainMatch.isDomainDataLine(tokens, mode)) {
+                    assertEquals(new DomTblDomainMatch(matcher, mode).toString(), new DomTblDomainMatch(tokens, mode).toString(), line);
+                }
+            }
+        }
+        assertTrue(DomTblDomainMatch.isDomainDataLine(tokens.tokenize(DOMTBL_LINE), "hmmsearch"));
+        assertEquals("UPI0000054B90", new DomTblDomainMatch(tokens, "hmmsearch").getTargetIdentifier());
+        assertEquals("PF00001", new DomTblDomainMatch(tokens, "hmmscan").getTargetIdentifier());
+    }
+
+    private List<String> readLines(String resource) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(resource)) {
+            assertNotNull(is, resource);
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(is));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
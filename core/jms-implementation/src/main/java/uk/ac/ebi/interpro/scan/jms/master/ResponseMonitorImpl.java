@@ -32,6 +32,8 @@ public class ResponseMonitorImpl implements MessageListener {
 
     private StatsUtil statsUtil;
 
+    private StepInstanceScheduler stepInstanceScheduler;
+
     public ResponseMonitorImpl(StepExecutionDAO stepExecutionDAO) {
         this.stepExecutionDAO = stepExecutionDAO;
     }
@@ -44,6 +46,15 @@ public class ResponseMonitorImpl implements MessageListener {
         this.statsUtil = statsUtil;
     }
 
+    /**
+     * Optional - if set, the scheduler is told about every StepExecution returned by the workers.
+     *
+     * @param stepInstanceScheduler of the Master.
+     */
+    public void setStepInstanceScheduler(StepInstanceScheduler stepInstanceScheduler) {
+        this.stepInstanceScheduler = stepInstanceScheduler;
+    }
+
     @Override
     public void onMessage(Message message) {
         LOGGER.info("Master: received a message on the  responseQueue");
@@ -59,6 +70,10 @@ public class ResponseMonitorImpl implements MessageListener {
                     stepExecutionDAO.refreshStepExecution(freshStepExecution);
                     Utilities.verboseLog(10, "ResponseMonitorImpl: " + freshStepExecution.getStepInstance().toString());
                     statsUtil.updateSubmittedStepInstances(freshStepExecution.getStepInstance());
+                    if (stepInstanceScheduler != null) {
+                        // Only once the database has been updated, as the scheduler may read it straight away.
+                        stepInstanceScheduler.stepExecutionCompleted(freshStepExecution);
+                    }
 
                     canRunRemotely = message.getBooleanProperty(CAN_RUN_REMOTELY_PROPERTY);
                     if(canRunRemotely){
@@ -1,12 +1,14 @@
 package uk.ac.ebi.interpro.scan.jms.master;
 
 import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
 import org.springframework.jms.listener.DefaultMessageListenerContainer;
 import uk.ac.ebi.interpro.scan.jms.stats.StatsUtil;
 import uk.ac.ebi.interpro.scan.management.model.implementations.RunBinaryStep;
 import uk.ac.ebi.interpro.scan.management.model.implementations.stepInstanceCreation.StepInstanceCreatingStep;
 import uk.ac.ebi.interpro.scan.management.model.implementations.WriteOutputStep;
 import uk.ac.ebi.interpro.scan.util.Utilities;
+import uk.ac.ebi.interpro.scan.management.model.SerialGroup;
 import uk.ac.ebi.interpro.scan.management.model.Step;
 import uk.ac.ebi.interpro.scan.management.model.StepInstance;
 import uk.ac.ebi.interpro.scan.management.model.implementations.WriteFastaFileStep;
@@ -15,7 +17,9 @@ import uk.ac.ebi.interpro.scan.management.model.implementations.prosite.RunPsSca
 import javax.jms.JMSException;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ThreadFactory;
 
 import java.util.concurrent.TimeUnit;
@@ -30,6 +34,8 @@ public class StandaloneBlackBoxMaster extends AbstractBlackBoxMaster {
 
     private StatsUtil statsUtil;
 
+    private StepInstanceScheduler stepInstanceScheduler;
+
     private DefaultMessageListenerContainer workerQueueJmsContainer;
 
     private static final int MEGA = 1024 * 1024;
@@ -133,21 +139,28 @@ public class StandaloneBlackBoxMaster extends AbstractBlackBoxMaster {
             // stop running if there are no StepInstances left to complete.
             int allowedWaitTimeMultiplier = 0;
             boolean controlledLogging = false;
+            // The StepInstances ready to run are tracked in memory, rather than polling the database for them.
+            stepInstanceScheduler.initialise();
             while (!shutdownCalled) {
-                boolean completed = true;
                 runStatus = 41;
-                List<StepInstance> unfinshedStepInstances = stepInstanceDAO.retrieveUnfinishedStepInstances();
-                for (StepInstance stepInstance : unfinshedStepInstances) {
+                for (StepInstance failedStepInstance : stepInstanceScheduler.takeFailedPermanently()) {
+                    unrecoverableErrorStrategy.failed(failedStepInstance, jobs);
+                }
+                // Serial groups found to be running during this pass - no need to query them again.
+                final Set<SerialGroup> busySerialGroups = new HashSet<SerialGroup>();
+                for (StepInstance stepInstance : stepInstanceScheduler.getReadyStepInstances()) {
                     runStatus = 51;
 
                     if (LOGGER.isTraceEnabled()) {
                         LOGGER.trace("Iterating over StepInstances: Currently on " + stepInstance);
                     }
-                    if (stepInstance.hasFailedPermanently(jobs)) {
-                        unrecoverableErrorStrategy.failed(stepInstance, jobs);
+                    final SerialGroup serialGroup = stepInstance.getStep(jobs).getSerialGroup();
+                    boolean serialGroupCanRun = serialGroup == null || !busySerialGroups.contains(serialGroup);
+                    if (serialGroupCanRun && !stepInstanceDAO.serialGroupCanRun(stepInstance, jobs)) {
+                        busySerialGroups.add(serialGroup);
+                        serialGroupCanRun = false;
                     }
-                    completed &= stepInstance.haveFinished(jobs);
-                    if (stepInstance.canBeSubmitted(jobs) && stepInstanceDAO.serialGroupCanRun(stepInstance, jobs)) {
+                    if (serialGroupCanRun) {
                         if (LOGGER.isDebugEnabled()) {
                             LOGGER.debug("Step submitted:" + stepInstance);
                         }
@@ -199,6 +212,7 @@ public class StandaloneBlackBoxMaster extends AbstractBlackBoxMaster {
                             stepInstance.addParameter(StepInstanceCreatingStep.EXCLUDE_SITES, Boolean.TRUE.toString());
                         }
                         messageSender.sendMessage(stepInstance, false, priority, false);
+                        stepInstanceScheduler.submitted(stepInstance);
                         statsUtil.addToSubmittedStepInstances(stepInstance);
                         controlledLogging = false;
                         statsUtil.addToAllAvailableJobs(stepInstance, "submitted");
@@ -208,8 +222,9 @@ public class StandaloneBlackBoxMaster extends AbstractBlackBoxMaster {
                 }
                 //Utilities.verboseLog("runStatus:" + runStatus);
                 //check what is not completed
-                long totalStepInstances = stepInstanceDAO.count();
-                int totalUnfinishedStepInstances = stepInstanceDAO.retrieveUnfinishedStepInstances().size();
+                final boolean completed = stepInstanceScheduler.isCompleted();
+                long totalStepInstances = stepInstanceScheduler.getStepInstanceCount();
+                int totalUnfinishedStepInstances = stepInstanceScheduler.getUnfinishedStepInstanceCount();
 
 //                statsUtil.memoryMonitor();
                 if(!controlledLogging){
@@ -290,7 +305,8 @@ public class StandaloneBlackBoxMaster extends AbstractBlackBoxMaster {
 //                    Thread.sleep(30* 1000);
 //                }
                 //for standalone es mode this should be < 200
-                Thread.sleep(100);  // Make sure the Master thread is not hogging resources required by in-memory workers.
+                // Wakes up as soon as a worker returns a StepExecution, so its dependents are submitted straight away.
+                stepInstanceScheduler.awaitCompletions(100, TimeUnit.MILLISECONDS);
             }
             runStatus = 0;
         } catch (JMSException e) {
@@ -357,6 +373,14 @@ public class StandaloneBlackBoxMaster extends AbstractBlackBoxMaster {
         this.statsUtil = statsUtil;
     }
 
+    /**
+     * @param stepInstanceScheduler tracking the StepInstances that are ready to run.
+     */
+    @Required
+    public void setStepInstanceScheduler(StepInstanceScheduler stepInstanceScheduler) {
+        this.stepInstanceScheduler = stepInstanceScheduler;
+    }
+
 
 
 }
@@ -0,0 +1,321 @@
+package uk.ac.ebi.interpro.scan.jms.master;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+import uk.ac.ebi.interpro.scan.management.dao.StepInstanceDAO;
+import uk.ac.ebi.interpro.scan.management.model.Jobs;
+import uk.ac.ebi.interpro.scan.management.model.StepExecution;
+import uk.ac.ebi.interpro.scan.management.model.StepExecutionState;
+import uk.ac.ebi.interpro.scan.management.model.StepInstance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory dependency graph of the unfinished StepInstances, so the Master does not have to
+ * poll the database for the StepInstances that can be submitted.
+ * <p/>
+ * Each unfinished StepInstance has a count of the dependencies that have not completed successfully yet.
+ * The ResponseMonitor hands over the StepExecutions returned by the workers ({@link #stepExecutionCompleted(StepExecution)}),
+ * then the Master thread applies them ({@link #awaitCompletions(long, TimeUnit)}): a successful StepInstance decrements
+ * the counts of its dependents, which are ready to be submitted when their count drops to zero.
+ * The StepInstances created by the workers (e.g. by the protein load step) are picked up after each completion
+ * and, as a safety net, every newStepInstancePollMillis: only those created after the last one seen are read.
+ * <p/>
+ * All the StepInstances are read from the database once, by {@link #initialise()}. The finished StepInstances
+ * are dropped from the graph and never read again: if a StepExecution can not be applied, the graph is rebuilt
+ * from the unfinished StepInstances alone.
+ * <p/>
+ * Apart from {@link #stepExecutionCompleted(StepExecution)}, all the methods must be called by the Master thread.
+ */
+public class StepInstanceScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(StepInstanceScheduler.class.getName());
+
+    private StepInstanceDAO stepInstanceDAO;
+
+    private Jobs jobs;
+
+    private long newStepInstancePollMillis = 10000;
+
+    /**
+     * The StepExecutions returned by the workers, not applied to the graph yet.
+     */
+    private final BlockingQueue<StepExecution> completedStepExecutions = new LinkedBlockingQueue<StepExecution>();
+
+    private final Map<Long, StepInstance> unfinishedStepInstances = new HashMap<Long, StepInstance>();
+
+    private final Map<Long, Integer> remainingDependencies = new HashMap<Long, Integer>();
+
+    private final Map<Long, List<Long>> dependents = new HashMap<Long, List<Long>>();
+
+    /**
+     * The StepInstances with no remaining dependencies that have not been submitted yet,
+     * latest first (as the StepInstances were submitted when polling the database).
+     */
+    private final NavigableSet<Long> readyStepInstanceIds = new TreeSet<Long>(Collections.reverseOrder());
+
+    private final Set<Long> failedPermanentlyIds = new HashSet<Long>();
+
+    private final List<StepInstance> newlyFailedPermanently = new ArrayList<StepInstance>();
+
+    private long lastStepInstanceId = Long.MIN_VALUE;
+
+    private long stepInstanceCount = 0;
+
+    private long lastLoadTime = 0;
+
+    private boolean resyncRequired = false;
+
+    @Required
+    public void setStepInstanceDAO(StepInstanceDAO stepInstanceDAO) {
+        this.stepInstanceDAO = stepInstanceDAO;
+    }
+
+    @Required
+    public void setJobs(Jobs jobs) {
+        this.jobs = jobs;
+    }
+
+    /**
+     * @param newStepInstancePollMillis the longest time without looking for StepInstances created since the last load.
+     */
+    public void setNewStepInstancePollMillis(long newStepInstancePollMillis) {
+        this.newStepInstancePollMillis = newStepInstancePollMillis;
+    }
+
+    /**
+     * Called by the ResponseMonitor when a worker returns a StepExecution, after it has been stored in the database.
+     *
+     * @param freshStepExecution the StepExecution returned by the worker.
+     */
+    public void stepExecutionCompleted(StepExecution freshStepExecution) {
+        completedStepExecutions.add(freshStepExecution);
+    }
+
+    /**
+     * Builds the graph from all the StepInstances in the database.
+     */
+    public void initialise() {
+        clear();
+        failedPermanentlyIds.clear();
+        lastStepInstanceId = Long.MIN_VALUE;
+        stepInstanceCount = 0;
+        loadNewStepInstances();
+        resyncRequired = false;
+    }
+
+    /**
+     * Rebuilds the graph from the unfinished StepInstances in the database, then picks up
+     * the StepInstances created since the last load.
+     */
+    private void resync() {
+        clear();
+        final List<StepInstance> stepInstances = stepInstanceDAO.retrieveUnfinishedStepInstances();
+        for (StepInstance stepInstance : stepInstances) {
+            // The StepInstances created since the last load are read (and counted) in id order below
+            if (stepInstance.getId() <= lastStepInstanceId) {
+                addUnfinished(stepInstance);
+            }
+        }
+        loadNewStepInstances();
+        resyncRequired = false;
+    }
+
+    private void clear() {
+        unfinishedStepInstances.clear();
+        remainingDependencies.clear();
+        dependents.clear();
+        readyStepInstanceIds.clear();
+        // The StepInstances that have failed permanently are kept, so that they are not reported again
+    }
+
+    /**
+     * Waits until a worker has returned a StepExecution, or for the timeout, then applies all the
+     * returned StepExecutions to the graph and picks up the StepInstances created in the meantime.
+     *
+     * @return true if any StepExecution has been applied.
+     */
+    public boolean awaitCompletions(long timeout, TimeUnit unit) throws InterruptedException {
+        final List<StepExecution> freshStepExecutions = new ArrayList<StepExecution>();
+        final StepExecution first = completedStepExecutions.poll(timeout, unit);
+        if (first != null) {
+            freshStepExecutions.add(first);
+            completedStepExecutions.drainTo(freshStepExecutions);
+            for (StepExecution freshStepExecution : freshStepExecutions) {
+                applyCompletion(freshStepExecution);
+            }
+        }
+        if (resyncRequired) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Rebuilding the StepInstance graph from the unfinished StepInstances in the database");
+            }
+            resync();
+        } else if (first != null || System.currentTimeMillis() - lastLoadTime > newStepInstancePollMillis) {
+            loadNewStepInstances();
+        }
+        return first != null;
+    }
+
+    /**
+     * @return the StepInstances that can be submitted, latest first.
+     */
+    public List<StepInstance> getReadyStepInstances() {
+        final List<StepInstance> ready = new ArrayList<StepInstance>(readyStepInstanceIds.size());
+        for (Long stepInstanceId : readyStepInstanceIds) {
+            ready.add(unfinishedStepInstances.get(stepInstanceId));
+        }
+        return ready;
+    }
+
+    /**
+     * Called by the Master once the StepInstance has been sent to the workers.
+     */
+    public void submitted(StepInstance stepInstance) {
+        readyStepInstanceIds.remove(stepInstance.getId());
+    }
+
+    /**
+     * @return the StepInstances that have failed permanently since the last call.
+     */
+    public List<StepInstance> takeFailedPermanently() {
+        if (newlyFailedPermanently.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<StepInstance> failed = new ArrayList<StepInstance>(newlyFailedPermanently);
+        newlyFailedPermanently.clear();
+        return failed;
+    }
+
+    /**
+     * @return true if all the unfinished StepInstances have failed permanently (or there are none).
+     */
+    public boolean isCompleted() {
+        return failedPermanentlyIds.size() == unfinishedStepInstances.size();
+    }
+
+    public long getStepInstanceCount() {
+        return stepInstanceCount;
+    }
+
+    public int getUnfinishedStepInstanceCount() {
+        return unfinishedStepInstances.size();
+    }
+
+    private void loadNewStepInstances() {
+        final List<StepInstance> newStepInstances = stepInstanceDAO.retrieveStepInstancesCreatedAfter(lastStepInstanceId);
+        for (StepInstance stepInstance : newStepInstances) {
+            add(stepInstance);
+        }
+        lastLoadTime = System.currentTimeMillis();
+        if (LOGGER.isDebugEnabled() && !newStepInstances.isEmpty()) {
+            LOGGER.debug("Added " + newStepInstances.size() + " StepInstances to the graph, "
+                    + unfinishedStepInstances.size() + " unfinished");
+        }
+    }
+
+    private void add(StepInstance stepInstance) {
+        stepInstanceCount++;
+        lastStepInstanceId = Math.max(lastStepInstanceId, stepInstance.getId());
+        if (stepInstance.getStepInstanceState() == StepExecutionState.STEP_EXECUTION_SUCCESSFUL) {
+            return;
+        }
+        addUnfinished(stepInstance);
+    }
+
+    private void addUnfinished(StepInstance stepInstance) {
+        final Long stepInstanceId = stepInstance.getId();
+        unfinishedStepInstances.put(stepInstanceId, stepInstance);
+        // The dependencies were read from the database together with the StepInstance, so the ones that
+        // have not succeeded yet will be counted down by their completions, still to be applied.
+        int remaining = 0;
+        for (StepInstance dependency : stepInstance.stepInstanceDependsUpon()) {
+            if (dependency.getStepInstanceState() != StepExecutionState.STEP_EXECUTION_SUCCESSFUL) {
+                remaining++;
+                List<Long> dependencyDependents = dependents.get(dependency.getId());
+                if (dependencyDependents == null) {
+                    dependencyDependents = new ArrayList<Long>();
+                    dependents.put(dependency.getId(), dependencyDependents);
+                }
+                dependencyDependents.add(stepInstanceId);
+            }
+        }
+        remainingDependencies.put(stepInstanceId, remaining);
+        updateState(stepInstance);
+    }
+
+    private void applyCompletion(StepExecution freshStepExecution) {
+        final Long stepInstanceId = freshStepExecution.getStepInstance().getId();
+        final StepInstance stepInstance = unfinishedStepInstances.get(stepInstanceId);
+        if (stepInstance == null) {
+            // Created since the last load, so will be read from the database with its new state.
+            if (stepInstanceId <= lastStepInstanceId) {
+                LOGGER.warn("Received a StepExecution for StepInstance " + stepInstanceId + " which is not unfinished");
+            }
+            return;
+        }
+        StepExecution execution = null;
+        for (StepExecution candidate : stepInstance.getExecutions()) {
+            if (candidate.getId() != null && candidate.getId().equals(freshStepExecution.getId())) {
+                execution = candidate;
+            }
+        }
+        if (execution == null) {
+            LOGGER.warn("Received an unknown StepExecution " + freshStepExecution.getId() + " for StepInstance "
+                    + stepInstanceId + ", the StepInstances will be reloaded from the database");
+            resyncRequired = true;
+            return;
+        }
+        execution.refresh(freshStepExecution);
+        if (stepInstance.getStepInstanceState() == StepExecutionState.STEP_EXECUTION_SUCCESSFUL) {
+            unfinishedStepInstances.remove(stepInstanceId);
+            remainingDependencies.remove(stepInstanceId);
+            readyStepInstanceIds.remove(stepInstanceId);
+            final List<Long> stepInstanceDependents = dependents.remove(stepInstanceId);
+            if (stepInstanceDependents != null) {
+                for (Long dependentId : stepInstanceDependents) {
+                    final Integer remaining = remainingDependencies.get(dependentId);
+                    if (remaining != null) {
+                        remainingDependencies.put(dependentId, remaining - 1);
+                        updateState(unfinishedStepInstances.get(dependentId));
+                    }
+                }
+            }
+        } else {
+            updateState(stepInstance);
+        }
+    }
+
+    /**
+     * Puts the StepInstance in the ready set if it has no remaining dependencies and
+     * has not been submitted yet (or has failed but may be retried).
+     */
+    private void updateState(StepInstance stepInstance) {
+        final Long stepInstanceId = stepInstance.getId();
+        if (stepInstance.hasFailedPermanently(jobs)) {
+            readyStepInstanceIds.remove(stepInstanceId);
+            if (failedPermanentlyIds.add(stepInstanceId)) {
+                newlyFailedPermanently.add(stepInstance);
+            }
+            return;
+        }
+        final StepExecutionState state = stepInstance.getStepInstanceState();
+        final boolean submittable = state == StepExecutionState.NEW_STEP_INSTANCE
+                || state == StepExecutionState.STEP_EXECUTION_FAILED;
+        if (submittable && remainingDependencies.get(stepInstanceId) == 0) {
+            readyStepInstanceIds.add(stepInstanceId);
+        } else {
+            readyStepInstanceIds.remove(stepInstanceId);
+        }
+    }
+}
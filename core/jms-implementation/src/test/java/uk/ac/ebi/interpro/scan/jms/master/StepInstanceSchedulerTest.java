@@ -0,0 +1,195 @@
+package uk.ac.ebi.interpro.scan.jms.master;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ebi.interpro.scan.management.dao.StepInstanceDAO;
+import uk.ac.ebi.interpro.scan.management.model.Step;
+import uk.ac.ebi.interpro.scan.management.model.StepExecution;
+import uk.ac.ebi.interpro.scan.management.model.StepExecutionState;
+import uk.ac.ebi.interpro.scan.management.model.StepInstance;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for {@link StepInstanceScheduler}, with the StepInstances "stored" in a list.
+ */
+public class StepInstanceSchedulerTest {
+
+    private final List<StepInstance> database = new ArrayList<>();
+
+    private StepInstanceScheduler scheduler;
+
+    private Step step;
+
+    private long nextId = 1;
+
+    private final List<Long> createdAfterQueries = new ArrayList<>();
+
+    private int unfinishedQueries = 0;
+
+    @BeforeEach
+    public void setUp() {
+        step = new Step() {
+            @Override
+            public void execute(StepInstance stepInstance, String temporaryFileDirectory) {
+            }
+        };
+        step.setBeanName("stepTest");
+        scheduler = new StepInstanceScheduler();
+        scheduler.setStepInstanceDAO((StepInstanceDAO) Proxy.newProxyInstance(
+                StepInstanceDAO.class.getClassLoader(),
+                new Class[]{StepInstanceDAO.class},
+                (proxy, method, args) -> {
+                    final List<StepInstance> result = new ArrayList<>();
+                    if ("retrieveStepInstancesCreatedAfter".equals(method.getName())) {
+                        createdAfterQueries.add((Long) args[0]);
+                        for (StepInstance stepInstance : database) {
+                            if (stepInstance.getId() > (Long) args[0]) {
+                                result.add(stepInstance);
+                            }
+                        }
+                    } else if ("retrieveUnfinishedStepInstances".equals(method.getName()) && args == null) {
+                        unfinishedQueries++;
+                        for (StepInstance stepInstance : database) {
+                            if (stepInstance.getStepInstanceState() != StepExecutionState.STEP_EXECUTION_SUCCESSFUL) {
+                                result.add(0, stepInstance);
+                            }
+                        }
+                    } else {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return result;
+                }));
+    }
+
+    @Test
+    public void testDependentsBecomeReadyOnCompletion() throws Exception {
+        StepInstance first = store(new StepInstance(step));
+        StepInstance second = store(new StepInstance(step));
+        second.addDependentStepInstance(first);
+        scheduler.initialise();
+
+        assertEquals(Collections.singletonList(first), scheduler.getReadyStepInstances());
+        assertEquals(2, scheduler.getUnfinishedStepInstanceCount());
+
+        StepExecution execution = submit(first);
+        assertTrue(scheduler.getReadyStepInstances().isEmpty());
+        assertFalse(scheduler.awaitCompletions(10, TimeUnit.MILLISECONDS));
+
+        complete(first, execution);
+        assertTrue(scheduler.awaitCompletions(10, TimeUnit.MILLISECONDS));
+        assertEquals(Collections.singletonList(second), scheduler.getReadyStepInstances());
+        assertEquals(1, scheduler.getUnfinishedStepInstanceCount());
+        assertFalse(scheduler.isCompleted());
+
+        complete(second, submit(second));
+        scheduler.awaitCompletions(10, TimeUnit.MILLISECONDS);
+        assertTrue(scheduler.isCompleted());
+        assertEquals(2, scheduler.getStepInstanceCount());
+    }
+
+    @Test
+    public void testStepInstancesCreatedByWorkersArePickedUp() throws Exception {
+        StepInstance load = store(new StepInstance(step));
+        scheduler.initialise();
+        StepExecution execution = submit(load);
+
+        // The load step creates more StepInstances before returning
+        StepInstance analysis = store(new StepInstance(step));
+        analysis.addDependentStepInstance(load);
+        complete(load, execution);
+        scheduler.awaitCompletions(10, TimeUnit.MILLISECONDS);
+
+        assertEquals(Collections.singletonList(analysis), scheduler.getReadyStepInstances());
+        assertEquals(2, scheduler.getStepInstanceCount());
+    }
+
+    @Test
+    public void testOnlyNewStepInstancesAreReadAfterInitialise() throws Exception {
+        StepInstance first = store(new StepInstance(step));
+        StepInstance second = store(new StepInstance(step));
+        scheduler.setNewStepInstancePollMillis(0);
+        scheduler.initialise();
+        complete(first, submit(first));
+        scheduler.awaitCompletions(10, TimeUnit.MILLISECONDS);
+
+        // Created without any completion, so picked up by the poll
+        StepInstance third = store(new StepInstance(step));
+        Thread.sleep(5);
+        assertFalse(scheduler.awaitCompletions(10, TimeUnit.MILLISECONDS));
+        assertEquals(Collections.singletonList(third), scheduler.getReadyStepInstances().subList(0, 1));
+        assertEquals(3, scheduler.getStepInstanceCount());
+        assertEquals(2, scheduler.getUnfinishedStepInstanceCount());
+
+        assertEquals(Long.valueOf(Long.MIN_VALUE), createdAfterQueries.get(0));
+        for (Long after : createdAfterQueries.subList(1, createdAfterQueries.size())) {
+            assertTrue(after >= second.getId(), "Only the StepInstances created since the last load should be read");
+        }
+        assertEquals(0, unfinishedQueries);
+    }
+
+    @Test
+    public void testUnknownExecutionRebuildsFromUnfinished() throws Exception {
+        StepInstance first = store(new StepInstance(step));
+        StepInstance second = store(new StepInstance(step));
+        second.addDependentStepInstance(first);
+        scheduler.initialise();
+        submit(first);
+
+        // Not the execution the scheduler knows about
+        StepInstance workerCopy = new StepInstance(step);
+        setId(StepInstance.class, workerCopy, first.getId());
+        StepExecution unknown = workerCopy.createStepExecution();
+        setId(StepExecution.class, unknown, nextId++);
+        unknown.completeSuccessfully();
+        first.getExecutions().iterator().next().completeSuccessfully();
+        scheduler.stepExecutionCompleted(unknown);
+        scheduler.awaitCompletions(10, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, unfinishedQueries);
+        assertEquals(Collections.singletonList(second), scheduler.getReadyStepInstances());
+        assertEquals(1, scheduler.getUnfinishedStepInstanceCount());
+        assertEquals(2, scheduler.getStepInstanceCount());
+    }
+
+    private StepInstance store(StepInstance stepInstance) throws Exception {
+        setId(StepInstance.class, stepInstance, nextId++);
+        database.add(stepInstance);
+        return stepInstance;
+    }
+
+    /**
+     * As done by the Master.
+     */
+    private StepExecution submit(StepInstance stepInstance) throws Exception {
+        StepExecution execution = stepInstance.createStepExecution();
+        setId(StepExecution.class, execution, nextId++);
+        scheduler.submitted(stepInstance);
+        return execution;
+    }
+
+    /**
+     * As done by the worker then the ResponseMonitor: the StepExecution comes back as a copy.
+     */
+    private void complete(StepInstance stepInstance, StepExecution execution) throws Exception {
+        StepInstance workerCopy = new StepInstance(step);
+        setId(StepInstance.class, workerCopy, stepInstance.getId());
+        StepExecution fresh = workerCopy.createStepExecution();
+        setId(StepExecution.class, fresh, execution.getId());
+        fresh.completeSuccessfully();
+        scheduler.stepExecutionCompleted(fresh);
+    }
+
+    private static void setId(Class<?> type, Object entity, Long id) throws Exception {
+        Field field = type.getDeclaredField("id");
+        field.setAccessible(true);
+        field.set(entity, id);
+    }
+}
@@ -33,6 +33,15 @@ public interface StepInstanceDAO extends GenericDAO<StepInstance, String> {
      */
     List<StepInstance> retrieveUnfinishedStepInstances();
 
+    /**
+     * Retrieve the StepInstances created after the StepInstance with the given id,
+     * i.e. those that the Master has not seen yet.
+     *
+     * @param stepInstanceId the id of the last StepInstance already seen.
+     * @return the List of StepInstance objects with a greater id, in id order.
+     */
+    List<StepInstance> retrieveStepInstancesCreatedAfter(Long stepInstanceId);
+
     /**
      * Returns true if the SerialGroup passed in as argument
      * does not currently have a running instance. (submitted but not failed or completed)
@@ -101,6 +101,28 @@ public class StepInstanceDAOImpl extends GenericDAOImpl<StepInstance, String> im
         }
     }
 
+    /**
+     * Retrieve the StepInstances created after the StepInstance with the given id,
+     * i.e. those that the Master has not seen yet.
+     *
+     * @param stepInstanceId the id of the last StepInstance already seen.
+     * @return the List of StepInstance objects with a greater id, in id order.
+     */
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<StepInstance> retrieveStepInstancesCreatedAfter(Long stepInstanceId) {
+        Query query = entityManager.createQuery(
+                "select distinct i " +
+                        "from StepInstance i " +
+                        "where i.id > :stepInstanceId " +
+                        "order by i.id");
+        query.setParameter("stepInstanceId", stepInstanceId);
+        synchronized (lockObject) {
+            LOGGER.debug("StepInstanceDAO locked");
+            return query.getResultList();
+        }
+    }
+
     /**
      * Returns true if the SerialGroup passed in as argument
      * does not currently have a running instance. (submitted but not failed or completed)
@@ -202,7 +224,8 @@ public class StepInstanceDAOImpl extends GenericDAOImpl<StepInstance, String> im
         if (stepToStepInstances == null) {
             return;
         }
-        final Set<StepInstance> stepInstances = new HashSet<StepInstance>();
+        // Identity based: the hashCode of a StepInstance includes those of all the StepInstances it depends upon.
+        final Set<StepInstance> stepInstances = Collections.newSetFromMap(new IdentityHashMap<StepInstance, Boolean>());
         for (Step step : stepToStepInstances.keySet()) {
             stepInstances.addAll(stepToStepInstances.get(step));
             if (LOGGER.isDebugEnabled()) {
@@ -20,13 +20,14 @@ import java.util.Set;
  * @author Antony Quinn
  * @version $Id$
  */
-public abstract class FilterStep<T extends RawMatch, U extends Match> extends Step {
+public abstract class FilterStep<T extends RawMatch, U extends Match> extends Step implements FusedPostProcessing<T> {
 
     private SignatureLibrary signatureLibrary;
     private String signatureLibraryRelease;
     private RawMatchFilter<T> filter;
     private RawMatchDAO<T> rawMatchDAO;
     private FilteredMatchDAO<T, U> filteredMatchDAO;
+    private boolean fusedWithParseStep;
 
     @Required
     public void setSignatureLibrary(SignatureLibrary signatureLibrary) {
@@ -65,6 +66,18 @@ public abstract class FilterStep<T extends RawMatch, U extends Match> extends St
         this.filteredMatchDAO = filteredMatchDAO;
     }
 
+    @Override
+    public boolean isFusedWithParseStep() {
+        return fusedWithParseStep;
+    }
+
+    /**
+     * @param fusedWithParseStep true if the parse step filters and persists the matches, without persisting the raw matches first.
+     */
+    public void setFusedWithParseStep(boolean fusedWithParseStep) {
+        this.fusedWithParseStep = fusedWithParseStep;
+    }
+
     @Override
     public void execute(StepInstance stepInstance, String temporaryFileDirectory) {
 
@@ -73,6 +86,10 @@ public abstract class FilterStep<T extends RawMatch, U extends Match> extends St
             Utilities.verboseLog(10, "doSkipRun - step: "  + this.getId() + " - " +  key);
             return;
         }
+        if (fusedWithParseStep) {
+            Utilities.verboseLog(10, "Matches already filtered by the parse step - step: " + this.getId());
+            return;
+        }
 
         // Get raw matches
         Set<RawProtein<T>> rawProteins = rawMatchDAO.getProteinsByIdRange(
@@ -80,6 +97,11 @@ public abstract class FilterStep<T extends RawMatch, U extends Match> extends St
                 stepInstance.getTopProtein(),
                 getSignatureLibraryRelease()
         );
+        postProcessAndPersist(stepInstance, rawProteins);
+    }
+
+    @Override
+    public void postProcessAndPersist(StepInstance stepInstance, Set<RawProtein<T>> rawProteins) {
         // Filter
         Set<RawProtein<T>> filteredProteins = getFilter().filter(rawProteins);
         // Persist
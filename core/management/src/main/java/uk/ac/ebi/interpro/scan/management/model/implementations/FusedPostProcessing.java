@@ -0,0 +1,28 @@
+package uk.ac.ebi.interpro.scan.management.model.implementations;
+
+import uk.ac.ebi.interpro.scan.management.model.StepInstance;
+import uk.ac.ebi.interpro.scan.model.raw.RawMatch;
+import uk.ac.ebi.interpro.scan.model.raw.RawProtein;
+
+import java.util.Set;
+
+/**
+ * A post-processing step that can be run by its {@link ParseStep} instead, on the raw matches straight
+ * from the parser, so they do not have to be written to the database and read back in between.
+ */
+public interface FusedPostProcessing<T extends RawMatch> {
+
+    /**
+     * @return true if the parse step post-processes and persists the matches, in which case
+     * the post-processing step has nothing left to do.
+     */
+    boolean isFusedWithParseStep();
+
+    /**
+     * Post-processes the raw matches parsed for a step instance and persists the filtered matches.
+     *
+     * @param stepInstance of the parse step, for the same protein range as the post-processing step.
+     * @param rawProteins  parsed raw matches.
+     */
+    void postProcessAndPersist(StepInstance stepInstance, Set<RawProtein<T>> rawProteins);
+}
@@ -2,6 +2,7 @@ package uk.ac.ebi.interpro.scan.management.model.implementations;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
+import uk.ac.ebi.interpro.scan.io.cli.CommandOutputConsumer;
 import uk.ac.ebi.interpro.scan.io.match.MatchParser;
 
 import uk.ac.ebi.interpro.scan.management.model.Step;
@@ -36,6 +37,9 @@ public abstract class ParseStep<T extends RawMatch> extends Step {
     private MatchParser<T> parser;
     private RawMatchDAO<T> rawMatchDAO;
     private boolean useSingleSequenceMode;
+    private FusedPostProcessing<T> postProcessingStep;
+    private boolean persistRawMatches = true;
+    private boolean pipedFromBinaryStep;
 
     public MatchParser<T> getParser() {
         return parser;
@@ -68,8 +72,53 @@ public abstract class ParseStep<T extends RawMatch> extends Step {
         this.useSingleSequenceMode = useSingleSequenceMode;
     }
 
+    public FusedPostProcessing<T> getPostProcessingStep() {
+        return postProcessingStep;
+    }
+
+    /**
+     * @param postProcessingStep that post-processes the parsed raw matches, if it is fused with this step.
+     */
+    public void setPostProcessingStep(FusedPostProcessing<T> postProcessingStep) {
+        this.postProcessingStep = postProcessingStep;
+    }
+
+    public boolean isPersistRawMatches() {
+        return persistRawMatches;
+    }
+
+    /**
+     * @param persistRawMatches true to also persist the raw matches when the post-processing is fused
+     *                          with this step (e.g. for debugging or reprocessing).  They are always
+     *                          persisted otherwise, for the post-processing step to read them back.
+     */
+    public void setPersistRawMatches(boolean persistRawMatches) {
+        this.persistRawMatches = persistRawMatches;
+    }
+
+    public boolean isPipedFromBinaryStep() {
+        return pipedFromBinaryStep;
+    }
+
+    /**
+     * @param pipedFromBinaryStep true if the binary step parses the output of the binary as it is produced
+     *                            (see {@link RunBinaryStep#setParseStep(ParseStep)}), rather than this step
+     *                            parsing the output file once the binary has completed.
+     */
+    public void setPipedFromBinaryStep(boolean pipedFromBinaryStep) {
+        this.pipedFromBinaryStep = pipedFromBinaryStep;
+    }
+
+    private boolean isPostProcessingFused() {
+        return postProcessingStep != null && postProcessingStep.isFusedWithParseStep();
+    }
+
     @Override
     public void execute(StepInstance stepInstance, String temporaryFileDirectory) {
+        if (pipedFromBinaryStep) {
+            Utilities.verboseLog(10, "Output already parsed by the binary step - step: " + this.getId());
+            return;
+        }
         delayForNfs();
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Running ParseStep for proteins " + stepInstance.getBottomProtein() +
@@ -87,118 +136,184 @@ public abstract class ParseStep<T extends RawMatch> extends Step {
         LOGGER.debug("Output fileName: " + fileName);
         try {
             is = new FileInputStream(fileName);
-            final Set<RawProtein<T>> results = getParser().parse(is);
-            RawMatch represantiveRawMatch = null;
-            int matchCount = 0;
-            for (RawProtein<T> rawProtein : results) {
-                matchCount += rawProtein.getMatches().size();
-                if (represantiveRawMatch == null) {
-                    if (rawProtein.getMatches().size() > 0) {
-                        represantiveRawMatch = rawProtein.getMatches().iterator().next();
-                    }
-                }
-                if (LOGGER.isDebugEnabled()) {
-                    if (represantiveRawMatch.getSignatureLibrary().getName().contains("PANTHER") ||
-                            represantiveRawMatch.getSignatureLibrary().getName().contains("ProSitePatterns")) {
-                        int rmCount = 0;
-                        for (RawMatch rawMatch : rawProtein.getMatches()) {
-                            rmCount++;
-                            Utilities.verboseLog(represantiveRawMatch.getSignatureLibrary().getName() + " " + rmCount + " "
-                                    + rawMatch.toString());
-                        }
-                    }
+            parseAndPersist(stepInstance, is);
+        } catch (IOException e) {
+            throw new IllegalStateException("IOException thrown when attempting to parse " + fileName, e);
+        } finally {
+            try {
+                if (is != null) {
+                    is.close();
                 }
+            } catch (IOException e) {
+                LOGGER.warn("Error closing input stream", e);
             }
+        }
+        LOGGER.info("Step with Id " + this.getId() + " finished.");
+    }
+
+    /**
+     * Parses the output of the binary and persists the raw matches, or post-processes them if the
+     * post-processing step is fused with this step.
+     *
+     * @param stepInstance of this step.
+     * @param is           output of the binary.
+     * @throws IOException if the output can not be read.
+     */
+    public void parseAndPersist(StepInstance stepInstance, InputStream is) throws IOException {
+        persist(stepInstance, getParser().parse(is));
+    }
 
+    /**
+     * @param stepInstance of this step.
+     * @return the consumer of the output of the binary, that parses it as it is produced.  The parsed matches are
+     * held until {@link PipedOutput#persist()}, called once the binary has completed successfully.
+     */
+    public PipedOutput createPipedOutput(StepInstance stepInstance) {
+        return new PipedOutput(stepInstance);
+    }
+
+    /**
+     * Persists the raw matches parsed from the output of the binary, or post-processes them if the
+     * post-processing step is fused with this step.
+     *
+     * @param stepInstance of this step.
+     * @param results      parsed from the output of the binary.
+     */
+    protected void persist(StepInstance stepInstance, Set<RawProtein<T>> results) {
+        RawMatch represantiveRawMatch = null;
+        int matchCount = 0;
+        for (RawProtein<T> rawProtein : results) {
+            matchCount += rawProtein.getMatches().size();
+            if (represantiveRawMatch == null) {
+                if (rawProtein.getMatches().size() > 0) {
+                    represantiveRawMatch = rawProtein.getMatches().iterator().next();
+                }
+            }
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Parsed out " + results.size() + " proteins with matches from file " + fileName);
-                LOGGER.debug("A total of " + matchCount + " matches from file " + fileName);
+                if (represantiveRawMatch.getSignatureLibrary().getName().contains("PANTHER") ||
+                        represantiveRawMatch.getSignatureLibrary().getName().contains("ProSitePatterns")) {
+                    int rmCount = 0;
+                    for (RawMatch rawMatch : rawProtein.getMatches()) {
+                        rmCount++;
+                        Utilities.verboseLog(represantiveRawMatch.getSignatureLibrary().getName() + " " + rmCount + " "
+                                + rawMatch.toString());
+                    }
+                }
             }
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Parsed out " + results.size() + " proteins with matches from the output of step " + this.getId());
+            LOGGER.debug("A total of " + matchCount + " matches from the output of step " + this.getId());
+        }
+        final boolean fused = isPostProcessingFused();
+        if (!fused || persistRawMatches) {
             rawMatchDAO.insertProteinMatches(results);
-            Long now = System.currentTimeMillis();
-            long chunkSize =  stepInstance.getTopProtein() - stepInstance.getBottomProtein();
-
-            if (matchCount > 0){
-                int matchesFound = 0;
-                int waitTimeFactor = Utilities.getWaitTimeFactor(matchCount).intValue();
-                if (represantiveRawMatch != null) {
-                    String signatureLibraryRelease = represantiveRawMatch.getSignatureLibraryRelease();
-                    Long queryStartTime = System.currentTimeMillis();
-                    Set<RawProtein<T>> rawProteins = rawMatchDAO.getProteinsByIdRange(stepInstance.getBottomProtein(),
-                            stepInstance.getTopProtein(), signatureLibraryRelease);
-                    Long queryTime = System.currentTimeMillis() - queryStartTime;
-
-                    for (RawProtein<T> rawProtein : rawProteins) {
-                        matchesFound += rawProtein.getMatches().size();
-                        if (LOGGER.isDebugEnabled()) {
-                            Utilities.verboseLog("Considering ... " + represantiveRawMatch.getSignatureLibrary().getName());
-                            if (represantiveRawMatch.getSignatureLibrary().getName().contains("PANTHER") ||
-                                    represantiveRawMatch.getSignatureLibrary().getName().contains("ProSitePatterns")) {
-                                int rmCount = 0;
-                                for (RawMatch rawMatch : rawProtein.getMatches()) {
-                                    rmCount++;
-                                    Utilities.verboseLog(represantiveRawMatch.getSignatureLibrary().getName() + "_R2 " + rmCount + " "
-                                            + rawMatch.toString());
-                                }
+        }
+        if (fused) {
+            // No round trip through the raw match tables: the parsed matches are post-processed here
+            postProcessingStep.postProcessAndPersist(stepInstance, results);
+            Utilities.verboseLog(10, "ParseStep: post-processed " + matchCount + " raw matches of step: " + this.getId());
+        }
+        Long now = System.currentTimeMillis();
+        long chunkSize =  stepInstance.getTopProtein() - stepInstance.getBottomProtein();
+
+        if (!fused && matchCount > 0){
+            int matchesFound = 0;
+            int waitTimeFactor = Utilities.getWaitTimeFactor(matchCount).intValue();
+            if (represantiveRawMatch != null) {
+                String signatureLibraryRelease = represantiveRawMatch.getSignatureLibraryRelease();
+                Long queryStartTime = System.currentTimeMillis();
+                Set<RawProtein<T>> rawProteins = rawMatchDAO.getProteinsByIdRange(stepInstance.getBottomProtein(),
+                        stepInstance.getTopProtein(), signatureLibraryRelease);
+                Long queryTime = System.currentTimeMillis() - queryStartTime;
+
+                for (RawProtein<T> rawProtein : rawProteins) {
+                    matchesFound += rawProtein.getMatches().size();
+                    if (LOGGER.isDebugEnabled()) {
+                        Utilities.verboseLog("Considering ... " + represantiveRawMatch.getSignatureLibrary().getName());
+                        if (represantiveRawMatch.getSignatureLibrary().getName().contains("PANTHER") ||
+                                represantiveRawMatch.getSignatureLibrary().getName().contains("ProSitePatterns")) {
+                            int rmCount = 0;
+                            for (RawMatch rawMatch : rawProtein.getMatches()) {
+                                rmCount++;
+                                Utilities.verboseLog(represantiveRawMatch.getSignatureLibrary().getName() + "_R2 " + rmCount + " "
+                                        + rawMatch.toString());
                             }
                         }
                     }
+                }
 
-                    Utilities.verboseLog("represantiveRawMatch :" + represantiveRawMatch.toString());
-                    Utilities.verboseLog(represantiveRawMatch.getSignatureLibrary().getName() + " matchesFound: " + matchesFound + " matchCount: " + matchCount
-                            + " queryTime: " + queryTime);
-                    int retryCount = 0;
-                    Long allowedWaitTime = Long.valueOf(waitTimeFactor) * waitTimeFactor * 100 * 1000;
-                    while (matchesFound < matchCount) {
-                        retryCount ++;
-                        Utilities.sleep(waitTimeFactor * 1000);
-                        List<T> rawMatchesInDb = rawMatchDAO.getActualRawMatchesForProteinIdsInRange(stepInstance.getBottomProtein(),
-                                stepInstance.getTopProtein(), signatureLibraryRelease);
+                Utilities.verboseLog("represantiveRawMatch :" + represantiveRawMatch.toString());
+                Utilities.verboseLog(represantiveRawMatch.getSignatureLibrary().getName() + " matchesFound: " + matchesFound + " matchCount: " + matchCount
+                        + " queryTime: " + queryTime);
+                int retryCount = 0;
+                Long allowedWaitTime = Long.valueOf(waitTimeFactor) * waitTimeFactor * 100 * 1000;
+                while (matchesFound < matchCount) {
+                    retryCount ++;
+                    Utilities.sleep(waitTimeFactor * 1000);
+                    List<T> rawMatchesInDb = rawMatchDAO.getActualRawMatchesForProteinIdsInRange(stepInstance.getBottomProtein(),
+                            stepInstance.getTopProtein(), signatureLibraryRelease);
 
-                        matchesFound = rawMatchesInDb.size();
-                        Utilities.verboseLog(represantiveRawMatch.getSignatureLibrary().getName() + " matchesFound-2: " +matchesFound + " matchCount: " + matchCount);
+                    matchesFound = rawMatchesInDb.size();
+                    Utilities.verboseLog(represantiveRawMatch.getSignatureLibrary().getName() + " matchesFound-2: " +matchesFound + " matchCount: " + matchCount);
 
-                        if (matchesFound < matchCount) {
-                            int matchCountDifference = matchCount - matchesFound;
+                    if (matchesFound < matchCount) {
+                        int matchCountDifference = matchCount - matchesFound;
 
 
-                            if (retryCount == 1) {
-                                LOGGER.warn("Raw matches may not yet committed - sleep for" + waitTimeFactor + " seconds , count: " + matchCount);
-                            }
-                            Long timeTaken = System.currentTimeMillis() - now;
-                            //we try three times then break
-                            if (matchCountDifference < 2 || chunkSize < 100 || timeTaken > allowedWaitTime || retryCount > 3) {
-                                //just break as something else might be happening, need to investigate
-                                String matchPersistWarning = "Possible database problem: failed to " + retryCount + "x verify " + matchCount + " matches in database for "
-                                        + represantiveRawMatch.getSignatureLibrary().getName()
-                                        + " after " + timeTaken + " ms "
-                                        + " - matches found : " + matchesFound;
-                                LOGGER.warn(matchPersistWarning);
-                                Utilities.verboseLog(matchPersistWarning);
-                                break;
-                            }
+                        if (retryCount == 1) {
+                            LOGGER.warn("Raw matches may not yet committed - sleep for" + waitTimeFactor + " seconds , count: " + matchCount);
+                        }
+                        Long timeTaken = System.currentTimeMillis() - now;
+                        //we try three times then break
+                        if (matchCountDifference < 2 || chunkSize < 100 || timeTaken > allowedWaitTime || retryCount > 3) {
+                            //just break as something else might be happening, need to investigate
+                            String matchPersistWarning = "Possible database problem: failed to " + retryCount + "x verify " + matchCount + " matches in database for "
+                                    + represantiveRawMatch.getSignatureLibrary().getName()
+                                    + " after " + timeTaken + " ms "
+                                    + " - matches found : " + matchesFound;
+                            LOGGER.warn(matchPersistWarning);
+                            Utilities.verboseLog(matchPersistWarning);
+                            break;
                         }
                     }
-                }else{
-                    String matchPersistWarning = "Check if Raw matches committed " + matchCount + " repm: " + represantiveRawMatch;
-                    LOGGER.warn(matchPersistWarning);
-                    Utilities.verboseLog(matchPersistWarning);
                 }
-                Long timeTaken = System.currentTimeMillis() - now;
-                Utilities.verboseLog("ParseStep: count: " + matchCount + " represantiveRawMatch : " + represantiveRawMatch.toString()
-                    + " time taken: " + timeTaken);
+            }else{
+                String matchPersistWarning = "Check if Raw matches committed " + matchCount + " repm: " + represantiveRawMatch;
+                LOGGER.warn(matchPersistWarning);
+                Utilities.verboseLog(matchPersistWarning);
             }
-        } catch (IOException e) {
-            throw new IllegalStateException("IOException thrown when attempting to parse " + fileName, e);
-        } finally {
-            try {
-                if (is != null) {
-                    is.close();
-                }
-            } catch (IOException e) {
-                LOGGER.warn("Error closing input stream", e);
+            Long timeTaken = System.currentTimeMillis() - now;
+            Utilities.verboseLog("ParseStep: count: " + matchCount + " represantiveRawMatch : " + represantiveRawMatch.toString()
+                + " time taken: " + timeTaken);
+        }
+    }
+
+    /**
+     * Parses the output of the binary on the thread reading it, and persists the parsed matches later, on the
+     * thread running the binary step: nothing is persisted unless the binary completes successfully.
+     */
+    public class PipedOutput implements CommandOutputConsumer {
+
+        private final StepInstance stepInstance;
+
+        private volatile Set<RawProtein<T>> results;
+
+        private PipedOutput(StepInstance stepInstance) {
+            this.stepInstance = stepInstance;
+        }
+
+        @Override
+        public void consume(InputStream output) throws IOException {
+            results = getParser().parse(output);
+        }
+
+        public void persist() {
+            if (results == null) {
+                throw new IllegalStateException("The output of the binary of step " + getId() + " has not been parsed");
             }
+            ParseStep.this.persist(stepInstance, results);
         }
-        LOGGER.info("Step with Id " + this.getId() + " finished.");
     }
 }
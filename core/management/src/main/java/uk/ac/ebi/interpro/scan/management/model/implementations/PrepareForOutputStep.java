@@ -38,6 +38,8 @@ public class PrepareForOutputStep extends Step {
 
     public static final String SEQUENCE_TYPE = "SEQUENCE_TYPE";
 
+    private int proteinsPerPersistBatch = 1000;
+
     public void setProteinDAO(ProteinDAO proteinDAO) {
         this.proteinDAO = proteinDAO;
     }
@@ -46,6 +48,17 @@ public class PrepareForOutputStep extends Step {
         this.matchDAO = matchDAO;
     }
 
+    /**
+     * @param proteinsPerPersistBatch the number of proteins (of the range of the step) read, completed
+     *                                with their matches and written back to the KV store at a time.
+     */
+    public void setProteinsPerPersistBatch(int proteinsPerPersistBatch) {
+        if (proteinsPerPersistBatch < 1) {
+            throw new IllegalArgumentException("The number of proteins per batch must be at least 1: " + proteinsPerPersistBatch);
+        }
+        this.proteinsPerPersistBatch = proteinsPerPersistBatch;
+    }
+
     public void setNucleotideSequenceDAO(NucleotideSequenceDAO nucleotideSequenceDAO) {
         this.nucleotideSequenceDAO = nucleotideSequenceDAO;
     }
@@ -307,77 +320,41 @@ public class PrepareForOutputStep extends Step {
         //try (ProteinMatchesXMLJAXBFragmentsResultWriter writer = new ProteinMatchesXMLJAXBFragmentsResultWriter(outputPath, Protein.class, isSlimOutput)) {
             //writer.header(interProScanVersion);
             //writer.header(interProScanVersion,   "protein-matches");
-            Set<String> signatureLibraryNames = new HashSet<>();
-
-            for (SignatureLibrary sig: SignatureLibrary.values() ){
-                signatureLibraryNames.add(sig.getName());
-            }
-
-            for (Long proteinIndex= bottomProteinId;proteinIndex <= topProteinId; proteinIndex ++){
-                String proteinKey = Long.toString(proteinIndex);
-                //Protein protein  = proteinDAO.getProteinAndCrossReferencesByProteinId(proteinIndex);
-                Protein protein = proteinDAO.getProtein(proteinKey);
-                if(protein != null){
-                    proteinCount ++;
-                }
-
-                for(String signatureLibraryName: signatureLibraryNames){
-                    final String dbKey = proteinKey + signatureLibraryName;
-
-                    Set<Match> matches = null;
-                    //try this say three times
-                    int tryCount = 0;
-                    while(tryCount <= 3) {
-                        try {
-                            matches = matchDAO.getMatchSet(dbKey);
-                        } catch (Exception exception) {
-                            //dont recover but sleep for a few seconds and try again
-                            Utilities.verboseLog("Exception type: " + exception.getClass());
-                            exception.printStackTrace();
-                            if (tryCount >=  3){
-                                throw new IllegalStateException("Failed to get matches from the DB for key " + dbKey);
-                            }
-                            //how long to wait for files to be available ??
-                            int waitTime = (proteinsConsidered.intValue() / 8000 ) * 60 * 1000;
-                            if(  getNfsDelayMilliseconds() < waitTime) {
-                                if (waitTime > 120 * 1000) {
-                                    waitTime = 120 * 1000;
-                                }
-                                Utilities.sleep(waitTime);
-                            }else {
-                                delayForNfs();
-                            }
-                            Utilities.verboseLog(10, "  Prepare for output - Slept for at least " + waitTime + " millis");
-                        }
-                        tryCount ++;
-                    }
-
+            // Proteins and matches are keyed by protein ID, so read the matches of a sub-range of the proteins in one go,
+            // and write the proteins of each sub-range back in a batch, so that only a sub-range is held in memory
+            for (long batchBottom = bottomProteinId; batchBottom <= topProteinId; batchBottom += proteinsPerPersistBatch) {
+                final long batchTop = Math.min(topProteinId, batchBottom + proteinsPerPersistBatch - 1);
+                final Map<Long, Set<Match>> matchesForEachProtein = getMatchesBetweenProteinIds(batchBottom, batchTop, proteinsConsidered);
+                final Map<String, Protein> keyToProteinMap = new HashMap<>();
+                proteinDAO.forEachProtein(batchBottom, batchTop, protein -> {
+                    Set<Match> matches = matchesForEachProtein.get(protein.getId());
                     if (matches != null){
-                        //Utilities.verboseLog("Get matches for protein  id: " + protein.getId() +  " dbKey (matchKey): " + dbKey);
                         for(Match match: matches){
                             String accession = match.getSignature().getAccession();
-                            Utilities.verboseLog(20, "dbKey :" + dbKey + " - " + accession ); //+ " - match: " + match.getLocations()) ;
+                            Utilities.verboseLog(20, "protein :" + protein.getId() + " - " + accession ); //+ " - match: " + match.getLocations()) ;
                             match.getSignature().getCrossReferences();
                             //match.getSignature().getEntry();
-                            //try update with cross refs etc
-                            //updateMatch(match);
                             protein.addMatch(match);
-                            matchCount ++;
                         }
                     }
-                }
 
-                //TDO Temp check what breaks if you dont do pre-marshalling
-                //String xmlProtein = writer.marshal(protein);
+                    //TDO Temp check what breaks if you dont do pre-marshalling
+                    //String xmlProtein = writer.marshal(protein);
 
-                protein.getOpenReadingFrames().size();
+                    protein.getOpenReadingFrames().size();
 
-                for(Match i5Match: protein.getMatches()){
-                    //try update with cross refs etc
-                    updateMatch(i5Match);
-                }
+                    for(Match i5Match: protein.getMatches()){
+                        //try update with cross refs etc
+                        updateMatch(i5Match);
+                    }
 
-                proteinDAO.persist(proteinKey, protein);
+                    keyToProteinMap.put(Long.toString(protein.getId()), protein);
+                });
+                proteinCount += keyToProteinMap.size();
+                for (Set<Match> matches : matchesForEachProtein.values()) {
+                    matchCount += matches.size();
+                }
+                proteinDAO.persist(keyToProteinMap);
             }
         //}catch (JAXBException e){
         //    e.printStackTrace();
@@ -570,6 +547,38 @@ public class PrepareForOutputStep extends Step {
         return outputPath;
     }
 
+    /**
+     * Reads the matches of the proteins from bottom to top, trying again (a few times) if the DB is not yet available.
+     */
+    private Map<Long, Set<Match>> getMatchesBetweenProteinIds(long bottomProteinId, long topProteinId, Long proteinsConsidered) {
+        //try this say three times
+        int tryCount = 0;
+        while(true) {
+            try {
+                return matchDAO.getMatchesBetweenProteinIds(bottomProteinId, topProteinId);
+            } catch (Exception exception) {
+                //dont recover but sleep for a few seconds and try again
+                Utilities.verboseLog("Exception type: " + exception.getClass());
+                exception.printStackTrace();
+                if (tryCount >=  3){
+                    throw new IllegalStateException("Failed to get matches from the DB for proteins " + bottomProteinId + "-" + topProteinId);
+                }
+                //how long to wait for files to be available ??
+                int waitTime = (proteinsConsidered.intValue() / 8000 ) * 60 * 1000;
+                if(  getNfsDelayMilliseconds() < waitTime) {
+                    if (waitTime > 120 * 1000) {
+                        waitTime = 120 * 1000;
+                    }
+                    Utilities.sleep(waitTime);
+                }else {
+                    delayForNfs();
+                }
+                Utilities.verboseLog(10, "  Prepare for output - Slept for at least " + waitTime + " millis");
+            }
+            tryCount ++;
+        }
+    }
+
     private Path getPathName(final boolean explicitPath,
                              final String filePathName,
                              final FileOutputFormat outputFormat) {
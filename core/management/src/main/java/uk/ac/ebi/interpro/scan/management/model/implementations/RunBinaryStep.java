@@ -45,6 +45,10 @@ abstract public class RunBinaryStep extends Step {
 
     private boolean singleSeqMode = false;
 
+    private ParseStep<?> parseStep;
+
+    private boolean keepPipedOutputFile = false;
+
     final private String ANALYSIS_TEMP_DIR_SUFFIX = "tmp_files";
 
     public void setUsesFileOutputSwitch(boolean usesFileOutputSwitch) {
@@ -63,6 +67,45 @@ abstract public class RunBinaryStep extends Step {
         this.singleSeqMode = singleSeqMode;
     }
 
+    public ParseStep<?> getParseStep() {
+        return parseStep;
+    }
+
+    /**
+     * @param parseStep that parses the output of the binary as it is produced (i.e. from STDOUT), in this step,
+     *                  if it is piped from this step.  The binary must then write the output to be parsed to STDOUT.
+     */
+    public void setParseStep(ParseStep<?> parseStep) {
+        this.parseStep = parseStep;
+    }
+
+    public boolean isKeepPipedOutputFile() {
+        return keepPipedOutputFile;
+    }
+
+    /**
+     * @param keepPipedOutputFile true to also write the output to the output file when it is parsed
+     *                            as it is produced (e.g. for debugging).
+     */
+    public void setKeepPipedOutputFile(boolean keepPipedOutputFile) {
+        this.keepPipedOutputFile = keepPipedOutputFile;
+    }
+
+    /**
+     * @return true if the output of the binary is parsed as it is produced, by the parse step, in this step.
+     */
+    public boolean isPipedToParseStep() {
+        return parseStep != null && parseStep.isPipedFromBinaryStep();
+    }
+
+    /**
+     * The parse step persists the matches when the output is piped to it.
+     */
+    @Override
+    public boolean isRequiresDatabaseAccess() {
+        return super.isRequiresDatabaseAccess() || isPipedToParseStep();
+    }
+
     public String getOutputFileNameTemplate() {
         return outputFileNameTemplate;
     }
@@ -158,9 +201,17 @@ abstract public class RunBinaryStep extends Step {
             LOGGER.debug("Running the following command: " + command);
 
             CommandLineConversation clc = new CommandLineConversationImpl();
+            ParseStep<?>.PipedOutput pipedOutput = null;
             try {
-                //handle binaries that use -o or similar switch for output
-                if (this.usesFileOutputSwitch){
+                if (isPipedToParseStep()) {
+                    // The output is parsed as it is produced, without a round trip through the output file
+                    if (keepPipedOutputFile && this.getOutputFileNameTemplate() != null) {
+                        clc.setOutputPathToFile(outputFileName, true, false);
+                    }
+                    pipedOutput = parseStep.createPipedOutput(stepInstance);
+                    clc.setOutputConsumer(pipedOutput);
+                } else if (this.usesFileOutputSwitch){
+                    //handle binaries that use -o or similar switch for output
                     outputFileName = stepInstance.buildFullyQualifiedFilePath(temporaryFileDirectory, "devnull.txt");
                     outputFileName = "/dev/null";
                     clc.setOutputPathToFile(outputFileName, true, false);
@@ -185,6 +236,10 @@ abstract public class RunBinaryStep extends Step {
             }
             if (exitStatus == 0) {
                 LOGGER.debug("binary finished successfully!");
+                if (pipedOutput != null) {
+                    // Only the output of a successful run is persisted
+                    pipedOutput.persist();
+                }
             } else {
                 StringBuffer failureMessage = new StringBuffer();
                 failureMessage.append("Command line failed with exit code: ")
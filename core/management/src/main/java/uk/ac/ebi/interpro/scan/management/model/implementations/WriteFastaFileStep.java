@@ -7,6 +7,7 @@ import uk.ac.ebi.interpro.scan.management.model.Step;
 import uk.ac.ebi.interpro.scan.management.model.StepInstance;
 import uk.ac.ebi.interpro.scan.model.Protein;
 import uk.ac.ebi.interpro.scan.persistence.ProteinDAO;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDBValueCursor;
 import uk.ac.ebi.interpro.scan.util.Utilities;
 
 import javax.persistence.Transient;
@@ -82,11 +83,8 @@ public class WriteFastaFileStep extends Step {
                 long topProtein = stepInstance.getTopProtein();
                 proteins = new ArrayList<>();
                 int count = 0;
-                for (long proteinId = bottomProtein; proteinId <= topProtein; proteinId++) {
-                    //Protein protein = proteinDAO.getProtein(Long.toString(proteinId));
-                    Protein proteinNotInLookup = proteinDAO.getProteinNotInLookup(Long.toString(proteinId));
-                    if (proteinNotInLookup != null) {
-                        //System.out.println("write sequence id : " + proteinId + " real id from kv: " + proteinNotInLookup.getId());
+                try (KVDBValueCursor<Protein> proteinsNotInLookup = proteinDAO.getProteinNotInLookupCursor(bottomProtein, topProtein)) {
+                    for (Protein proteinNotInLookup : proteinsNotInLookup) {
                         proteins.add(proteinNotInLookup);
                         count++;
                     }
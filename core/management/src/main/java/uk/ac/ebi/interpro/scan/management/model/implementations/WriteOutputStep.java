@@ -11,9 +11,14 @@ import uk.ac.ebi.interpro.scan.management.model.Step;
 import uk.ac.ebi.interpro.scan.management.model.StepInstance;
 import uk.ac.ebi.interpro.scan.management.model.implementations.stepInstanceCreation.StepInstanceCreatingStep;
 import uk.ac.ebi.interpro.scan.management.model.implementations.writer.GraphicalOutputResultWriter;
+import uk.ac.ebi.interpro.scan.management.model.implementations.writer.JSONProteinMatchesOutput;
+import uk.ac.ebi.interpro.scan.management.model.implementations.writer.OutputFragments;
+import uk.ac.ebi.interpro.scan.management.model.implementations.writer.ProteinFanOutWriter;
 import uk.ac.ebi.interpro.scan.management.model.implementations.writer.ProteinMatchesHTMLResultWriter;
 import uk.ac.ebi.interpro.scan.management.model.implementations.writer.ProteinMatchesSVGResultWriter;
+import uk.ac.ebi.interpro.scan.management.model.implementations.writer.ShardedProteinWriter;
 import uk.ac.ebi.interpro.scan.management.model.implementations.writer.TarArchiveBuilder;
+import uk.ac.ebi.interpro.scan.management.model.implementations.writer.XMLProteinMatchesOutput;
 import uk.ac.ebi.interpro.scan.model.*;
 import uk.ac.ebi.interpro.scan.persistence.MatchDAO;
 import uk.ac.ebi.interpro.scan.persistence.NucleotideSequenceDAO;
@@ -76,6 +81,12 @@ public class WriteOutputStep extends Step {
 
     private String interProScanVersion;
 
+    /* Number of proteins each output format can fall behind the KV store reads */
+    private int outputQueueSize = 100;
+
+    /* Number of shards the proteins are split into to write the TSV, XML and JSON output in parallel */
+    private int outputShardCount = 1;
+
     public static final String OUTPUT_EXPLICIT_FILE_PATH_KEY = "EXPLICIT_OUTPUT_FILE_PATH";
 
     public static final String OUTPUT_FILE_PATH_KEY = "OUTPUT_PATH";
@@ -149,6 +160,14 @@ public class WriteOutputStep extends Step {
         this.entryHierarchy = entryHierarchy;
     }
 
+    public void setOutputQueueSize(int outputQueueSize) {
+        this.outputQueueSize = outputQueueSize;
+    }
+
+    public void setOutputShardCount(int outputShardCount) {
+        this.outputShardCount = outputShardCount;
+    }
+
     /**
      * Sets/persists new unique protein xref identifiers in cases where they are non unique (same ID, different sequences).
      */
@@ -211,62 +230,70 @@ public class WriteOutputStep extends Step {
             setUniqueXrefs();
         }
 
-        for (FileOutputFormat outputFormat : outputFormats) {
-            Path outputPath = getPathName(explicitPath, filePathName, outputFormat);
-            try {
-                Utilities.verboseLog("Writing out " + outputPath.toString());
-                if (LOGGER.isInfoEnabled()) {
-                    LOGGER.info("Writing out " + outputFormat + " file");
-                }
-                switch (outputFormat) {
-                    case TSV:
-                        outputToTSV(outputPath, stepInstance);
-                        break;
-                    case TSV_PRO:
-                        outputToTSVPRO(outputPath, stepInstance);
-                        break;
-                    case XML:
-                        outputToXML(outputPath, stepInstance, sequenceType, false);
-                        break;
-                    case XML_SLIM:
-                        outputToXML(outputPath, stepInstance, sequenceType, true);
-                        break;
-                    case JSON:
-                        outputToJSON(outputPath, stepInstance, sequenceType, false);
-                        break;
-                    case JSON_SLIM:
-                        outputToJSON(outputPath, stepInstance, sequenceType, true);
-                        break;
-                    case GFF3:
-                        outputToGFF(outputPath, stepInstance, sequenceType);
-                        break;
-                    case GFF3_PARTIAL:
-                        outputToGFFPartial(outputPath, stepInstance);
-                        break;
-                    case HTML:
-                        //Replace the default temp dir with the user specified one
-                        if (temporaryFileDirectory != null) {
-                            if (htmlResultWriter == null){
-                                throw new IllegalStateException("htmlResultWriter is null ");
+        // The TSV, XML and JSON outputs are written in parallel shards of the proteins, if more than one shard is configured.
+        // The proteins are read from the KV store once and handed to the other outputs.
+        final ShardedProteinWriter shardedWriter = new ShardedProteinWriter(outputShardCount);
+        try (ProteinFanOutWriter fanOut = new ProteinFanOutWriter(outputQueueSize)) {
+            for (FileOutputFormat outputFormat : outputFormats) {
+                Path outputPath = getPathName(explicitPath, filePathName, outputFormat);
+                try {
+                    Utilities.verboseLog("Writing out " + outputPath.toString());
+                    if (LOGGER.isInfoEnabled()) {
+                        LOGGER.info("Writing out " + outputFormat + " file");
+                    }
+                    switch (outputFormat) {
+                        case TSV:
+                            outputToTSV(fanOut, shardedWriter, outputPath, stepInstance);
+                            break;
+                        case TSV_PRO:
+                            outputToTSVPRO(fanOut, shardedWriter, outputPath, stepInstance);
+                            break;
+                        case XML:
+                            outputToXML(fanOut, shardedWriter, outputPath, stepInstance, sequenceType, false);
+                            break;
+                        case XML_SLIM:
+                            outputToXML(fanOut, shardedWriter, outputPath, stepInstance, sequenceType, true);
+                            break;
+                        case JSON:
+                            outputToJSON(fanOut, shardedWriter, outputPath, stepInstance, sequenceType, false);
+                            break;
+                        case JSON_SLIM:
+                            outputToJSON(fanOut, shardedWriter, outputPath, stepInstance, sequenceType, true);
+                            break;
+                        case GFF3:
+                            outputToGFF(fanOut, outputPath, stepInstance, sequenceType);
+                            break;
+                        case GFF3_PARTIAL:
+                            outputToGFFPartial(fanOut, outputPath, stepInstance);
+                            break;
+                        case HTML:
+                            //Replace the default temp dir with the user specified one
+                            if (temporaryFileDirectory != null) {
+                                if (htmlResultWriter == null){
+                                    throw new IllegalStateException("htmlResultWriter is null ");
+                                }
+                                htmlResultWriter.setTempDirectory(temporaryFileDirectory);
                             }
-                            htmlResultWriter.setTempDirectory(temporaryFileDirectory);
-                        }
-                        outputToHTML(outputPath, stepInstance);
-                        break;
-                    case SVG:
-                        //Replace the default temp dir with the user specified one
-                        if (temporaryFileDirectory != null) {
-                            svgResultWriter.setTempDirectory(temporaryFileDirectory);
-                        }
-                        outputToSVG(outputPath, stepInstance);
-                        break;
-                    default:
-                        LOGGER.warn("Unrecognised output format " + outputFormat + " - cannot write the output file.");
+                            outputToHTML(fanOut, outputPath);
+                            break;
+                        case SVG:
+                            //Replace the default temp dir with the user specified one
+                            if (temporaryFileDirectory != null) {
+                                svgResultWriter.setTempDirectory(temporaryFileDirectory);
+                            }
+                            outputToSVG(fanOut, outputPath);
+                            break;
+                        default:
+                            LOGGER.warn("Unrecognised output format " + outputFormat + " - cannot write the output file.");
+                    }
+                } catch (IOException ioe) {
+                    final String p = outputPath.toAbsolutePath().toString();
+                    throw new IllegalStateException("IOException thrown when attempting to writeComment output from InterProScan to path: " + p, ioe);
                 }
-            } catch (IOException ioe) {
-                final String p = outputPath.toAbsolutePath().toString();
-                throw new IllegalStateException("IOException thrown when attempting to writeComment output from InterProScan to path: " + p, ioe);
             }
+            writeProteins(fanOut, shardedWriter, stepInstance);
+        } catch (IOException ioe) {
+            throw new IllegalStateException("IOException thrown when attempting to write output from InterProScan", ioe);
         }
 
         //close the kvStores
@@ -382,97 +409,33 @@ public class WriteOutputStep extends Step {
     }
 
 
-    private void outputToXML(Path outputPath, StepInstance stepInstance, String sequenceType, boolean isSlimOutput) throws IOException {
+    /**
+     * Writes the proteins of the step instance to the sharded outputs and to all the outputs of the fan-out writer,
+     * reading them from the KV store once.
+     */
+    private void writeProteins(ProteinFanOutWriter fanOut, ShardedProteinWriter shardedWriter, StepInstance stepInstance) throws IOException {
+        Long bottomProteinId = stepInstance.getBottomProtein();
+        Long topProteinId = stepInstance.getTopProtein();
+        if (bottomProteinId == null || topProteinId == null) {
+            return;
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("Load " + topProteinId + " proteins from the db.");
+        }
+        shardedWriter.write(proteinDAO, bottomProteinId, topProteinId, fanOut);
+    }
+
+    private void outputToXML(ProteinFanOutWriter fanOut, ShardedProteinWriter shardedWriter, Path outputPath, StepInstance stepInstance, String sequenceType, boolean isSlimOutput) throws IOException {
         Utilities.verboseLog(10, " WriteOutputStep - outputToXML " );
         if (! sequenceType.equalsIgnoreCase("p")){
             outputNTToXML(outputPath, stepInstance, sequenceType, isSlimOutput);
             return;
         }
-        IMatchesHolder matchesHolder = getMatchesHolder(stepInstance, sequenceType, isSlimOutput);
-
-        //Utilities.verboseLog(10, " WriteOutputStep - outputToXML xml-slim? " + isSlimOutput);
-        //xmlWriter.writeMatches(outputPath, matchesHolder);
-
-        Long bottomProteinId = stepInstance.getBottomProtein();
-        Long topProteinId = stepInstance.getTopProtein();
-
-        try (ProteinMatchesXMLJAXBFragmentsResultWriter writer = new ProteinMatchesXMLJAXBFragmentsResultWriter(outputPath, Protein.class, isSlimOutput)) {
-            //writer.header(interProScanVersion);
-            if (bottomProteinId != null && topProteinId != null) {
-                if (LOGGER.isInfoEnabled()) {
-                    LOGGER.info("Load " + topProteinId + " proteins from the db.");
-                }
-                Utilities.verboseLog(10, " WriteOutputStep -XML new " + " There are " + topProteinId + " proteins.");
-                int count = 0;
-                writer.header(interProScanVersion, "protein-matches");
-                final Set<NucleotideSequence> nucleotideSequences = new HashSet<>();
-                for (Long proteinIndex = bottomProteinId; proteinIndex <= topProteinId; proteinIndex++) {
-                    String proteinKey = Long.toString(proteinIndex);
-                    Protein protein = proteinDAO.getProtein(proteinKey);
-                    if (protein == null ) {
-                        LOGGER.warn("protein with id  " + proteinIndex + " was null");
-                        continue;
-                        //something is wrong as we should get a null protein
-                    }
-                    if (isSlimOutput && protein.getMatches().isEmpty()) {
-                        //dont display proteins that dont have matches
-                        continue;
-                    }
-                    Set<Match> matches = protein.getMatches();
-
-                    for (Match match : matches){
-                        StringBuilder matchBuilder = new StringBuilder();
-                        matchBuilder.append(protein.getId()).append(" ")
-                                .append(protein.getMd5()).append(" ")
-                                .append(match.getSignature().getSignatureLibraryRelease().getLibrary().getName()).append(" ");
-                        Entry matchEntry = match.getSignature().getEntry();
-                        if(matchEntry!= null){
-                            //check goterms 
-                              //check pathways
-                            matchBuilder.append("-- entry: ").append(matchEntry.getAccession());
-                            matchEntry.getGoXRefs();
-                            if(matchEntry.getGoXRefs() != null) {
-                                matchEntry.getGoXRefs().size();
-                            }
-                            matchEntry.getPathwayXRefs();
-                            if(matchEntry.getPathwayXRefs() != null) {
-                                matchEntry.getPathwayXRefs().size();
-                            }
-                        }else{
-                            matchBuilder.append("-- entry i NULL");
-                        }
-                        //System.out.println("matchBuilder:  "  + matchBuilder );
-
-                    }
-                    writer.write(protein, sequenceType, isSlimOutput);
-                    count++;
-                    if (count < proteinIndex) {
-                        writer.write(","); // More proteins/nucleotide sequences to follow
-                    }
-                    for (OpenReadingFrame orf : protein.getOpenReadingFrames()) {
-                        Utilities.verboseLog(20, "OpenReadingFrame: " +  orf.getId() + " --  " + orf.getStart() + "-" + orf.getEnd());
-                        NucleotideSequence seq = orf.getNucleotideSequence();
-                        //Utilities.verboseLog("NucleotideSequence: \n" +  seq.toString());
-                        if (seq != null) {
-                            nucleotideSequences.add(seq);
-                            writer.write(seq, sequenceType, isSlimOutput);
-                        }
-                    }
-
-                    //print one protein then break
-                    //break;
-                }
-                Utilities.verboseLog("WriteOutPut nucleotideSequences size: " +  nucleotideSequences.size());
-            }
-            writer.close();
-        }catch (JAXBException e){
-            e.printStackTrace();
-        }catch (XMLStreamException e) {
-            e.printStackTrace();
-        }catch (IOException e){
-            e.printStackTrace();
+        if (shardedWriter.getShardCount() == 1) {
+            fanOut.add(outputPath.toString(), new XMLProteinMatchesOutput(outputPath, interProScanVersion, sequenceType, isSlimOutput, false));
+            return;
         }
-
+        shardedWriter.add(outputPath, new XMLProteinMatchesOutput.Sharded(interProScanVersion, sequenceType, isSlimOutput));
     }
 
     private void outputNTToXML(Path outputPath, StepInstance stepInstance, String sequenceType, boolean isSlimOutput) throws IOException {
@@ -480,10 +443,6 @@ public class WriteOutputStep extends Step {
             return;
         }
         Utilities.verboseLog(10, " WriteOutputStep - output NucleotideSequence  to XML " );
-        IMatchesHolder matchesHolder = getMatchesHolder(stepInstance, sequenceType, isSlimOutput);
-
-        //Utilities.verboseLog(10, " WriteOutputStep - outputToXML xml-slim? " + isSlimOutput);
-        //xmlWriter.writeMatches(outputPath, matchesHolder);
 
         Long bottomProteinId = stepInstance.getBottomProtein();
         Long topProteinId = stepInstance.getTopProtein();
@@ -516,55 +475,17 @@ public class WriteOutputStep extends Step {
     }
 
 
-    private void outputToJSON(Path outputPath, StepInstance stepInstance, String sequenceType, boolean isSlimOutput) throws IOException {
-        Utilities.verboseLog(10, " WriteOutputStep - outputToJSON " );
-        IMatchesHolder matchesHolder = getMatchesHolder(stepInstance, sequenceType, isSlimOutput);
-
+    private void outputToJSON(ProteinFanOutWriter fanOut, ShardedProteinWriter shardedWriter, Path outputPath, StepInstance stepInstance, String sequenceType, boolean isSlimOutput) throws IOException {
         Utilities.verboseLog(10, " WriteOutputStep - outputToJSON json-slim? " + isSlimOutput);
-        try (ProteinMatchesJSONResultWriter writer = new ProteinMatchesJSONResultWriter(outputPath, isSlimOutput)) {
-            //old way??
-            //writer.write(matchesHolder, proteinDAO, sequenceType, isSlimOutput);
-
+        if (sequenceType.equalsIgnoreCase("p") && shardedWriter.getShardCount() == 1){
+            fanOut.add(outputPath.toString(), new JSONProteinMatchesOutput(new ProteinMatchesJSONResultWriter(outputPath, isSlimOutput), interProScanVersion, false));
         }
-        //Try writing to JSOn from this module
-
-        Long bottomProteinId = stepInstance.getBottomProtein();
-        Long topProteinId = stepInstance.getTopProtein();
-
-        final Map<String, String> parameters = stepInstance.getParameters();
-        final boolean mapToPathway = Boolean.TRUE.toString().equals(parameters.get(MAP_TO_PATHWAY));
-        final boolean mapToGO = Boolean.TRUE.toString().equals(parameters.get(MAP_TO_GO));
-        final boolean mapToInterProEntries = mapToPathway || mapToGO || Boolean.TRUE.toString().equals(parameters.get(MAP_TO_INTERPRO_ENTRIES));
-        //writer.setMapToInterProEntries(mapToInterProEntries);
-        //writer.setMapToGO(mapToGO);
-       // writer.setMapToPathway(mapToPathway);
-        if (sequenceType.equalsIgnoreCase("p")){
-            try (ProteinMatchesJSONResultWriter writer = new ProteinMatchesJSONResultWriter(outputPath, isSlimOutput)) {
-                writer.header(interProScanVersion);
-                if (bottomProteinId != null && topProteinId != null) {
-                    if (LOGGER.isInfoEnabled()) {
-                        LOGGER.info("Load " + topProteinId + " proteins from the db.");
-                    }
-                    Utilities.verboseLog(10, " WriteOutputStep -JSON new " + " There are " + topProteinId + " proteins.");
-                    int count = 0;
-                    for (Long proteinIndex = bottomProteinId; proteinIndex <= topProteinId; proteinIndex++) {
-                        String proteinKey = Long.toString(proteinIndex);
-                        Protein protein = proteinDAO.getProtein(proteinKey);
-                        if (protein == null) {
-                            LOGGER.warn("protein with id  " + proteinIndex + " was null");
-                            continue;
-                        }
-                        writer.write(protein);
-                        count++;
-                        if (count < proteinIndex) {
-                            writer.write(","); // More proteins/nucleotide sequences to follow
-                        }
-                    }
-                }
-                writer.footer();
-            }
+        else if (sequenceType.equalsIgnoreCase("p")){
+            shardedWriter.add(outputPath, new JSONProteinMatchesOutput.Sharded(interProScanVersion, isSlimOutput));
         }
         if ( sequenceType.equalsIgnoreCase("n")){
+            Long bottomProteinId = stepInstance.getBottomProtein();
+            Long topProteinId = stepInstance.getTopProtein();
             try (ProteinMatchesJSONResultWriter writer = new ProteinMatchesJSONResultWriter(outputPath, isSlimOutput)) {
                 writer.header(interProScanVersion);
                 if (bottomProteinId != null && topProteinId != null) {
@@ -591,45 +512,11 @@ public class WriteOutputStep extends Step {
 
     }
 
-    private IMatchesHolder getMatchesHolder(StepInstance stepInstance, String sequenceType, boolean isSlimOutput) {
-        IMatchesHolder matchesHolder = null;
-        /*
-        if (sequenceType.equalsIgnoreCase("n")) {
-            matchesHolder = new NucleicAcidMatchesHolder(interProScanVersion);
-        } else {
-            matchesHolder = new ProteinMatchesHolder(interProScanVersion);
-        }
-
-        final Map<String, String> parameters = stepInstance.getParameters();
-        final boolean excludeSites = Boolean.TRUE.toString().equals(parameters.get(StepInstanceCreatingStep.EXCLUDE_SITES));
-        if (excludeSites || this.excludeSites) { // Command line argument takes preference over proprties file config
-            removeSites(proteins, true);
-        }
-        else if (isSlimOutput) {
-            removeSites(proteins, false);
-        }
-
-        if (isSlimOutput) {
-            // Only include a protein in the output if it has at least one match
-            for (Protein protein : proteins) {
-                Set<Match> matches = protein.getMatches();
-                if (matches != null && matches.size() > 0) {
-                    matchesHolder.addProtein(protein);
-                }
-            }
-        } else {
-            // Include all proteins in the output, whether they have any matches or not
-            matchesHolder.addProteins(proteins);
-        }
-        */
-        return matchesHolder;
-    }
-
-    private void outputToTSV(final Path path,
+    private void outputToTSV(final ProteinFanOutWriter fanOut,
+                             final ShardedProteinWriter shardedWriter,
+                             final Path path,
                              final StepInstance stepInstance ) throws IOException {
-        try (ProteinMatchesTSVResultWriter writer = new ProteinMatchesTSVResultWriter(path)) {
-            writeProteinMatches(writer, stepInstance);
-        }
+        addProteinMatchesOutput(fanOut, shardedWriter, path, stepInstance, ProteinMatchesTSVResultWriter::new);
         //write the site tsv production output
         //only for CDD and SFLD
 
@@ -642,9 +529,7 @@ public class WriteOutputStep extends Step {
             if (includeTsvSites) {
                 Path tsvProSitesPath = Paths.get(path.toString() + ".sites");
                 Utilities.verboseLog("tsv site path: " + tsvProSitesPath.getFileName().toString());
-                try (ProteinSiteMatchesTSVResultWriter tsvSitesWriter = new ProteinSiteMatchesTSVResultWriter(tsvProSitesPath)) {
-                    writeProteinMatches(tsvSitesWriter, stepInstance);
-                }
+                addProteinMatchesOutput(fanOut, shardedWriter, tsvProSitesPath, stepInstance, ProteinSiteMatchesTSVResultWriter::new);
             }
         }
 
@@ -669,12 +554,12 @@ public class WriteOutputStep extends Step {
         }
     }
 
-    private void outputToTSVPRO(final Path path,
-                             final StepInstance stepInstance) throws IOException {
+    private void outputToTSVPRO(final ProteinFanOutWriter fanOut,
+                                final ShardedProteinWriter shardedWriter,
+                                final Path path,
+                                final StepInstance stepInstance) throws IOException {
         //first write the tsv production output
-        try (ProteinMatchesTSVProResultWriter writer = new ProteinMatchesTSVProResultWriter(path)) {
-            writeProteinMatches(writer, stepInstance);
-        }
+        addProteinMatchesOutput(fanOut, shardedWriter, path, stepInstance, ProteinMatchesTSVProResultWriter::new);
         //write the site tsv production output
         //only for CDD and SFLD
         final Map<String, String> parameters = stepInstance.getParameters();
@@ -686,59 +571,75 @@ public class WriteOutputStep extends Step {
             if (!excludeSites) {
                 Path tsvProSitesPath = Paths.get(path.toString() + ".sites");
                 Utilities.verboseLog("tsv site path: " + tsvProSitesPath.getFileName().toString());
-                try (ProteinSiteMatchesTSVResultWriter tsvSitesWriter = new ProteinSiteMatchesTSVResultWriter(tsvProSitesPath)) {
-
-                    writeProteinMatches(tsvSitesWriter, stepInstance);
-                }
+                addProteinMatchesOutput(fanOut, shardedWriter, tsvProSitesPath, stepInstance, ProteinSiteMatchesTSVResultWriter::new);
             }
         }
     }
 
-    private void outputToGFF(Path path, StepInstance stepInstance, String sequenceType) throws IOException {
-        ProteinMatchesGFFResultWriter writer = null;
-        try {
-            if (sequenceType.equalsIgnoreCase("n")) {
-                writer = new GFFResultWriterForNucSeqs(path, interProScanVersion);
-            }//Default tsvWriter for proteins
-            else {
-                writer = new GFFResultWriterForProtSeqs(path, interProScanVersion);
+    /**
+     * Adds a TSV output: the lines of the proteins don't depend on each other, so it can be written in shards.
+     */
+    private void addProteinMatchesOutput(final ProteinFanOutWriter fanOut,
+                                         final ShardedProteinWriter shardedWriter,
+                                         final Path path,
+                                         final StepInstance stepInstance,
+                                         final ProteinMatchesResultWriterFactory writerFactory) throws IOException {
+        if (shardedWriter.getShardCount() == 1) {
+            fanOut.add(path.toString(), new ProteinMatchesOutput(writerFactory.create(path), stepInstance));
+            return;
+        }
+        shardedWriter.add(path, new ShardedProteinWriter.ShardedOutput() {
+            public ProteinFanOutWriter.ProteinOutput createShardOutput(Path shardPath) throws IOException {
+                return new ProteinMatchesOutput(writerFactory.create(shardPath), stepInstance);
             }
 
-            //This step writes features (protein matches) into the GFF file
-            writeProteinMatches(writer, stepInstance);
-            //This step writes FASTA sequence at the end of the GFF file
-            writeFASTASequences(writer);
-        } finally {
-            if (writer != null) {
-                writer.close();
+            public void assemble(OutputFragments fragments) throws IOException {
+                fragments.assemble("");
             }
-        }
+        });
     }
 
-    private void outputToGFFPartial(Path path, StepInstance stepInstance) throws IOException {
-        try (ProteinMatchesGFFResultWriter writer = new GFFResultWriterForProtSeqs(path, interProScanVersion, false)) {
-            writeProteinMatches(writer, stepInstance);
+    private void outputToGFF(ProteinFanOutWriter fanOut, Path path, StepInstance stepInstance, String sequenceType) throws IOException {
+        final ProteinMatchesGFFResultWriter writer;
+        if (sequenceType.equalsIgnoreCase("n")) {
+            writer = new GFFResultWriterForNucSeqs(path, interProScanVersion);
+        }//Default tsvWriter for proteins
+        else {
+            writer = new GFFResultWriterForProtSeqs(path, interProScanVersion);
         }
 
+        //The output writes features (protein matches) into the GFF file
+        fanOut.add(path.toString(), new ProteinMatchesOutput(writer, stepInstance) {
+            @Override
+            public void finish() throws IOException {
+                try {
+                    //This step writes FASTA sequence at the end of the GFF file
+                    writeFASTASequences(writer);
+                } finally {
+                    writer.close();
+                }
+            }
+        });
+    }
+
+    private void outputToGFFPartial(ProteinFanOutWriter fanOut, Path path, StepInstance stepInstance) throws IOException {
+        fanOut.add(path.toString(), new ProteinMatchesOutput(new GFFResultWriterForProtSeqs(path, interProScanVersion, false), stepInstance));
     }
 
 
-    private void outputToHTML(final Path path, StepInstance stepInstance) throws IOException {
+    private void outputToHTML(final ProteinFanOutWriter fanOut, final Path path) {
         // E.g. for "-b OUT" file = "/home/matthew/Projects/github-i5/interproscan/core/jms-implementation/target/interproscan-5-dist/OUT.html.tar.gz"
-        writeGraphicalProteinMatches(htmlResultWriter, stepInstance);
-        List<Path> resultFiles = htmlResultWriter.getResultFiles();
-            // E.g. resultFiles =
-            // - data/freemarker/resources
-            //   - data/freemarker/resources/images
-            //     - data/freemarker/resources/images/ico_type_family_small.png
-            //     ...
-            //   - data/freemarker/resources/javascript
-            //   ...
-            // - ~/Projects/github-i5/interproscan/core/jms-implementation/target/interproscan-5-dist/temp/my-computer-name_20160301_141713605_ivyx/jobWriteOutput/P22298.html
-            // - ~/Projects/github-i5/interproscan/core/jms-implementation/target/interproscan-5-dist/temp/my-computer-name_20160301_141713605_ivyx/jobWriteOutput/P02939.html
-            // ...
-
-            buildTarArchive(path, resultFiles);
+        // resultFiles =
+        // - data/freemarker/resources
+        //   - data/freemarker/resources/images
+        //     - data/freemarker/resources/images/ico_type_family_small.png
+        //     ...
+        //   - data/freemarker/resources/javascript
+        //   ...
+        // - ~/Projects/github-i5/interproscan/core/jms-implementation/target/interproscan-5-dist/temp/my-computer-name_20160301_141713605_ivyx/jobWriteOutput/P22298.html
+        // - ~/Projects/github-i5/interproscan/core/jms-implementation/target/interproscan-5-dist/temp/my-computer-name_20160301_141713605_ivyx/jobWriteOutput/P02939.html
+        // ...
+        fanOut.add(path.toString(), new GraphicalProteinMatchesOutput(htmlResultWriter, path, true));
     }
 
     /**
@@ -749,27 +650,21 @@ public class WriteOutputStep extends Step {
      * When the SVG files aren't archived, they are written to the output file directory.
      * Otherwise they will be written into the default outputDirectory of the {@link ProteinMatchesSVGResultWriter).
      *
-     * @param outputDir Output directory (this file object contains the output path).
-     * @param proteins  Set of result proteins.
-     * @throws IOException
+     * @param fanOut Fan-out writer the SVG output is added to.
+     * @param path   Output path.
      */
-    private void outputToSVG(final Path path, StepInstance stepInstance) throws IOException {
+    private void outputToSVG(final ProteinFanOutWriter fanOut, final Path path) {
         // E.g. for "-b OUT" outputDir = "~/Projects/github-i5/interproscan/core/jms-implementation/target/interproscan-5-dist/OUT.svg.tar.gz"
             //If the archive mode is switched off single SVG files should be written to the global output directory
             if (!archiveSVGOutput) {
                 final String outputDirPath = path.toAbsolutePath().toString();
                 svgResultWriter.setTempDirectory(outputDirPath);
             }
-        writeGraphicalProteinMatches(svgResultWriter, stepInstance);
-            if (archiveSVGOutput) {
-                List<Path> resultFiles = svgResultWriter.getResultFiles();
-                // E.g. resultFiles =
-                // - ~/Projects/github-i5/interproscan/core/jms-implementation/target/interproscan-5-dist/temp/my-computer-name_20160301_141713605_ivyx/jobWriteOutput/P22298.svg
-                // - ~/Projects/github-i5/interproscan/core/jms-implementation/target/interproscan-5-dist/temp/my-computer-name_20160301_141713605_ivyx/jobWriteOutput/P02939.svg
-                // ...
-
-                buildTarArchive(path, resultFiles);
-            }
+        // resultFiles, if archived =
+        // - ~/Projects/github-i5/interproscan/core/jms-implementation/target/interproscan-5-dist/temp/my-computer-name_20160301_141713605_ivyx/jobWriteOutput/P22298.svg
+        // - ~/Projects/github-i5/interproscan/core/jms-implementation/target/interproscan-5-dist/temp/my-computer-name_20160301_141713605_ivyx/jobWriteOutput/P02939.svg
+        // ...
+        fanOut.add(path.toString(), new GraphicalProteinMatchesOutput(svgResultWriter, path, archiveSVGOutput));
     }
 
     private void buildTarArchive(Path path, List<Path> resultFiles) throws IOException {
@@ -799,65 +694,83 @@ public class WriteOutputStep extends Step {
         }
     }
 
-    private void writeProteinMatches(ProteinMatchesResultWriter writer, StepInstance stepInstance) throws IOException {
-        Utilities.verboseLog(10, " WriteOutputStep - outputToTSV-etc ");
-        Long bottomProteinId = stepInstance.getBottomProtein();
-        Long topProteinId = stepInstance.getTopProtein();
+    /**
+     * Writes the proteins with matches with a {@link ProteinMatchesResultWriter} (TSV, GFF3...), then closes it.
+     */
+    private static class ProteinMatchesOutput implements ProteinFanOutWriter.ProteinOutput {
 
-        final Map<String, String> parameters = stepInstance.getParameters();
-        final boolean mapToPathway = Boolean.TRUE.toString().equals(parameters.get(MAP_TO_PATHWAY));
-        final boolean mapToGO = Boolean.TRUE.toString().equals(parameters.get(MAP_TO_GO));
-        final boolean mapToInterProEntries = mapToPathway || mapToGO || Boolean.TRUE.toString().equals(parameters.get(MAP_TO_INTERPRO_ENTRIES));
-        writer.setMapToInterProEntries(mapToInterProEntries);
-        writer.setMapToGO(mapToGO);
-        writer.setMapToPathway(mapToPathway);
-        if (bottomProteinId != null && topProteinId != null) {
-            if (LOGGER.isInfoEnabled()) {
-                LOGGER.info("Load " + topProteinId + " proteins from the db.");
+        private final ProteinMatchesResultWriter writer;
+
+        private int count = 0;
+
+        ProteinMatchesOutput(ProteinMatchesResultWriter writer, StepInstance stepInstance) {
+            this.writer = writer;
+            final Map<String, String> parameters = stepInstance.getParameters();
+            final boolean mapToPathway = Boolean.TRUE.toString().equals(parameters.get(MAP_TO_PATHWAY));
+            final boolean mapToGO = Boolean.TRUE.toString().equals(parameters.get(MAP_TO_GO));
+            final boolean mapToInterProEntries = mapToPathway || mapToGO || Boolean.TRUE.toString().equals(parameters.get(MAP_TO_INTERPRO_ENTRIES));
+            writer.setMapToInterProEntries(mapToInterProEntries);
+            writer.setMapToGO(mapToGO);
+            writer.setMapToPathway(mapToPathway);
+        }
+
+        public void start() {
+        }
+
+        public void write(Protein protein) throws IOException {
+            if (protein.getMatches().isEmpty()) {
+                return;
             }
-            Utilities.verboseLog(10, " WriteOutputStep -tsv-etc " + " There are " + topProteinId + " proteins.");
-            int count = 0;
-            for (Long proteinIndex= bottomProteinId;proteinIndex <= topProteinId; proteinIndex ++){
-                String proteinKey = Long.toString(proteinIndex);
-                Protein protein = proteinDAO.getProtein(proteinKey);
-                if(protein == null || protein.getMatches().isEmpty()){
-                    continue;
-                }
-                writer.write(protein);
-                count++;
-                if (count % 40000 == 0) {
-                    Utilities.verboseLog(10, " WriteOutout - wrote out matches for " + count + " proteins");
-                }
+            writer.write(protein);
+            count++;
+            if (count % 40000 == 0) {
+                Utilities.verboseLog(10, " WriteOutout - wrote out matches for " + count + " proteins");
             }
         }
+
+        public void finish() throws IOException {
+            writer.close();
+        }
     }
 
-    private void writeGraphicalProteinMatches(GraphicalOutputResultWriter writer, StepInstance stepInstance) throws IOException {
-        Utilities.verboseLog(10, " WriteOutputStep - outputToTSV-etc ");
-        Long bottomProteinId = stepInstance.getBottomProtein();
-        Long topProteinId = stepInstance.getTopProtein();
+    /**
+     * Writes the proteins with matches with a {@link GraphicalOutputResultWriter} (HTML, SVG), then archives the result files.
+     */
+    private class GraphicalProteinMatchesOutput implements ProteinFanOutWriter.ProteinOutput {
+
+        private final GraphicalOutputResultWriter writer;
+
+        private final Path path;
+
+        private final boolean archive;
+
+        GraphicalProteinMatchesOutput(GraphicalOutputResultWriter writer, Path path, boolean archive) {
+            this.writer = writer;
+            this.path = path;
+            this.archive = archive;
+        }
+
+        public void start() {
+        }
 
-        if (bottomProteinId != null && topProteinId != null) {
-            if (LOGGER.isInfoEnabled()) {
-                LOGGER.info("Load " + topProteinId + " proteins from the db.");
+        public void write(Protein protein) throws IOException {
+            if (protein.getMatches().isEmpty()) {
+                return;
             }
-            Utilities.verboseLog(10, " WriteOutputStep -tsv-etc " + " There are " + topProteinId + " proteins.");
-            int count = 0;
-            for (Long proteinIndex= bottomProteinId;proteinIndex <= topProteinId; proteinIndex ++){
-                String proteinKey = Long.toString(proteinIndex);
-                Protein protein = proteinDAO.getProtein(proteinKey);
-                if(protein == null || protein.getMatches().isEmpty()){
-                    continue;
-                }
-                writer.write(protein, entryHierarchy);
-                count++;
-                if (count % 40000 == 0) {
-                    Utilities.verboseLog(10, " WriteOutout - wrote out matches for " + count + " proteins");
-                }
+            writer.write(protein, entryHierarchy);
+        }
+
+        public void finish() throws IOException {
+            if (archive) {
+                buildTarArchive(path, writer.getResultFiles());
             }
         }
     }
 
+    private interface ProteinMatchesResultWriterFactory {
+        ProteinMatchesResultWriter create(Path path) throws IOException;
+    }
+
     /**
      * Remove sites from any protein match locations (make sites NULL so they don't appear at all in the XML output)
      * @param proteins The proteins
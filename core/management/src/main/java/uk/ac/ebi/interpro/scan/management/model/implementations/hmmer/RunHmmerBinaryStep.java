@@ -167,8 +167,8 @@ public class RunHmmerBinaryStep extends RunBinaryStep {
             command.add(this.getFullPathToHmmScanBinary());
         }
         command.addAll(this.getBinarySwitchesAsList());
-        // output file option
-        if(this.isUsesFileOutputSwitch()){
+        // output file option, unless the output is parsed from STDOUT
+        if(this.isUsesFileOutputSwitch() && !this.isPipedToParseStep()){
             command.add("-o");
             command.add(outputFilePathName);
         }
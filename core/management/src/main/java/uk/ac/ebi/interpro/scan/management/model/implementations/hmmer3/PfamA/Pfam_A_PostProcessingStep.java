@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Required;
 import uk.ac.ebi.interpro.scan.business.postprocessing.pfam_A.PfamHMMER3PostProcessing;
 import uk.ac.ebi.interpro.scan.management.model.Step;
 import uk.ac.ebi.interpro.scan.management.model.StepInstance;
+import uk.ac.ebi.interpro.scan.management.model.implementations.FusedPostProcessing;
 import uk.ac.ebi.interpro.scan.model.SignatureLibrary;
 import uk.ac.ebi.interpro.scan.model.raw.PfamHmmer3RawMatch;
 import uk.ac.ebi.interpro.scan.model.raw.RawProtein;
@@ -13,7 +14,9 @@ import uk.ac.ebi.interpro.scan.persistence.raw.PfamHmmer3RawMatchDAO;
 import uk.ac.ebi.interpro.scan.util.Utilities;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 
@@ -25,7 +28,7 @@ import java.util.Calendar;
  * @version $Id$
  * @since 1.0-SNAPSHOT
  */
-public class Pfam_A_PostProcessingStep extends Step {
+public class Pfam_A_PostProcessingStep extends Step implements FusedPostProcessing<PfamHmmer3RawMatch> {
 
     private static final Logger LOGGER = Logger.getLogger(Pfam_A_PostProcessingStep.class.getName());
 
@@ -39,6 +42,8 @@ public class Pfam_A_PostProcessingStep extends Step {
 
     private FilteredMatchDAO filteredMatchDAO;
 
+    private boolean fusedWithParseStep;
+
     @Required
     public void setSignatureLibrary(SignatureLibrary signatureLibrary) {
         this.signatureLibrary = signatureLibrary;
@@ -76,6 +81,19 @@ public class Pfam_A_PostProcessingStep extends Step {
         this.filteredMatchDAO = filteredMatchDAO;
     }
 
+    @Override
+    public boolean isFusedWithParseStep() {
+        return fusedWithParseStep;
+    }
+
+    /**
+     * @param fusedWithParseStep true if the parse step post-processes and persists the matches,
+     *                           without persisting the raw matches first.
+     */
+    public void setFusedWithParseStep(boolean fusedWithParseStep) {
+        this.fusedWithParseStep = fusedWithParseStep;
+    }
+
     /**
      * This method is called to execute the action that the StepInstance must perform.
      *
@@ -91,6 +109,10 @@ public class Pfam_A_PostProcessingStep extends Step {
             Utilities.verboseLog(10, "doSkipRun - step: "  + this.getId() + " - " +  key);
             return;
         }
+        if (fusedWithParseStep) {
+            Utilities.verboseLog(10, "Pfam_A_PostProcessingStep : matches already post-processed by the parse step - stepinstance:" + stepInstance.toString());
+            return;
+        }
 
         // Retrieve raw results for protein range.
         Map<String, RawProtein<PfamHmmer3RawMatch>> rawMatches = rawMatchDAO.getRawMatchesForProteinIdsInRange(
@@ -115,6 +137,19 @@ public class Pfam_A_PostProcessingStep extends Step {
             );
             Utilities.verboseLog(10, "matches after waitTimeFactor: " + waitTimeFactor + " - " + rawMatches.size());
         }
+        postProcessAndPersist(rawMatches);
+    }
+
+    @Override
+    public void postProcessAndPersist(StepInstance stepInstance, Set<RawProtein<PfamHmmer3RawMatch>> rawProteins) {
+        final Map<String, RawProtein<PfamHmmer3RawMatch>> rawMatches = new HashMap<>(rawProteins.size() * 2);
+        for (RawProtein<PfamHmmer3RawMatch> rawProtein : rawProteins) {
+            rawMatches.put(rawProtein.getProteinIdentifier(), rawProtein);
+        }
+        postProcessAndPersist(rawMatches);
+    }
+
+    private void postProcessAndPersist(Map<String, RawProtein<PfamHmmer3RawMatch>> rawMatches) {
         int matchCount = 0;
         for (final RawProtein rawProtein : rawMatches.values()) {
             matchCount += rawProtein.getMatches().size();
@@ -9,6 +9,9 @@ import uk.ac.ebi.interpro.scan.management.model.StepInstance;
 import uk.ac.ebi.interpro.scan.util.Utilities;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -115,8 +118,25 @@ public abstract class AbstractStepInstanceCreator {
      * @param stepToStepInstances a Map<Step, List<StepInstance>> to allow the dependencies to be efficiently set up.
      */
     protected void addDependenciesAndStore(Map<Step, List<StepInstance>> stepToStepInstances) {
-        // Add the dependencies to the StepInstances.
+        addDependenciesAndStore(stepToStepInstances, Collections.<StepInstance>emptyList());
+    }
+
+    /**
+     * Takes a list of newly created StepInstance objects in a Map<Step, List<StepInstance>>
+     * and sets up the dependencies between them.  Then stores these StepInstance objects, together with
+     * the otherStepInstances (whose dependencies have already been set up), to the database in one go.
+     * <p/>
+     * The StepInstances of each Step are indexed by protein range, so the dependencies are found
+     * in O(n log n) rather than by comparing every StepInstance with every StepInstance it may depend upon.
+     *
+     * @param stepToStepInstances a Map<Step, List<StepInstance>> to allow the dependencies to be efficiently set up.
+     * @param otherStepInstances  StepInstance objects to store as well, e.g. the completion StepInstances.
+     */
+    protected void addDependenciesAndStore(Map<Step, List<StepInstance>> stepToStepInstances, Collection<StepInstance> otherStepInstances) {
+        final Map<Step, ProteinRangeIndex> stepToProteinRangeIndex = new HashMap<Step, ProteinRangeIndex>();
+        final List<StepInstance> stepInstancesToStore = new ArrayList<StepInstance>();
 
+        // Add the dependencies to the StepInstances.
         for (Step step : stepToStepInstances.keySet()) {
             for (StepInstance stepInstance : stepToStepInstances.get(step)) {
                 final List<Step> dependsUpon = stepInstance.getStep(jobs).getDependsUpon();
@@ -124,20 +144,25 @@ public abstract class AbstractStepInstanceCreator {
                     for (Step stepRequired : dependsUpon) {
                         List<StepInstance> candidateStepInstances = stepToStepInstances.get(stepRequired);
                         if (candidateStepInstances != null) {
-                            for (StepInstance candidate : candidateStepInstances) {
-                                if (stepInstance.proteinBoundsOverlap(candidate)) {
-                                    stepInstance.addDependentStepInstance(candidate);
-                                }
+                            ProteinRangeIndex index = stepToProteinRangeIndex.get(stepRequired);
+                            if (index == null) {
+                                index = new ProteinRangeIndex(candidateStepInstances);
+                                stepToProteinRangeIndex.put(stepRequired, index);
+                            }
+                            for (StepInstance candidate : index.findOverlapping(stepInstance)) {
+                                stepInstance.addDependentStepInstance(candidate);
                             }
                         }
                     }
                 }
             }
-            // Persist the StepInstances that now have their dependencies added.
+            stepInstancesToStore.addAll(stepToStepInstances.get(step));
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Persisting " + stepToStepInstances.get(step).size() + " StepInstances for Step " + step.getId());
             }
         }
-        stepInstanceDAO.insert(stepToStepInstances);
+        stepInstancesToStore.addAll(otherStepInstances);
+        // Persist the StepInstances that now have their dependencies added.
+        stepInstanceDAO.insert(stepInstancesToStore);
     }
 }
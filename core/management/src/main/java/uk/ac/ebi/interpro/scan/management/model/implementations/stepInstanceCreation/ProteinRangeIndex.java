@@ -0,0 +1,87 @@
+package uk.ac.ebi.interpro.scan.management.model.implementations.stepInstanceCreation;
+
+import uk.ac.ebi.interpro.scan.management.model.StepInstance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Index of the StepInstances of a Step by protein range, to find the StepInstances whose protein bounds
+ * overlap a given StepInstance in O(log n + k) rather than comparing with all of them.
+ * <p/>
+ * The StepInstances are sorted by bottom protein, together with the running maximum of their top proteins,
+ * so the first possible overlap is found with a binary search. For the usual slices of a protein range,
+ * which don't overlap each other, only the overlapping StepInstances are then visited.
+ * StepInstances without protein bounds never overlap, so are not indexed.
+ */
+class ProteinRangeIndex {
+
+    private final List<StepInstance> stepInstances = new ArrayList<StepInstance>();
+
+    private final long[] bottoms;
+
+    /**
+     * maxTops[i] is the highest top protein of the StepInstances 0 to i.
+     */
+    private final long[] maxTops;
+
+    ProteinRangeIndex(List<StepInstance> candidates) {
+        for (StepInstance candidate : candidates) {
+            if (candidate.hasProteinBounds()) {
+                stepInstances.add(candidate);
+            }
+        }
+        // Stable sort, so the overlapping StepInstances are returned in their original order for equal bottoms.
+        Collections.sort(stepInstances, new Comparator<StepInstance>() {
+            @Override
+            public int compare(StepInstance o1, StepInstance o2) {
+                return o1.getBottomProtein().compareTo(o2.getBottomProtein());
+            }
+        });
+        final int size = stepInstances.size();
+        bottoms = new long[size];
+        maxTops = new long[size];
+        long maxTop = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            final StepInstance stepInstance = stepInstances.get(i);
+            bottoms[i] = stepInstance.getBottomProtein();
+            maxTop = Math.max(maxTop, stepInstance.getTopProtein());
+            maxTops[i] = maxTop;
+        }
+    }
+
+    /**
+     * @param stepInstance to find the overlapping StepInstances of.
+     * @return the indexed StepInstances for which {@link StepInstance#proteinBoundsOverlap(StepInstance)} is true,
+     *         in bottom protein order.
+     */
+    List<StepInstance> findOverlapping(StepInstance stepInstance) {
+        if (!stepInstance.hasProteinBounds() || stepInstances.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final long bottom = stepInstance.getBottomProtein();
+        final long top = stepInstance.getTopProtein();
+        // Before the first index with maxTops >= bottom, all the StepInstances end before this one starts.
+        int low = 0;
+        int high = maxTops.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (maxTops[middle] < bottom) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        final List<StepInstance> overlapping = new ArrayList<StepInstance>();
+        // From the first index with bottoms > top, all the StepInstances start after this one ends.
+        for (int i = low; i < bottoms.length && bottoms[i] <= top; i++) {
+            final StepInstance candidate = stepInstances.get(i);
+            if (candidate.getTopProtein() >= bottom) {
+                overlapping.add(candidate);
+            }
+        }
+        return overlapping;
+    }
+}
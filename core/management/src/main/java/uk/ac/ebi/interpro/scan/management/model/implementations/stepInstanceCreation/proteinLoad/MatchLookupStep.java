@@ -53,6 +53,8 @@ public class MatchLookupStep extends Step implements StepInstanceCreatingStep {
 
     private int proteinPrecalcLookupBatchSize = 100;
 
+    private int lookupConcurrency = 1;
+
     final private ConcurrentHashSet<Protein> proteinsAwaitingPrecalcLookup = new ConcurrentHashSet<>();
 
     final private ConcurrentHashSet<Protein> proteinsAwaitingPersistence = new ConcurrentHashSet<>();
@@ -98,6 +100,14 @@ public class MatchLookupStep extends Step implements StepInstanceCreatingStep {
         this.proteinPrecalcLookupBatchSize = proteinPrecalcLookupBatchSize;
     }
 
+    /**
+     * @param lookupConcurrency the number of batches of proteins looked up concurrently
+     *                          from the lookup service, while the previous batches are persisted.
+     */
+    public void setLookupConcurrency(int lookupConcurrency) {
+        this.lookupConcurrency = lookupConcurrency;
+    }
+
     public void setInterproscanVersion(String interproscanVersion) {
         this.interproscanVersion = interproscanVersion;
     }
@@ -205,19 +215,14 @@ public class MatchLookupStep extends Step implements StepInstanceCreatingStep {
                             proteinRanges, proteinDAO, lookupStoreToI5ModelDAO, preCalcMatchClient);
             precalculatedProteinLookup.setAnalysisJobMap(analysisJobMap);
             precalculatedProteinLookup.setInterproscanVersion(interproscanVersion);
+            precalculatedProteinLookup.setProteinPrecalcLookupBatchSize(proteinPrecalcLookupBatchSize);
+            precalculatedProteinLookup.setLookupConcurrency(lookupConcurrency);
             //TODO the following to be treated as comment
             //precalculatedProteinLookup.setProteinsWithoutLookupHit(proteinsWithoutLookupHit);
 
-            Thread lookupThread = new Thread(precalculatedProteinLookup);
-
-            Utilities.verboseLog(10, "Starting Thread... precalculatedProteinLookup - " + precalculatedProteinLookup.hashCode());
-
-            try {
-                lookupThread.start();
-                lookupThread.join();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+            // The lookup runs its own pool of lookup threads, so is run on this thread.
+            Utilities.verboseLog(10, "Starting precalculatedProteinLookup - " + precalculatedProteinLookup.hashCode());
+            precalculatedProteinLookup.run();
         }
         /*
         if(useMatchLookupService){
@@ -263,13 +268,7 @@ public class MatchLookupStep extends Step implements StepInstanceCreatingStep {
         Utilities.verboseLog(10, "2. Precalculated Proteins "  + proteinRange + "  size: " + precalculatedProteins.size());
         Utilities.verboseLog(10, "2. Local Precalculated Proteins Test "  + proteinRange + "  size: " + localPrecalculatedProteinsTest.size());
          */
-        try {
-            List<Protein> proteinsNotInLookup = proteinDAO.getProteinsNotInLookup();
-            int proteinsNotInLookupCount = proteinsNotInLookup.size();
-            Utilities.verboseLog(10, "1. ProteinsNotInLookupCount :  "  + proteinsNotInLookupCount);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        Utilities.verboseLog(10, "1. ProteinsNotInLookupCount :  "  + proteinDAO.countProteinsNotInLookup(bottomProtein, topProtein));
 
 
 
@@ -257,15 +257,14 @@ public class StepCreationSequenceLoadListener
 
             Utilities.verboseLog(20, "initialSetupStepInstances Steps: " + initialSetupStepInstances.size());
 
-            if (!stepToStepInstances.isEmpty()) {
-                addDependenciesAndStore(stepToStepInstances);
-            }
-
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Completion Steps:" + completionStepInstances.size());
             }
 
             if (initialSetupSteps) {
+                if (!stepToStepInstances.isEmpty()) {
+                    addDependenciesAndStore(stepToStepInstances);
+                }
                 stepInstanceDAO.flush();
                 return;
             }
@@ -372,7 +371,6 @@ public class StepCreationSequenceLoadListener
                 }
                 LOGGER.debug("1. stepToStepInstances.keySet() size:" + stepToStepInstances.keySet().size());
                 Utilities.verboseLog("1. stepToStepInstances.keySet() size:" + stepToStepInstances.keySet().size());
-                addDependenciesAndStore(stepToStepInstances);
             }
             /* old way
             if (bottomNewSequenceId != null && topNewSequenceId != null) {
@@ -441,11 +439,13 @@ public class StepCreationSequenceLoadListener
                 addDependenciesAndStore(stepToStepInstances);
             }
             */
+            // The dependencies of all the StepInstances are set up at once, then all are stored in one go,
+            // together with the completion StepInstances.
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Storing Completion StepInstances");
+                LOGGER.debug("Storing StepInstances, including the Completion StepInstances");
             }
-            Utilities.verboseLog("Storing Completion StepInstances");
-            stepInstanceDAO.insert(completionStepInstances);
+            Utilities.verboseLog("Storing StepInstances, including the Completion StepInstances");
+            addDependenciesAndStore(stepToStepInstances, completionStepInstances);
             stepInstanceDAO.flush();
         } catch (Exception e) {
             LOGGER.error("Exception thrown in createStepInstances() method: ", e);
@@ -0,0 +1,81 @@
+package uk.ac.ebi.interpro.scan.management.model.implementations.writer;
+
+import uk.ac.ebi.interpro.scan.io.match.writer.ProteinMatchesJSONResultWriter;
+import uk.ac.ebi.interpro.scan.model.Protein;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes all the proteins to the JSON file, or to a fragment of it (without the header and footer).
+ */
+public class JSONProteinMatchesOutput implements ProteinFanOutWriter.ProteinOutput {
+
+    private final ProteinMatchesJSONResultWriter writer;
+
+    private final String interProScanVersion;
+
+    private final boolean fragment;
+
+    private int count = 0;
+
+    public JSONProteinMatchesOutput(ProteinMatchesJSONResultWriter writer, String interProScanVersion, boolean fragment) {
+        this.writer = writer;
+        this.interProScanVersion = interProScanVersion;
+        this.fragment = fragment;
+    }
+
+    public void start() throws IOException {
+        if (!fragment) {
+            writer.header(interProScanVersion);
+        }
+    }
+
+    public void write(Protein protein) throws IOException {
+        if (count > 0) {
+            writer.write(","); // More proteins/nucleotide sequences to follow
+        }
+        writer.write(protein);
+        count++;
+    }
+
+    public void finish() throws IOException {
+        try {
+            if (!fragment) {
+                writer.footer();
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * The JSON output written in shards: each shard holds its proteins alone, and the header
+     * and footer are written once, around them, when the shards are assembled.
+     */
+    public static class Sharded implements ShardedProteinWriter.ShardedOutput {
+
+        private final String interProScanVersion;
+
+        private final boolean isSlimOutput;
+
+        public Sharded(String interProScanVersion, boolean isSlimOutput) {
+            this.interProScanVersion = interProScanVersion;
+            this.isSlimOutput = isSlimOutput;
+        }
+
+        public ProteinFanOutWriter.ProteinOutput createShardOutput(Path shardPath) throws IOException {
+            return new JSONProteinMatchesOutput(new ProteinMatchesJSONResultWriter(shardPath, isSlimOutput), interProScanVersion, true);
+        }
+
+        public void assemble(OutputFragments fragments) throws IOException {
+            try (ProteinMatchesJSONResultWriter headWriter = new ProteinMatchesJSONResultWriter(fragments.getHeadPath(), isSlimOutput)) {
+                headWriter.header(interProScanVersion);
+            }
+            try (ProteinMatchesJSONResultWriter tailWriter = new ProteinMatchesJSONResultWriter(fragments.getTailPath(), isSlimOutput)) {
+                tailWriter.footer();
+            }
+            fragments.assemble(","); // The proteins of the next shard follow
+        }
+    }
+}
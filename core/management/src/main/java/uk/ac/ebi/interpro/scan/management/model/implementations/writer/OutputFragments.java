@@ -0,0 +1,116 @@
+package uk.ac.ebi.interpro.scan.management.model.implementations.writer;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The temporary files an output file is written to in parallel: an optional head (e.g. the XML root element),
+ * the proteins of each shard of the protein range and an optional tail.
+ * <p/>
+ * {@link #assemble(String)} concatenates them, in that order, into the output file.
+ */
+public class OutputFragments {
+
+    private static final Logger LOGGER = Logger.getLogger(OutputFragments.class.getName());
+
+    private final Path outputPath;
+
+    private final int shardCount;
+
+    public OutputFragments(Path outputPath, int shardCount) {
+        this.outputPath = outputPath;
+        this.shardCount = shardCount;
+    }
+
+    public Path getOutputPath() {
+        return outputPath;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public Path getHeadPath() {
+        return Paths.get(outputPath.toString() + ".head");
+    }
+
+    public Path getShardPath(int shard) {
+        return Paths.get(outputPath.toString() + ".shard" + shard);
+    }
+
+    public Path getTailPath() {
+        return Paths.get(outputPath.toString() + ".tail");
+    }
+
+    /**
+     * Concatenates the head, the shards and the tail into the output file, then deletes them.
+     * The files are copied with {@link FileChannel#transferTo}, so the content isn't copied through the JVM.
+     *
+     * @param separator written between two non-empty shards (e.g. "," between the proteins of a JSON array), may be empty
+     */
+    public void assemble(String separator) throws IOException {
+        final ByteBuffer separatorBytes = ByteBuffer.wrap(separator.getBytes(Charset.defaultCharset()));
+        try (FileChannel out = FileChannel.open(outputPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            transfer(getHeadPath(), out);
+            boolean previousShard = false;
+            for (int shard = 0; shard < shardCount; shard++) {
+                final Path shardPath = getShardPath(shard);
+                if (!Files.exists(shardPath) || Files.size(shardPath) == 0) {
+                    continue;
+                }
+                if (previousShard && separatorBytes.capacity() > 0) {
+                    separatorBytes.rewind();
+                    while (separatorBytes.hasRemaining()) {
+                        out.write(separatorBytes);
+                    }
+                }
+                transfer(shardPath, out);
+                previousShard = true;
+            }
+            transfer(getTailPath(), out);
+        } finally {
+            delete();
+        }
+    }
+
+    /**
+     * Deletes the fragments, e.g. after a failure.
+     */
+    public void delete() {
+        deleteFragment(getHeadPath());
+        for (int shard = 0; shard < shardCount; shard++) {
+            deleteFragment(getShardPath(shard));
+        }
+        deleteFragment(getTailPath());
+    }
+
+    private void transfer(Path fragmentPath, FileChannel out) throws IOException {
+        if (!Files.exists(fragmentPath)) {
+            return;
+        }
+        try (FileChannel in = FileChannel.open(fragmentPath, StandardOpenOption.READ)) {
+            final long size = in.size();
+            long position = 0;
+            // transferTo may transfer fewer bytes than requested
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+
+    private void deleteFragment(Path fragmentPath) {
+        try {
+            Files.deleteIfExists(fragmentPath);
+        } catch (IOException e) {
+            LOGGER.warn("Couldn't delete the output fragment " + fragmentPath);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package uk.ac.ebi.interpro.scan.management.model.implementations.writer;
+
+import org.apache.log4j.Logger;
+import uk.ac.ebi.interpro.scan.model.Protein;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes each protein to several outputs (e.g. TSV, XML and JSON), so the proteins only have to be read
+ * from the KV store once whatever the number of output formats.
+ * <p/>
+ * Each output runs on its own thread and is fed through a bounded queue, so the time taken is that of the
+ * slowest output rather than the sum of all of them, while at most queueSize proteins are held in memory
+ * per output. The proteins are shared between the outputs, which must therefore not modify them.
+ * <p/>
+ * Usage: {@link #add(String, ProteinOutput)} the outputs, {@link #write(Protein)} the proteins, then
+ * {@link #close()} - which waits for all the outputs to finish.
+ */
+public class ProteinFanOutWriter implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(ProteinFanOutWriter.class.getName());
+
+    /**
+     * Marks the end of the proteins in the queues.
+     */
+    private static final Protein END_OF_PROTEINS = new Protein("END");
+
+    /**
+     * An output written by the fan-out writer. All the methods are called on the thread of the output.
+     */
+    public interface ProteinOutput {
+
+        /**
+         * Called once, before the first protein (e.g. to write the header).
+         */
+        void start() throws IOException;
+
+        void write(Protein protein) throws IOException;
+
+        /**
+         * Called once, after the last protein (e.g. to write the footer and close the file).
+         */
+        void finish() throws IOException;
+    }
+
+    private final int queueSize;
+
+    private final List<OutputThread> outputThreads = new ArrayList<>();
+
+    private boolean closed = false;
+
+    public ProteinFanOutWriter(int queueSize) {
+        this.queueSize = Math.max(1, queueSize);
+    }
+
+    /**
+     * @param name   name of the output (e.g. the path of the output file), used in the thread name and errors
+     * @param output the output, started straight away
+     */
+    public void add(String name, ProteinOutput output) {
+        add(name, output, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * As {@link #add(String, ProteinOutput)}, for an output of the proteins with IDs from bottom to top
+     * (inclusive) alone, e.g. a shard of a {@link ShardedProteinWriter}.  The other proteins are not queued.
+     */
+    public void add(String name, ProteinOutput output, long bottomProteinId, long topProteinId) {
+        if (closed) {
+            throw new IllegalStateException("Can't add the output " + name + " to a closed fan-out writer");
+        }
+        OutputThread outputThread = new OutputThread(name, output, queueSize, bottomProteinId, topProteinId);
+        outputThreads.add(outputThread);
+        outputThread.start();
+    }
+
+    public int getOutputCount() {
+        return outputThreads.size();
+    }
+
+    /**
+     * Hands the protein to every output, waiting while the queue of an output is full.
+     *
+     * @throws IOException if an output has failed, in which case there is no point reading more proteins
+     */
+    public void write(Protein protein) throws IOException {
+        for (OutputThread outputThread : outputThreads) {
+            if (outputThread.accepts(protein)) {
+                outputThread.checkFailure();
+                outputThread.put(protein);
+            }
+        }
+    }
+
+    /**
+     * Ends the proteins and waits for all the outputs to finish.
+     *
+     * @throws IOException the failure of the first output that failed, if any
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        InterruptedIOException interrupted = null;
+        for (OutputThread outputThread : outputThreads) {
+            try {
+                outputThread.put(END_OF_PROTEINS);
+                outputThread.join();
+            } catch (InterruptedIOException e) {
+                interrupted = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                interrupted = new InterruptedIOException("Interrupted while waiting for the output " + outputThread.getName());
+            }
+        }
+        if (interrupted != null) {
+            throw interrupted;
+        }
+        for (OutputThread outputThread : outputThreads) {
+            outputThread.checkFailure();
+        }
+    }
+
+    private static final class OutputThread extends Thread {
+
+        private final String outputName;
+
+        private final ProteinOutput output;
+
+        private final BlockingQueue<Protein> queue;
+
+        private final long bottomProteinId;
+
+        private final long topProteinId;
+
+        private volatile Throwable failure;
+
+        private boolean ended = false;
+
+        OutputThread(String outputName, ProteinOutput output, int queueSize, long bottomProteinId, long topProteinId) {
+            super("write-output-" + outputName);
+            setDaemon(true);
+            this.outputName = outputName;
+            this.output = output;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+            this.bottomProteinId = bottomProteinId;
+            this.topProteinId = topProteinId;
+        }
+
+        boolean accepts(Protein protein) {
+            final Long proteinId = protein.getId();
+            if (proteinId == null) {
+                return bottomProteinId == Long.MIN_VALUE && topProteinId == Long.MAX_VALUE;
+            }
+            return proteinId >= bottomProteinId && proteinId <= topProteinId;
+        }
+
+        void put(Protein protein) throws InterruptedIOException {
+            try {
+                queue.put(protein);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing to the output " + outputName);
+            }
+        }
+
+        void checkFailure() throws IOException {
+            if (failure != null) {
+                throw new IOException("Failed to write the output " + outputName + ": " + failure.getMessage(), failure);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                output.start();
+                Protein protein;
+                while ((protein = queue.take()) != END_OF_PROTEINS) {
+                    output.write(protein);
+                }
+                ended = true;
+                output.finish();
+            } catch (Throwable t) {
+                LOGGER.error("Failed to write the output " + outputName, t);
+                failure = t;
+                drain();
+            }
+        }
+
+        /**
+         * Keeps taking the proteins of a failed output, so the writer is never blocked on its queue.
+         */
+        private void drain() {
+            try {
+                while (!ended && queue.take() != END_OF_PROTEINS) {
+                    // discard
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
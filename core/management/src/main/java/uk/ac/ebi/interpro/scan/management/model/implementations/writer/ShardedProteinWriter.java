@@ -0,0 +1,256 @@
+package uk.ac.ebi.interpro.scan.management.model.implementations.writer;
+
+import uk.ac.ebi.interpro.scan.model.Protein;
+import uk.ac.ebi.interpro.scan.persistence.ProteinDAO;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDBValueCursor;
+import uk.ac.ebi.interpro.scan.util.Utilities;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes output files in parallel by splitting the protein range into shards.
+ * <p/>
+ * Each shard is written to a fragment of each output file (see {@link OutputFragments}) by its own thread, then the
+ * fragments of each output file are concatenated in protein ID order.  The shards are read from the KV store by their
+ * own threads too, unless the proteins are also written to the outputs of a {@link ProteinFanOutWriter}, in which
+ * case they are read once for all the outputs.
+ * Only suitable for the formats in which the proteins are written independently of each other (e.g. TSV, XML, JSON).
+ */
+public class ShardedProteinWriter {
+
+    /**
+     * An output file written in shards.
+     */
+    public interface ShardedOutput {
+
+        /**
+         * @param shardPath the fragment the proteins of the shard are written to
+         * @return the output of the proteins of one shard, called by the thread of the shard
+         */
+        ProteinFanOutWriter.ProteinOutput createShardOutput(Path shardPath) throws IOException;
+
+        /**
+         * Writes the head and tail fragments if any, then assembles the output file, see {@link OutputFragments#assemble(String)}.
+         */
+        void assemble(OutputFragments fragments) throws IOException;
+    }
+
+    private final int shardCount;
+
+    private final Map<Path, ShardedOutput> outputs = new LinkedHashMap<>();
+
+    public ShardedProteinWriter(int shardCount) {
+        this.shardCount = Math.max(1, shardCount);
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public void add(Path outputPath, ShardedOutput output) {
+        outputs.put(outputPath, output);
+    }
+
+    public int getOutputCount() {
+        return outputs.size();
+    }
+
+    /**
+     * Writes the proteins with IDs from bottom to top (inclusive) to all the outputs.
+     */
+    public void write(ProteinDAO proteinDAO, long bottomProteinId, long topProteinId) throws IOException {
+        if (outputs.isEmpty() || topProteinId < bottomProteinId) {
+            return;
+        }
+        final int shards = getShards(bottomProteinId, topProteinId);
+        final List<OutputFragments> fragments = createFragments(shards);
+        Utilities.verboseLog(10, " WriteOutputStep - writing " + (topProteinId - bottomProteinId + 1) + " proteins to " + outputs.size() + " outputs in " + shards + " shards");
+
+        final ExecutorService executor = createExecutor(shards);
+        try {
+            final List<Future<?>> shardWrites = new ArrayList<>();
+            for (int shard = 0; shard < shards; shard++) {
+                final int shardIndex = shard;
+                final long shardBottom = getShardBottom(bottomProteinId, topProteinId, shards, shard);
+                final long shardTop = getShardTop(bottomProteinId, topProteinId, shards, shard);
+                shardWrites.add(executor.submit(() -> {
+                    writeShard(proteinDAO, shardIndex, shardBottom, shardTop, fragments);
+                    return null;
+                }));
+            }
+            waitFor(shardWrites);
+            assemble(executor, fragments);
+        } finally {
+            executor.shutdownNow();
+            for (OutputFragments outputFragments : fragments) {
+                outputFragments.delete();
+            }
+        }
+    }
+
+    /**
+     * Writes the proteins with IDs from bottom to top (inclusive) to all the outputs and to the outputs of the
+     * fan-out writer, reading them from the KV store once: the proteins are read in ID order by the calling
+     * thread, and each shard of each output is fed the proteins of its range by the fan-out writer, on its own
+     * thread.  The fan-out writer is closed before the shards are assembled.
+     */
+    public void write(ProteinDAO proteinDAO, long bottomProteinId, long topProteinId, ProteinFanOutWriter fanOut) throws IOException {
+        if (fanOut.getOutputCount() == 0) {
+            write(proteinDAO, bottomProteinId, topProteinId);
+            return;
+        }
+        final int shards = outputs.isEmpty() ? 0 : getShards(bottomProteinId, topProteinId);
+        final List<OutputFragments> fragments = createFragments(shards);
+        ExecutorService executor = null;
+        try {
+            for (int shard = 0; shard < shards; shard++) {
+                final long shardBottom = getShardBottom(bottomProteinId, topProteinId, shards, shard);
+                final long shardTop = getShardTop(bottomProteinId, topProteinId, shards, shard);
+                int i = 0;
+                for (ShardedOutput output : outputs.values()) {
+                    final Path shardPath = fragments.get(i++).getShardPath(shard);
+                    fanOut.add(shardPath.toString(), output.createShardOutput(shardPath), shardBottom, shardTop);
+                }
+            }
+            Utilities.verboseLog(10, " WriteOutputStep - There are " + topProteinId + " proteins, writing them to " + fanOut.getOutputCount() + " outputs.");
+            int count = 0;
+            try (KVDBValueCursor<Protein> proteins = proteinDAO.getProteinCursor(bottomProteinId, topProteinId)) {
+                for (Protein protein : proteins) {
+                    fanOut.write(protein);
+                    count++;
+                    if (count % 40000 == 0) {
+                        Utilities.verboseLog(10, " WriteOutout - read " + count + " proteins");
+                    }
+                }
+            }
+            fanOut.close();
+            if (shards > 0) {
+                executor = createExecutor(outputs.size());
+                assemble(executor, fragments);
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            for (OutputFragments outputFragments : fragments) {
+                outputFragments.delete();
+            }
+        }
+    }
+
+    private int getShards(long bottomProteinId, long topProteinId) {
+        return (int) Math.min(shardCount, Math.max(1, topProteinId - bottomProteinId + 1));
+    }
+
+    private static long getShardSize(long bottomProteinId, long topProteinId, int shards) {
+        final long proteinCount = Math.max(1, topProteinId - bottomProteinId + 1);
+        return (proteinCount + shards - 1) / shards;
+    }
+
+    private static long getShardBottom(long bottomProteinId, long topProteinId, int shards, int shard) {
+        return bottomProteinId + shard * getShardSize(bottomProteinId, topProteinId, shards);
+    }
+
+    private static long getShardTop(long bottomProteinId, long topProteinId, int shards, int shard) {
+        return Math.min(topProteinId, getShardBottom(bottomProteinId, topProteinId, shards, shard) + getShardSize(bottomProteinId, topProteinId, shards) - 1);
+    }
+
+    private List<OutputFragments> createFragments(int shards) {
+        final List<OutputFragments> fragments = new ArrayList<>();
+        if (shards > 0) {
+            for (Path outputPath : outputs.keySet()) {
+                fragments.add(new OutputFragments(outputPath, shards));
+            }
+        }
+        return fragments;
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "write-output-shard");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The output files are independent of each other, so they are assembled in parallel.
+     */
+    private void assemble(ExecutorService executor, List<OutputFragments> fragments) throws IOException {
+        final List<Future<?>> assemblies = new ArrayList<>();
+        int i = 0;
+        for (ShardedOutput output : outputs.values()) {
+            final OutputFragments outputFragments = fragments.get(i++);
+            assemblies.add(executor.submit(() -> {
+                output.assemble(outputFragments);
+                return null;
+            }));
+        }
+        waitFor(assemblies);
+    }
+
+    private void writeShard(ProteinDAO proteinDAO, int shard, long shardBottom, long shardTop, List<OutputFragments> fragments) throws IOException {
+        final List<ProteinFanOutWriter.ProteinOutput> shardOutputs = new ArrayList<>();
+        IOException failure = null;
+        try {
+            int i = 0;
+            for (ShardedOutput output : outputs.values()) {
+                ProteinFanOutWriter.ProteinOutput shardOutput = output.createShardOutput(fragments.get(i++).getShardPath(shard));
+                shardOutputs.add(shardOutput);
+                shardOutput.start();
+            }
+            try (KVDBValueCursor<Protein> proteins = proteinDAO.getProteinCursor(shardBottom, shardTop)) {
+                for (Protein protein : proteins) {
+                    for (ProteinFanOutWriter.ProteinOutput shardOutput : shardOutputs) {
+                        shardOutput.write(protein);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+        // Always finish the outputs, so their files are closed
+        for (ProteinFanOutWriter.ProteinOutput shardOutput : shardOutputs) {
+            try {
+                shardOutput.finish();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void waitFor(List<Future<?>> futures) throws IOException {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing the output");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to write the output", cause);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package uk.ac.ebi.interpro.scan.management.model.implementations.writer;
+
+import uk.ac.ebi.interpro.scan.io.match.writer.ProteinMatchesXMLJAXBFragmentsResultWriter;
+import uk.ac.ebi.interpro.scan.model.NucleotideSequence;
+import uk.ac.ebi.interpro.scan.model.OpenReadingFrame;
+import uk.ac.ebi.interpro.scan.model.Protein;
+import uk.ac.ebi.interpro.scan.util.Utilities;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes all the proteins (or only those with matches for the slim output) to the XML file,
+ * or to a fragment of it (without the root element).
+ */
+public class XMLProteinMatchesOutput implements ProteinFanOutWriter.ProteinOutput {
+
+    public static final String PROTEIN_MATCHES_ELEMENT = "protein-matches";
+
+    private final Path outputPath;
+
+    private final String interProScanVersion;
+
+    private final String sequenceType;
+
+    private final boolean isSlimOutput;
+
+    private final boolean fragment;
+
+    private final Set<NucleotideSequence> nucleotideSequences = new HashSet<>();
+
+    private ProteinMatchesXMLJAXBFragmentsResultWriter writer;
+
+    public XMLProteinMatchesOutput(Path outputPath, String interProScanVersion, String sequenceType, boolean isSlimOutput, boolean fragment) {
+        this.outputPath = outputPath;
+        this.interProScanVersion = interProScanVersion;
+        this.sequenceType = sequenceType;
+        this.isSlimOutput = isSlimOutput;
+        this.fragment = fragment;
+    }
+
+    public void start() throws IOException {
+        try {
+            writer = new ProteinMatchesXMLJAXBFragmentsResultWriter(outputPath, Protein.class, isSlimOutput, fragment);
+            if (!fragment) {
+                writer.header(interProScanVersion, PROTEIN_MATCHES_ELEMENT);
+            }
+        } catch (JAXBException | XMLStreamException e) {
+            throw new IOException("Failed to start the XML output " + outputPath, e);
+        }
+    }
+
+    public void write(Protein protein) throws IOException {
+        if (isSlimOutput && protein.getMatches().isEmpty()) {
+            //dont display proteins that dont have matches
+            return;
+        }
+        try {
+            writer.write(protein, sequenceType, isSlimOutput);
+            for (OpenReadingFrame orf : protein.getOpenReadingFrames()) {
+                Utilities.verboseLog(20, "OpenReadingFrame: " +  orf.getId() + " --  " + orf.getStart() + "-" + orf.getEnd());
+                NucleotideSequence seq = orf.getNucleotideSequence();
+                if (seq != null) {
+                    nucleotideSequences.add(seq);
+                    writer.write(seq, sequenceType, isSlimOutput);
+                }
+            }
+        } catch (JAXBException e) {
+            throw new IOException("Failed to write protein " + protein.getId() + " to the XML output " + outputPath, e);
+        }
+    }
+
+    public void finish() throws IOException {
+        Utilities.verboseLog("WriteOutPut nucleotideSequences size: " +  nucleotideSequences.size());
+        try {
+            if (fragment) {
+                writer.closeFragment();
+            } else {
+                writer.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to close the XML output " + outputPath, e);
+        }
+    }
+
+    /**
+     * The XML output written in shards: each shard holds the (indented) protein elements of its proteins alone,
+     * and the root element is written once, around them, when the shards are assembled.
+     */
+    public static class Sharded implements ShardedProteinWriter.ShardedOutput {
+
+        private final String interProScanVersion;
+
+        private final String sequenceType;
+
+        private final boolean isSlimOutput;
+
+        public Sharded(String interProScanVersion, String sequenceType, boolean isSlimOutput) {
+            this.interProScanVersion = interProScanVersion;
+            this.sequenceType = sequenceType;
+            this.isSlimOutput = isSlimOutput;
+        }
+
+        public ProteinFanOutWriter.ProteinOutput createShardOutput(Path shardPath) {
+            return new XMLProteinMatchesOutput(shardPath, interProScanVersion, sequenceType, isSlimOutput, true);
+        }
+
+        public void assemble(OutputFragments fragments) throws IOException {
+            try {
+                ProteinMatchesXMLJAXBFragmentsResultWriter headWriter = new ProteinMatchesXMLJAXBFragmentsResultWriter(fragments.getHeadPath(), Protein.class, isSlimOutput);
+                headWriter.header(interProScanVersion, PROTEIN_MATCHES_ELEMENT);
+                headWriter.closeFragment();
+            } catch (JAXBException | XMLStreamException e) {
+                throw new IOException("Failed to write the XML header " + fragments.getHeadPath(), e);
+            }
+            try (BufferedWriter tailWriter = Files.newBufferedWriter(fragments.getTailPath(), Charset.defaultCharset())) {
+                tailWriter.write("</" + PROTEIN_MATCHES_ELEMENT + ">");
+                tailWriter.newLine();
+            }
+            // The shards indent their own elements, see ProteinMatchesXMLJAXBFragmentsResultWriter.closeFragment()
+            fragments.assemble("");
+        }
+    }
+}
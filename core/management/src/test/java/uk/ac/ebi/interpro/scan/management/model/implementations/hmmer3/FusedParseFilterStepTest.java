@@ -0,0 +1,204 @@
+package uk.ac.ebi.interpro.scan.management.model.implementations.hmmer3;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ebi.interpro.scan.business.filter.AllPassRawMatchFilter;
+import uk.ac.ebi.interpro.scan.io.match.MatchParser;
+import uk.ac.ebi.interpro.scan.management.model.Job;
+import uk.ac.ebi.interpro.scan.management.model.StepInstance;
+import uk.ac.ebi.interpro.scan.management.model.implementations.RunBinaryStep;
+import uk.ac.ebi.interpro.scan.model.Hmmer3Match;
+import uk.ac.ebi.interpro.scan.model.SignatureLibrary;
+import uk.ac.ebi.interpro.scan.model.SignatureLibraryRelease;
+import uk.ac.ebi.interpro.scan.model.raw.RawProtein;
+import uk.ac.ebi.interpro.scan.model.raw.TigrFamHmmer3RawMatch;
+import uk.ac.ebi.interpro.scan.persistence.FilteredMatchDAO;
+import uk.ac.ebi.interpro.scan.persistence.raw.RawMatchDAO;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that {@link ParseTigrFamHMMER3OutputStep} filters and persists the parsed matches itself
+ * when {@link TigrFamHmmer3FilterStep} is fused with it, and that the step running the binary
+ * parses the output itself when it is piped to the parse step.
+ */
+public class FusedParseFilterStepTest {
+
+    private static final String OUTPUT_FILE_TEMPLATE = "tigrfam_[PROTSTART]_[PROTEND].out";
+
+    @TempDir
+    Path tempDir;
+
+    private final List<String> rawMatchDAOCalls = new ArrayList<>();
+
+    private final List<Object> persisted = new ArrayList<>();
+
+    private ParseTigrFamHMMER3OutputStep parseStep;
+
+    private TigrFamHmmer3FilterStep filterStep;
+
+    private StepInstance stepInstance;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        final Job job = new Job();
+        job.setLibraryRelease(new SignatureLibraryRelease(SignatureLibrary.TIGRFAM, "15.0"));
+        final RawMatchDAO<TigrFamHmmer3RawMatch> rawMatchDAO = (RawMatchDAO<TigrFamHmmer3RawMatch>) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[]{RawMatchDAO.class}, (proxy, method, args) -> {
+                    rawMatchDAOCalls.add(method.getName());
+                    return method.getName().equals("getProteinsByIdRange") ? Collections.emptySet() : null;
+                });
+        final FilteredMatchDAO<TigrFamHmmer3RawMatch, Hmmer3Match> filteredMatchDAO = (FilteredMatchDAO<TigrFamHmmer3RawMatch, Hmmer3Match>) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[]{FilteredMatchDAO.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("persist")) {
+                        persisted.add(args[0]);
+                    }
+                    return null;
+                });
+
+        filterStep = new TigrFamHmmer3FilterStep();
+        filterStep.setJob(job);
+        filterStep.setSignatureLibrary(SignatureLibrary.TIGRFAM);
+        filterStep.setSignatureLibraryRelease("15.0");
+        filterStep.setFilter(new AllPassRawMatchFilter());
+        filterStep.setRawMatchDAO(rawMatchDAO);
+        filterStep.setFilteredMatchDAO(filteredMatchDAO);
+        filterStep.setFusedWithParseStep(true);
+
+        parseStep = new ParseTigrFamHMMER3OutputStep();
+        parseStep.setJob(job);
+        parseStep.setOutputFileTemplate(OUTPUT_FILE_TEMPLATE);
+        parseStep.setParser(new StubParser());
+        parseStep.setRawMatchDAO(rawMatchDAO);
+        parseStep.setPostProcessingStep(filterStep);
+
+        stepInstance = new StepInstance(parseStep, 1L, 10L, null, null);
+        Files.write(Paths.get(stepInstance.buildFullyQualifiedFilePath(tempDir.toString(), OUTPUT_FILE_TEMPLATE)), "1\n".getBytes());
+    }
+
+    @Test
+    public void testFusedWithoutRawMatches() {
+        parseStep.setPersistRawMatches(false);
+        parseStep.execute(stepInstance, tempDir.toString());
+        assertEquals(1, persisted.size());
+        assertEquals(1, ((Set<?>) persisted.get(0)).size());
+        assertEquals(Collections.emptyList(), rawMatchDAOCalls);
+
+        // Nothing left for the filter step to do
+        filterStep.execute(new StepInstance(filterStep, 1L, 10L, null, null), tempDir.toString());
+        assertEquals(1, persisted.size());
+        assertEquals(Collections.emptyList(), rawMatchDAOCalls);
+    }
+
+    @Test
+    public void testFusedWithRawMatches() {
+        parseStep.execute(stepInstance, tempDir.toString());
+        assertEquals(1, persisted.size());
+        // Persisted for debugging, but not read back
+        assertEquals(Collections.singletonList("insertProteinMatches"), rawMatchDAOCalls);
+    }
+
+    @Test
+    public void testNotFused() {
+        filterStep.setFusedWithParseStep(false);
+        filterStep.execute(new StepInstance(filterStep, 1L, 10L, null, null), tempDir.toString());
+        assertEquals(1, persisted.size());
+        assertEquals(Collections.singletonList("getProteinsByIdRange"), rawMatchDAOCalls);
+    }
+
+    @Test
+    public void testPipedFromBinaryStep() {
+        final RunBinaryStep binaryStep = new RunBinaryStep() {
+            @Override
+            protected List<String> createCommand(StepInstance stepInstance, String temporaryFileDirectory) {
+                return Arrays.asList("seq", "1", "5000");
+            }
+        };
+        binaryStep.setJob(parseStep.getJob());
+        binaryStep.setMaxProteins(10);
+        binaryStep.setOutputFileNameTemplate("tigrfam_piped_[PROTSTART]_[PROTEND].out");
+        binaryStep.setRequiresDatabaseAccess(false);
+        binaryStep.setParseStep(parseStep);
+        parseStep.setPipedFromBinaryStep(true);
+        parseStep.setPersistRawMatches(false);
+        assertTrue(binaryStep.isPipedToParseStep());
+        assertTrue(binaryStep.isRequiresDatabaseAccess());
+
+        final StepInstance binaryStepInstance = new StepInstance(binaryStep, 1L, 10L, null, null);
+        binaryStep.execute(binaryStepInstance, tempDir.toString());
+        assertEquals(1, persisted.size());
+        assertEquals(5000, ((Set<?>) persisted.get(0)).size());
+        assertFalse(Files.exists(Paths.get(binaryStepInstance.buildFullyQualifiedFilePath(tempDir.toString(), binaryStep.getOutputFileNameTemplate()))));
+
+        // Nothing left for the parse step to do
+        parseStep.execute(stepInstance, tempDir.toString());
+        assertEquals(1, persisted.size());
+    }
+
+    @Test
+    public void testNothingPersistedWhenPipedBinaryFails() {
+        final RunBinaryStep binaryStep = new RunBinaryStep() {
+            @Override
+            protected List<String> createCommand(StepInstance stepInstance, String temporaryFileDirectory) {
+                // Some output, then a failure
+                return Arrays.asList("sh", "-c", "seq 1 100; exit 3");
+            }
+        };
+        binaryStep.setJob(parseStep.getJob());
+        binaryStep.setMaxProteins(10);
+        binaryStep.setRequiresDatabaseAccess(false);
+        binaryStep.setParseStep(parseStep);
+        parseStep.setPipedFromBinaryStep(true);
+
+        final IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> binaryStep.execute(new StepInstance(binaryStep, 1L, 10L, null, null), tempDir.toString()));
+        assertTrue(failure.getMessage().contains("exit code: 3"), failure.getMessage());
+        assertEquals(Collections.emptyList(), persisted);
+        assertEquals(Collections.emptyList(), rawMatchDAOCalls);
+    }
+
+    private static final class StubParser implements MatchParser<TigrFamHmmer3RawMatch> {
+
+        @Override
+        public SignatureLibrary getSignatureLibrary() {
+            return SignatureLibrary.TIGRFAM;
+        }
+
+        @Override
+        public String getSignatureLibraryRelease() {
+            return "15.0";
+        }
+
+        @Override
+        public Set<RawProtein<TigrFamHmmer3RawMatch>> parse(InputStream is) throws IOException {
+            // One protein with one match per line
+            final Set<RawProtein<TigrFamHmmer3RawMatch>> rawProteins = new HashSet<>();
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(is));
+            String proteinId;
+            while ((proteinId = reader.readLine()) != null) {
+                final RawProtein<TigrFamHmmer3RawMatch> rawProtein = new RawProtein<>(proteinId);
+                rawProtein.addMatch(new TigrFamHmmer3RawMatch(proteinId, "TIGR00001", SignatureLibrary.TIGRFAM, "15.0",
+                        10, 100, 1e-20, 70.0, 1, 90, "[]", 65.0, 5, 105, 0.9, 0.1, 1e-21, 1e-20, 0.1));
+                rawProteins.add(rawProtein);
+            }
+            return rawProteins;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package uk.ac.ebi.interpro.scan.management.model.implementations.stepInstanceCreation;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ebi.interpro.scan.management.model.Step;
+import uk.ac.ebi.interpro.scan.management.model.StepInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for {@link ProteinRangeIndex}, checked against {@link StepInstance#proteinBoundsOverlap(StepInstance)}.
+ */
+public class ProteinRangeIndexTest {
+
+    private final Step step = new Step() {
+        {
+            setBeanName("stepTest");
+        }
+
+        @Override
+        public void execute(StepInstance stepInstance, String temporaryFileDirectory) {
+        }
+    };
+
+    @Test
+    public void testSliceBoundaries() {
+        // Slices of 10 proteins, as created by AbstractStepInstanceCreator.createStepInstances
+        List<StepInstance> slices = new ArrayList<>();
+        for (long bottom = 1; bottom <= 95; bottom += 10) {
+            slices.add(new StepInstance(step, bottom, Math.min(95, bottom + 9), null, null));
+        }
+        ProteinRangeIndex index = new ProteinRangeIndex(slices);
+
+        assertEquals(Collections.singletonList(slices.get(0)), index.findOverlapping(instance(1, 10)));
+        assertEquals(Arrays.asList(slices.get(0), slices.get(1)), index.findOverlapping(instance(10, 11)));
+        assertEquals(Collections.singletonList(slices.get(9)), index.findOverlapping(instance(95, 200)));
+        assertTrue(index.findOverlapping(instance(96, 200)).isEmpty());
+        assertEquals(slices, index.findOverlapping(instance(1, 95)));
+        assertTrue(index.findOverlapping(new StepInstance(step)).isEmpty(), "No protein bounds, so no overlap");
+    }
+
+    @Test
+    public void testSameAsComparingWithAll() {
+        Random random = new Random(42);
+        List<StepInstance> candidates = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            long bottom = random.nextInt(1000);
+            candidates.add(instance(bottom, bottom + random.nextInt(50)));
+        }
+        candidates.add(new StepInstance(step));
+        ProteinRangeIndex index = new ProteinRangeIndex(candidates);
+
+        for (int i = 0; i < 200; i++) {
+            long bottom = random.nextInt(1100);
+            StepInstance stepInstance = instance(bottom, bottom + random.nextInt(100));
+            List<StepInstance> expected = new ArrayList<>();
+            for (StepInstance candidate : candidates) {
+                if (stepInstance.proteinBoundsOverlap(candidate)) {
+                    expected.add(candidate);
+                }
+            }
+            List<StepInstance> overlapping = index.findOverlapping(stepInstance);
+            assertEquals(expected.size(), overlapping.size());
+            for (StepInstance candidate : expected) {
+                assertTrue(overlapping.stream().anyMatch(found -> found == candidate));
+            }
+        }
+    }
+
+    private StepInstance instance(long bottom, long top) {
+        return new StepInstance(step, bottom, top, null, null);
+    }
+}
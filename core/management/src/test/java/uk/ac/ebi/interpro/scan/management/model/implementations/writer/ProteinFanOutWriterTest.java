@@ -0,0 +1,98 @@
+package uk.ac.ebi.interpro.scan.management.model.implementations.writer;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ebi.interpro.scan.model.Protein;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for {@link ProteinFanOutWriter}.
+ */
+public class ProteinFanOutWriterTest {
+
+    private static final String SEQUENCE = "MGAAASIQTTVNTLSERISSKLEQEANASAQTKCDIEIGNFYIRQNHGCNLTVKNMCSAD";
+
+    @Test
+    public void testEveryOutputGetsEveryProteinInOrder() throws IOException {
+        RecordingOutput first = new RecordingOutput(0);
+        RecordingOutput slow = new RecordingOutput(1);
+        List<Protein> proteins = new ArrayList<>();
+        try (ProteinFanOutWriter fanOut = new ProteinFanOutWriter(2)) {
+            fanOut.add("first", first);
+            fanOut.add("slow", slow);
+            for (int i = 0; i < 50; i++) {
+                Protein protein = new Protein(SEQUENCE);
+                proteins.add(protein);
+                fanOut.write(protein);
+            }
+        }
+        for (RecordingOutput output : new RecordingOutput[]{first, slow}) {
+            assertTrue(output.started);
+            assertTrue(output.finished);
+            assertEquals(proteins.size(), output.proteins.size());
+            for (int i = 0; i < proteins.size(); i++) {
+                assertSame(proteins.get(i), output.proteins.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testFailedOutputIsReported() {
+        RecordingOutput healthy = new RecordingOutput(0);
+        IOException thrown = assertThrows(IOException.class, () -> {
+            try (ProteinFanOutWriter fanOut = new ProteinFanOutWriter(1)) {
+                fanOut.add("healthy", healthy);
+                fanOut.add("failing", new RecordingOutput(0) {
+                    @Override
+                    public void write(Protein protein) throws IOException {
+                        throw new IOException("disk full");
+                    }
+                });
+                for (int i = 0; i < 50; i++) {
+                    fanOut.write(new Protein(SEQUENCE));
+                }
+            }
+        });
+        assertTrue(thrown.getMessage().contains("failing"), thrown.getMessage());
+        // The other outputs are still finished, so their files are closed
+        assertTrue(healthy.finished);
+    }
+
+    private static class RecordingOutput implements ProteinFanOutWriter.ProteinOutput {
+
+        private final long delayMillis;
+
+        private final List<Protein> proteins = new ArrayList<>();
+
+        private volatile boolean started = false;
+
+        private volatile boolean finished = false;
+
+        RecordingOutput(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        public void start() {
+            started = true;
+        }
+
+        public void write(Protein protein) throws IOException {
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            proteins.add(protein);
+        }
+
+        public void finish() {
+            finished = true;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package uk.ac.ebi.interpro.scan.management.model.implementations.writer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.ac.ebi.interpro.scan.model.Protein;
+import uk.ac.ebi.interpro.scan.persistence.ProteinDAOImpl;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDBValueCursor;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.LevelDBStore;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for {@link ShardedProteinWriter}.
+ */
+public class ShardedProteinWriterTest {
+
+    private static final String[] RESIDUES = {"A", "C", "D", "E", "F", "G", "H", "I", "K", "L"};
+
+    @TempDir
+    Path tempDir;
+
+    private LevelDBStore store;
+
+    private ProteinDAOImpl proteinDAO;
+
+    @BeforeEach
+    public void openStore() {
+        store = new LevelDBStore();
+        store.setDbName("shardedWriterTestDB");
+        store.setLevelDBStore(tempDir.resolve("shardedWriterTestDB").toString());
+        proteinDAO = new ProteinDAOImpl();
+        proteinDAO.setDbStore(store);
+    }
+
+    @AfterEach
+    public void closeStore() {
+        store.close();
+    }
+
+    @Test
+    public void testShardsAreAssembledInProteinIdOrder() throws IOException {
+        List<String> expected = storeProteins(1, 23);
+        Path outputPath = tempDir.resolve("output.txt");
+        ShardedProteinWriter shardedWriter = new ShardedProteinWriter(4);
+        shardedWriter.add(outputPath, new SequenceOutput());
+        shardedWriter.write(proteinDAO, 1, 23);
+
+        assertEquals(String.join(",", expected), new String(Files.readAllBytes(outputPath), Charset.defaultCharset()));
+        assertFalse(Files.exists(tempDir.resolve("output.txt.shard0")), "The fragments should have been deleted");
+        assertFalse(Files.exists(tempDir.resolve("output.txt.head")), "The fragments should have been deleted");
+    }
+
+    @Test
+    public void testMoreShardsThanProteins() throws IOException {
+        List<String> expected = storeProteins(5, 6);
+        Path outputPath = tempDir.resolve("output.txt");
+        ShardedProteinWriter shardedWriter = new ShardedProteinWriter(8);
+        shardedWriter.add(outputPath, new SequenceOutput());
+        shardedWriter.write(proteinDAO, 5, 6);
+
+        assertEquals(String.join(",", expected), new String(Files.readAllBytes(outputPath), Charset.defaultCharset()));
+    }
+
+    @Test
+    public void testProteinsReadOnceForShardsAndFanOut() throws IOException {
+        List<String> expected = storeProteins(1, 23);
+        final AtomicInteger cursorCount = new AtomicInteger();
+        ProteinDAOImpl countingProteinDAO = new ProteinDAOImpl() {
+            @Override
+            public KVDBValueCursor<Protein> getProteinCursor(long bottom, long top) {
+                cursorCount.incrementAndGet();
+                return super.getProteinCursor(bottom, top);
+            }
+        };
+        countingProteinDAO.setDbStore(store);
+        Path shardedPath = tempDir.resolve("sharded.txt");
+        Path fanOutPath = tempDir.resolve("fan-out.txt");
+        ShardedProteinWriter shardedWriter = new ShardedProteinWriter(4);
+        shardedWriter.add(shardedPath, new SequenceOutput());
+        try (ProteinFanOutWriter fanOut = new ProteinFanOutWriter(2)) {
+            fanOut.add(fanOutPath.toString(), new SequenceOutput().createShardOutput(fanOutPath));
+            shardedWriter.write(countingProteinDAO, 1, 23, fanOut);
+        }
+
+        assertEquals(1, cursorCount.get());
+        assertEquals(String.join(",", expected), new String(Files.readAllBytes(shardedPath), Charset.defaultCharset()));
+        assertEquals(String.join(",", expected), new String(Files.readAllBytes(fanOutPath), Charset.defaultCharset()));
+        assertFalse(Files.exists(tempDir.resolve("sharded.txt.shard0")), "The fragments should have been deleted");
+    }
+
+    @Test
+    public void testShardedXmlIsWellFormed() throws Exception {
+        List<String> expected = storeProteins(1, 23);
+        Path outputPath = tempDir.resolve("output.xml");
+        ShardedProteinWriter shardedWriter = new ShardedProteinWriter(4);
+        shardedWriter.add(outputPath, new XMLProteinMatchesOutput.Sharded("5.0-test", "p", false));
+        shardedWriter.write(proteinDAO, 1, 23);
+
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(outputPath.toFile());
+        Element root = document.getDocumentElement();
+        assertEquals(XMLProteinMatchesOutput.PROTEIN_MATCHES_ELEMENT, root.getLocalName());
+        assertEquals("5.0-test", root.getAttribute("interProScanVersion"));
+        NodeList sequences = document.getElementsByTagNameNS("*", "sequence");
+        assertEquals(expected.size(), sequences.getLength());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), sequences.item(i).getTextContent().trim());
+        }
+
+        // Indented by the shards, nested in the root element
+        for (String line : Files.readAllLines(outputPath, Charset.defaultCharset())) {
+            if (line.trim().startsWith("<protein>") || line.trim().startsWith("<protein ")) {
+                assertTrue(line.startsWith("  <protein"), line);
+            }
+        }
+    }
+
+    @Test
+    public void testShardedJsonIsValid() throws Exception {
+        List<String> expected = storeProteins(5, 6);
+        Path outputPath = tempDir.resolve("output.json");
+        // More shards than proteins, so some of the shards are empty
+        ShardedProteinWriter shardedWriter = new ShardedProteinWriter(4);
+        shardedWriter.add(outputPath, new JSONProteinMatchesOutput.Sharded("5.0-test", false));
+        shardedWriter.write(proteinDAO, 5, 6);
+
+        JsonNode json = new ObjectMapper().readTree(outputPath.toFile());
+        assertEquals("5.0-test", json.get("interproscan-version").asText());
+        JsonNode results = json.get("results");
+        assertEquals(expected.size(), results.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), results.get(i).get("sequence").asText());
+        }
+    }
+
+    private List<String> storeProteins(long bottom, long top) {
+        List<String> sequences = new ArrayList<>();
+        for (long id = bottom; id <= top; id++) {
+            String sequence = "M" + RESIDUES[(int) (id / 10) % 10] + RESIDUES[(int) (id % 10)];
+            Protein protein = new Protein(sequence);
+            ReflectionTestUtils.setField(protein, "id", id);
+            store.put(Long.toString(id), store.serialize(protein));
+            sequences.add(sequence);
+        }
+        return sequences;
+    }
+
+    /**
+     * Writes the sequences of the proteins, separated by commas.
+     */
+    private static class SequenceOutput implements ShardedProteinWriter.ShardedOutput {
+
+        public ProteinFanOutWriter.ProteinOutput createShardOutput(Path shardPath) throws IOException {
+            final BufferedWriter writer = Files.newBufferedWriter(shardPath, Charset.defaultCharset());
+            return new ProteinFanOutWriter.ProteinOutput() {
+                private int count = 0;
+
+                public void start() {
+                }
+
+                public void write(Protein protein) throws IOException {
+                    if (count++ > 0) {
+                        writer.write(",");
+                    }
+                    writer.write(protein.getSequence());
+                }
+
+                public void finish() throws IOException {
+                    writer.close();
+                }
+            };
+        }
+
+        public void assemble(OutputFragments fragments) throws IOException {
+            fragments.assemble(",");
+        }
+    }
+}
@@ -51,6 +51,7 @@ public class CoilsFilteredMatchDAO extends  FilteredMatchDAOImpl<CoilsRawMatch,
         String signatureLibraryKey = signatureLibraryRelease.getLibrary().getName();;
         Signature coilsSignature = loadPersistedSignature();  // need only be done once
 
+        final Map<String, Set<Match>> keyToMatchSetMap = new HashMap<>();
         for (RawProtein<CoilsRawMatch> rawProtein : filteredProteins) {
             final Protein protein = proteinIdToProteinMap.get(rawProtein.getProteinIdentifier());
             Set<Match> proteinMatches = new HashSet();
@@ -68,9 +69,10 @@ public class CoilsFilteredMatchDAO extends  FilteredMatchDAOImpl<CoilsRawMatch,
                     //try update with cross refs etc
                     updateMatch(i5Match);
                 }
-                matchDAO.persist(dbKey, proteinMatches);
+                keyToMatchSetMap.put(dbKey, proteinMatches);
             }
         }
+        matchDAO.persist(keyToMatchSetMap);
     }
 
 
@@ -6,7 +6,6 @@ import uk.ac.ebi.interpro.scan.genericjpadao.GenericDAOImpl;
 import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDB;
 import uk.ac.ebi.interpro.scan.persistence.kvstore.LevelDBStore;
 
-import org.apache.commons.lang3.SerializationUtils;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.Serializable;
@@ -37,13 +36,13 @@ public class GenericKVDAOImpl<T extends Serializable> extends GenericDAOImpl<T,
     }
 
     public byte[] serialize(T type) {
-        byte[] data = SerializationUtils.serialize(type);
+        byte[] data = dbStore.serialize(type);
         return data;
     }
 
     @Transactional
     public void persist(String key, T value){
-        byte[] byteKey = dbStore.serialize(key);
+        byte[] byteKey = dbStore.encodeKey(key);
         byte[] byteValue = serialize(value);
         persist(byteKey, byteValue);
     }
@@ -54,11 +53,12 @@ public class GenericKVDAOImpl<T extends Serializable> extends GenericDAOImpl<T,
     }
 
 
+    @SuppressWarnings("unchecked")
     public T get(String key){
         T value = null;
         byte[] data = dbStore.get(key);
         if (data != null) {
-           value = SerializationUtils.deserialize(data);
+           value = (T) dbStore.deserialize(data);
         }
         return value;
     }
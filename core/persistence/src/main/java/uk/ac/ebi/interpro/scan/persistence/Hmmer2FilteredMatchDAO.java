@@ -16,6 +16,7 @@ import uk.ac.ebi.interpro.scan.model.raw.RawProtein;
 import uk.ac.ebi.interpro.scan.model.helper.SignatureModelHolder;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -34,6 +35,7 @@ abstract class Hmmer2FilteredMatchDAO<T extends Hmmer2RawMatch>
     public void persist(Collection<RawProtein<T>> filteredProteins, final Map<String, SignatureModelHolder> modelAccessionToSignatureMap, final Map<String, Protein> proteinIdToProteinMap) {
         // Add matches to protein
         SignatureLibrary signatureLibrary = null;
+        final Map<String, Set<Match>> keyToMatchSetMap = new HashMap<>();
         for (RawProtein<T> rp : filteredProteins) {
             Protein protein = proteinIdToProteinMap.get(rp.getProteinIdentifier());
             Set<Match> proteinMatches = new HashSet<>();
@@ -61,8 +63,9 @@ abstract class Hmmer2FilteredMatchDAO<T extends Hmmer2RawMatch>
                     //try update with cross refs etc
                     updateMatch(i5Match);
                 }
-                matchDAO.persist(dbKey, proteinMatches);
+                keyToMatchSetMap.put(dbKey, proteinMatches);
             }
         }
+        matchDAO.persist(keyToMatchSetMap);
     }
 }
@@ -49,6 +49,7 @@ abstract class Hmmer3FilteredMatchAndSiteDAO<T extends Hmmer3RawMatch, E extends
         }
 
         // Add matches to protein
+        final Map<String, Set<Match>> keyToMatchSetMap = new HashMap<>();
         for (RawProtein<T> rp : filteredProteins) {
             Protein protein = proteinIdToProteinMap.get(rp.getProteinIdentifier());
             if (protein == null) {
@@ -69,7 +70,7 @@ abstract class Hmmer3FilteredMatchAndSiteDAO<T extends Hmmer3RawMatch, E extends
                     //try update with cross refs etc
                     updateMatch(i5Match);
                 }
-                matchDAO.persist(dbKey, proteinMatches);
+                keyToMatchSetMap.put(dbKey, proteinMatches);
             }
 
             /*
@@ -84,6 +85,7 @@ abstract class Hmmer3FilteredMatchAndSiteDAO<T extends Hmmer3RawMatch, E extends
             //TODO use a different utitlity function
             //System.out.println(" Filtered Match locations size : - " + matchLocationCount);
         }
+        matchDAO.persist(keyToMatchSetMap);
     }
 
 
@@ -13,6 +13,7 @@ import uk.ac.ebi.interpro.scan.model.helper.SignatureModelHolder;
 import uk.ac.ebi.interpro.scan.util.Utilities;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -46,6 +47,7 @@ abstract class Hmmer3FilteredMatchDAO<T extends Hmmer3RawMatch>
     @Transactional
     public void persist(Collection<RawProtein<T>> filteredProteins, final Map<String, SignatureModelHolder> modelAccessionToSignatureMap, final Map<String, Protein> proteinIdToProteinMap) {
         // Add matches to protein
+        final Map<String, Set<Match>> keyToMatchSetMap = new HashMap<>();
         for (RawProtein<T> rp : filteredProteins) {
             Protein protein = proteinIdToProteinMap.get(rp.getProteinIdentifier());
             if (LOGGER.isDebugEnabled()) {
@@ -81,7 +83,7 @@ abstract class Hmmer3FilteredMatchDAO<T extends Hmmer3RawMatch>
                     updateMatch(i5Match);
                 }
                 final String dbKey = Long.toString(protein.getId()) + signatureLibraryKey;
-                matchDAO.persist(dbKey, proteinMatches);
+                keyToMatchSetMap.put(dbKey, proteinMatches);
             }
             /*
             for (Hmmer3Match match : filteredMatches) {
@@ -108,6 +110,7 @@ abstract class Hmmer3FilteredMatchDAO<T extends Hmmer3RawMatch>
             //TODO use a different utility function
             //System.out.println(" Filtered Match locations size : - " + matchLocationCount);
         }
+        matchDAO.persist(keyToMatchSetMap);
     }
 
 
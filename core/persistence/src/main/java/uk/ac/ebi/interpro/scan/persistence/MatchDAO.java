@@ -11,9 +11,33 @@ public interface MatchDAO<T extends Match>  extends GenericKVDAO<T>  {
 
     void persist(String key, Set<Match> matches);
 
+    /**
+     * Persists the match sets of many proteins in a single batched write.
+     *
+     * @param keyToMatchSetMap match sets by KV store key (protein ID + signature library name)
+     */
+    void persist(Map<String, Set<Match>> keyToMatchSetMap);
+
     Set<Match> getMatchSet(String key);
 
-    Map<String, Set<Match>> getMatchesForEachProtein() throws Exception;;
+    /**
+     * Retrieves the matches of a range of proteins with a single sequential read of the store.
+     *
+     * @param bottom the lowest protein ID
+     * @param top    the highest protein ID
+     * @return the matches of each protein (from all signature libraries), by protein ID
+     */
+    Map<Long, Set<Match>> getMatchesBetweenProteinIds(long bottom, long top);
+
+    /**
+     * Loads every value of the KV store into memory, so is only meant for small stores (e.g. in tests):
+     * it fails rather than load more than {@link ProteinDAOImpl#WHOLE_STORE_LOAD_LIMIT} values.
+     * Use {@link #getMatchesBetweenProteinIds(long, long)} to read the matches a range of proteins at a time instead.
+     */
+    Map<String, Set<Match>> getMatchesForEachProtein() throws Exception;
 
+    /**
+     * As {@link #getMatchesForEachProtein()}.
+     */
     Set<Match> getMatches() throws Exception;
 }
@@ -3,6 +3,9 @@ package uk.ac.ebi.interpro.scan.persistence;
 import org.apache.log4j.Logger;
 import org.springframework.transaction.annotation.Transactional;
 import uk.ac.ebi.interpro.scan.model.Match;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDBCursor;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDBKeys;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDBWriteBatch;
 import uk.ac.ebi.interpro.scan.util.Utilities;
 
 import java.io.IOException;
@@ -44,10 +47,26 @@ public class MatchDAOImpl extends GenericKVDAOImpl<Match> implements MatchDAO<Ma
     @Override
     public void persist(String key, Set<Match> matches) {
         //check if this is valid
-        byte[] byteMatches = dbStore.serialize((HashSet<Match>) matches);
+        byte[] byteMatches = dbStore.serialize(asHashSet(matches));
         dbStore.put(key,byteMatches);
     }
 
+    @Override
+    public void persist(Map<String, Set<Match>> keyToMatchSetMap) {
+        try (KVDBWriteBatch batch = dbStore.createWriteBatch()) {
+            for (Map.Entry<String, Set<Match>> entry : keyToMatchSetMap.entrySet()) {
+                batch.put(entry.getKey(), dbStore.serialize(asHashSet(entry.getValue())));
+            }
+        }
+    }
+
+    /**
+     * The store serializes match sets as HashSets, so other sets (e.g. unmodifiable ones) are copied.
+     */
+    private static HashSet<Match> asHashSet(Set<Match> matches) {
+        return (matches instanceof HashSet) ? (HashSet<Match>) matches : new HashSet<>(matches);
+    }
+
     @Transactional(readOnly = true)
     public Set<Match> getMatchSet(String key) {
         byte[] byteMatchSet = dbStore.get(key);
@@ -57,36 +76,54 @@ public class MatchDAOImpl extends GenericKVDAOImpl<Match> implements MatchDAO<Ma
         return null;
     }
 
+    /**
+     * The match sets are keyed by protein ID, then signature library (see KVDBKeys), so the match sets
+     * of a range of proteins are a range of keys.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Set<Match>> getMatchesBetweenProteinIds(long bottom, long top) {
+        Map<Long, Set<Match>> proteinIdToMatches = new HashMap<>();
+        try (KVDBCursor cursor = dbStore.scan(KVDBKeys.proteinKey(bottom), KVDBKeys.proteinKey(top + 1))) {
+            while (cursor.hasNext()) {
+                Map.Entry<byte[], byte[]> entry = cursor.next();
+                Long proteinId = KVDBKeys.proteinId(entry.getKey());
+                Set<Match> matches = dbStore.asMatchSet(entry.getValue());
+                if (proteinId != null && matches != null) {
+                    proteinIdToMatches.computeIfAbsent(proteinId, id -> new HashSet<>()).addAll(matches);
+                }
+            }
+        }
+        return proteinIdToMatches;
+    }
+
     @Transactional(readOnly = true)
     public Map<String, Set<Match>> getMatchesForEachProtein() throws Exception{
         Map<String, Set<Match>> keyToMatchMap = new HashMap<>();
-        List<Match> allMatches = new ArrayList<>();
-        Map<byte[], byte[]> allElements = dbStore.getAllElements();
-        for (byte[] byteKey : allElements.keySet()){
-            byte[] byteData = allElements.get(byteKey);
-            String key = dbStore.asString(byteKey);
-            Set<Match> matches = dbStore.asMatchSet(byteData);
-            keyToMatchMap.put(key, matches);
+        try (KVDBCursor cursor = dbStore.scan()) {
+            while (cursor.hasNext()) {
+                ProteinDAOImpl.checkWholeStoreLoadLimit(keyToMatchMap.size(), dbStore);
+                Map.Entry<byte[], byte[]> entry = cursor.next();
+                String key = dbStore.asString(entry.getKey());
+                Set<Match> matches = dbStore.asMatchSet(entry.getValue());
+                keyToMatchMap.put(key, matches);
+            }
         }
-
         return keyToMatchMap;
     }
 
     @Transactional(readOnly = true)
     public  Set<Match> getMatches() throws Exception{
         Set<Match> allMatches = new HashSet<>();
-        Map<byte[], byte[]> allElements = dbStore.getAllElements();
-        for (byte[] byteKey : allElements.keySet()){
-            byte[] byteData = allElements.get(byteKey);
-            String key = dbStore.asString(byteKey);
-            Match match = dbStore.asMatch(byteData);
-            allMatches.add(match);
+        try (KVDBCursor cursor = dbStore.scan()) {
+            while (cursor.hasNext()) {
+                ProteinDAOImpl.checkWholeStoreLoadLimit(allMatches.size(), dbStore);
+                Match match = dbStore.asMatch(cursor.next().getValue());
+                allMatches.add(match);
+            }
         }
-
         return allMatches;
     }
 
-
     /*
     @Transactional
     public void persist(byte[] key,  byte[] match) {
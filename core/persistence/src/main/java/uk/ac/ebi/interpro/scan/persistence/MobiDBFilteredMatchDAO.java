@@ -54,6 +54,7 @@ class MobiDBFilteredMatchDAO extends FilteredMatchDAOImpl<MobiDBRawMatch, MobiDB
 
         Map<String, Protein> proteinIdToProteinMap = getProteinIdToProteinMap(filteredProteins);
         String signatureLibraryKey = null;
+        final Map<String, Set<Match>> keyToMatchSetMap = new HashMap<>();
         for (RawProtein<MobiDBRawMatch> rawProtein : filteredProteins) {
             final Protein protein = proteinIdToProteinMap.get(rawProtein.getProteinIdentifier());
             Set<Match> proteinMatches = new HashSet();
@@ -75,9 +76,10 @@ class MobiDBFilteredMatchDAO extends FilteredMatchDAOImpl<MobiDBRawMatch, MobiDB
                     //try update with cross refs etc
                     updateMatch(i5Match);
                 }
-                matchDAO.persist(dbKey, proteinMatches);
+                keyToMatchSetMap.put(dbKey, proteinMatches);
             }
         }
+        matchDAO.persist(keyToMatchSetMap);
     }
 
     private MobiDBMatch buildMatch(Signature signature, MobiDBRawMatch rawMatch) {
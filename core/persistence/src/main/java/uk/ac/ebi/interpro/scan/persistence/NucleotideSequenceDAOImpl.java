@@ -5,6 +5,7 @@ import org.springframework.transaction.annotation.Transactional;
 import uk.ac.ebi.interpro.scan.genericjpadao.GenericDAOImpl;
 import uk.ac.ebi.interpro.scan.model.NucleotideSequence;
 import uk.ac.ebi.interpro.scan.model.NucleotideSequenceXref;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDBCursor;
 import uk.ac.ebi.interpro.scan.util.Utilities;
 
 import javax.persistence.Query;
@@ -38,10 +39,11 @@ public class NucleotideSequenceDAOImpl extends GenericKVDAOImpl<NucleotideSequen
     public Set<NucleotideSequence> getNucleotideSequences() {
         Set<NucleotideSequence> nucleotideSequences = new HashSet<>();
         try {
-            Map<byte[], byte[]> byteNucleotideSequenceMap = getDbStore().getAllElements();
-            for (byte [] byteNucleotideSequence: byteNucleotideSequenceMap.values()){
-                NucleotideSequence nucleotideSequence = getDbStore().asNucleotideSequence(byteNucleotideSequence);
-                nucleotideSequences.add(nucleotideSequence);
+            try (KVDBCursor cursor = getDbStore().scan()) {
+                while (cursor.hasNext()) {
+                    NucleotideSequence nucleotideSequence = getDbStore().asNucleotideSequence(cursor.next().getValue());
+                    nucleotideSequences.add(nucleotideSequence);
+                }
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -63,6 +63,7 @@ public class PhobiusFilteredMatchDAO extends FilteredMatchDAOImpl<PhobiusRawMatc
 
         Utilities.verboseLog("protein size: " + filteredProteins.size());
         Utilities.verboseLog("featureTypeToSignatureMap size: " + featureTypeToSignatureMap.size());
+        final Map<String, Set<Match>> keyToMatchSetMap = new HashMap<>();
         for (RawProtein<PhobiusRawMatch> rawProtein : filteredProteins) {
             final Protein protein = proteinIdToProteinMap.get(rawProtein.getProteinIdentifier());
             Set<Match> proteinMatches = new HashSet();
@@ -92,9 +93,10 @@ public class PhobiusFilteredMatchDAO extends FilteredMatchDAOImpl<PhobiusRawMatc
                     //try update with cross refs etc
                     updateMatch(i5Match);
                 }
-                matchDAO.persist(dbKey, proteinMatches);
+                keyToMatchSetMap.put(dbKey, proteinMatches);
             }
         }
+        matchDAO.persist(keyToMatchSetMap);
     }
 
 
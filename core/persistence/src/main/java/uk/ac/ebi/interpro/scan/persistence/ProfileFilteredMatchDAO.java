@@ -35,6 +35,7 @@ abstract class ProfileFilteredMatchDAO<T extends ProfileScanRawMatch>
     public void persist(Collection<RawProtein<T>> filteredProteins, Map<String, SignatureModelHolder> modelAccessionToSignatureMap, Map<String, Protein> proteinIdToProteinMap) {
 
         SignatureLibrary signatureLibrary = null;
+        final Map<String, Set<Match>> keyToMatchSetMap = new HashMap<>();
         for (RawProtein<T> rawProtein : filteredProteins) {
             final Protein protein = proteinIdToProteinMap.get(rawProtein.getProteinIdentifier());
             Set<Match> proteinMatches = new HashSet<>();
@@ -57,9 +58,10 @@ abstract class ProfileFilteredMatchDAO<T extends ProfileScanRawMatch>
                     //try update with cross refs etc
                     updateMatch(i5Match);
                 }
-                matchDAO.persist(dbKey, proteinMatches);
+                keyToMatchSetMap.put(dbKey, proteinMatches);
             }
         }
+        matchDAO.persist(keyToMatchSetMap);
     }
 
     private ProfileScanMatch buildMatch(Signature signature, T rawMatch) {
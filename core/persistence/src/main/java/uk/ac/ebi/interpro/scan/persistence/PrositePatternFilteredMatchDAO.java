@@ -33,6 +33,7 @@ public class PrositePatternFilteredMatchDAO
     @Override
     public void persist(Collection<RawProtein<ProSitePatternRawMatch>> filteredProteins, Map<String, SignatureModelHolder> modelAccessionToSignatureMap, Map<String, Protein> proteinIdToProteinMap) {
         SignatureLibrary signatureLibrary = null;
+        final Map<String, Set<Match>> keyToMatchSetMap = new HashMap<>();
         for (RawProtein<ProSitePatternRawMatch> rawProtein : filteredProteins) {
             final Protein protein = proteinIdToProteinMap.get(rawProtein.getProteinIdentifier());
             Set<Match> proteinMatches = new HashSet<>();
@@ -55,9 +56,10 @@ public class PrositePatternFilteredMatchDAO
             }
             if (! proteinMatches.isEmpty()) {
                 final String dbKey = Long.toString(protein.getId()) + signatureLibrary.getName();
-                matchDAO.persist(dbKey, proteinMatches);
+                keyToMatchSetMap.put(dbKey, proteinMatches);
             }
         }
+        matchDAO.persist(keyToMatchSetMap);
 
     }
 
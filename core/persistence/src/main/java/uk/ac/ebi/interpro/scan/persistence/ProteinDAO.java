@@ -18,11 +18,13 @@ package uk.ac.ebi.interpro.scan.persistence;
 
 import org.springframework.transaction.annotation.Transactional;
 import uk.ac.ebi.interpro.scan.model.Protein;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDBValueCursor;
 import uk.ac.ebi.interpro.scan.persistence.kvstore.LevelDBStore;
 
 import org.iq80.leveldb.DB;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Interface that defines additional functionality for Protein Data Access.
@@ -51,24 +53,96 @@ public interface ProteinDAO extends GenericKVDAO<Protein> {
     @Transactional
     void persistProteinNotInLookup(byte[] key, byte[] protein);
 
+    /**
+     * Inserts the proteins that have no pre-calculated matches in a single batched write.
+     *
+     * @param keyToProteinMap proteins by KV store key (the protein ID)
+     */
+    @Transactional
+    void insertProteinsNotInLookup(final Map<String, Protein> keyToProteinMap);
+
     @Transactional(readOnly = true)
     Protein getProtein(String key);
 
     @Transactional(readOnly = true)
     Protein getProteinNotInLookup(String key);
 
+    /**
+     * Loads every protein of the KV store into memory, so is only meant for small stores (e.g. in tests):
+     * it fails rather than load more than {@link ProteinDAOImpl#WHOLE_STORE_LOAD_LIMIT} proteins.
+     * Use {@link #getProteinCursor()} to read the proteins one at a time instead.
+     */
     @Transactional(readOnly = true)
     List<Protein> getProteins() throws Exception;
 
+    /**
+     * As {@link #getProteins()}, for the proteins without pre-calculated matches.
+     */
     @Transactional(readOnly = true)
     List<Protein> getProteinsNotInLookup() throws Exception;
 
+    /**
+     * Returns the IDs of the proteins without pre-calculated matches, with IDs from bottom to top (inclusive),
+     * in ID order.  Only the keys of the KV store are read, not the proteins.
+     *
+     * @param bottom the lowest protein ID
+     * @param top    the highest protein ID
+     * @return the protein IDs
+     */
+    @Transactional(readOnly = true)
+    List<Long> getProteinIdsNotInLookup(long bottom, long top);
+
+    /**
+     * As {@link #getProteinIdsNotInLookup(long, long)}, counting the proteins rather than listing them.
+     */
+    @Transactional(readOnly = true)
+    long countProteinsNotInLookup(long bottom, long top);
+
     @Transactional(readOnly = true)
     List<Protein> getProteins(long bottom, long top);
 
+    /**
+     * As {@link #getProteins()}, by KV store key.
+     */
     @Transactional(readOnly = true)
     Map<String, Protein> getKeyToProteinMap() throws Exception;
 
+    /**
+     * Streams the proteins with IDs from bottom to top (inclusive) from the KV store in ID order,
+     * rather than loading them all into memory.
+     *
+     * @param bottom the lowest protein ID
+     * @param top    the highest protein ID
+     * @param action called for each protein in the range
+     */
+    @Transactional(readOnly = true)
+    void forEachProtein(long bottom, long top, Consumer<Protein> action);
+
+    /**
+     * Opens a cursor over the proteins with IDs from bottom to top (inclusive), in ID order.
+     * The proteins are read sequentially from the KV store as the cursor advances.
+     *
+     * @param bottom the lowest protein ID
+     * @param top    the highest protein ID
+     * @return the cursor, to be closed by the caller
+     */
+    @Transactional(readOnly = true)
+    KVDBValueCursor<Protein> getProteinCursor(long bottom, long top);
+
+    /**
+     * Opens a cursor over all the proteins of the KV store, in key order.
+     *
+     * @return the cursor, to be closed by the caller
+     */
+    @Transactional(readOnly = true)
+    KVDBValueCursor<Protein> getProteinCursor();
+
+    /**
+     * As {@link #getProteinCursor(long, long)}, for the proteins without pre-calculated matches.
+     */
+    @Transactional(readOnly = true)
+    KVDBValueCursor<Protein> getProteinNotInLookupCursor(long bottom, long top);
+
     void setProteinIdsWithoutLookupHit(Map<Long, Protein> proteinIdsWithoutLookupHit);
 
     @Transactional
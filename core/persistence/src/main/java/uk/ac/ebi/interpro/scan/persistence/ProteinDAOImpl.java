@@ -26,16 +26,18 @@ import uk.ac.ebi.interpro.scan.model.ProteinXref;
 
 import org.iq80.leveldb.DB;
 
-import org.iq80.leveldb.WriteBatch;
-import org.iq80.leveldb.DBException;
 import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDB;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDBCursor;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDBKeys;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDBValueCursor;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.KVDBWriteBatch;
 import uk.ac.ebi.interpro.scan.persistence.kvstore.LevelDBStore;
 import uk.ac.ebi.interpro.scan.util.Utilities;
 
 import javax.persistence.Query;
-import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Implements additional functionality for Protein Data Access.
@@ -50,6 +52,11 @@ public class ProteinDAOImpl extends GenericKVDAOImpl<Protein> implements Protein
 
     private static final Logger LOGGER = Logger.getLogger(ProteinDAOImpl.class.getName());
 
+    /**
+     * The maximum number of values the methods loading a whole KV store into memory will load.
+     */
+    public static final int WHOLE_STORE_LOAD_LIMIT = 100000;
+
     /**
      * For the method  getProteinsAndMatchesAndCrossReferencesBetweenIds below,
      * this List contains the unqualified (simple) class names of all the concrete
@@ -85,39 +92,27 @@ public class ProteinDAOImpl extends GenericKVDAOImpl<Protein> implements Protein
     //new methods utisiling the KV api
     @Transactional
     public void persist(final Map<String, Protein> keyToProteinMap) {
-        /*
-        try {
-            WriteBatch batch = dbStore.getLevelDBStore().createWriteBatch();
-            try {
-                for (Map.Entry<String, Protein> entry : keyToProteinMap.entrySet()) {
-                    String key = entry.getKey();
-                    Protein protein = entry.getValue();
-                    byte[] byteKey = dbStore.serialize(key);
-                    byte[] data = dbStore.serialize(protein);
-                    batch.put(byteKey, data);
-                }
-
-                // do batch operation with sync option.
-
-                dbStore.getLevelDBStore().write(batch);
-                //levelDBStore.getLevelDBStore().write(batch, SYNC_WRITE_OPTION);
+        persist(dbStore, keyToProteinMap);
+    }
 
-                LOGGER.info("data flushed to kv db .... " + dbStore.getDbName());
+    @Transactional
+    @Override
+    public void insertProteinsNotInLookup(final Map<String, Protein> keyToProteinMap) {
+        persist(proteinsNotInLookupDB, keyToProteinMap);
+    }
 
-            } finally {
-                // close the batch
-                try {
-                    batch.close();
-                }catch (IOException e) {
-                    e.printStackTrace();
-                }
+    /**
+     * Writes the proteins to the KV store in batches (see KVDBWriteBatch) rather than one at a time.
+     */
+    private void persist(final KVDB kvStore, final Map<String, Protein> keyToProteinMap) {
+        try (KVDBWriteBatch batch = kvStore.createWriteBatch()) {
+            for (Map.Entry<String, Protein> entry : keyToProteinMap.entrySet()) {
+                batch.put(entry.getKey(), kvStore.serialize(entry.getValue()));
             }
-        } catch (DBException e) {
-            new IOException(e).printStackTrace();
-            //throw new IOException(e);
         }
-
-        */
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(keyToProteinMap.size() + " proteins flushed to kv db .... " + kvStore.getDbName());
+        }
     }
 
     @Transactional
@@ -130,7 +125,7 @@ public class ProteinDAOImpl extends GenericKVDAOImpl<Protein> implements Protein
     @Transactional
     @Override
     public void insertProteinNotInLookup(String key, Protein protein) {
-        proteinsNotInLookupDB.put(key, dbStore.serialize(protein));
+        proteinsNotInLookupDB.put(key, proteinsNotInLookupDB.serialize(protein));
         //return protein;
     }
 
@@ -165,40 +160,111 @@ public class ProteinDAOImpl extends GenericKVDAOImpl<Protein> implements Protein
     @Transactional(readOnly = true)
     public List<Protein> getProteins() throws Exception{
         List<Protein> proteins = new ArrayList<Protein>();
-        Collection<byte[]> allByteProteins = dbStore.getAllElements().values();
-        for (byte[] byteProtein : allByteProteins) {
-            Protein protein = dbStore.asProtein(byteProtein);
-            proteins.add(protein);
+        try (KVDBValueCursor<Protein> cursor = getProteinCursor()) {
+            while (cursor.hasNext()) {
+                checkWholeStoreLoadLimit(proteins.size(), dbStore);
+                proteins.add(cursor.next());
+            }
         }
         return proteins;
     }
 
     @Transactional(readOnly = true)
     public List<Protein> getProteinsNotInLookup() throws Exception{
+        return getProteins(proteinsNotInLookupDB);
+    }
+
+    private List<Protein> getProteins(KVDB kvStore) {
         List<Protein> proteins = new ArrayList<Protein>();
-        Collection<byte[]> allByteProteins = proteinsNotInLookupDB.getAllElements().values();
-        for (byte[] byteProtein : allByteProteins) {
-            Protein protein = proteinsNotInLookupDB.asProtein(byteProtein);
-            proteins.add(protein);
+        try (KVDBValueCursor<Protein> cursor = new KVDBValueCursor<>(kvStore.scan(), kvStore::asProtein)) {
+            while (cursor.hasNext()) {
+                checkWholeStoreLoadLimit(proteins.size(), kvStore);
+                proteins.add(cursor.next());
+            }
         }
         return proteins;
     }
 
+    @Transactional(readOnly = true)
+    public List<Long> getProteinIdsNotInLookup(long bottom, long top) {
+        final List<Long> proteinIds = new ArrayList<>();
+        try (KVDBCursor cursor = proteinsNotInLookupDB.scan(KVDBKeys.proteinKey(bottom), KVDBKeys.proteinKey(top + 1))) {
+            while (cursor.hasNext()) {
+                proteinIds.add(KVDBKeys.proteinId(cursor.next().getKey()));
+            }
+        }
+        return proteinIds;
+    }
+
+    @Transactional(readOnly = true)
+    public long countProteinsNotInLookup(long bottom, long top) {
+        long count = 0;
+        try (KVDBCursor cursor = proteinsNotInLookupDB.scan(KVDBKeys.proteinKey(bottom), KVDBKeys.proteinKey(top + 1))) {
+            while (cursor.hasNext()) {
+                cursor.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The whole store loads (getProteins(), getKeyToProteinMap()) are only meant for small stores, so fail
+     * rather than run out of memory on a large one.
+     */
+    static void checkWholeStoreLoadLimit(int loaded, KVDB kvStore) {
+        if (loaded >= WHOLE_STORE_LOAD_LIMIT) {
+            throw new IllegalStateException("More than " + WHOLE_STORE_LOAD_LIMIT + " values in " + kvStore.getDbName()
+                    + " to load into memory, read them with a cursor instead");
+        }
+    }
+
     @Transactional(readOnly = true)
     public Map<String, Protein> getKeyToProteinMap()  throws Exception{
         Map<String, Protein> keyToProteinMap = new HashMap<>();
-        Map<byte[], byte[]> allByteProteins = dbStore.getAllElements();
-        Iterator it = allByteProteins.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry pair = (Map.Entry) it.next();
-            String key = dbStore.asString((byte[]) pair.getKey());
-            Protein protein = dbStore.asProtein((byte[]) pair.getValue());
-            //Utilities.verboseLog(" key:" + key + " protein: " + protein.getId());
-            keyToProteinMap.put(key, protein);
+        try (KVDBCursor cursor = dbStore.scan()) {
+            while (cursor.hasNext()) {
+                checkWholeStoreLoadLimit(keyToProteinMap.size(), dbStore);
+                Map.Entry<byte[], byte[]> entry = cursor.next();
+                String key = dbStore.asString(entry.getKey());
+                Protein protein = dbStore.asProtein(entry.getValue());
+                //Utilities.verboseLog(" key:" + key + " protein: " + protein.getId());
+                keyToProteinMap.put(key, protein);
+            }
         }
         return keyToProteinMap;
     }
 
+    @Transactional(readOnly = true)
+    public void forEachProtein(long bottom, long top, Consumer<Protein> action) {
+        try (KVDBValueCursor<Protein> proteins = getProteinCursor(bottom, top)) {
+            proteins.forEachRemaining(action);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public KVDBValueCursor<Protein> getProteinCursor(long bottom, long top) {
+        return getProteinCursor(dbStore, bottom, top);
+    }
+
+    @Transactional(readOnly = true)
+    public KVDBValueCursor<Protein> getProteinCursor() {
+        return new KVDBValueCursor<>(dbStore.scan(), dbStore::asProtein);
+    }
+
+    @Transactional(readOnly = true)
+    public KVDBValueCursor<Protein> getProteinNotInLookupCursor(long bottom, long top) {
+        return getProteinCursor(proteinsNotInLookupDB, bottom, top);
+    }
+
+    /**
+     * The proteins are keyed by protein ID (see KVDBKeys), so a range of protein IDs is a range of keys.
+     */
+    private KVDBValueCursor<Protein> getProteinCursor(KVDB kvStore, long bottom, long top) {
+        KVDBCursor cursor = kvStore.scan(KVDBKeys.proteinKey(bottom), KVDBKeys.proteinKey(top + 1));
+        return new KVDBValueCursor<>(cursor, kvStore::asProtein);
+    }
+
 
 
     public void setProteinsWithoutLookupHit(Set<Protein> proteinsWithoutLookupHit) {
@@ -53,6 +53,7 @@ public class SuperFamilyHmmer3FilteredMatchDAOImpl extends FilteredMatchDAOImpl<
         int sfBatchSize = 3000;
         Utilities.verboseLog("SuperFamilyHmmer3FilteredMatchDAO: Start to persist " + filteredProteins.size() + " filteredProteins,");
 
+        final Map<String, Set<Match>> keyToMatchSetMap = new HashMap<>();
         for (RawProtein<SuperFamilyHmmer3RawMatch> rawProtein : filteredProteins) {
             proteinCount++;
             final Map<UUID, SuperFamilyHmmer3Match> splitGroupToMatch = new HashMap<>();
@@ -150,8 +151,9 @@ public class SuperFamilyHmmer3FilteredMatchDAOImpl extends FilteredMatchDAOImpl<
                     //try update with cross refs etc
                     updateMatch(i5Match);
                 }
-                matchDAO.persist(dbKey, proteinMatches);
+                keyToMatchSetMap.put(dbKey, proteinMatches);
             }
         }
+        matchDAO.persist(keyToMatchSetMap);
     }
 }
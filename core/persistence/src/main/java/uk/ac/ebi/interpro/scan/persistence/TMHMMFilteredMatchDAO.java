@@ -57,6 +57,7 @@ public class TMHMMFilteredMatchDAO extends FilteredMatchDAOImpl<TMHMMRawMatch, T
         String signatureLibraryKey = signatureLibraryRelease.getLibrary().getName();;
         Signature signature = loadPersistedSignature();  // need only be done once
 
+        final Map<String, Set<Match>> keyToMatchSetMap = new HashMap<>();
         for (RawProtein<TMHMMRawMatch> rawProtein : filteredProteins) {
             final Protein protein = proteinIdToProteinMap.get(rawProtein.getProteinIdentifier());
             Set<Match> proteinMatches = new HashSet();
@@ -78,9 +79,10 @@ public class TMHMMFilteredMatchDAO extends FilteredMatchDAOImpl<TMHMMRawMatch, T
                     //try update with cross refs etc
                     updateMatch(i5Match);
                 }
-                matchDAO.persist(dbKey, proteinMatches);
+                keyToMatchSetMap.put(dbKey, proteinMatches);
             }
         }
+        matchDAO.persist(keyToMatchSetMap);
     }
 
     private TMHMMMatch buildMatch(TMHMMRawMatch rawMatch, Signature signature) {
@@ -0,0 +1,197 @@
+package uk.ac.ebi.interpro.scan.persistence.kvstore;
+
+import uk.ac.ebi.interpro.scan.model.Signature;
+
+import java.io.*;
+
+/**
+ * Compact, versioned binary format for the KV store values.
+ * <p/>
+ * Compared to {@link JavaSerializationCodec} the format:
+ * <ul>
+ * <li>starts with a two byte magic number and a format version, so stores written with
+ * a different codec or format version can be told apart and read back;</li>
+ * <li>writes class descriptors as the class name only - the field layout (schema) is taken from
+ * the classes on the classpath when reading, rather than being repeated in every record;</li>
+ * <li>stores persisted signatures by ID, the Signature itself (with its Entry, GO and pathway
+ * cross references) being written to the {@link SignatureDictionary} of the store once, when it is
+ * first referred to.  The values read back share the signature instances of the dictionary.</li>
+ * </ul>
+ * The store is temporary and only ever read back by the same InterProScan installation,
+ * so the classes on the classpath are always the ones that wrote the data.
+ * <p/>
+ * The field values themselves are still written by Java serialization: this is not a
+ * field by field binary encoding of the model classes.
+ */
+public class CompactBinaryCodec implements KVDBCodec {
+
+    public static final String NAME = "compact";
+
+    static final byte MAGIC_0 = 'I';
+    static final byte MAGIC_1 = '5';
+
+    static final byte FORMAT_VERSION = 1;
+
+    private static final int TYPE_FAT_DESCRIPTOR = 0;
+    private static final int TYPE_THIN_DESCRIPTOR = 1;
+
+    public String getName() {
+        return NAME;
+    }
+
+    public boolean canDecode(byte[] data) {
+        return data != null && data.length > 2 && data[0] == MAGIC_0 && data[1] == MAGIC_1;
+    }
+
+    public byte[] encode(Serializable value, SignatureDictionary dictionary) {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream(512);
+        bos.write(MAGIC_0);
+        bos.write(MAGIC_1);
+        bos.write(FORMAT_VERSION);
+        try (ObjectOutputStream out = new CompactObjectOutputStream(bos, dictionary)) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode value of type " + value.getClass().getName(), e);
+        }
+        return bos.toByteArray();
+    }
+
+    public Object decode(byte[] data, SignatureDictionary dictionary) {
+        if (!canDecode(data)) {
+            throw new IllegalArgumentException("Data was not written by the " + NAME + " codec");
+        }
+        final byte version = data[2];
+        if (version != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported " + NAME + " codec format version: " + version
+                    + " (this version of InterProScan reads version " + FORMAT_VERSION + ")");
+        }
+        try (ObjectInputStream in = new CompactObjectInputStream(new ByteArrayInputStream(data, 3, data.length - 3), dictionary)) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Failed to decode value from the KV store", e);
+        }
+    }
+
+    /**
+     * Written in place of a persisted Signature.
+     */
+    static final class SignatureReference implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long signatureId;
+
+        SignatureReference(long signatureId) {
+            this.signatureId = signatureId;
+        }
+
+        long getSignatureId() {
+            return signatureId;
+        }
+    }
+
+    private static final class CompactObjectOutputStream extends ObjectOutputStream {
+
+        private final SignatureDictionary dictionary;
+
+        CompactObjectOutputStream(OutputStream out, SignatureDictionary dictionary) throws IOException {
+            super(out);
+            this.dictionary = dictionary;
+            enableReplaceObject(dictionary != null);
+        }
+
+        @Override
+        protected void writeStreamHeader() throws IOException {
+            // The codec header replaces the Java serialization stream header.
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+            final Class<?> clazz = desc.forClass();
+            if (clazz.isPrimitive() || clazz.isArray() || clazz.isInterface() || desc.getSerialVersionUID() == 0) {
+                write(TYPE_FAT_DESCRIPTOR);
+                super.writeClassDescriptor(desc);
+            } else {
+                write(TYPE_THIN_DESCRIPTOR);
+                writeUTF(desc.getName());
+            }
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            // Only replace real (non proxied) signatures that have been persisted, as only these have a stable ID.
+            if (obj != null && obj.getClass() == Signature.class) {
+                final Signature signature = (Signature) obj;
+                if (signature.getId() != null) {
+                    dictionary.registerSignature(signature);
+                    return new SignatureReference(signature.getId());
+                }
+            }
+            return obj;
+        }
+    }
+
+    private static final class CompactObjectInputStream extends ObjectInputStream {
+
+        private final SignatureDictionary dictionary;
+
+        CompactObjectInputStream(InputStream in, SignatureDictionary dictionary) throws IOException {
+            super(in);
+            this.dictionary = dictionary;
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected void readStreamHeader() throws IOException {
+            // See CompactObjectOutputStream.writeStreamHeader
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            final int type = read();
+            switch (type) {
+                case TYPE_FAT_DESCRIPTOR:
+                    return super.readClassDescriptor();
+                case TYPE_THIN_DESCRIPTOR:
+                    final String className = readUTF();
+                    return ObjectStreamClass.lookupAny(resolveClassName(className));
+                default:
+                    throw new StreamCorruptedException("Unexpected class descriptor type: " + type);
+            }
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return resolveClassName(desc.getName());
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+            if (obj instanceof SignatureReference) {
+                final long signatureId = ((SignatureReference) obj).getSignatureId();
+                final Signature signature = (dictionary == null) ? null : dictionary.lookupSignature(signatureId);
+                if (signature == null) {
+                    throw new InvalidObjectException("Signature with ID " + signatureId + " is not in the KV store signature dictionary");
+                }
+                return signature;
+            }
+            return obj;
+        }
+
+        private static Class<?> resolveClassName(String className) throws ClassNotFoundException {
+            final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            if (loader != null) {
+                try {
+                    return Class.forName(className, false, loader);
+                } catch (ClassNotFoundException e) {
+                    // Fall back to the loader of this class
+                }
+            }
+            return Class.forName(className, false, CompactBinaryCodec.class.getClassLoader());
+        }
+    }
+}
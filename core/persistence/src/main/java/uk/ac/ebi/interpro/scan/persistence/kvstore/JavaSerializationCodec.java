@@ -0,0 +1,34 @@
+package uk.ac.ebi.interpro.scan.persistence.kvstore;
+
+import org.apache.commons.lang3.SerializationUtils;
+
+import java.io.Serializable;
+
+/**
+ * The original KV store format: plain Java object serialization of the whole object graph.
+ * <p/>
+ * Kept so that existing stores can still be read and for runs that explicitly ask for it.
+ */
+public class JavaSerializationCodec implements KVDBCodec {
+
+    public static final String NAME = "java";
+
+    private static final byte STREAM_MAGIC_0 = (byte) 0xAC;
+    private static final byte STREAM_MAGIC_1 = (byte) 0xED;
+
+    public String getName() {
+        return NAME;
+    }
+
+    public boolean canDecode(byte[] data) {
+        return data != null && data.length > 1 && data[0] == STREAM_MAGIC_0 && data[1] == STREAM_MAGIC_1;
+    }
+
+    public byte[] encode(Serializable value, SignatureDictionary dictionary) {
+        return SerializationUtils.serialize(value);
+    }
+
+    public Object decode(byte[] data, SignatureDictionary dictionary) {
+        return SerializationUtils.deserialize(data);
+    }
+}
@@ -32,10 +32,30 @@ public interface KVDB {
 
     void put(byte[] key, byte[] data);
 
+    /**
+     * Writes all the key / value pairs to the store in batches.
+     *
+     * @param keyToData values to put, by key
+     */
+    void putAll(Map<String, byte[]> keyToData);
+
+    /**
+     * @return a new write batch, to be closed by the caller once all the puts have been added
+     */
+    KVDBWriteBatch createWriteBatch();
+
     byte[] get(String key);
 
+    byte[] get(byte[] key);
+
+    void setCodec(String codecName);
+
+    KVDBCodec getCodec();
+
     byte[] serialize(Serializable value);
 
+    Object deserialize(byte[] data);
+
     byte[] serialize(Protein protein);
 
 //    byte[] serialize(Match match);
@@ -60,8 +80,30 @@ public interface KVDB {
 
     byte[] serialize(String value);
 
+    /**
+     * Encodes a logical key (e.g. "42" or "42Pfam") as it is stored, see {@link KVDBKeys}.
+     */
+    byte[] encodeKey(String key);
+
+    /**
+     * Copies the whole store into memory - use {@link #scan()} to iterate over large stores.
+     */
     Map<byte[], byte[]> getAllElements() throws Exception;
 
+    /**
+     * Opens a cursor over the key / value pairs with keys from fromKey (inclusive) to toKey (exclusive), in key order.
+     *
+     * @param fromKey the first key, or null to start at the beginning of the store
+     * @param toKey   the upper bound, or null to read to the end of the store
+     * @return a cursor, to be closed by the caller
+     */
+    KVDBCursor scan(byte[] fromKey, byte[] toKey);
+
+    /**
+     * @return a cursor over the whole store, to be closed by the caller
+     */
+    KVDBCursor scan();
+
     Protein getProtein(String key);
 
     NucleotideSequence getNucleotideSequence(String key);
@@ -72,6 +114,13 @@ public interface KVDB {
 
     Set<String> getSignatureLibraryNames();
 
+    /**
+     * Re-encodes all the values in the store that were not written by the configured codec.
+     *
+     * @return the number of values rewritten
+     */
+    int migrate() throws Exception;
+
     void close();
 
 
@@ -0,0 +1,26 @@
+package uk.ac.ebi.interpro.scan.persistence.kvstore;
+
+import java.io.Serializable;
+
+/**
+ * Encodes the values held in a {@link KVDB} (proteins, match sets, nucleotide sequences).
+ * <p/>
+ * Keys are not handled by the codec, only the values.
+ */
+public interface KVDBCodec {
+
+    /**
+     * @return the name used to select this codec, e.g. from the kvstore.codec property.
+     */
+    String getName();
+
+    /**
+     * @param data an encoded value
+     * @return true if the value was written by this codec.
+     */
+    boolean canDecode(byte[] data);
+
+    byte[] encode(Serializable value, SignatureDictionary dictionary);
+
+    Object decode(byte[] data, SignatureDictionary dictionary);
+}
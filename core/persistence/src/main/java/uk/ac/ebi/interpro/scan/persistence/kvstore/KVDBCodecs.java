@@ -0,0 +1,50 @@
+package uk.ac.ebi.interpro.scan.persistence.kvstore;
+
+/**
+ * Looks up the available KV store codecs.
+ */
+public final class KVDBCodecs {
+
+    public static final String DEFAULT_CODEC = CompactBinaryCodec.NAME;
+
+    private static final KVDBCodec JAVA = new JavaSerializationCodec();
+
+    private static final KVDBCodec COMPACT = new CompactBinaryCodec();
+
+    private static final KVDBCodec[] ALL = {COMPACT, JAVA};
+
+    private KVDBCodecs() {
+    }
+
+    /**
+     * @param name of the codec, as set in the kvstore.codec property
+     * @return the matching codec or the default codec if name is empty.
+     */
+    public static KVDBCodec forName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return forName(DEFAULT_CODEC);
+        }
+        for (KVDBCodec codec : ALL) {
+            if (codec.getName().equalsIgnoreCase(name.trim())) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown KV store codec: " + name);
+    }
+
+    /**
+     * Finds the codec that wrote the value, so that stores written with an older
+     * (or a different) codec can still be read.
+     *
+     * @param data an encoded value
+     * @return the codec that can decode the value
+     */
+    public static KVDBCodec detect(byte[] data) {
+        for (KVDBCodec codec : ALL) {
+            if (codec.canDecode(data)) {
+                return codec;
+            }
+        }
+        throw new IllegalStateException("Value in the KV store was not written by any known codec");
+    }
+}
@@ -0,0 +1,16 @@
+package uk.ac.ebi.interpro.scan.persistence.kvstore;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Lazily iterates over the key / value pairs of a {@link KVDB} in key order, see {@link KVDB#scan(byte[], byte[])}.
+ * <p/>
+ * The cursor holds a snapshot of the store open until it is closed, so it should always be used
+ * in a try-with-resources block.
+ */
+public interface KVDBCursor extends Iterator<Map.Entry<byte[], byte[]>>, AutoCloseable {
+
+    @Override
+    void close();
+}
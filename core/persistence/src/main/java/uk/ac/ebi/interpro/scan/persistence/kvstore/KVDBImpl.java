@@ -16,16 +16,23 @@ import org.apache.commons.lang3.SerializationUtils;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * level DB store
  */
-abstract class KVDBImpl implements KVDB, AutoCloseable {
+abstract class KVDBImpl implements KVDB, SignatureDictionary, AutoCloseable {
+
+    /**
+     * Keys of the signature dictionary entries start with this byte, other keys never do.
+     */
+    static final byte RESERVED_KEY_PREFIX = (byte) 0xFF;
+
+    private static final byte SIGNATURE_KEY_TYPE = 'S';
 
     String dbPath;
     String dbName;
@@ -33,6 +40,15 @@ abstract class KVDBImpl implements KVDB, AutoCloseable {
 
     Set<String> signatureLibraryNames = new HashSet<>();
 
+    KVDBCodec codec = KVDBCodecs.forName(KVDBCodecs.DEFAULT_CODEC);
+
+    /**
+     * The signatures of the dictionary, as decoded from the store (or from the snapshot taken when they were first
+     * registered), so that they are not shared with the callers that registered them.  These instances are
+     * returned by every lookup, so <b>MUST NOT</b> be modified.
+     */
+    private final Map<Long, Signature> signatures = new ConcurrentHashMap<>();
+
     public void setKVDBStore(String dbStore, String dbName, String dbType) {
         //dbStore == dbPath
         this.dbPath = dbStore;
@@ -64,14 +80,39 @@ abstract class KVDBImpl implements KVDB, AutoCloseable {
         return dbType;
     }
 
+    public void setCodec(String codecName) {
+        this.codec = KVDBCodecs.forName(codecName);
+    }
+
+    public KVDBCodec getCodec() {
+        return codec;
+    }
+
+    public void putAll(Map<String, byte[]> keyToData) {
+        try (KVDBWriteBatch batch = createWriteBatch()) {
+            for (Map.Entry<String, byte[]> entry : keyToData.entrySet()) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
     public byte[] serialize(Serializable value) {
-        byte[] data = SerializationUtils.serialize(value);
-        return data;
+        return codec.encode(value, this);
+    }
+
+    /**
+     * Decodes a value whatever codec it was written with.
+     */
+    public Object deserialize(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        KVDBCodec valueCodec = codec.canDecode(data) ? codec : KVDBCodecs.detect(data);
+        return valueCodec.decode(data, this);
     }
 
     public byte[] serialize(Protein protein) {
-        byte[] data = SerializationUtils.serialize(protein);
-        return data;
+        return serialize((Serializable) protein);
     }
 
 /*
@@ -82,34 +123,32 @@ abstract class KVDBImpl implements KVDB, AutoCloseable {
 
 */
     public byte[]  serialize(HashSet<Match> matches) {
-        byte[] data = SerializationUtils.serialize(matches);
-        return data;
+        return serialize((Serializable) matches);
     }
 
     public String asString(byte[] byteKey) {
-        String key = (String) SerializationUtils.deserialize(byteKey);
-        return key;
+        return KVDBKeys.decode(byteKey);
     }
 
     public String asDeserializedString(byte[] byteKey) {
-        String key = (String) SerializationUtils.deserialize(byteKey);
-        return key;
+        return KVDBKeys.decode(byteKey);
     }
 
 
+    @SuppressWarnings("unchecked")
     public Set<Match> asMatchSet(byte[] byteMatchSet) {
-        Set<Match> data = (Set<Match>) SerializationUtils.deserialize(byteMatchSet);
+        Set<Match> data = (Set<Match>) deserialize(byteMatchSet);
         return data;
     }
 
     public Match asMatch(byte[] byteMatch) {
-        Match data = (Match) SerializationUtils.deserialize(byteMatch);
+        Match data = (Match) deserialize(byteMatch);
         return data;
     }
 
     public Protein asProtein(byte[] byteProtein) {
         if(byteProtein != null) {
-            Protein protein = (Protein) SerializationUtils.deserialize(byteProtein);
+            Protein protein = (Protein) deserialize(byteProtein);
             return protein;
         }
         return null;
@@ -117,7 +156,7 @@ abstract class KVDBImpl implements KVDB, AutoCloseable {
 
     public NucleotideSequence asNucleotideSequence(byte[] byteNucleotideSequence) {
         if(byteNucleotideSequence != null) {
-            NucleotideSequence nucleotideSequence = (NucleotideSequence) SerializationUtils.deserialize(byteNucleotideSequence);
+            NucleotideSequence nucleotideSequence = (NucleotideSequence) deserialize(byteNucleotideSequence);
             return nucleotideSequence;
         }
         return null;
@@ -128,19 +167,76 @@ abstract class KVDBImpl implements KVDB, AutoCloseable {
         return data;
     }
 
+    /**
+     * Encodes a key, see {@link KVDBKeys}.
+     */
+    public byte[] encodeKey(String key) {
+        return KVDBKeys.encode(key);
+    }
+
 
     public Protein getProtein(String key) {
         byte[] outdata = get(key);
-        Protein protein = (Protein) SerializationUtils.deserialize(outdata);
+        Protein protein = (Protein) deserialize(outdata);
         return protein;
     }
 
     public NucleotideSequence getNucleotideSequence(String key) {
         byte[] outdata = get(key);
-        NucleotideSequence nucleotideSequence = (NucleotideSequence) SerializationUtils.deserialize(outdata);
+        NucleotideSequence nucleotideSequence = (NucleotideSequence) deserialize(outdata);
         return nucleotideSequence;
     }
 
+    /**
+     * Stores the signature in the dictionary the first time a match referring to it is written.  Later changes
+     * to the signature are not stored.
+     * Signatures are stored with plain Java serialization, as the dictionary is small.
+     */
+    public void registerSignature(Signature signature) {
+        final Long signatureId = signature.getId();
+        if (signatures.containsKey(signatureId)) {
+            return;
+        }
+        final byte[] snapshot = SerializationUtils.serialize(signature);
+        if (signatures.putIfAbsent(signatureId, (Signature) SerializationUtils.deserialize(snapshot)) == null) {
+            put(signatureKey(signatureId), snapshot);
+        }
+    }
+
+    /**
+     * @return the shared (and so <b>not</b> to be modified) instance of the signature, or null if it is not in
+     * the dictionary.
+     */
+    public Signature lookupSignature(Long signatureId) {
+        final Signature signature = signatures.get(signatureId);
+        if (signature != null) {
+            return signature;
+        }
+        final byte[] snapshot = get(signatureKey(signatureId));
+        if (snapshot == null) {
+            return null;
+        }
+        final Signature decoded = (Signature) SerializationUtils.deserialize(snapshot);
+        final Signature existing = signatures.putIfAbsent(signatureId, decoded);
+        return (existing == null) ? decoded : existing;
+    }
+
+    static byte[] signatureKey(Long signatureId) {
+        byte[] key = new byte[10];
+        key[0] = RESERVED_KEY_PREFIX;
+        key[1] = SIGNATURE_KEY_TYPE;
+        long id = signatureId;
+        for (int i = 9; i >= 2; i--) {
+            key[i] = (byte) id;
+            id >>>= 8;
+        }
+        return key;
+    }
+
+    static boolean isReservedKey(byte[] key) {
+        return key != null && key.length > 0 && key[0] == RESERVED_KEY_PREFIX;
+    }
+
     public byte[] bytes(String value) {
         if (value == null) {
             return null;
@@ -168,6 +264,7 @@ abstract class KVDBImpl implements KVDB, AutoCloseable {
         return "KVDBImpl{" +
                 "dbName='" + dbName + '\'' +
                 ", dbType='" + dbType + '\'' +
+                ", codec='" + codec.getName() + '\'' +
                 ", signatureLibraryNames=" + signatureLibraryNames +
                 '}';
     }
@@ -0,0 +1,162 @@
+package uk.ac.ebi.interpro.scan.persistence.kvstore;
+
+import org.apache.commons.lang3.SerializationUtils;
+import uk.ac.ebi.interpro.scan.model.SignatureLibrary;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes the keys of the KV stores.
+ * <p/>
+ * Proteins are keyed by protein ID and match sets by protein ID followed by the signature library name
+ * (e.g. "42" and "42Pfam"). These keys are stored as the protein ID (8 bytes, big-endian) followed, for
+ * match sets, by the code of the signature library (2 bytes, big-endian). LevelDB sorts keys bytewise,
+ * so all the proteins and match sets of a range of protein IDs are next to each other in the store
+ * and can be read with a single {@link KVDB#scan(byte[], byte[])}.
+ * <p/>
+ * The code of a signature library is its position in {@link #SIGNATURE_LIBRARY_CODES}, not the ordinal of the
+ * enum, so the existing stores can still be read when the libraries are reordered.  New libraries must be
+ * added at the end of that list, and the libraries no longer in use left in it.
+ * <p/>
+ * Any other key (e.g. an MD5) is stored as a serialized String.
+ */
+public final class KVDBKeys {
+
+    private static final int PROTEIN_ID_LENGTH = 8;
+
+    private static final int MATCH_KEY_LENGTH = PROTEIN_ID_LENGTH + 2;
+
+    /**
+     * Long.MAX_VALUE has 19 digits, so any number with up to 18 digits fits in a long.
+     */
+    private static final int MAX_PROTEIN_ID_DIGITS = 18;
+
+    /**
+     * The names of the signature libraries, in the order of their codes.  Append only.
+     */
+    private static final String[] SIGNATURE_LIBRARY_CODES = {
+            "CDD", "Hamap", "MobiDBLite", "Phobius", "Gene3D", "PANTHER", "Pfam", "SMART", "SUPERFAMILY",
+            "PIRSF", "PRINTS", "ProDom", "ProSitePatterns", "ProSiteProfiles", "Coils", "TIGRFAM", "SFLD",
+            "SignalP_EUK", "SignalP_GRAM_POSITIVE", "SignalP_GRAM_NEGATIVE", "TMHMM"
+    };
+
+    private static final Map<String, SignatureLibrary> NAME_TO_SIGNATURE_LIBRARY = new HashMap<>();
+
+    private static final Map<SignatureLibrary, Integer> SIGNATURE_LIBRARY_TO_CODE = new HashMap<>();
+
+    static {
+        for (SignatureLibrary signatureLibrary : SignatureLibrary.values()) {
+            NAME_TO_SIGNATURE_LIBRARY.put(signatureLibrary.getName(), signatureLibrary);
+        }
+        for (int code = 0; code < SIGNATURE_LIBRARY_CODES.length; code++) {
+            final SignatureLibrary signatureLibrary = NAME_TO_SIGNATURE_LIBRARY.get(SIGNATURE_LIBRARY_CODES[code]);
+            if (signatureLibrary != null) {
+                SIGNATURE_LIBRARY_TO_CODE.put(signatureLibrary, code);
+            }
+        }
+    }
+
+    private KVDBKeys() {
+    }
+
+    /**
+     * @param proteinId the protein ID
+     * @return the key of the protein, which is also the lower bound of the keys of its match sets
+     */
+    public static byte[] proteinKey(long proteinId) {
+        return writeProteinId(new byte[PROTEIN_ID_LENGTH], proteinId);
+    }
+
+    public static byte[] matchKey(long proteinId, SignatureLibrary signatureLibrary) {
+        final Integer code = SIGNATURE_LIBRARY_TO_CODE.get(signatureLibrary);
+        if (code == null) {
+            throw new IllegalArgumentException("No KV store code for the signature library " + signatureLibrary.getName()
+                    + ", it must be added to KVDBKeys.SIGNATURE_LIBRARY_CODES");
+        }
+        final byte[] key = writeProteinId(new byte[MATCH_KEY_LENGTH], proteinId);
+        key[PROTEIN_ID_LENGTH] = (byte) (code >>> 8);
+        key[PROTEIN_ID_LENGTH + 1] = (byte) (int) code;
+        return key;
+    }
+
+    /**
+     * @param key a key as stored
+     * @return the protein ID of a protein or match set key, otherwise null
+     */
+    public static Long proteinId(byte[] key) {
+        if (!isProteinIdKey(key)) {
+            return null;
+        }
+        long proteinId = 0;
+        for (int i = 0; i < PROTEIN_ID_LENGTH; i++) {
+            proteinId = (proteinId << 8) | (key[i] & 0xFF);
+        }
+        return proteinId;
+    }
+
+    /**
+     * @param key a protein key ("42"), match set key ("42Pfam") or any other key
+     * @return the key as stored
+     */
+    public static byte[] encode(String key) {
+        final int digits = countLeadingDigits(key);
+        if (digits > 0 && digits <= MAX_PROTEIN_ID_DIGITS && (digits == 1 || key.charAt(0) != '0')) {
+            final long proteinId = Long.parseLong(key.substring(0, digits));
+            if (digits == key.length()) {
+                return proteinKey(proteinId);
+            }
+            final SignatureLibrary signatureLibrary = NAME_TO_SIGNATURE_LIBRARY.get(key.substring(digits));
+            if (signatureLibrary != null) {
+                return matchKey(proteinId, signatureLibrary);
+            }
+        }
+        return SerializationUtils.serialize(key);
+    }
+
+    /**
+     * @param key a key as stored
+     * @return the key as passed to {@link #encode(String)}
+     */
+    public static String decode(byte[] key) {
+        final Long proteinId = proteinId(key);
+        if (proteinId == null) {
+            return (String) SerializationUtils.deserialize(key);
+        }
+        if (key.length == PROTEIN_ID_LENGTH) {
+            return Long.toString(proteinId);
+        }
+        final int code = ((key[PROTEIN_ID_LENGTH] & 0xFF) << 8) | (key[PROTEIN_ID_LENGTH + 1] & 0xFF);
+        if (code >= SIGNATURE_LIBRARY_CODES.length) {
+            throw new IllegalArgumentException("Unknown signature library code " + code + " in the key of protein " + proteinId);
+        }
+        return proteinId + SIGNATURE_LIBRARY_CODES[code];
+    }
+
+    /**
+     * Serialized Strings start with the (negative) stream magic number and reserved keys with 0xFF,
+     * so they can't be mistaken for a (positive) protein ID.
+     */
+    private static boolean isProteinIdKey(byte[] key) {
+        return key != null && (key.length == PROTEIN_ID_LENGTH || key.length == MATCH_KEY_LENGTH) && key[0] >= 0;
+    }
+
+    private static byte[] writeProteinId(byte[] key, long proteinId) {
+        if (proteinId < 0) {
+            throw new IllegalArgumentException("Protein IDs can't be negative: " + proteinId);
+        }
+        for (int i = PROTEIN_ID_LENGTH - 1; i >= 0; i--) {
+            key[i] = (byte) proteinId;
+            proteinId >>>= 8;
+        }
+        return key;
+    }
+
+    private static int countLeadingDigits(String key) {
+        int digits = 0;
+        while (digits < key.length() && key.charAt(digits) >= '0' && key.charAt(digits) <= '9') {
+            digits++;
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,40 @@
+package uk.ac.ebi.interpro.scan.persistence.kvstore;
+
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * Iterates over the decoded values of a {@link KVDBCursor}, e.g. the proteins of a range of protein IDs.
+ * <p/>
+ * As for the underlying cursor, it should always be used in a try-with-resources block.
+ * It can be used (once) in a for-each loop.
+ *
+ * @param <T> the type of the values
+ */
+public class KVDBValueCursor<T> implements Iterator<T>, Iterable<T>, AutoCloseable {
+
+    private final KVDBCursor cursor;
+
+    private final Function<byte[], T> decoder;
+
+    public KVDBValueCursor(KVDBCursor cursor, Function<byte[], T> decoder) {
+        this.cursor = cursor;
+        this.decoder = decoder;
+    }
+
+    public Iterator<T> iterator() {
+        return this;
+    }
+
+    public boolean hasNext() {
+        return cursor.hasNext();
+    }
+
+    public T next() {
+        return decoder.apply(cursor.next().getValue());
+    }
+
+    public void close() {
+        cursor.close();
+    }
+}
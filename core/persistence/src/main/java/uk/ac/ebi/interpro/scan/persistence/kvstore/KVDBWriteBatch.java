@@ -0,0 +1,31 @@
+package uk.ac.ebi.interpro.scan.persistence.kvstore;
+
+/**
+ * Collects puts to a {@link KVDB} and writes them to the store in batches, rather than one record at a time.
+ * <p/>
+ * The puts are flushed to the store each time the batch size configured on the store is reached,
+ * and when the batch is closed. Only once close() has returned are all the values guaranteed to be
+ * readable from the store.
+ */
+public interface KVDBWriteBatch extends AutoCloseable {
+
+    void put(String key, byte[] data);
+
+    void put(byte[] key, byte[] data);
+
+    /**
+     * Writes the puts collected so far to the store.
+     */
+    void flush();
+
+    /**
+     * @return the number of puts written to the store so far (including any pending asynchronous writes).
+     */
+    int getWriteCount();
+
+    /**
+     * Flushes the remaining puts and waits for any asynchronous writes to complete.
+     */
+    @Override
+    void close();
+}
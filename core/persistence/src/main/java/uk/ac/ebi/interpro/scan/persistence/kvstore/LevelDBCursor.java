@@ -0,0 +1,81 @@
+package uk.ac.ebi.interpro.scan.persistence.kvstore;
+
+import org.iq80.leveldb.DBIterator;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * LevelDB cursor, see {@link LevelDBStore#scan(byte[], byte[])}.
+ * <p/>
+ * LevelDB keeps the keys sorted bytewise (unsigned), so the cursor seeks to the first key and
+ * stops at the first key that is not below the upper bound. Reserved keys (the signature dictionary)
+ * are skipped.
+ */
+class LevelDBCursor implements KVDBCursor {
+
+    private final DBIterator iterator;
+
+    private final byte[] toKey;
+
+    private Map.Entry<byte[], byte[]> next;
+
+    private boolean closed = false;
+
+    LevelDBCursor(DBIterator iterator, byte[] fromKey, byte[] toKey) {
+        this.iterator = iterator;
+        this.toKey = toKey;
+        if (fromKey == null) {
+            iterator.seekToFirst();
+        } else {
+            iterator.seek(fromKey);
+        }
+    }
+
+    public boolean hasNext() {
+        while (next == null && !closed && iterator.hasNext()) {
+            Map.Entry<byte[], byte[]> entry = iterator.next();
+            if (toKey != null && compareKeys(entry.getKey(), toKey) >= 0) {
+                close();
+            } else if (!KVDBImpl.isReservedKey(entry.getKey())) {
+                next = entry;
+            }
+        }
+        return next != null;
+    }
+
+    public Map.Entry<byte[], byte[]> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Map.Entry<byte[], byte[]> entry = next;
+        next = null;
+        return entry;
+    }
+
+    public void close() {
+        if (!closed) {
+            closed = true;
+            try {
+                iterator.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Same ordering as the LevelDB default (bytewise) comparator.
+     */
+    static int compareKeys(byte[] key1, byte[] key2) {
+        int length = Math.min(key1.length, key2.length);
+        for (int i = 0; i < length; i++) {
+            int difference = (key1[i] & 0xFF) - (key2[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return key1.length - key2.length;
+    }
+}
@@ -3,13 +3,18 @@ package uk.ac.ebi.interpro.scan.persistence.kvstore;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBIterator;
 import org.iq80.leveldb.Options;
+import org.iq80.leveldb.WriteBatch;
 import uk.ac.ebi.interpro.scan.util.Utilities;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
 
@@ -20,6 +25,12 @@ public class LevelDBStore extends KVDBImpl implements AutoCloseable {
 
     DB levelDBStore;
 
+    private int writeBatchSize = 1000;
+
+    private boolean asyncWriteBatchFlush = false;
+
+    private ExecutorService flushExecutor;
+
     public LevelDBStore() {
 
     }
@@ -49,6 +60,28 @@ public class LevelDBStore extends KVDBImpl implements AutoCloseable {
         return levelDBStore;
     }
 
+    /**
+     * @param writeBatchSize the number of puts collected by a {@link KVDBWriteBatch} before they are written to the store
+     */
+    public void setWriteBatchSize(int writeBatchSize) {
+        this.writeBatchSize = writeBatchSize;
+    }
+
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    /**
+     * @param asyncWriteBatchFlush if true, full write batches are written to the store by a background thread
+     */
+    public void setAsyncWriteBatchFlush(boolean asyncWriteBatchFlush) {
+        this.asyncWriteBatchFlush = asyncWriteBatchFlush;
+    }
+
+    public boolean isAsyncWriteBatchFlush() {
+        return asyncWriteBatchFlush;
+    }
+
     /**
      * put a String key  and byte value pair in the DB
      *
@@ -57,7 +90,7 @@ public class LevelDBStore extends KVDBImpl implements AutoCloseable {
      */
     public void put(String key, byte[] data) {
         //System.out.println(dbName  +": put [key byte ] key:" + key);
-        byte[] byteKey = serialize(key);
+        byte[] byteKey = encodeKey(key);
         //levelDBStore.put(byteKey, data);
         put(byteKey, data);
     }
@@ -73,13 +106,43 @@ public class LevelDBStore extends KVDBImpl implements AutoCloseable {
         //levelDBStore.put(key, data);
 
 
+        writeWithRetries(() -> levelDBStore.put(key, data));
+    }
+
+    /**
+     * Creates a batch that writes to this store every writeBatchSize puts, see {@link KVDBWriteBatch}.
+     *
+     * @return a new write batch, to be closed by the caller once all the puts have been added
+     */
+    public KVDBWriteBatch createWriteBatch() {
+        return new LevelDBWriteBatch(this, writeBatchSize, asyncWriteBatchFlush ? getFlushExecutor() : null);
+    }
+
+    /**
+     * write a (full) batch to the DB, then release it
+     *
+     * @param batch
+     */
+    void write(WriteBatch batch) {
+        try {
+            writeWithRetries(() -> levelDBStore.write(batch));
+        } finally {
+            try {
+                batch.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void writeWithRetries(Runnable write) {
         //due to compression etc, the insert might fail
         for (int retries = 0;; retries++) {
             try{
-                levelDBStore.put(key, data);
+                write.run();
                 break; //otherwise its an infinite loop
             } catch (Exception exception) {
-                if (exception instanceof FileNotFoundException ) {
+                if (exception instanceof FileNotFoundException || exception.getCause() instanceof FileNotFoundException) {
                     if (retries > 3) {
                         exception.printStackTrace();  //TODO  for debug ??
                         throw new IllegalStateException("Problem inserting data into the DBStore: FileNotFoundException :- " + exception);
@@ -95,7 +158,17 @@ public class LevelDBStore extends KVDBImpl implements AutoCloseable {
                 }
             }
         }
+    }
 
+    synchronized ExecutorService getFlushExecutor() {
+        if (flushExecutor == null) {
+            flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "kvstore-flush-" + dbName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return flushExecutor;
     }
 
     /**
@@ -105,31 +178,79 @@ public class LevelDBStore extends KVDBImpl implements AutoCloseable {
      * @return
      */
     public byte[] get(String key) {
-        byte[] byteKey = serialize(key);
+        byte[] byteKey = encodeKey(key);
         return levelDBStore.get(byteKey);
     }
 
+    /**
+     * get a byte value  given a byte key
+     *
+     * @param key
+     * @return
+     */
+    public byte[] get(byte[] key) {
+        return levelDBStore.get(key);
+    }
+
     public Map<byte[], byte[]> getAllElements() throws Exception{
         Map<byte[], byte[]> allElements = new HashMap<>();
         if(levelDBStore == null){
             throw new Exception("this kv store is not properly configured");
         }
-        DBIterator iterator = levelDBStore.iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<byte[], byte[]> entry = iterator.next();
-            allElements.put(entry.getKey(), entry.getValue());
+        try (KVDBCursor cursor = scan()) {
+            while (cursor.hasNext()) {
+                Map.Entry<byte[], byte[]> entry = cursor.next();
+                allElements.put(entry.getKey(), entry.getValue());
+            }
         }
         //Utilities.verboseLog(" Number of elements " + count);
-        try {
-            iterator.close();
-        } catch (Exception e) {
-            new IOException(e).printStackTrace();
+        return allElements;
+    }
 
+    public KVDBCursor scan(byte[] fromKey, byte[] toKey) {
+        if (levelDBStore == null) {
+            throw new IllegalStateException("this kv store is not properly configured");
         }
-        return allElements;
+        return new LevelDBCursor(levelDBStore.iterator(), fromKey, toKey);
+    }
+
+    public KVDBCursor scan() {
+        return scan(null, null);
+    }
+
+    public int migrate() throws Exception {
+        if (levelDBStore == null) {
+            throw new Exception("this kv store is not properly configured");
+        }
+        int count = 0;
+        try (DBIterator iterator = levelDBStore.iterator()) {
+            while (iterator.hasNext()) {
+                Map.Entry<byte[], byte[]> entry = iterator.next();
+                if (isReservedKey(entry.getKey()) || codec.canDecode(entry.getValue())) {
+                    continue;
+                }
+                Object value = deserialize(entry.getValue());
+                put(entry.getKey(), serialize((Serializable) value));
+                count++;
+            }
+        }
+        Utilities.verboseLog(10, "Migrated " + count + " values in " + dbName + " to the " + codec.getName() + " codec");
+        return count;
     }
 
+    /**
+     * Closes the store, once the write batches still being flushed in the background have been written.
+     */
     public void close() {
+        final ExecutorService pendingFlushes;
+        synchronized (this) {
+            pendingFlushes = flushExecutor;
+            flushExecutor = null;
+        }
+        if (pendingFlushes != null) {
+            pendingFlushes.shutdown();
+            awaitFlushes(pendingFlushes);
+        }
         try {
             if (levelDBStore != null) {
                 levelDBStore.close();
@@ -139,6 +260,27 @@ public class LevelDBStore extends KVDBImpl implements AutoCloseable {
         }
     }
 
+    private void awaitFlushes(ExecutorService pendingFlushes) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (pendingFlushes.awaitTermination(30, TimeUnit.SECONDS)) {
+                        return;
+                    }
+                    Utilities.verboseLog(10, "Waiting for the write batches of " + dbName + " to be flushed before closing it");
+                } catch (InterruptedException e) {
+                    // Closing the DB under a flush would lose (or corrupt) the batch, so keep waiting.
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return "LevelDBStore{" +
@@ -147,6 +289,8 @@ public class LevelDBStore extends KVDBImpl implements AutoCloseable {
                 ", dbPath='" + getDbPath() + '\'' +
                 ", dbName='" + dbName + '\'' +
                 ", dbType='" + dbType + '\'' +
+                ", writeBatchSize=" + writeBatchSize +
+                ", asyncWriteBatchFlush=" + asyncWriteBatchFlush +
                 ", signatureLibraryNames=" + signatureLibraryNames +
                 '}';
     }
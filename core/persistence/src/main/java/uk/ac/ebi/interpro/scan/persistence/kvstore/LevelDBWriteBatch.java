@@ -0,0 +1,101 @@
+package uk.ac.ebi.interpro.scan.persistence.kvstore;
+
+import org.iq80.leveldb.WriteBatch;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * LevelDB write batch, see {@link LevelDBStore#createWriteBatch()}.
+ * <p/>
+ * When an executor is given, full batches are written by the executor while the caller carries on
+ * serialising the next batch. At most MAX_PENDING_WRITES batches are held in memory waiting to be written.
+ * <p/>
+ * Not thread safe - each thread should use its own batch.
+ */
+class LevelDBWriteBatch implements KVDBWriteBatch {
+
+    private static final int MAX_PENDING_WRITES = 2;
+
+    private final LevelDBStore store;
+
+    private final int batchSize;
+
+    private final ExecutorService flushExecutor;
+
+    private final Deque<Future<?>> pendingWrites = new ArrayDeque<>();
+
+    private WriteBatch batch;
+
+    private int batchCount = 0;
+
+    private int writeCount = 0;
+
+    LevelDBWriteBatch(LevelDBStore store, int batchSize, ExecutorService flushExecutor) {
+        this.store = store;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushExecutor = flushExecutor;
+    }
+
+    public void put(String key, byte[] data) {
+        put(store.encodeKey(key), data);
+    }
+
+    public void put(byte[] key, byte[] data) {
+        if (batch == null) {
+            batch = store.getLevelDBStore().createWriteBatch();
+        }
+        batch.put(key, data);
+        batchCount++;
+        if (batchCount >= batchSize) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        if (batchCount == 0) {
+            return;
+        }
+        final WriteBatch fullBatch = batch;
+        batch = null;
+        writeCount += batchCount;
+        batchCount = 0;
+        if (flushExecutor == null) {
+            store.write(fullBatch);
+        } else {
+            while (pendingWrites.size() >= MAX_PENDING_WRITES) {
+                waitFor(pendingWrites.poll());
+            }
+            pendingWrites.add(flushExecutor.submit(() -> store.write(fullBatch)));
+        }
+    }
+
+    public int getWriteCount() {
+        return writeCount + batchCount;
+    }
+
+    public void close() {
+        flush();
+        while (!pendingWrites.isEmpty()) {
+            waitFor(pendingWrites.poll());
+        }
+    }
+
+    private void waitFor(Future<?> pendingWrite) {
+        try {
+            pendingWrite.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing a batch to the DBStore " + store.getDbName(), e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Problem writing a batch to the DBStore " + store.getDbName(), cause);
+        }
+    }
+}
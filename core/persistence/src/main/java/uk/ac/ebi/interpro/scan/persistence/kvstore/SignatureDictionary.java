@@ -0,0 +1,14 @@
+package uk.ac.ebi.interpro.scan.persistence.kvstore;
+
+import uk.ac.ebi.interpro.scan.model.Signature;
+
+/**
+ * Holds the signatures that are referenced (by ID) from encoded matches, so that each
+ * signature is only stored once per KV store rather than once per match.
+ */
+public interface SignatureDictionary {
+
+    void registerSignature(Signature signature);
+
+    Signature lookupSignature(Long signatureId);
+}
@@ -0,0 +1,67 @@
+package uk.ac.ebi.interpro.scan.persistence.kvstore;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ebi.interpro.scan.model.SignatureLibrary;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the encoding of the KV store keys.
+ */
+public class KVDBKeysTest {
+
+    @Test
+    public void testProteinAndMatchKeys() {
+        assertArrayEquals(KVDBKeys.proteinKey(42), KVDBKeys.encode("42"));
+        assertArrayEquals(KVDBKeys.matchKey(42, SignatureLibrary.PFAM), KVDBKeys.encode("42Pfam"));
+        assertEquals(8, KVDBKeys.encode("42").length);
+        assertEquals(10, KVDBKeys.encode("42Pfam").length);
+        assertEquals(Long.valueOf(42), KVDBKeys.proteinId(KVDBKeys.encode("42SUPERFAMILY")));
+    }
+
+    @Test
+    public void testSignatureLibraryCodesAreStable() {
+        // The codes are persisted, so must not change (e.g. when the libraries are reordered)
+        assertArrayEquals(new byte[]{0, 0, 0, 0, 0, 0, 0, 42, 0, 0}, KVDBKeys.matchKey(42, SignatureLibrary.CDD));
+        assertArrayEquals(new byte[]{0, 0, 0, 0, 0, 0, 0, 42, 0, 6}, KVDBKeys.matchKey(42, SignatureLibrary.PFAM));
+        assertArrayEquals(new byte[]{0, 0, 0, 0, 0, 0, 0, 42, 0, 20}, KVDBKeys.matchKey(42, SignatureLibrary.TMHMM));
+        // Every library has a code of its own
+        Set<String> keys = new HashSet<>();
+        for (SignatureLibrary signatureLibrary : SignatureLibrary.values()) {
+            byte[] key = KVDBKeys.matchKey(1, signatureLibrary);
+            assertTrue(keys.add(Arrays.toString(key)), signatureLibrary.getName() + " shares its code");
+            assertEquals("1" + signatureLibrary.getName(), KVDBKeys.decode(key));
+        }
+    }
+
+    @Test
+    public void testRoundTrip() {
+        String[] keys = {"1", "42", "42Pfam", "123456789012345678SignalP_GRAM_NEGATIVE",
+                "1234567890123456789", "007", "0", "1PFAM", "Pfam", "", "3ac2b4e0c7b28e8b2da6e4c0e8a1fbcd"};
+        for (String key : keys) {
+            assertEquals(key, KVDBKeys.decode(KVDBKeys.encode(key)));
+        }
+        assertNull(KVDBKeys.proteinId(KVDBKeys.encode("3ac2b4e0c7b28e8b2da6e4c0e8a1fbcd")));
+        assertNull(KVDBKeys.proteinId(KVDBImpl.signatureKey(5L)));
+    }
+
+    @Test
+    public void testKeysSortByProteinId() {
+        byte[][] sorted = {
+                KVDBKeys.proteinKey(9),
+                KVDBKeys.matchKey(9, SignatureLibrary.CDD),
+                KVDBKeys.matchKey(9, SignatureLibrary.TMHMM),
+                KVDBKeys.proteinKey(10),
+                KVDBKeys.matchKey(10, SignatureLibrary.PFAM),
+                KVDBKeys.proteinKey(256),
+                KVDBKeys.proteinKey(Long.MAX_VALUE)
+        };
+        for (int i = 1; i < sorted.length; i++) {
+            assertTrue(LevelDBCursor.compareKeys(sorted[i - 1], sorted[i]) < 0, "Key " + i + " is out of order");
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package uk.ac.ebi.interpro.scan.persistence.kvstore;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ebi.interpro.scan.persistence.ProteinDAOImpl;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Scans ranges of protein keys from the KV store.
+ */
+public class LevelDBCursorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LevelDBStore store;
+
+    @BeforeEach
+    public void openStore() {
+        store = new LevelDBStore();
+        store.setDbName("cursorTestDB");
+        store.setLevelDBStore(tempDir.resolve("cursorTestDB").toString());
+        for (long id = 1; id <= 120; id++) {
+            store.put(Long.toString(id), store.serialize(Long.toString(id)));
+        }
+        // Dictionary entries must never be returned by a scan
+        store.put(KVDBImpl.signatureKey(5L), new byte[]{1});
+    }
+
+    @AfterEach
+    public void closeStore() {
+        store.close();
+    }
+
+    @Test
+    public void testScanWholeStoreInNumericOrder() {
+        List<String> keys = scan(null, null);
+        assertEquals(120, keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(Long.toString(i + 1), keys.get(i));
+        }
+    }
+
+    @Test
+    public void testScanRange() {
+        List<String> keys = scan(store.encodeKey("9"), store.encodeKey("101"));
+        assertEquals(92, keys.size());
+        assertEquals("9", keys.get(0));
+        assertEquals("100", keys.get(keys.size() - 1));
+        assertTrue(scan(store.encodeKey("121"), null).isEmpty());
+    }
+
+    @Test
+    public void testProteinIdsReadFromKeysAlone() {
+        // The values are not proteins, so this fails if they are decoded
+        ProteinDAOImpl proteinDAO = new ProteinDAOImpl();
+        proteinDAO.setProteinsNotInLookupDB(store);
+        List<Long> proteinIds = proteinDAO.getProteinIdsNotInLookup(9, 100);
+        assertEquals(92, proteinIds.size());
+        assertEquals(Long.valueOf(9), proteinIds.get(0));
+        assertEquals(Long.valueOf(100), proteinIds.get(proteinIds.size() - 1));
+        assertEquals(92, proteinDAO.countProteinsNotInLookup(9, 100));
+        assertEquals(0, proteinDAO.countProteinsNotInLookup(121, 200));
+    }
+
+    @Test
+    public void testCompareKeysIsUnsigned() {
+        assertTrue(LevelDBCursor.compareKeys(new byte[]{(byte) 0xFF}, new byte[]{0x01}) > 0);
+        assertTrue(LevelDBCursor.compareKeys(new byte[]{0x01}, new byte[]{0x01, 0x00}) < 0);
+        assertEquals(0, LevelDBCursor.compareKeys(new byte[]{0x01, 0x02}, new byte[]{0x01, 0x02}));
+    }
+
+    private List<String> scan(byte[] fromKey, byte[] toKey) {
+        List<String> keys = new ArrayList<>();
+        try (KVDBCursor cursor = store.scan(fromKey, toKey)) {
+            while (cursor.hasNext()) {
+                keys.add(store.asString(cursor.next().getKey()));
+            }
+            assertFalse(cursor.hasNext());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,158 @@
+package uk.ac.ebi.interpro.scan.persistence.kvstore;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.ac.ebi.interpro.scan.persistence.MatchDAOImpl;
+import uk.ac.ebi.interpro.scan.model.*;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round trips proteins and matches through the KV store codecs.
+ */
+public class LevelDBStoreCodecTest {
+
+    private static final String SEQUENCE = "MGAAASIQTTVNTLSERISSKLEQEANASAQTKCDIEIGNFYIRQNHGCNLTVKNMCSAD";
+
+    @TempDir
+    Path tempDir;
+
+    private LevelDBStore store;
+
+    @BeforeEach
+    public void openStore() {
+        store = new LevelDBStore();
+        store.setDbName("codecTestDB");
+        store.setLevelDBStore(tempDir.resolve("codecTestDB").toString());
+    }
+
+    @AfterEach
+    public void closeStore() {
+        store.close();
+    }
+
+    @Test
+    public void testCompactCodecStoresSignaturesByReference() throws Exception {
+        store.setCodec(CompactBinaryCodec.NAME);
+        Signature signature = persistedSignature(7L, "PF00001");
+        HashSet<Match> matches = new HashSet<>();
+        matches.add(hmmer3Match(signature, 1, 40));
+        matches.add(hmmer3Match(signature, 45, 60));
+
+        byte[] compact = store.serialize(matches);
+        byte[] java = SerializationUtils.serialize(matches);
+        assertTrue(store.getCodec().canDecode(compact));
+        assertTrue(compact.length < java.length, "Compact encoding should be smaller than Java serialization");
+
+        store.put("1PFAM", compact);
+        Set<Match> readBack = store.asMatchSet(store.get("1PFAM"));
+        assertEquals(2, readBack.size());
+        for (Match match : readBack) {
+            assertEquals("PF00001", match.getSignature().getAccession());
+            assertEquals(Long.valueOf(7L), match.getSignature().getId());
+        }
+
+        // The signature dictionary must not show up as a store element.
+        Map<byte[], byte[]> allElements = store.getAllElements();
+        assertEquals(1, allElements.size());
+    }
+
+    @Test
+    public void testSignatureDictionaryWrittenOnce() throws Exception {
+        store.setCodec(CompactBinaryCodec.NAME);
+        Signature signature = persistedSignature(9L, "PF00003");
+        HashSet<Match> firstMatches = new HashSet<>();
+        firstMatches.add(hmmer3Match(signature, 1, 40));
+        firstMatches.add(hmmer3Match(signature, 50, 90));
+        store.put("1PFAM", store.serialize(firstMatches));
+
+        // Changes made by the caller after the signature was first written are not seen by the dictionary
+        signature.setEntry(new Entry("IPR000001", "Kringle", EntryType.DOMAIN));
+        HashSet<Match> secondMatches = new HashSet<>();
+        secondMatches.add(hmmer3Match(signature, 5, 60));
+        store.put("2PFAM", store.serialize(secondMatches));
+
+        Signature sharedSignature = null;
+        for (String key : new String[]{"1PFAM", "2PFAM"}) {
+            for (Match match : store.asMatchSet(store.get(key))) {
+                assertNull(match.getSignature().getEntry());
+                assertNotSame(signature, match.getSignature(), "The dictionary must not hold the caller's instance");
+                if (sharedSignature == null) {
+                    sharedSignature = match.getSignature();
+                } else {
+                    assertSame(sharedSignature, match.getSignature(), "Values read back should share the decoded signature");
+                }
+            }
+        }
+
+        // Read back from the store rather than the in-memory signatures
+        store.close();
+        store = new LevelDBStore();
+        store.setDbName("codecTestDB");
+        store.setLevelDBStore(tempDir.resolve("codecTestDB").toString());
+        store.setCodec(CompactBinaryCodec.NAME);
+        for (Match match : store.asMatchSet(store.get("2PFAM"))) {
+            assertEquals("PF00003", match.getSignature().getAccession());
+            assertNull(match.getSignature().getEntry());
+        }
+    }
+
+    @Test
+    public void testReadsStoreWrittenWithJavaSerialization() throws Exception {
+        store.setCodec(JavaSerializationCodec.NAME);
+        Protein protein = new Protein(SEQUENCE);
+        protein.addMatch(hmmer3Match(persistedSignature(8L, "PF00002"), 3, 30));
+        store.put("1", store.serialize(protein));
+
+        store.setCodec(CompactBinaryCodec.NAME);
+        Protein readBack = store.getProtein("1");
+        assertEquals(protein.getMd5(), readBack.getMd5());
+        assertEquals(1, readBack.getMatches().size());
+
+        assertEquals(1, store.migrate());
+        assertTrue(store.getCodec().canDecode(store.get("1")));
+        assertEquals(protein.getMd5(), store.getProtein("1").getMd5());
+        assertEquals(0, store.migrate());
+    }
+
+    private Signature persistedSignature(Long id, String accession) {
+        Signature signature = new Signature.Builder(accession)
+                .name(accession + " name")
+                .signatureLibraryRelease(new SignatureLibraryRelease(SignatureLibrary.PFAM, "32.0"))
+                .build();
+        ReflectionTestUtils.setField(signature, "id", id);
+        return signature;
+    }
+
+    @Test
+    public void testPersistAnyMatchSet() {
+        MatchDAOImpl matchDAO = new MatchDAOImpl();
+        matchDAO.setDbStore(store);
+        Signature signature = persistedSignature(7L, "PF00001");
+        Map<String, Set<Match>> keyToMatches = new HashMap<>();
+        keyToMatches.put("1PFAM", Collections.singleton(hmmer3Match(signature, 1, 40)));
+        keyToMatches.put("2PFAM", Collections.unmodifiableSet(new HashSet<>(Collections.singleton(hmmer3Match(signature, 5, 60)))));
+        matchDAO.persist(keyToMatches);
+        matchDAO.persist("3PFAM", Collections.singleton(hmmer3Match(signature, 10, 80)));
+        for (String key : new String[]{"1PFAM", "2PFAM", "3PFAM"}) {
+            assertEquals(1, matchDAO.getMatchSet(key).size(), key);
+        }
+    }
+
+    private Hmmer3Match hmmer3Match(Signature signature, int start, int end) {
+        Hmmer3Match.Hmmer3Location location = new Hmmer3Match.Hmmer3Location(start, end, 10.0, 0.001,
+                1, end - start, 100, HmmBounds.COMPLETE, start, end, true, DCStatus.CONTINUOUS);
+        return new Hmmer3Match(signature, signature.getAccession(), 12.0, 0.0001, Collections.singleton(location));
+    }
+}
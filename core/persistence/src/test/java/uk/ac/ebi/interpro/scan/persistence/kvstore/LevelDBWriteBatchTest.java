@@ -0,0 +1,99 @@
+package uk.ac.ebi.interpro.scan.persistence.kvstore;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ebi.interpro.scan.model.Protein;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writes proteins to the KV store in batches.
+ */
+public class LevelDBWriteBatchTest {
+
+    private static final String SEQUENCE = "MGAAASIQTTVNTLSERISSKLEQEANASAQTKCDIEIGNFYIRQNHGCNLTVKNMCSAD";
+
+    @TempDir
+    Path tempDir;
+
+    private LevelDBStore store;
+
+    @BeforeEach
+    public void openStore() {
+        store = new LevelDBStore();
+        store.setDbName("writeBatchTestDB");
+        store.setLevelDBStore(tempDir.resolve("writeBatchTestDB").toString());
+        store.setWriteBatchSize(3);
+    }
+
+    @AfterEach
+    public void closeStore() {
+        store.close();
+    }
+
+    @Test
+    public void testWriteBatch() {
+        writeProteins(10);
+    }
+
+    @Test
+    public void testAsyncWriteBatch() {
+        store.setAsyncWriteBatchFlush(true);
+        writeProteins(10);
+    }
+
+    @Test
+    public void testCloseWaitsForPendingFlushes() {
+        store.setAsyncWriteBatchFlush(true);
+        final byte[] data = store.serialize(new Protein(SEQUENCE));
+        store.getFlushExecutor().submit(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            store.put("1", data);
+        });
+        store.close();
+
+        openStore();
+        assertNotNull(store.getProtein("1"), "The pending flush should have been written before the store was closed");
+    }
+
+    @Test
+    public void testPutAll() {
+        Map<String, byte[]> keyToData = new HashMap<>();
+        for (long id = 1; id <= 7; id++) {
+            keyToData.put(Long.toString(id), store.serialize(new Protein(SEQUENCE)));
+        }
+        store.putAll(keyToData);
+        for (long id = 1; id <= 7; id++) {
+            assertEquals(SEQUENCE, store.getProtein(Long.toString(id)).getSequence());
+        }
+    }
+
+    private void writeProteins(int proteinCount) {
+        try (KVDBWriteBatch batch = store.createWriteBatch()) {
+            for (long id = 1; id <= proteinCount; id++) {
+                batch.put(Long.toString(id), store.serialize(new Protein(SEQUENCE)));
+            }
+            assertEquals(proteinCount, batch.getWriteCount());
+            // The full batches have been written, the last (partial) batch is written on close.
+            if (!store.isAsyncWriteBatchFlush()) {
+                assertNotNull(store.get("9"));
+            }
+            assertNull(store.get(Long.toString(proteinCount)));
+        }
+        for (long id = 1; id <= proteinCount; id++) {
+            Protein protein = store.getProtein(Long.toString(id));
+            assertNotNull(protein, "Protein " + id + " should have been written");
+            assertEquals(SEQUENCE, protein.getSequence());
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package uk.ac.ebi.interpro.scan.precalc.berkeley.conversion.toi5;
 
 import org.apache.log4j.Logger;
-import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Required;
 import org.springframework.transaction.annotation.Transactional;
 import uk.ac.ebi.interpro.scan.model.*;
@@ -13,7 +12,6 @@ import uk.ac.ebi.interpro.scan.util.Utilities;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.persistence.Query;
 import java.util.*;
 
 /**
@@ -31,6 +29,8 @@ public class LookupStoreToI5ModelDAOImpl implements LookupStoreToI5ModelDAO {
 
     protected MatchDAO matchDAO;
 
+    private SignatureCache signatureCache;
+
     @PersistenceContext
     protected void setEntityManager(EntityManager entityManager) {
         this.entityManager = entityManager;
@@ -46,6 +46,11 @@ public class LookupStoreToI5ModelDAOImpl implements LookupStoreToI5ModelDAO {
         this.matchDAO = matchDAO;
     }
 
+    @Required
+    public void setSignatureCache(SignatureCache signatureCache) {
+        this.signatureCache = signatureCache;
+    }
+
     /**
      * Method to store matches based upon lookup from the Berkeley match database of precalculated matches.
      *
@@ -202,45 +207,12 @@ public class LookupStoreToI5ModelDAOImpl implements LookupStoreToI5ModelDAO {
                     if (LOGGER.isDebugEnabled()) {
                         LOGGER.debug(debugString);
                     }
-                    Query sigQuery = entityManager.createQuery("select distinct s from Signature s where s.accession = :sig_ac and s.signatureLibraryRelease.library = :library and s.signatureLibraryRelease.version = :version");
-                    sigQuery.setParameter("sig_ac", simpleMatch.getSignatureAccession());
-                    sigQuery.setParameter("library", sigLib);
-
-                    sigQuery.setParameter("version", signatureLibraryReleaseVersion);
-
-                    //Utilities.verboseLog(10, " parameters : - " + sigQuery.getParameters().toString());
-
-                    debugString = "Execute sigQuery : " + sigQuery.toString();
-                    //Utilities.verboseLog(10, debugString);
-//                    List<Signature> signatures = null;
-                    @SuppressWarnings("unchecked")  List<Signature> signatures  = sigQuery.getResultList();
-//                        signatures = sigQuery.getResultList();
-
-                    Signature signature = null;
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("signatures size: " + signatures.size());
-                    }
-
-                    //Utilities.verboseLog(10, "Signatures size: " + signatures.size());
-                    //what should be the behaviour here:
-                    //
-                    if (signatures.size() == 0) {   // This Signature is not in I5, so cannot store this one.
-                        continue;
-                    } else if (signatures.size() > 1) {
-                        //try continue instead of exiting
-                        String warning = "Data inconsistency issue. This distribution appears to contain the same signature multiple times: "
-                                + " signature: " + simpleMatch.getSignatureAccession()
-                                + " library name: " + simpleMatch.getSignatureLibraryName()
-                                //+ " match id: " + simpleMatch.getMatchId()
-                                + " sequence md5: " + proteinMD5;
-                        LOGGER.warn(warning);
+                    final Signature signature = signatureCache.getSignature(sigLib, signatureLibraryReleaseVersion, simpleMatch.getSignatureAccession());
+                    if (signature == null) {   // This Signature is not in I5 (or is in it several times), so cannot store this one.
                         continue;
-                        //throw new IllegalStateException("Data inconsistency issue. This distribution appears to contain the same signature multiple times: " + berkeleyMatch.getSignatureAccession());
-                    } else {
-                        signature = signatures.get(0);
-                        if (LOGGER.isDebugEnabled()) {
-                            LOGGER.debug("signatures size: " + signatures.get(0));
-                        }
+                    }
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("signature: " + signature);
                     }
 
                     // determine the type or the match currently being observed
@@ -348,6 +320,7 @@ public class LookupStoreToI5ModelDAOImpl implements LookupStoreToI5ModelDAO {
             }
         }
         Utilities.verboseLog(30, "exampleKey: " + exampleKey);
+        Utilities.verboseLog(10, "Signature cache " + signatureCache.getStatistics());
     }
 
 
@@ -0,0 +1,156 @@
+package uk.ac.ebi.interpro.scan.precalc.berkeley.conversion.toi5;
+
+import org.apache.log4j.Logger;
+import org.hibernate.Hibernate;
+import uk.ac.ebi.interpro.scan.model.Entry;
+import uk.ac.ebi.interpro.scan.model.Signature;
+import uk.ac.ebi.interpro.scan.model.SignatureLibrary;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only cache of the Signatures (with their Entry, GO and pathway cross references) of each
+ * signature library release, keyed by (library, version, accession), so the lookup match conversion
+ * does not query the database for each model of each protein.
+ * <p/>
+ * All the Signatures of a release are loaded together the first time a match of this release is
+ * converted, then shared by all the conversions.  The cached Signatures are detached from the
+ * persistence context they were loaded in, so must not be modified.
+ * <p/>
+ * Thread-safe.
+ */
+public class SignatureCache {
+
+    private static final Logger LOGGER = Logger.getLogger(SignatureCache.class.getName());
+
+    protected EntityManager entityManager;
+
+    private final ConcurrentMap<String, SignatureRelease> releases = new ConcurrentHashMap<String, SignatureRelease>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong releaseLoadCount = new AtomicLong();
+
+    @PersistenceContext
+    protected void setEntityManager(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * @param library   of the signature.
+     * @param version   of the signature library release.
+     * @param accession of the signature.
+     * @return the signature, or null if it is not in this release of the library in I5 (or is in it several times).
+     */
+    public Signature getSignature(SignatureLibrary library, String version, String accession) {
+        final String releaseKey = library.getName() + '-' + version;
+        SignatureRelease release = releases.get(releaseKey);
+        if (release == null) {
+            // Loaded outside of the map, so a slow load does not block the other releases.
+            final SignatureRelease loaded = new SignatureRelease(loadRelease(library, version));
+            release = releases.putIfAbsent(releaseKey, loaded);
+            if (release == null) {
+                release = loaded;
+                releaseLoadCount.incrementAndGet();
+                if (LOGGER.isInfoEnabled()) {
+                    LOGGER.info("Cached " + loaded.signatures.size() + " signatures of " + releaseKey);
+                }
+            }
+        }
+        final Signature signature = release.signatures.get(accession);
+        if (signature == null) {
+            missCount.incrementAndGet();
+            if (release.duplicatedAccessions.contains(accession)) {
+                LOGGER.warn("Data inconsistency issue. This distribution appears to contain the same signature multiple times: "
+                        + " signature: " + accession + " library name: " + library.getName());
+            }
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return signature;
+    }
+
+    /**
+     * Loads all the Signatures of a signature library release, initialising the
+     * lazy Entry collections read when the converted matches are stored.
+     */
+    protected List<Signature> loadRelease(SignatureLibrary library, String version) {
+        @SuppressWarnings("unchecked") final List<Signature> signatures = entityManager.createQuery(
+                "select distinct s from Signature s left join fetch s.entry " +
+                        "where s.signatureLibraryRelease.library = :library and s.signatureLibraryRelease.version = :version")
+                .setParameter("library", library)
+                .setParameter("version", version)
+                .getResultList();
+        for (Signature signature : signatures) {
+            final Entry entry = signature.getEntry();
+            if (entry != null) {
+                Hibernate.initialize(entry.getGoXRefs());
+                Hibernate.initialize(entry.getPathwayXRefs());
+            }
+        }
+        return signatures;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getReleaseLoadCount() {
+        return releaseLoadCount.get();
+    }
+
+    /**
+     * @return a summary of the cache usage, for logging.
+     */
+    public String getStatistics() {
+        return "releases loaded: " + getReleaseLoadCount() + " hits: " + getHitCount() + " misses: " + getMissCount();
+    }
+
+    /**
+     * Removes all the cached releases, e.g. after the signatures have been reloaded in the database.
+     */
+    public void clear() {
+        releases.clear();
+    }
+
+    /**
+     * The Signatures of a signature library release, by accession.
+     */
+    private static class SignatureRelease {
+
+        private final Map<String, Signature> signatures;
+
+        private final Set<String> duplicatedAccessions;
+
+        SignatureRelease(List<Signature> loaded) {
+            final Map<String, Signature> byAccession = new HashMap<String, Signature>(loaded.size() * 2);
+            final Set<String> duplicated = new HashSet<String>();
+            for (Signature signature : loaded) {
+                if (byAccession.put(signature.getAccession(), signature) != null) {
+                    duplicated.add(signature.getAccession());
+                }
+            }
+            for (String accession : duplicated) {
+                byAccession.remove(accession);
+            }
+            this.signatures = Collections.unmodifiableMap(byAccession);
+            this.duplicatedAccessions = Collections.unmodifiableSet(duplicated);
+        }
+    }
+}
@@ -26,7 +26,9 @@ public class Hmmer3LookupMatchConverter extends LookupMatchConverter<Hmmer3Match
 
     public Hmmer3Match convertMatch(SimpleLookupMatch match, Set<String> sequenceSiteHits, Signature signature) {
 
-        Utilities.verboseLog(10, "Considering hit:" + match.toString());
+        if (Utilities.verboseLogLevel >= 10) {
+            Utilities.verboseLog(10, "Considering hit:" + match.toString());
+        }
 
         final String sln = match.getSignatureLibraryName();
         boolean postProcessed = false;
@@ -39,12 +41,8 @@ public class Hmmer3LookupMatchConverter extends LookupMatchConverter<Hmmer3Match
         int locationStart = valueOrZero(match.getSequenceStart());
         int locationEnd = valueOrZero(match.getSequenceEnd());
 
-        int envStart = match.getEnvelopeStart() == null
-                ? (match.getEnvelopeStart() == null ? 0 : locationStart)
-                : match.getEnvelopeStart();
-        int envEnd =  match.getEnvelopeEnd() == null
-                ? match.getSequenceEnd() == null ? 0 : locationEnd
-                : match.getEnvelopeEnd();
+        int envStart = match.getEnvelopeStart();
+        int envEnd = match.getEnvelopeEnd();
 
         String [] fragmentsTokens =  match.getFragments().split(";");
         final Set<Hmmer3Match.Hmmer3Location.Hmmer3LocationFragment> locationFragments = new HashSet<>(fragmentsTokens.length);
@@ -39,12 +39,8 @@ public class Hmmer3WithSitesLookupMatchConverter extends LookupMatchConverter<Hm
         int locationStart = valueOrZero(match.getSequenceStart());
         int locationEnd = valueOrZero(match.getSequenceEnd());
 
-        int envStart = match.getEnvelopeStart() == null
-                ? (match.getEnvelopeStart() == null ? 0 : locationStart)
-                : match.getEnvelopeStart();
-        int envEnd =  match.getEnvelopeEnd() == null
-                ? match.getSequenceEnd() == null ? 0 : locationEnd
-                : match.getEnvelopeEnd();
+        int envStart = match.getEnvelopeStart();
+        int envEnd = match.getEnvelopeEnd();
 
         String [] fragmentsTokens =  match.getFragments().split(";");
         final Set<Hmmer3Match.Hmmer3Location.Hmmer3LocationFragment> locationFragments = new HashSet<>(fragmentsTokens.length);
@@ -2,19 +2,18 @@ package uk.ac.ebi.interpro.scan.precalc.berkeley.iprscan;
 
 import com.sleepycat.je.DatabaseException;
 import com.sleepycat.persist.EntityStore;
-import com.sleepycat.persist.PrimaryIndex;
 
 
 import uk.ac.ebi.interpro.scan.model.SignatureLibrary;
 import uk.ac.ebi.interpro.scan.precalc.berkeley.conversion.toi5.SignatureLibraryLookup;
 import uk.ac.ebi.interpro.scan.precalc.berkeley.dbstore.BerkeleyDBStore;
-import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
 import uk.ac.ebi.interpro.scan.precalc.berkeley.model.SimpleLookupMatch;
 import uk.ac.ebi.interpro.scan.util.Utilities;
 
 import java.io.File;
 import java.io.IOException;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.TreeSet;
 import java.util.Set;
 import java.util.StringJoiner;
@@ -35,6 +34,16 @@ public class CreateMatchDBFromIprscanBerkeleyDB {
 
     private static final String databaseName = "IPRSCAN";
 
+    /**
+     * Number of partitions read at the same time.
+     */
+    static final int DEFAULT_READER_THREADS = 4;
+
+    /**
+     * Number of chunks of proteins read ahead of the writer per partition.
+     */
+    private static final int QUEUE_CAPACITY = 16;
+
     private static String QUERY_ENABLE_DML = "alter session enable parallel dml";
     
     private static String QUERY_TEMPORARY_TABLE =
@@ -70,6 +79,10 @@ public class CreateMatchDBFromIprscanBerkeleyDB {
         if (args.length >= 6) {
             fetchSize =  Integer.parseInt(args[5]);
         }
+        int readerThreads = DEFAULT_READER_THREADS;
+        if (args.length >= 7) {
+            readerThreads = Integer.parseInt(args[6]);
+        }
 
         CreateMatchDBFromIprscanBerkeleyDB instance = new CreateMatchDBFromIprscanBerkeleyDB();
 
@@ -78,11 +91,19 @@ public class CreateMatchDBFromIprscanBerkeleyDB {
                 username,
                 password,
                 maxUPI,
-                fetchSize
+                fetchSize,
+                readerThreads
         );
     }
 
     void buildDatabase(String directoryPath, String databaseUrl, String username, String password, String maxUPI, int fetchSize) {
+        buildDatabase(directoryPath, databaseUrl, username, password, maxUPI, fetchSize, DEFAULT_READER_THREADS);
+    }
+
+    /**
+     * Reads the partitions in parallel, each with its own connection, see {@link ParallelMatchDBBuilder}.
+     */
+    void buildDatabase(String directoryPath, String databaseUrl, String username, String password, String maxUPI, int fetchSize, int readerThreads) {
         long startMillis = System.currentTimeMillis();
 
         try {
@@ -97,8 +118,6 @@ public class CreateMatchDBFromIprscanBerkeleyDB {
             System.out.println(Utilities.getTimeNow() + " Start the lookup match servive data build @ " + directoryPath);
             startMillis = now;
 
-            PrimaryIndex<Long, KVSequenceEntry> primIDX = null;
-
             Set <String>  partitionNames = getPartitionNames(connection);
 
             //prepare the db directory
@@ -124,209 +143,14 @@ public class CreateMatchDBFromIprscanBerkeleyDB {
             System.out.println("Create the Berkeley DB Store and populate ... ");
             try (BerkeleyDBStore lookupMatchDB = new BerkeleyDBStore()){
                 lookupMatchDB.create(dbStoreName, lookupMatchDBDirectory);
-                if (primIDX == null) {
-                    primIDX = lookupMatchDB.getEntityStore().getPrimaryIndex(Long.class, KVSequenceEntry.class);
-                }
-
-                long locationFragmentCount = 0, proteinMD5Count = 0, matchCount = 0;
-                int partitionCount = 0;
 
-                try (PreparedStatement psParallelDML = connection.prepareStatement(QUERY_ENABLE_DML)) {
-                    boolean executeParallelDML = psParallelDML.execute();
-                }
-
-                for (String partitionName : partitionNames) {
-                    partitionCount++;
-//                    if (partitionName.compareTo("UPI00085") <= 0){
-//                        continue;
-//                    }
-                    long startPartition = System.currentTimeMillis();
-                    int partitionMatchCount = 0;
-                    System.out.println(Utilities.getTimeNow() + " Now processing partition #" + partitionCount + " :-  " + partitionName);
-                    String partitionQueryLookupTable = QUERY_TEMPORARY_TABLE.replace("partitionName", partitionName);
-                    System.out.println(Utilities.getTimeNow() + " sql for this partition: " + partitionQueryLookupTable);
-                    try (PreparedStatement ps = connection.prepareStatement(partitionQueryLookupTable)) {
-                        //should we play witht eh featch array size
-                        System.out.println(Utilities.getTimeNow() + " old FetchSize: " + ps.getFetchSize());
-                        ps.setFetchSize(fetchSize);
-                        System.out.println(Utilities.getTimeNow() + "  new FetchSize: " + ps.getFetchSize());
-                        //ps.setString(1, partitionName);
-
-                        //ps.setString(1, partitionName);
-                        //ps.setString(1, partitionName);
-
-                        //ps.setString(2, partitionName);
-                        //System.out.println(Utilities.getTimeNow() + "sql:" + ps.toString());
-                        try (ResultSet rs = ps.executeQuery()) {
-                            long endExecuteQueryMillis = System.currentTimeMillis();
-                            System.out.println(Utilities.getTimeNow() + "  " + String.valueOf((endExecuteQueryMillis - startPartition) / 1000) + " seconds to process query");
-                            //BerkeleyMatch match = null;
-                            KVSequenceEntry match = null;
-
-                            while (rs.next()) {
-
-                                // Only process if the SignatureLibraryName is recognised.
-                                final String signatureLibraryName = rs.getString(SimpleLookupMatch.COL_IDX_SIG_LIB_NAME);
-//                        System.out.println(Utilities.getTimeNow() + " signatureLibraryName : # " + COL_IDX_SIG_LIB_NAME + " - " +  signatureLibraryName);
-                                if (rs.wasNull() || signatureLibraryName == null) continue;
-                                SignatureLibrary signatureLibrary = SignatureLibraryLookup.lookupSignatureLibrary(signatureLibraryName);
-                                if (signatureLibrary == null) {
-				/*
-                                || signatureLibrary.getName().equals(SignatureLibrary.PHOBIUS.getName())
-                                || signatureLibrary.getName().equals(SignatureLibrary.TMHMM.getName())
-                                || signatureLibrary.getName().equals(SignatureLibrary.SIGNALP_EUK.getName())
-                                || signatureLibrary.getName().equals(SignatureLibrary.SIGNALP_GRAM_POSITIVE.getName())
-                                || signatureLibrary.getName().equals(SignatureLibrary.SIGNALP_GRAM_NEGATIVE.getName())
-                                ){
-				*/
-                                    continue;
-                                }
-
-                                // Now collect rest of the data and test for mandatory fields.
-                                final int sequenceStart = rs.getInt(SimpleLookupMatch.COL_IDX_SEQ_START);
-//                        System.out.println(Utilities.getTimeNow() + " sequenceStart : # " + COL_IDX_SEQ_START + " - " +  sequenceStart);
-                                if (rs.wasNull()) continue;
-
-                                final int sequenceEnd = rs.getInt(SimpleLookupMatch.COL_IDX_SEQ_END);
-//                        System.out.println(Utilities.getTimeNow() + " sequenceEnd : # " + COL_IDX_SEQ_END + " - " +  sequenceEnd);
-                                if (rs.wasNull()) continue;
-
-                                final String proteinMD5 = rs.getString(SimpleLookupMatch.COL_IDX_MD5);
-//                        System.out.println(Utilities.getTimeNow() + " proteinMD5 : # " + COL_IDX_MD5 + " - " +  proteinMD5);
-                                if (proteinMD5 == null || proteinMD5.length() == 0) continue;
-
-                                final String sigLibRelease = rs.getString(SimpleLookupMatch.COL_IDX_SIG_LIB_RELEASE);
-                                if (sigLibRelease == null || sigLibRelease.length() == 0) continue;
-
-                                final String signatureAccession = rs.getString(SimpleLookupMatch.COL_IDX_SIG_ACCESSION);
-                                if (signatureAccession == null || signatureAccession.length() == 0) continue;
-
-                                final String modelAccession = rs.getString(SimpleLookupMatch.COL_IDX_MODEL_ACCESSION);
-                                if (modelAccession == null || modelAccession.length() == 0) continue;
-
-                                Integer hmmStart = rs.getInt(SimpleLookupMatch.COL_IDX_HMM_START);
-                                if (rs.wasNull()) hmmStart = null;
-
-                                Integer hmmEnd = rs.getInt(SimpleLookupMatch.COL_IDX_HMM_END);
-                                if (rs.wasNull()) hmmEnd = null;
-
-                                Integer hmmLength = rs.getInt(SimpleLookupMatch.COL_IDX_HMM_LENGTH);
-                                if (rs.wasNull()) hmmLength = null;
-
-                                String hmmBounds = rs.getString(SimpleLookupMatch.COL_IDX_HMM_BOUNDS);
-
-                                Double sequenceScore = rs.getDouble(SimpleLookupMatch.COL_IDX_SEQ_SCORE);
-                                if (rs.wasNull()) sequenceScore = null;
-
-                                Double sequenceEValue = rs.getDouble(SimpleLookupMatch.COL_IDX_SEQ_EVALUE);
-                                if (rs.wasNull()) sequenceEValue = null;
-
-                                Double locationScore = rs.getDouble(SimpleLookupMatch.COL_IDX_LOC_SCORE);
-                                if (rs.wasNull()) locationScore = null;
-
-                                Double locationEValue = rs.getDouble(SimpleLookupMatch.COL_IDX_LOC_EVALUE);
-                                if (rs.wasNull()) {
-                                    locationEValue = null;
-                                }
-
-                                Integer envelopeStart = rs.getInt(SimpleLookupMatch.COL_IDX_ENV_START);
-                                if (rs.wasNull()) envelopeStart = null;
-
-                                Integer envelopeEnd = rs.getInt(SimpleLookupMatch.COL_IDX_ENV_END);
-                                if (rs.wasNull()) envelopeEnd = null;
-
-                                String seqFeature = rs.getString(SimpleLookupMatch.COL_IDX_SEQ_FEATURE);
-                                String fragments = rs.getString(SimpleLookupMatch.COL_IDX_FRAGMENTS);
-                                //reformat the fragments to be semi colon delimited
-                                fragments = fragments.replace(",", ";");
-
-                                String columnDelimiter = ",";
-                                StringJoiner kvMatchJoiner = new StringJoiner(columnDelimiter);
-
-                                kvMatchJoiner.add(signatureLibraryName);
-                                kvMatchJoiner.add(sigLibRelease);
-                                kvMatchJoiner.add(signatureAccession);
-                                kvMatchJoiner.add(modelAccession);
-                                kvMatchJoiner.add(kvValueOf(sequenceStart));
-                                kvMatchJoiner.add(kvValueOf(sequenceEnd));
-                                kvMatchJoiner.add(fragments);
-                                kvMatchJoiner.add(kvValueOf(sequenceScore));
-                                kvMatchJoiner.add(kvValueOf(sequenceEValue));
-                                kvMatchJoiner.add(kvValueOf(hmmBounds));
-                                kvMatchJoiner.add(kvValueOf(hmmStart));
-                                kvMatchJoiner.add(kvValueOf(hmmEnd));
-                                kvMatchJoiner.add(kvValueOf(hmmLength));
-                                kvMatchJoiner.add(kvValueOf(envelopeStart));
-                                kvMatchJoiner.add(kvValueOf(envelopeEnd));
-                                kvMatchJoiner.add(kvValueOf(locationScore));
-                                kvMatchJoiner.add(kvValueOf(locationEValue));
-                                kvMatchJoiner.add(kvValueOf(seqFeature)); //for hamap, and prosites this columns is also the alignment column
-
-                                String kvMatch = kvMatchJoiner.toString();
-
-                                if (matchCount == 0) {
-                                    System.out.println(Utilities.getTimeNow() + " match 0:  " + kvMatch.toString());
-                                }
-                                if (match == null) {
-                                    match = new KVSequenceEntry();
-                                    match.setProteinMD5(proteinMD5);
-                                    match.addMatch(kvMatch);
-                                } else {
-                                    if (proteinMD5.equals(match.getProteinMD5())) {
-                                        match.addMatch(kvMatch);
-                                    } else {
-                                        primIDX.put(match);
-                                        proteinMD5Count++;
-                                        match = new KVSequenceEntry();
-                                        match.setProteinMD5(proteinMD5);
-                                        match.addMatch(kvMatch);
-                                    }
-                                }
-                                matchCount++;
-                                partitionMatchCount++;
-                                if (partitionMatchCount == 1) {
-                                    System.out.println(Utilities.getTimeNow() + " match 1:  " + match.toString());
-                                }
-                                if (matchCount % 2000000 == 0) {
-                                    if (matchCount % 6000000 == 0) {
-                                        long startSync = System.currentTimeMillis();
-                                        System.out.println(Utilities.getTimeNow() + " Start Sync to disk ");
-                                        lookupMatchDB.getEntityStore().sync();
-                                        long syncTime = System.currentTimeMillis() - startSync;
-                                        Integer syncTimeSeconds = (int) syncTime / 1000;
-                                        System.out.println(Utilities.getTimeNow() + " Sync to disk " + proteinMD5Count + " protein MD5s, with a total of " + matchCount + " matches.-- syncTimeSeconds: " + syncTimeSeconds);
-                                    } else {
-                                        System.out.println(Utilities.getTimeNow() + " Stored " + proteinMD5Count + " protein MD5s, with a total of " + matchCount + " matches.");
-                                    }
-                                }
-                            }
-                            // Don't forget the last match!
-                            if (match != null) {
-                                primIDX.put(match);
-                            }
-                            // partition statistics
-                            long timeProcessingPartition = System.currentTimeMillis() - startPartition;
-                            Integer timeProcessingPartitionSeconds = (int) timeProcessingPartition / 1000;
-                            System.out.println(Utilities.getTimeNow() + " Stored " + partitionMatchCount + " partition matches ( " + proteinMD5Count + " total md5s) in " + timeProcessingPartitionSeconds + " seconds");
-                            if (timeProcessingPartitionSeconds < 1) {
-                                System.out.println(Utilities.getTimeNow() + " timeProcessingPartitionSeconds =  " + timeProcessingPartitionSeconds);
-                                timeProcessingPartitionSeconds = 1;
-                            }
-                            Integer throughputPerSecond = partitionMatchCount / timeProcessingPartitionSeconds;
-                            System.out.println(Utilities.getTimeNow() + " ThroughputPerSecond =  " + throughputPerSecond + "  .... o ......");
-                            //break;  //lets look at one partition now
-                        } catch (SQLException e) {
-                            e.printStackTrace();
-                            throw new IllegalStateException("SQLException thrown by IPRSCAN", e);
-                        }
-                        System.out.println(Utilities.getTimeNow() + " Stored " + matchCount + " matches");
-                        //lookupMatchDB.close();  not needed as used the autocloseable
-                        lookupMatchDB.getEntityStore().sync();
-                    } catch (SQLException e) {
-                        e.printStackTrace();
-                        throw new IllegalStateException("SQLException thrown by IPRSCAN", e);
-                    }
-                }
+                ParallelMatchDBBuilder builder = new ParallelMatchDBBuilder(
+                        () -> DriverManager.getConnection(databaseUrl, username, password),
+                        QUERY_TEMPORARY_TABLE, readerThreads, QUEUE_CAPACITY, fetchSize);
+                builder.setSessionInitStatement(QUERY_ENABLE_DML);
+                builder.build(lookupMatchDB, new ArrayList<>(partitionNames));
+                System.out.println(Utilities.getTimeNow() + " Stored " + builder.getMatchCount() + " matches of " + builder.getProteinCount()
+                        + " protein MD5s in " + (System.currentTimeMillis() - startMillis) / 1000 + " seconds");
                 System.out.println("Finished building BerkeleyDB.");
             }
         } catch (SQLException e) {
@@ -335,6 +159,100 @@ public class CreateMatchDBFromIprscanBerkeleyDB {
         }
     }
 
+    /**
+     * Converts the current row of the lookup table into a comma separated lookup match (see {@link SimpleLookupMatch}).
+     *
+     * @return the lookup match, or null if the signature library is not recognised or a mandatory field is missing.
+     */
+    static String kvMatchOf(ResultSet rs) throws SQLException {
+        // Only process if the SignatureLibraryName is recognised.
+        final String signatureLibraryName = rs.getString(SimpleLookupMatch.COL_IDX_SIG_LIB_NAME);
+        if (rs.wasNull() || signatureLibraryName == null) return null;
+        SignatureLibrary signatureLibrary = SignatureLibraryLookup.lookupSignatureLibrary(signatureLibraryName);
+        if (signatureLibrary == null) {
+            return null;
+        }
+
+        // Now collect rest of the data and test for mandatory fields.
+        final int sequenceStart = rs.getInt(SimpleLookupMatch.COL_IDX_SEQ_START);
+        if (rs.wasNull()) return null;
+
+        final int sequenceEnd = rs.getInt(SimpleLookupMatch.COL_IDX_SEQ_END);
+        if (rs.wasNull()) return null;
+
+        final String proteinMD5 = rs.getString(SimpleLookupMatch.COL_IDX_MD5);
+        if (proteinMD5 == null || proteinMD5.length() == 0) return null;
+
+        final String sigLibRelease = rs.getString(SimpleLookupMatch.COL_IDX_SIG_LIB_RELEASE);
+        if (sigLibRelease == null || sigLibRelease.length() == 0) return null;
+
+        final String signatureAccession = rs.getString(SimpleLookupMatch.COL_IDX_SIG_ACCESSION);
+        if (signatureAccession == null || signatureAccession.length() == 0) return null;
+
+        final String modelAccession = rs.getString(SimpleLookupMatch.COL_IDX_MODEL_ACCESSION);
+        if (modelAccession == null || modelAccession.length() == 0) return null;
+
+        Integer hmmStart = rs.getInt(SimpleLookupMatch.COL_IDX_HMM_START);
+        if (rs.wasNull()) hmmStart = null;
+
+        Integer hmmEnd = rs.getInt(SimpleLookupMatch.COL_IDX_HMM_END);
+        if (rs.wasNull()) hmmEnd = null;
+
+        Integer hmmLength = rs.getInt(SimpleLookupMatch.COL_IDX_HMM_LENGTH);
+        if (rs.wasNull()) hmmLength = null;
+
+        String hmmBounds = rs.getString(SimpleLookupMatch.COL_IDX_HMM_BOUNDS);
+
+        Double sequenceScore = rs.getDouble(SimpleLookupMatch.COL_IDX_SEQ_SCORE);
+        if (rs.wasNull()) sequenceScore = null;
+
+        Double sequenceEValue = rs.getDouble(SimpleLookupMatch.COL_IDX_SEQ_EVALUE);
+        if (rs.wasNull()) sequenceEValue = null;
+
+        Double locationScore = rs.getDouble(SimpleLookupMatch.COL_IDX_LOC_SCORE);
+        if (rs.wasNull()) locationScore = null;
+
+        Double locationEValue = rs.getDouble(SimpleLookupMatch.COL_IDX_LOC_EVALUE);
+        if (rs.wasNull()) {
+            locationEValue = null;
+        }
+
+        Integer envelopeStart = rs.getInt(SimpleLookupMatch.COL_IDX_ENV_START);
+        if (rs.wasNull()) envelopeStart = null;
+
+        Integer envelopeEnd = rs.getInt(SimpleLookupMatch.COL_IDX_ENV_END);
+        if (rs.wasNull()) envelopeEnd = null;
+
+        String seqFeature = rs.getString(SimpleLookupMatch.COL_IDX_SEQ_FEATURE);
+        String fragments = rs.getString(SimpleLookupMatch.COL_IDX_FRAGMENTS);
+        //reformat the fragments to be semi colon delimited
+        fragments = fragments.replace(",", ";");
+
+        String columnDelimiter = ",";
+        StringJoiner kvMatchJoiner = new StringJoiner(columnDelimiter);
+
+        kvMatchJoiner.add(signatureLibraryName);
+        kvMatchJoiner.add(sigLibRelease);
+        kvMatchJoiner.add(signatureAccession);
+        kvMatchJoiner.add(modelAccession);
+        kvMatchJoiner.add(kvValueOf(sequenceStart));
+        kvMatchJoiner.add(kvValueOf(sequenceEnd));
+        kvMatchJoiner.add(fragments);
+        kvMatchJoiner.add(kvValueOf(sequenceScore));
+        kvMatchJoiner.add(kvValueOf(sequenceEValue));
+        kvMatchJoiner.add(kvValueOf(hmmBounds));
+        kvMatchJoiner.add(kvValueOf(hmmStart));
+        kvMatchJoiner.add(kvValueOf(hmmEnd));
+        kvMatchJoiner.add(kvValueOf(hmmLength));
+        kvMatchJoiner.add(kvValueOf(envelopeStart));
+        kvMatchJoiner.add(kvValueOf(envelopeEnd));
+        kvMatchJoiner.add(kvValueOf(locationScore));
+        kvMatchJoiner.add(kvValueOf(locationEValue));
+        kvMatchJoiner.add(kvValueOf(seqFeature)); //for hamap, and prosites this columns is also the alignment column
+
+        return kvMatchJoiner.toString();
+    }
+
     public Set <String>  getPartitionNames(Connection connection){
         Set <String> partitionNames = new TreeSet<>();
 
@@ -0,0 +1,286 @@
+package uk.ac.ebi.interpro.scan.precalc.berkeley.iprscan;
+
+import com.sleepycat.persist.PrimaryIndex;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.dbstore.BerkeleyDBStore;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.SimpleLookupMatch;
+import uk.ac.ebi.interpro.scan.util.Utilities;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pipelined loader of the lookup match BerkeleyDB.
+ * <p/>
+ * The partitions of the lookup table are read in parallel, each by its own connection, into a bounded
+ * queue of chunks of {@link KVSequenceEntry}s per partition.  A single writer drains the queues in partition
+ * order, so the entries are stored in the MD5 order of each partition query and get the same match ids as
+ * when the partitions are read one after another.  The readers block when their queue is full, so at
+ * most (reader threads x queue capacity) chunks are held in memory.
+ * <p/>
+ * The writer only pauses to sync the deferred writes of the store, while the readers keep filling
+ * their queues.  The throughput, and where the time goes (readers blocked on a full queue, or writer
+ * waiting for the readers), is reported every progress interval.
+ */
+public class ParallelMatchDBBuilder {
+
+    /**
+     * Opens a connection to the lookup table, for each partition read.
+     */
+    public interface ConnectionFactory {
+        Connection getConnection() throws SQLException;
+    }
+
+    private static final List<KVSequenceEntry> END_OF_PARTITION = Collections.emptyList();
+
+    private final ConnectionFactory connectionFactory;
+
+    /**
+     * Query of a partition, with the text "partitionName" replaced by the name of the partition,
+     * returning the columns of the lookup table (see {@link SimpleLookupMatch}) ordered by MD5.
+     */
+    private final String partitionQuery;
+
+    private final int readerThreads;
+
+    private final int queueCapacity;
+
+    private final int fetchSize;
+
+    private String sessionInitStatement;
+
+    private int chunkSize = 1000;
+
+    private long syncInterval = 6000000;
+
+    private long progressIntervalMillis = 60000;
+
+    private final AtomicLong rowCount = new AtomicLong();
+
+    private final AtomicLong readerBlockedNanos = new AtomicLong();
+
+    private final AtomicInteger partitionsRead = new AtomicInteger();
+
+    private long proteinCount;
+
+    private long matchCount;
+
+    private long writerWaitingNanos;
+
+    public ParallelMatchDBBuilder(ConnectionFactory connectionFactory, String partitionQuery, int readerThreads, int queueCapacity, int fetchSize) {
+        this.connectionFactory = connectionFactory;
+        this.partitionQuery = partitionQuery;
+        this.readerThreads = Math.max(1, readerThreads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @param sessionInitStatement executed on each connection before reading a partition (e.g. to enable parallel DML).
+     */
+    public void setSessionInitStatement(String sessionInitStatement) {
+        this.sessionInitStatement = sessionInitStatement;
+    }
+
+    /**
+     * @param chunkSize number of proteins per chunk passed from a reader to the writer.
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * @param syncInterval number of matches stored between syncs of the deferred writes to disk.
+     */
+    public void setSyncInterval(long syncInterval) {
+        this.syncInterval = syncInterval;
+    }
+
+    public void setProgressIntervalMillis(long progressIntervalMillis) {
+        this.progressIntervalMillis = progressIntervalMillis;
+    }
+
+    /**
+     * Reads the partitions and stores their matches.
+     *
+     * @param lookupMatchDB  created, empty store.
+     * @param partitionNames in the order their matches are stored.
+     */
+    public void build(BerkeleyDBStore lookupMatchDB, List<String> partitionNames) {
+        final PrimaryIndex<Long, KVSequenceEntry> primIDX = lookupMatchDB.getEntityStore().getPrimaryIndex(Long.class, KVSequenceEntry.class);
+        final List<BlockingQueue<List<KVSequenceEntry>>> queues = new ArrayList<>(partitionNames.size());
+        final List<Future<?>> readers = new ArrayList<>(partitionNames.size());
+        final ExecutorService executor = Executors.newFixedThreadPool(readerThreads);
+        final long startNanos = System.nanoTime();
+        try {
+            // Submitted in partition order, so the partition drained by the writer is always being read
+            for (String partitionName : partitionNames) {
+                final BlockingQueue<List<KVSequenceEntry>> queue = new LinkedBlockingQueue<>(queueCapacity);
+                queues.add(queue);
+                readers.add(executor.submit(() -> {
+                    readPartition(partitionName, queue);
+                    return null;
+                }));
+            }
+            executor.shutdown();
+
+            long nextSync = syncInterval;
+            long lastProgressNanos = startNanos;
+            long lastProgressMatchCount = 0;
+            for (int i = 0; i < partitionNames.size(); i++) {
+                final BlockingQueue<List<KVSequenceEntry>> queue = queues.get(i);
+                while (true) {
+                    final long waitStart = System.nanoTime();
+                    final List<KVSequenceEntry> chunk = queue.poll(1, TimeUnit.SECONDS);
+                    final long now = System.nanoTime();
+                    writerWaitingNanos += now - waitStart;
+                    if (now - lastProgressNanos >= TimeUnit.MILLISECONDS.toNanos(progressIntervalMillis)) {
+                        logProgress(partitionNames.size(), i, startNanos, lastProgressNanos, lastProgressMatchCount, now);
+                        lastProgressNanos = now;
+                        lastProgressMatchCount = matchCount;
+                    }
+                    if (chunk == null) {
+                        continue;
+                    }
+                    if (chunk == END_OF_PARTITION) {
+                        break;
+                    }
+                    for (KVSequenceEntry entry : chunk) {
+                        primIDX.put(entry);
+                        proteinCount++;
+                        matchCount += entry.getSequenceHits().size();
+                    }
+                    if (matchCount >= nextSync) {
+                        sync(lookupMatchDB);
+                        nextSync = matchCount + syncInterval;
+                    }
+                }
+                // Rethrows the failure of the reader, if any
+                readers.get(i).get();
+            }
+            sync(lookupMatchDB);
+            logProgress(partitionNames.size(), partitionNames.size(), startNanos, startNanos, 0, System.nanoTime());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the lookup match DB", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to read a partition of IPRSCAN", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void readPartition(String partitionName, BlockingQueue<List<KVSequenceEntry>> queue) throws SQLException, InterruptedException {
+        final long startPartition = System.currentTimeMillis();
+        int partitionMatchCount = 0;
+        try (Connection connection = connectionFactory.getConnection()) {
+            if (sessionInitStatement != null) {
+                try (PreparedStatement ps = connection.prepareStatement(sessionInitStatement)) {
+                    ps.execute();
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement(partitionQuery.replace("partitionName", partitionName))) {
+                ps.setFetchSize(fetchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    List<KVSequenceEntry> chunk = new ArrayList<>(chunkSize);
+                    KVSequenceEntry match = null;
+                    while (rs.next()) {
+                        rowCount.incrementAndGet();
+                        final String kvMatch = CreateMatchDBFromIprscanBerkeleyDB.kvMatchOf(rs);
+                        if (kvMatch == null) {
+                            continue;
+                        }
+                        final String proteinMD5 = rs.getString(SimpleLookupMatch.COL_IDX_MD5);
+                        if (match == null || !proteinMD5.equals(match.getProteinMD5())) {
+                            if (match != null) {
+                                chunk.add(match);
+                                if (chunk.size() == chunkSize) {
+                                    put(queue, chunk);
+                                    chunk = new ArrayList<>(chunkSize);
+                                }
+                            }
+                            match = new KVSequenceEntry();
+                            match.setProteinMD5(proteinMD5);
+                        }
+                        match.addMatch(kvMatch);
+                        partitionMatchCount++;
+                    }
+                    // Don't forget the last match!
+                    if (match != null) {
+                        chunk.add(match);
+                    }
+                    if (!chunk.isEmpty()) {
+                        put(queue, chunk);
+                    }
+                }
+            }
+        } finally {
+            // Always release the writer, which then rethrows the failure of this reader
+            try {
+                queue.put(END_OF_PARTITION);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        partitionsRead.incrementAndGet();
+        final long seconds = Math.max(1, (System.currentTimeMillis() - startPartition) / 1000);
+        System.out.println(Utilities.getTimeNow() + " Read " + partitionMatchCount + " matches of partition " + partitionName
+                + " in " + seconds + " seconds (" + partitionMatchCount / seconds + " matches per second)");
+    }
+
+    private void put(BlockingQueue<List<KVSequenceEntry>> queue, List<KVSequenceEntry> chunk) throws InterruptedException {
+        if (!queue.offer(chunk)) {
+            final long start = System.nanoTime();
+            queue.put(chunk);
+            readerBlockedNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void sync(BerkeleyDBStore lookupMatchDB) {
+        final long startSync = System.currentTimeMillis();
+        lookupMatchDB.getEntityStore().sync();
+        System.out.println(Utilities.getTimeNow() + " Sync to disk " + proteinCount + " protein MD5s, with a total of " + matchCount
+                + " matches.-- syncTimeSeconds: " + (System.currentTimeMillis() - startSync) / 1000);
+    }
+
+    private void logProgress(int partitionCount, int partitionsWritten, long startNanos, long lastProgressNanos, long lastProgressMatchCount, long now) {
+        final double seconds = Math.max(1e-9, (now - startNanos) / 1e9);
+        final double intervalSeconds = Math.max(1e-9, (now - lastProgressNanos) / 1e9);
+        System.out.println(Utilities.getTimeNow() + " Partitions read: " + partitionsRead.get() + " written: " + partitionsWritten + " of " + partitionCount
+                + ", stored " + proteinCount + " protein MD5s with " + matchCount + " matches (" + rowCount.get() + " rows read)"
+                + ", matches per second: " + (long) ((matchCount - lastProgressMatchCount) / intervalSeconds)
+                + " (overall " + (long) (matchCount / seconds) + ")"
+                + ", readers blocked: " + TimeUnit.NANOSECONDS.toSeconds(readerBlockedNanos.get()) + "s"
+                + ", writer waiting: " + TimeUnit.NANOSECONDS.toSeconds(writerWaitingNanos) + "s");
+    }
+
+    public int getPartitionsRead() {
+        return partitionsRead.get();
+    }
+
+    public long getRowCount() {
+        return rowCount.get();
+    }
+
+    public long getProteinCount() {
+        return proteinCount;
+    }
+
+    public long getMatchCount() {
+        return matchCount;
+    }
+}
@@ -0,0 +1,152 @@
+package uk.ac.ebi.interpro.scan.precalc.berkeley.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compact binary alternative to {@link KVSequenceEntryXML} for sending the match (or site) data
+ * of the lookup service, written and read one {@link KVSequenceEntry} at a time so the client
+ * can handle the entries while the rest of the response is still arriving.
+ * <p/>
+ * The stream is a header (magic number and format version) followed by, for each entry, the number
+ * of hits, the protein MD5 and the hits, each string being length-prefixed UTF-8.
+ * A hit count of -1 ends the stream, so a truncated response is detected.
+ */
+public final class KVSequenceEntryStream {
+
+    /**
+     * Media type of the binary stream, negotiated with the Accept header of the lookup requests.
+     */
+    public static final String CONTENT_TYPE = "application/x-interpro-kvsequenceentry";
+
+    private static final int MAGIC = 0x4B565345; // "KVSE"
+
+    private static final byte VERSION = 1;
+
+    private static final int END_OF_STREAM = -1;
+
+    private KVSequenceEntryStream() {
+    }
+
+    /**
+     * Writes entries to the stream.  Entries are buffered, {@link #flush()} to send those written so far.
+     */
+    public static class Writer implements Closeable {
+
+        private final DataOutputStream out;
+
+        private boolean ended = false;
+
+        public Writer(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out));
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(VERSION);
+        }
+
+        public void write(KVSequenceEntry entry) throws IOException {
+            final Set<String> hits = entry.getSequenceHits();
+            out.writeInt(hits == null ? 0 : hits.size());
+            writeString(entry.getProteinMD5());
+            if (hits != null) {
+                for (String hit : hits) {
+                    writeString(hit);
+                }
+            }
+        }
+
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        /**
+         * Ends the stream and closes the underlying output stream.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!ended) {
+                ended = true;
+                out.writeInt(END_OF_STREAM);
+            }
+            out.close();
+        }
+
+        private void writeString(String value) throws IOException {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads the entries of a stream, in the order they were written.
+     */
+    public static class Reader implements Closeable {
+
+        private final DataInputStream in;
+
+        private boolean ended = false;
+
+        public Reader(InputStream in) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(in));
+            final int magic = this.in.readInt();
+            if (magic != MAGIC) {
+                throw new IOException("Not a KVSequenceEntry stream");
+            }
+            final byte version = this.in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported KVSequenceEntry stream version " + version);
+            }
+        }
+
+        /**
+         * @return the next entry, or null at the end of the stream.
+         * @throws EOFException if the stream was truncated.
+         */
+        public KVSequenceEntry read() throws IOException {
+            if (ended) {
+                return null;
+            }
+            final int hitCount = in.readInt();
+            if (hitCount == END_OF_STREAM) {
+                ended = true;
+                return null;
+            }
+            if (hitCount < 0) {
+                throw new IOException("Invalid hit count " + hitCount + " in KVSequenceEntry stream");
+            }
+            final KVSequenceEntry entry = new KVSequenceEntry();
+            entry.setProteinMD5(readString());
+            final Set<String> hits = new HashSet<>(Math.max(16, hitCount * 4 / 3 + 1));
+            for (int i = 0; i < hitCount; i++) {
+                hits.add(readString());
+            }
+            entry.setSequenceHits(hits);
+            return entry;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private String readString() throws IOException {
+            final int length = in.readInt();
+            if (length < 0) {
+                throw new IOException("Invalid string length " + length + " in KVSequenceEntry stream");
+            }
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package uk.ac.ebi.interpro.scan.precalc.berkeley.model;
+
+/**
+ * Single pass, regex-free tokenizer of the comma separated hits of the lookup service
+ * (see {@link SimpleLookupMatch} and {@link SimpleLookupSite}).
+ * <p/>
+ * The fields are located by the offsets of their separators in the hit, so they can be parsed
+ * in place, without creating a String per field.
+ */
+public final class LookupHitTokenizer {
+
+    private static final char SEPARATOR = ',';
+
+    private LookupHitTokenizer() {
+    }
+
+    /**
+     * Records the end offset (exclusive) of the first fieldEnds.length fields of the hit.
+     *
+     * @param hit       comma separated fields.
+     * @param fieldEnds filled with the end offset of each field.
+     * @return the number of fields in the hit, not counting the trailing empty fields (as {@link String#split(String)}).
+     */
+    public static int tokenize(String hit, int[] fieldEnds) {
+        final int length = hit.length();
+        int field = 0;
+        int start = 0;
+        int fieldCount = 0;
+        while (true) {
+            int end = hit.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                end = length;
+            }
+            if (field < fieldEnds.length) {
+                fieldEnds[field] = end;
+            }
+            field++;
+            if (end > start) {
+                fieldCount = field;
+            }
+            if (end == length) {
+                return fieldCount;
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * @return the start offset of the field, given the field ends recorded by {@link #tokenize(String, int[])}.
+     */
+    public static int start(int[] fieldEnds, int field) {
+        return field == 0 ? 0 : fieldEnds[field - 1] + 1;
+    }
+
+    /**
+     * Reads a single field, scanning the hit only up to the end of that field.
+     *
+     * @return the field, or null if the hit has fewer fields.
+     */
+    public static String field(String hit, int field) {
+        int start = 0;
+        for (int i = 0; i < field; i++) {
+            final int separator = hit.indexOf(SEPARATOR, start);
+            if (separator < 0) {
+                return null;
+            }
+            start = separator + 1;
+        }
+        final int end = hit.indexOf(SEPARATOR, start);
+        return hit.substring(start, end < 0 ? hit.length() : end);
+    }
+
+    /**
+     * Parses a decimal integer from the characters of the hit in [start, end), as {@link Integer#parseInt(String)}.
+     */
+    public static int parseInt(String hit, int start, int end) {
+        if (start >= end) {
+            throw new NumberFormatException("Empty integer field in lookup hit: " + hit);
+        }
+        int i = start;
+        final char first = hit.charAt(i);
+        final boolean negative = first == '-';
+        if (negative || first == '+') {
+            i++;
+            if (i == end) {
+                throw numberFormatException(hit, start, end);
+            }
+        }
+        // Accumulate negatively, to handle Integer.MIN_VALUE
+        int value = 0;
+        for (; i < end; i++) {
+            final int digit = hit.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || value < (Integer.MIN_VALUE + digit) / 10) {
+                throw numberFormatException(hit, start, end);
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative) {
+            if (value == Integer.MIN_VALUE) {
+                throw numberFormatException(hit, start, end);
+            }
+            return -value;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a floating point field of the hit in [start, end), as {@link Double#parseDouble(String)}.
+     */
+    public static double parseDouble(String hit, int start, int end) {
+        return Double.parseDouble(hit.substring(start, end));
+    }
+
+    private static NumberFormatException numberFormatException(String hit, int start, int end) {
+        return new NumberFormatException("For input string: \"" + hit.substring(start, end) + "\" in lookup hit: " + hit);
+    }
+}
@@ -24,73 +24,88 @@ public class SimpleLookupMatch {
     public static final int COL_IDX_SEQ_FEATURE = 19;
 
 
-    String proteinMD5;
-    String signatureLibraryName;
-    String sigLibRelease;
-    String signatureAccession;
-    String modelAccession;
-    Integer sequenceStart;
-    Integer sequenceEnd;
-    String  fragments;
-    Double sequenceScore;
-    Double sequenceEValue;
-    String hmmBounds;
-    Integer hmmStart;
-    Integer hmmEnd;
-    Integer hmmLength;
-    Integer envelopeStart;
-    Integer envelopeEnd;
-    Double locationScore;
-    Double locationEValue;
-    String seqFeature;
+    private static final int COLUMN_OFFSET = 2; // -1 as zero indexed and -1 as no proteinMD5 in sequence hit tokens
+
+    private static final int FIELD_COUNT = COL_IDX_SEQ_FEATURE - 1;
+
+    private final String proteinMD5;
+
+    private final String lookupMatch;
+
+    /**
+     * End offsets of the fields in the lookup match, plus one to detect extra fields.
+     */
+    private final int[] fieldEnds = new int[FIELD_COUNT + 1];
+
+    private final int fieldCount;
+
+    private final int sequenceStart;
+    private final int sequenceEnd;
+    private final int hmmStart;
+    private final int hmmEnd;
+    private final int hmmLength;
+    private final int envelopeStart;
+    private final int envelopeEnd;
+
+    // Parsed on first use
+    private String signatureLibraryName;
+    private String sigLibRelease;
+    private String signatureAccession;
+    private String modelAccession;
+    private String fragments;
+    private String hmmBounds;
+    private String seqFeature;
+    private double sequenceScore;
+    private double sequenceEValue;
+    private double locationScore;
+    private double locationEValue;
+    private int parsedDoubles;
 
     public SimpleLookupMatch(String proteinMD5, String lookupMatch) {
-        String [] lookupMatchTokens =  lookupMatch.split(",");
-
-
-//        System.out.println("lookupMatchTokens: " + lookupMatchTokens);
-//        for (String token: lookupMatchTokens){
-//            System.out.println(token);
-//        }
-
 //        String proteinMD5 = "00006F313F29B29DA473B6DDF28AF744";
 //        String csvmatch = "SMART,7.1,SM00929,SM00929,92,132,92-132-S,85.9,4.9E-21,[],1,43,43,0,0,4.9E-21,85.9,";
-//        System.out.println("csvmatch length: " + lookupMatchTokens.length) ;
-
-//        System.out.println("hit: (" + lookupMatchTokens.length + ") " + Arrays.toString(lookupMatchTokens));
-        int columnOffSet = 2; // -1 as zero indexed and -1 as no proteinMD5 in sequence hit tokens
         this.proteinMD5 = proteinMD5;
-        signatureLibraryName = lookupMatchTokens[COL_IDX_SIG_LIB_NAME - columnOffSet];
-        sigLibRelease = lookupMatchTokens[COL_IDX_SIG_LIB_RELEASE - columnOffSet];
-        signatureAccession = lookupMatchTokens[COL_IDX_SIG_ACCESSION - columnOffSet];
-        modelAccession = lookupMatchTokens[COL_IDX_MODEL_ACCESSION - columnOffSet];
-        sequenceStart = Integer.parseInt(lookupMatchTokens[COL_IDX_SEQ_START - columnOffSet]);
-        sequenceEnd = Integer.parseInt(lookupMatchTokens[COL_IDX_SEQ_END - columnOffSet]);
-//        System.out.println("toString(): (after sequenceEnd)" + toString());
-        fragments = lookupMatchTokens[COL_IDX_FRAGMENTS - columnOffSet];
-//        fragments.replace(";", ",");  // we change fragments back to comma separated string, or maybe not
-
-//        System.out.println("toString(): (after frag) " + toString());
-        sequenceScore = Double.parseDouble(lookupMatchTokens[COL_IDX_SEQ_SCORE - columnOffSet]);
-//        System.out.println("toString(): (after sequenceScore )" + toString());
-//        System.out.println("sequenceEValue b4: (pos " + COL_IDX_SEQ_EVALUE + ") " + lookupMatchTokens[COL_IDX_SEQ_EVALUE - columnOffSet]);
-
-        sequenceEValue = Double.parseDouble(lookupMatchTokens[COL_IDX_SEQ_EVALUE - columnOffSet]);
-        hmmBounds = lookupMatchTokens[COL_IDX_HMM_BOUNDS - columnOffSet];
-        hmmStart = Integer.parseInt(lookupMatchTokens[COL_IDX_HMM_START - columnOffSet]);
-        hmmEnd = Integer.parseInt(lookupMatchTokens[COL_IDX_HMM_END - columnOffSet]);
-        hmmLength = Integer.parseInt(lookupMatchTokens[COL_IDX_HMM_LENGTH - columnOffSet]);
-        envelopeStart = Integer.parseInt(lookupMatchTokens[COL_IDX_ENV_START - columnOffSet]);
-        envelopeEnd = Integer.parseInt(lookupMatchTokens[COL_IDX_ENV_END - columnOffSet]);
-        locationScore = Double.parseDouble(lookupMatchTokens[COL_IDX_LOC_SCORE - columnOffSet]);
-        locationEValue = Double.parseDouble(lookupMatchTokens[COL_IDX_LOC_EVALUE - columnOffSet]);
-        if(lookupMatchTokens.length == 18) {
-            seqFeature = lookupMatchTokens[COL_IDX_SEQ_FEATURE - columnOffSet];
-        }else{
-            seqFeature = "";
+        this.lookupMatch = lookupMatch;
+        fieldCount = LookupHitTokenizer.tokenize(lookupMatch, fieldEnds);
+        if (fieldCount <= COL_IDX_LOC_EVALUE - COLUMN_OFFSET) {
+            throw new IllegalArgumentException("Lookup match with " + fieldCount + " fields: " + lookupMatch);
         }
-//        System.out.println("fragments: " + fragments);
-//        System.out.println(toString());
+        sequenceStart = intField(COL_IDX_SEQ_START);
+        sequenceEnd = intField(COL_IDX_SEQ_END);
+        hmmStart = intField(COL_IDX_HMM_START);
+        hmmEnd = intField(COL_IDX_HMM_END);
+        hmmLength = intField(COL_IDX_HMM_LENGTH);
+        envelopeStart = intField(COL_IDX_ENV_START);
+        envelopeEnd = intField(COL_IDX_ENV_END);
+    }
+
+    /**
+     * Reads the signature library name of a lookup match, without parsing the rest of the match.
+     */
+    public static String signatureLibraryNameOf(String lookupMatch) {
+        return LookupHitTokenizer.field(lookupMatch, COL_IDX_SIG_LIB_NAME - COLUMN_OFFSET);
+    }
+
+    /**
+     * Reads the signature library release of a lookup match, without parsing the rest of the match.
+     */
+    public static String sigLibReleaseOf(String lookupMatch) {
+        return LookupHitTokenizer.field(lookupMatch, COL_IDX_SIG_LIB_RELEASE - COLUMN_OFFSET);
+    }
+
+    private int intField(int column) {
+        final int field = column - COLUMN_OFFSET;
+        return LookupHitTokenizer.parseInt(lookupMatch, LookupHitTokenizer.start(fieldEnds, field), fieldEnds[field]);
+    }
+
+    private double doubleField(int column) {
+        final int field = column - COLUMN_OFFSET;
+        return LookupHitTokenizer.parseDouble(lookupMatch, LookupHitTokenizer.start(fieldEnds, field), fieldEnds[field]);
+    }
+
+    private String stringField(int column) {
+        final int field = column - COLUMN_OFFSET;
+        return lookupMatch.substring(LookupHitTokenizer.start(fieldEnds, field), fieldEnds[field]);
     }
 
     public static String kvValueOf(Object obj) {
@@ -102,74 +117,112 @@ public class SimpleLookupMatch {
     }
 
     public String getSignatureLibraryName() {
+        if (signatureLibraryName == null) {
+            signatureLibraryName = stringField(COL_IDX_SIG_LIB_NAME);
+        }
         return signatureLibraryName;
     }
 
     public String getSigLibRelease() {
+        if (sigLibRelease == null) {
+            sigLibRelease = stringField(COL_IDX_SIG_LIB_RELEASE);
+        }
         return sigLibRelease;
     }
 
     public String getSignatureAccession() {
+        if (signatureAccession == null) {
+            signatureAccession = stringField(COL_IDX_SIG_ACCESSION);
+        }
         return signatureAccession;
     }
 
     public String getModelAccession() {
+        if (modelAccession == null) {
+            modelAccession = stringField(COL_IDX_MODEL_ACCESSION);
+        }
         return modelAccession;
     }
 
-    public Integer getSequenceStart() {
+    public int getSequenceStart() {
         return sequenceStart;
     }
 
-    public Integer getSequenceEnd() {
+    public int getSequenceEnd() {
         return sequenceEnd;
     }
 
     public String getFragments() {
+        if (fragments == null) {
+            fragments = stringField(COL_IDX_FRAGMENTS);
+        }
         return fragments;
     }
 
-    public Double getSequenceScore() {
+    public double getSequenceScore() {
+        if ((parsedDoubles & 1) == 0) {
+            sequenceScore = doubleField(COL_IDX_SEQ_SCORE);
+            parsedDoubles |= 1;
+        }
         return sequenceScore;
     }
 
-    public Double getSequenceEValue() {
+    public double getSequenceEValue() {
+        if ((parsedDoubles & 2) == 0) {
+            sequenceEValue = doubleField(COL_IDX_SEQ_EVALUE);
+            parsedDoubles |= 2;
+        }
         return sequenceEValue;
     }
 
     public String getHmmBounds() {
+        if (hmmBounds == null) {
+            hmmBounds = stringField(COL_IDX_HMM_BOUNDS);
+        }
         return hmmBounds;
     }
 
-    public Integer getHmmStart() {
+    public int getHmmStart() {
         return hmmStart;
     }
 
-    public Integer getHmmEnd() {
+    public int getHmmEnd() {
         return hmmEnd;
     }
 
-    public Integer getHmmLength() {
+    public int getHmmLength() {
         return hmmLength;
     }
 
-    public Integer getEnvelopeStart() {
+    public int getEnvelopeStart() {
         return envelopeStart;
     }
 
-    public Integer getEnvelopeEnd() {
+    public int getEnvelopeEnd() {
         return envelopeEnd;
     }
 
-    public Double getLocationScore() {
+    public double getLocationScore() {
+        if ((parsedDoubles & 4) == 0) {
+            locationScore = doubleField(COL_IDX_LOC_SCORE);
+            parsedDoubles |= 4;
+        }
         return locationScore;
     }
 
-    public Double getLocationEValue() {
+    public double getLocationEValue() {
+        if ((parsedDoubles & 8) == 0) {
+            locationEValue = doubleField(COL_IDX_LOC_EVALUE);
+            parsedDoubles |= 8;
+        }
         return locationEValue;
     }
 
     public String getSeqFeature() {
+        if (seqFeature == null) {
+            // As String.split, which drops the trailing empty fields
+            seqFeature = fieldCount == FIELD_COUNT ? stringField(COL_IDX_SEQ_FEATURE) : "";
+        }
         return seqFeature;
     }
 
@@ -177,24 +230,24 @@ public class SimpleLookupMatch {
     public java.lang.String toString() {
         return "SimpleLookupMatch{" +
                 "proteinMD5='" + proteinMD5 + '\'' +
-                ", signatureLibraryName='" + signatureLibraryName + '\'' +
-                ", sigLibRelease='" + sigLibRelease + '\'' +
-                ", signatureAccession='" + signatureAccession + '\'' +
-                ", modelAccession='" + modelAccession + '\'' +
-                ", sequenceStart=" + sequenceStart +
-                ", sequenceEnd=" + sequenceEnd +
-                ", fragments='" + fragments + '\'' +
-                ", sequenceScore=" + sequenceScore +
-                ", sequenceEValue=" + sequenceEValue +
-                ", hmmBounds='" + hmmBounds + '\'' +
-                ", hmmStart=" + hmmStart +
-                ", hmmEnd=" + hmmEnd +
-                ", hmmLength=" + hmmLength +
-                ", envelopeStart=" + envelopeStart +
-                ", envelopeEnd=" + envelopeEnd +
-                ", locationScore=" + locationScore +
-                ", locationEValue=" + locationEValue +
-                ", seqFeature='" + seqFeature + '\'' +
+                ", signatureLibraryName='" + getSignatureLibraryName() + '\'' +
+                ", sigLibRelease='" + getSigLibRelease() + '\'' +
+                ", signatureAccession='" + getSignatureAccession() + '\'' +
+                ", modelAccession='" + getModelAccession() + '\'' +
+                ", sequenceStart=" + getSequenceStart() +
+                ", sequenceEnd=" + getSequenceEnd() +
+                ", fragments='" + getFragments() + '\'' +
+                ", sequenceScore=" + getSequenceScore() +
+                ", sequenceEValue=" + getSequenceEValue() +
+                ", hmmBounds='" + getHmmBounds() + '\'' +
+                ", hmmStart=" + getHmmStart() +
+                ", hmmEnd=" + getHmmEnd() +
+                ", hmmLength=" + getHmmLength() +
+                ", envelopeStart=" + getEnvelopeStart() +
+                ", envelopeEnd=" + getEnvelopeEnd() +
+                ", locationScore=" + getLocationScore() +
+                ", locationEValue=" + getLocationEValue() +
+                ", seqFeature='" + getSeqFeature() + '\'' +
                 '}';
     }
 }
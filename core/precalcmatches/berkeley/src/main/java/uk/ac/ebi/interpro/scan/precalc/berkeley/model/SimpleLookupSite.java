@@ -1,7 +1,5 @@
 package uk.ac.ebi.interpro.scan.precalc.berkeley.model;
 
-import uk.ac.ebi.interpro.scan.util.Utilities;
-
 public class SimpleLookupSite {
     //These indices go hand by hand with the 'lookup_tmp_tab' table
 
@@ -18,40 +16,55 @@ public class SimpleLookupSite {
     public static final int COL_IDX_DESCRIPTION = 11;
 
 
-    String proteinMD5;
-    String signatureLibraryName;
-    String sigLibRelease;
-    String signatureAccession;
-    Integer locationStart;
-    Integer locationEnd;
-    Integer numSites;
-    String residue;
-    Integer residueStart;
-    Integer residueEnd;
-    String description;
+    private static final int COLUMN_OFFSET = 2; // -1 as zero indexed and -1 as no proteinMD5 in sequence hit tokens
+
+    private final String proteinMD5;
+
+    private final String lookupMatch;
+
+    /**
+     * End offsets of the fields in the lookup site.
+     */
+    private final int[] fieldEnds = new int[COL_IDX_DESCRIPTION - 1];
+
+    private final int fieldCount;
+
+    private final int locationStart;
+    private final int locationEnd;
+    private final int numSites;
+    private final int residueStart;
+    private final int residueEnd;
+
+    // Parsed on first use
+    private String signatureLibraryName;
+    private String sigLibRelease;
+    private String signatureAccession;
+    private String residue;
+    private String description;
 
     public SimpleLookupSite(String proteinMD5, String lookupMatch) {
         //SFLD,4,SFLDS00029,5,347,3,C,105,105
-        String [] lookupMatchTokens =  lookupMatch.split(",");
-
-        int columnOffSet = 2; // -1 as zero indexed and -1 as no proteinMD5 in sequence hit tokens
         this.proteinMD5 = proteinMD5;
-        signatureLibraryName = lookupMatchTokens[COL_IDX_SIG_LIB_NAME - columnOffSet];
-        sigLibRelease = lookupMatchTokens[COL_IDX_SIG_LIB_RELEASE - columnOffSet];
-        signatureAccession = lookupMatchTokens[COL_IDX_SIG_ACCESSION - columnOffSet];
-        locationStart = Integer.parseInt(lookupMatchTokens[COL_IDX_LOC_START - columnOffSet]);
-        locationEnd = Integer.parseInt(lookupMatchTokens[COL_IDX_LOC_END - columnOffSet]);
-        numSites = Integer.parseInt(lookupMatchTokens[COL_IDX_NUM_SITES - columnOffSet]);
-        residue = lookupMatchTokens[COL_IDX_RESIDUE - columnOffSet];
-        residueStart = Integer.parseInt(lookupMatchTokens[COL_IDX_RESIDUE_START - columnOffSet]);
-        residueEnd = Integer.parseInt(lookupMatchTokens[COL_IDX_RESIDUE_END - columnOffSet]);
-
-        if (lookupMatchTokens.length > 9) {
-            Utilities.verboseLog("lookupMatchTokens size: " + lookupMatchTokens.length + " desc col : " + (COL_IDX_DESCRIPTION - columnOffSet));
-            description = lookupMatchTokens[COL_IDX_DESCRIPTION - columnOffSet];
-        }else{
-            description = null;
+        this.lookupMatch = lookupMatch;
+        fieldCount = LookupHitTokenizer.tokenize(lookupMatch, fieldEnds);
+        if (fieldCount <= COL_IDX_RESIDUE_END - COLUMN_OFFSET) {
+            throw new IllegalArgumentException("Lookup site with " + fieldCount + " fields: " + lookupMatch);
         }
+        locationStart = intField(COL_IDX_LOC_START);
+        locationEnd = intField(COL_IDX_LOC_END);
+        numSites = intField(COL_IDX_NUM_SITES);
+        residueStart = intField(COL_IDX_RESIDUE_START);
+        residueEnd = intField(COL_IDX_RESIDUE_END);
+    }
+
+    private int intField(int column) {
+        final int field = column - COLUMN_OFFSET;
+        return LookupHitTokenizer.parseInt(lookupMatch, LookupHitTokenizer.start(fieldEnds, field), fieldEnds[field]);
+    }
+
+    private String stringField(int column) {
+        final int field = column - COLUMN_OFFSET;
+        return lookupMatch.substring(LookupHitTokenizer.start(fieldEnds, field), fieldEnds[field]);
     }
 
     public static String kvValueOf(Object obj) {
@@ -63,42 +76,58 @@ public class SimpleLookupSite {
     }
 
     public String getSignatureLibraryName() {
+        if (signatureLibraryName == null) {
+            signatureLibraryName = stringField(COL_IDX_SIG_LIB_NAME);
+        }
         return signatureLibraryName;
     }
 
     public String getSigLibRelease() {
+        if (sigLibRelease == null) {
+            sigLibRelease = stringField(COL_IDX_SIG_LIB_RELEASE);
+        }
         return sigLibRelease;
     }
 
     public String getSignatureAccession() {
+        if (signatureAccession == null) {
+            signatureAccession = stringField(COL_IDX_SIG_ACCESSION);
+        }
         return signatureAccession;
     }
 
-    public Integer getLocationStart() {
+    public int getLocationStart() {
         return locationStart;
     }
 
-    public Integer getLocationEnd() {
+    public int getLocationEnd() {
         return locationEnd;
     }
 
-    public Integer getNumSites() {
+    public int getNumSites() {
         return numSites;
     }
 
     public String getResidue() {
+        if (residue == null) {
+            residue = stringField(COL_IDX_RESIDUE);
+        }
         return residue;
     }
 
-    public Integer getResidueStart() {
+    public int getResidueStart() {
         return residueStart;
     }
 
-    public Integer getResidueEnd() {
+    public int getResidueEnd() {
         return residueEnd;
     }
 
     public String getDescription() {
+        // As String.split, which drops the trailing empty fields
+        if (description == null && fieldCount > COL_IDX_DESCRIPTION - COLUMN_OFFSET) {
+            description = stringField(COL_IDX_DESCRIPTION);
+        }
         return description;
     }
 
@@ -106,16 +135,16 @@ public class SimpleLookupSite {
     public String toString() {
         return "SimpleLookupSite{" +
                 "proteinMD5='" + proteinMD5 + '\'' +
-                ", signatureLibraryName='" + signatureLibraryName + '\'' +
-                ", sigLibRelease='" + sigLibRelease + '\'' +
-                ", signatureAccession='" + signatureAccession + '\'' +
-                ", locationStart=" + locationStart +
-                ", locationEnd=" + locationEnd +
-                ", numSites=" + numSites +
-                ", residue='" + residue + '\'' +
-                ", residueStart=" + residueStart +
-                ", residueEnd=" + residueEnd +
-                ", description='" + description + '\'' +
+                ", signatureLibraryName='" + getSignatureLibraryName() + '\'' +
+                ", sigLibRelease='" + getSigLibRelease() + '\'' +
+                ", signatureAccession='" + getSignatureAccession() + '\'' +
+                ", locationStart=" + getLocationStart() +
+                ", locationEnd=" + getLocationEnd() +
+                ", numSites=" + getNumSites() +
+                ", residue='" + getResidue() + '\'' +
+                ", residueStart=" + getResidueStart() +
+                ", residueEnd=" + getResidueEnd() +
+                ", description='" + getDescription() + '\'' +
                 '}';
     }
 }
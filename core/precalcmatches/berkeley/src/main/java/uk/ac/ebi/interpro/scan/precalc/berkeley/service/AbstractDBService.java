@@ -1,4 +1,4 @@
-package uk.ac.ebi.interpro.scan.precalc.server.service.impl;
+package uk.ac.ebi.interpro.scan.precalc.berkeley.service;
 
 /**
  * @author Phil Jones
@@ -24,12 +24,13 @@ public abstract class AbstractDBService {
     /**
      * set the database path,
      * filter jetty based deployments by looking at the deploy directory
+     * (only within Tomcat, so paths outside a server, e.g. of a local lookup, are used as they are)
      *
      * @param pathProperty
      * @return
      */
     protected String setDeploymentPath(String pathProperty) {
-        if (pathProperty.contains(TOMCAT_DEPLOY_PATH)) {
+        if (CATALINA_BASE != null && pathProperty.contains(TOMCAT_DEPLOY_PATH)) {
             return setPath(CATALINA_BASE + "/" + pathProperty);
         }
         return setPath(pathProperty);
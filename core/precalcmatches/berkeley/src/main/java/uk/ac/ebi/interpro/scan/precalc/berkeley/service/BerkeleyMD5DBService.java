@@ -0,0 +1,270 @@
+package uk.ac.ebi.interpro.scan.precalc.berkeley.service;
+
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentConfig;
+import com.sleepycat.persist.EntityCursor;
+import com.sleepycat.persist.EntityStore;
+import com.sleepycat.persist.PrimaryIndex;
+import com.sleepycat.persist.StoreConfig;
+import org.apache.log4j.Logger;
+import org.springframework.util.Assert;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.BerkeleyConsideredProtein;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Initializes the SleepyCat database for read only.
+ *
+ * @author Phil Jones
+ * @version $Id$
+ * @since 1.0-SNAPSHOT
+ */
+public class BerkeleyMD5DBService extends AbstractDBService {
+
+    private static final Logger LOGGER = Logger.getLogger(BerkeleyMD5DBService.class.getName());
+
+    /**
+     * Starts the persisted MD5 filter, followed by the version of the database it was built from.
+     */
+    private static final int FILTER_FILE_MAGIC = 0x4D443546;
+
+    private static final String DATABASE_FILE_SUFFIX = ".jdb";
+
+    private String databasePath;
+
+    private PrimaryIndex<String, BerkeleyConsideredProtein> primIDX = null;
+
+    private int cacheSizeInBytes;
+
+    /**
+     * Expected false positive rate of the in memory MD5 filter, or 0 to probe the database for every MD5.
+     */
+    private double filterFalsePositiveRate = 0.01;
+
+    /**
+     * File the MD5 filter is persisted to, next to the database by default.
+     */
+    private String filterPath;
+
+    private volatile MD5BloomFilter md5Filter;
+
+    Environment myEnv = null;
+    EntityStore store = null;
+
+    public BerkeleyMD5DBService(String databasePath, int cacheSizeInMegabytes) {
+        Assert.notNull(databasePath, "The databasePath bean cannot be null.");
+        this.cacheSizeInBytes = cacheSizeInMegabytes * 1024 * 1024;
+        this.databasePath = setDeploymentPath(databasePath);
+        System.out.println("Initializing BerkeleyDB MD5 Database (creating indexes): Please wait...");
+        initializeMD5Index();
+    }
+
+    public BerkeleyMD5DBService(String databasePath) {
+        // default cache size is 100 Mb to avoid using too much memory
+        this(databasePath, 100);
+    }
+
+
+    /**
+     * Clean up resources when this Service is finished with.
+     *
+     * @throws Throwable the <code>Exception</code> raised by this method
+     */
+    @Override
+    protected void finalize() throws Throwable {
+        super.finalize();
+        shutdown();
+    }
+
+    public PrimaryIndex<String, BerkeleyConsideredProtein> getPrimIDX() {
+        return primIDX;
+    }
+
+    public void setFilterFalsePositiveRate(double filterFalsePositiveRate) {
+        this.filterFalsePositiveRate = filterFalsePositiveRate;
+    }
+
+    public void setFilterPath(String filterPath) {
+        this.filterPath = filterPath;
+    }
+
+    /**
+     * @return false if the MD5 is definitely not in the database, true if it may be (or if the filter is not ready).
+     */
+    public boolean mightContain(String md5) {
+        final MD5BloomFilter filter = md5Filter;
+        return filter == null || filter.mightContain(md5);
+    }
+
+    /**
+     * @return the MD5 filter, or null if disabled or not ready yet.
+     */
+    public MD5BloomFilter getMD5Filter() {
+        return md5Filter;
+    }
+
+    /**
+     * Loads the MD5 filter persisted next to the database, or builds it from the database (and then persists it)
+     * if missing or out of date.  Runs in the background: until the filter is ready, every MD5 is looked up in the database.
+     */
+    public void init() {
+        if (filterFalsePositiveRate <= 0) {
+            return;
+        }
+        final Thread filterLoader = new Thread(this::initializeMD5Filter, "md5-filter-loader");
+        filterLoader.setDaemon(true);
+        filterLoader.start();
+    }
+
+    /**
+     * Loads the persisted MD5 filter, or builds it from the database and saves it, on the calling thread.
+     */
+    public void initializeMD5Filter() {
+        final File filterFile = new File(filterPath == null ? databasePath + ".filter" : filterPath);
+        try {
+            final long md5Count = primIDX.count();
+            final String databaseVersion = databaseVersion(new File(databasePath), md5Count);
+            MD5BloomFilter filter = loadMD5Filter(filterFile, databaseVersion);
+            if (filter == null) {
+                final long start = System.currentTimeMillis();
+                filter = new MD5BloomFilter(md5Count, filterFalsePositiveRate);
+                try (EntityCursor<String> md5s = primIDX.keys()) {
+                    for (String md5 : md5s) {
+                        filter.add(md5);
+                    }
+                }
+                LOGGER.info("Built the MD5 filter of " + filter.getMD5Count() + " MD5s in " + (System.currentTimeMillis() - start) + " ms");
+                saveMD5Filter(filter, filterFile, databaseVersion);
+            }
+            md5Filter = filter;
+            System.out.println("MD5 filter ready: " + filter.getMD5Count() + " MD5s, " + filter.getSizeInBytes() / (1024 * 1024)
+                    + " MB, expected false positive rate " + filter.getExpectedFalsePositiveRate());
+        } catch (RuntimeException e) {
+            // e.g. the database was closed meanwhile
+            LOGGER.error("Unable to build the MD5 filter, all MD5s are looked up in the database", e);
+        }
+    }
+
+    /**
+     * The version of the database the MD5 filter is built from: the number of MD5s, and the number, total size and
+     * latest modification time of the database files, with a checksum of their names, sizes and modification times.
+     */
+    static String databaseVersion(File databaseDirectory, long md5Count) {
+        final File[] databaseFiles = databaseDirectory.listFiles((directory, name) -> name.endsWith(DATABASE_FILE_SUFFIX));
+        if (databaseFiles == null) {
+            throw new IllegalStateException("Unable to list the database files of " + databaseDirectory);
+        }
+        Arrays.sort(databaseFiles);
+        long totalSize = 0;
+        long lastModified = 0;
+        final CRC32 checksum = new CRC32();
+        for (File databaseFile : databaseFiles) {
+            totalSize += databaseFile.length();
+            lastModified = Math.max(lastModified, databaseFile.lastModified());
+            checksum.update((databaseFile.getName() + ':' + databaseFile.length() + ':' + databaseFile.lastModified() + '|').getBytes(StandardCharsets.UTF_8));
+        }
+        return "md5s:" + md5Count + " files:" + databaseFiles.length + " bytes:" + totalSize
+                + " modified:" + lastModified + " checksum:" + Long.toHexString(checksum.getValue());
+    }
+
+    /**
+     * @return the persisted filter, or null if missing, unreadable or not built from this version of the database.
+     */
+    private MD5BloomFilter loadMD5Filter(File filterFile, String databaseVersion) {
+        if (!filterFile.isFile()) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(filterFile))) {
+            final DataInputStream header = new DataInputStream(in);
+            if (header.readInt() != FILTER_FILE_MAGIC) {
+                LOGGER.warn("The MD5 filter " + filterFile + " has no database version, rebuilding it");
+                return null;
+            }
+            final String filterDatabaseVersion = header.readUTF();
+            if (!filterDatabaseVersion.equals(databaseVersion)) {
+                LOGGER.warn("The MD5 filter " + filterFile + " is out of date (built from " + filterDatabaseVersion
+                        + ", the database is now " + databaseVersion + "), rebuilding it");
+                return null;
+            }
+            return MD5BloomFilter.readFrom(in);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read the MD5 filter " + filterFile + ", rebuilding it", e);
+            return null;
+        }
+    }
+
+    private void saveMD5Filter(MD5BloomFilter filter, File filterFile, String databaseVersion) {
+        final File tempFile = new File(filterFile.getPath() + ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+                final DataOutputStream header = new DataOutputStream(out);
+                header.writeInt(FILTER_FILE_MAGIC);
+                header.writeUTF(databaseVersion);
+                filter.writeTo(out);
+            }
+            if (!tempFile.renameTo(filterFile)) {
+                throw new IOException("Unable to rename " + tempFile + " to " + filterFile);
+            }
+        } catch (IOException e) {
+            // The filter is built again on the next start
+            LOGGER.warn("Unable to persist the MD5 filter to " + filterFile, e);
+            tempFile.delete();
+        }
+    }
+
+    private void initializeMD5Index() {
+        EnvironmentConfig myEnvConfig = new EnvironmentConfig();
+        StoreConfig storeConfig = new StoreConfig();
+
+        myEnvConfig.setReadOnly(true);
+        myEnvConfig.setAllowCreate(false);
+        myEnvConfig.setLocking(false);
+        myEnvConfig.setCacheSize(cacheSizeInBytes);
+        storeConfig.setReadOnly(true);
+        storeConfig.setAllowCreate(false);
+        storeConfig.setTransactional(false);
+
+        File file = new File(databasePath);
+        // Open the environment and entity store
+        myEnv = new Environment(file, myEnvConfig);
+        store = new EntityStore(myEnv, "EntityStore", storeConfig);
+
+
+        primIDX = store.getPrimaryIndex(String.class, BerkeleyConsideredProtein.class);
+    }
+
+    public void shutdown() {
+        md5Filter = null;
+        if (store != null) {
+            try {
+                store.close();
+                store = null;
+            } catch (DatabaseException dbe) {
+                LOGGER.error("Error closing store: " + dbe.toString());
+            }
+        }
+
+        if (myEnv != null) {
+            try {
+                // Finally, close environment.
+                myEnv.close();
+                myEnv = null;
+            } catch (DatabaseException dbe) {
+                LOGGER.error("Error closing MyDbEnv: " + dbe.toString());
+            }
+        }
+    }
+}
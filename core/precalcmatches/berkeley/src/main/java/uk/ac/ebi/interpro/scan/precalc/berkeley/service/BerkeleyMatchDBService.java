@@ -1,4 +1,4 @@
-package uk.ac.ebi.interpro.scan.precalc.server.service.impl;
+package uk.ac.ebi.interpro.scan.precalc.berkeley.service;
 
 import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.Environment;
@@ -35,16 +35,25 @@ public class BerkeleyMatchDBService extends AbstractDBService {
     Environment myEnv = null;
     EntityStore store = null;
 
-    public BerkeleyMatchDBService(String databasePath, int cacheSizeInMegabytes) {
+    /**
+     * @param databasePath         directory of the database.
+     * @param cacheSizeInMegabytes size of the cache, used if cachePercent is 0.
+     * @param cachePercent         size of the cache as a percentage of the JVM heap, or 0 to use cacheSizeInMegabytes.
+     */
+    public BerkeleyMatchDBService(String databasePath, int cacheSizeInMegabytes, int cachePercent) {
         Assert.notNull(databasePath, "The databasePath bean cannot be null.");
         this.cacheSizeInBytes = cacheSizeInMegabytes * 1024 * 1024;
-        this.cachePercentInt = 60;
+        this.cachePercentInt = cachePercent;
         this.databasePath = setDeploymentPath(databasePath);
         System.out.println("Initializing BerkeleyDB Match Database (creating indexes): Please wait...");
         initializeMD5Index();
     }
 
 
+    public BerkeleyMatchDBService(String databasePath, int cacheSizeInMegabytes) {
+        this(databasePath, cacheSizeInMegabytes, 60);
+    }
+
     public BerkeleyMatchDBService(String databasePath) {
         // default cache memory set to  100 Mb to avoid using too much memory
         this(databasePath, 100);
@@ -62,7 +71,7 @@ public class BerkeleyMatchDBService extends AbstractDBService {
         shutdown();
     }
 
-    SecondaryIndex<String, Long, KVSequenceEntry> getMD5Index() {
+    public SecondaryIndex<String, Long, KVSequenceEntry> getMD5Index() {
         return secIDX;
     }
 
@@ -70,8 +79,11 @@ public class BerkeleyMatchDBService extends AbstractDBService {
         EnvironmentConfig myEnvConfig = new EnvironmentConfig();
         StoreConfig storeConfig = new StoreConfig();
 
-        //myEnvConfig.setCacheSize(cacheSizeInBytes);  //maybe we should use the setCachePercent i.e. EnvironmentConfig.MAX_MEMORY_PERCENT.
-        myEnvConfig.setCachePercent(cachePercentInt);
+        if (cachePercentInt > 0) {
+            myEnvConfig.setCachePercent(cachePercentInt);
+        } else {
+            myEnvConfig.setCacheSize(cacheSizeInBytes);
+        }
         myEnvConfig.setReadOnly(true);
         myEnvConfig.setAllowCreate(false);
         myEnvConfig.setLocking(false);
@@ -1,4 +1,4 @@
-package uk.ac.ebi.interpro.scan.precalc.server.service.impl;
+package uk.ac.ebi.interpro.scan.precalc.berkeley.service;
 
 import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.Environment;
@@ -36,16 +36,25 @@ public class BerkeleySiteDBService extends AbstractDBService {
     Environment myEnv = null;
     EntityStore store = null;
 
-    public BerkeleySiteDBService(String databasePath, int cacheSizeInMegabytes) {
+    /**
+     * @param databasePath         directory of the database.
+     * @param cacheSizeInMegabytes size of the cache, used if cachePercent is 0.
+     * @param cachePercent         size of the cache as a percentage of the JVM heap, or 0 to use cacheSizeInMegabytes.
+     */
+    public BerkeleySiteDBService(String databasePath, int cacheSizeInMegabytes, int cachePercent) {
         Assert.notNull(databasePath, "The databasePath bean cannot be null.");
         this.cacheSizeInBytes = cacheSizeInMegabytes * 1024 * 1024;
-        this.cachePercentInt = 60;
+        this.cachePercentInt = cachePercent;
         this.databasePath = setDeploymentPath(databasePath);
         System.out.println("Initializing BerkeleyDB Site Database (creating indexes): Please wait...");
         initializeMD5Index();
     }
 
 
+    public BerkeleySiteDBService(String databasePath, int cacheSizeInMegabytes) {
+        this(databasePath, cacheSizeInMegabytes, 60);
+    }
+
     public BerkeleySiteDBService(String databasePath) {
         // default cache memory set to  100 Mb to avoid using too much memory
         this(databasePath, 100);
@@ -63,7 +72,7 @@ public class BerkeleySiteDBService extends AbstractDBService {
         shutdown();
     }
 
-    SecondaryIndex<String, Long, KVSequenceEntry> getMD5Index() {
+    public SecondaryIndex<String, Long, KVSequenceEntry> getMD5Index() {
         return secIDX;
     }
 
@@ -71,8 +80,11 @@ public class BerkeleySiteDBService extends AbstractDBService {
         EnvironmentConfig myEnvConfig = new EnvironmentConfig();
         StoreConfig storeConfig = new StoreConfig();
 
-        //myEnvConfig.setCacheSize(cacheSizeInBytes);  //maybe we should use the setCachePercent i.e. EnvironmentConfig.MAX_MEMORY_PERCENT.
-        myEnvConfig.setCachePercent(cachePercentInt);
+        if (cachePercentInt > 0) {
+            myEnvConfig.setCachePercent(cachePercentInt);
+        } else {
+            myEnvConfig.setCacheSize(cacheSizeInBytes);
+        }
         myEnvConfig.setReadOnly(true);
         myEnvConfig.setAllowCreate(false);
         myEnvConfig.setLocking(false);
@@ -0,0 +1,159 @@
+package uk.ac.ebi.interpro.scan.precalc.berkeley.service;
+
+import com.sleepycat.bind.EntityBinding;
+import com.sleepycat.bind.EntryBinding;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.SecondaryCursor;
+import com.sleepycat.persist.SecondaryIndex;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Reads the entries of a batch of protein MD5s from the MD5 secondary index of a BerkeleyDB store.
+ * <p/>
+ * The MD5s are sorted and read in key order with a single cursor, rather than opening an EntityCursor
+ * per MD5, so successive searches go through the same, cached, upper levels of the B-tree.
+ * Large batches are split in contiguous key ranges, read concurrently by a small pool of threads
+ * (one cursor each).
+ * <p/>
+ * Thread-safe.
+ */
+public class MD5BatchReader {
+
+    private final int threads;
+
+    private final int minMD5sPerThread;
+
+    private final ExecutorService executor;
+
+    /**
+     * Reads all the batches on the request thread.
+     */
+    public MD5BatchReader() {
+        this(1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param threads          maximum number of threads reading a batch.
+     * @param minMD5sPerThread minimum number of MD5s read by each thread, so small batches are not split.
+     */
+    public MD5BatchReader(int threads, int minMD5sPerThread) {
+        this.threads = Math.max(1, threads);
+        this.minMD5sPerThread = Math.max(1, minMD5sPerThread);
+        if (this.threads > 1) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "md5-batch-reader-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            executor = null;
+        }
+    }
+
+    /**
+     * @param index MD5 secondary index to read.
+     * @param md5s  of the proteins, in any order, possibly with duplicates.
+     * @return the entries of all the MD5s, in MD5 order.
+     */
+    public List<KVSequenceEntry> read(final SecondaryIndex<String, Long, KVSequenceEntry> index, Collection<String> md5s) {
+        final List<KVSequenceEntry> entries = new ArrayList<>(md5s.size());
+        read(index, md5s, entries::add);
+        return entries;
+    }
+
+    /**
+     * Passes the entries of the MD5s to the consumer as they are read, rather than holding them all.
+     * A batch split over threads is passed on one contiguous key range at a time, as each is read.
+     *
+     * @param index    MD5 secondary index to read.
+     * @param md5s     of the proteins, in any order, possibly with duplicates.
+     * @param consumer of the entries of all the MD5s, in MD5 order, called on the calling thread.
+     */
+    public void read(final SecondaryIndex<String, Long, KVSequenceEntry> index, Collection<String> md5s, Consumer<KVSequenceEntry> consumer) {
+        final List<String> sortedMD5s = new ArrayList<>(new TreeSet<>(md5s));
+        final int partitions = Math.min(threads, sortedMD5s.size() / minMD5sPerThread);
+        if (executor == null || partitions < 2) {
+            readSorted(index, sortedMD5s, consumer);
+            return;
+        }
+        final List<Future<List<KVSequenceEntry>>> futures = new ArrayList<>(partitions);
+        for (int partition = 0; partition < partitions; partition++) {
+            final List<String> partitionMD5s = sortedMD5s.subList(
+                    partition * sortedMD5s.size() / partitions,
+                    (partition + 1) * sortedMD5s.size() / partitions);
+            futures.add(executor.submit(() -> readSorted(index, partitionMD5s)));
+        }
+        try {
+            for (Future<List<KVSequenceEntry>> future : futures) {
+                future.get().forEach(consumer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading the entries of " + sortedMD5s.size() + " MD5s", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to read the entries of " + sortedMD5s.size() + " MD5s", e.getCause());
+        } finally {
+            // The remaining ranges are not needed if the consumer failed (e.g. the client went away)
+            for (Future<List<KVSequenceEntry>> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Reads the entries of the MD5s, already sorted, with a single cursor.
+     */
+    public static List<KVSequenceEntry> readSorted(SecondaryIndex<String, Long, KVSequenceEntry> index, List<String> sortedMD5s) {
+        final List<KVSequenceEntry> entries = new ArrayList<>(sortedMD5s.size());
+        readSorted(index, sortedMD5s, entries::add);
+        return entries;
+    }
+
+    /**
+     * Reads the entries of the MD5s, already sorted, with a single cursor, passing each to the consumer as it is read.
+     */
+    public static void readSorted(SecondaryIndex<String, Long, KVSequenceEntry> index, List<String> sortedMD5s, Consumer<KVSequenceEntry> consumer) {
+        final EntryBinding<String> keyBinding = index.getKeyBinding();
+        final EntityBinding<KVSequenceEntry> entityBinding = index.getPrimaryIndex().getEntityBinding();
+        final DatabaseEntry key = new DatabaseEntry();
+        final DatabaseEntry primaryKey = new DatabaseEntry();
+        final DatabaseEntry data = new DatabaseEntry();
+        final SecondaryCursor cursor = index.getDatabase().openCursor(null, null);
+        try {
+            for (String md5 : sortedMD5s) {
+                keyBinding.objectToEntry(md5, key);
+                OperationStatus status = cursor.getSearchKey(key, primaryKey, data, LockMode.DEFAULT);
+                while (status == OperationStatus.SUCCESS) {
+                    consumer.accept(entityBinding.entryToObject(primaryKey, data));
+                    status = cursor.getNextDup(key, primaryKey, data, LockMode.DEFAULT);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package uk.ac.ebi.interpro.scan.precalc.berkeley.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Bloom filter of protein MD5s, answering definite negatives without reading the MD5 database.
+ * <p/>
+ * The bit positions are derived from the 128 bits of the MD5 itself (double hashing of its two halves),
+ * as the MD5s are already uniformly distributed.  Strings which are not 32 hexadecimal digits are hashed.
+ * <p/>
+ * Not thread-safe while adding MD5s; safe to query from any thread once built and safely published.
+ */
+public class MD5BloomFilter {
+
+    private static final int MAGIC = 0x4D443542;
+
+    private static final int VERSION = 1;
+
+    private static final long MAX_BIT_COUNT = (long) Integer.MAX_VALUE * Long.SIZE;
+
+    private final long[] bits;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    private long md5Count;
+
+    /**
+     * @param expectedMD5s      number of MD5s that will be added.
+     * @param falsePositiveRate expected rate of MD5s not added but reported as possibly contained, in (0, 1).
+     */
+    public MD5BloomFilter(long expectedMD5s, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("The false positive rate must be in (0, 1): " + falsePositiveRate);
+        }
+        final long n = Math.max(1, expectedMD5s);
+        final double optimalBits = -n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        final long wordCount = (long) Math.ceil(Math.min(optimalBits, MAX_BIT_COUNT) / Long.SIZE);
+        this.bits = new long[(int) Math.max(1, wordCount)];
+        this.bitCount = (long) bits.length * Long.SIZE;
+        this.hashCount = (int) Math.max(1, Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    private MD5BloomFilter(long[] bits, int hashCount, long md5Count) {
+        this.bits = bits;
+        this.bitCount = (long) bits.length * Long.SIZE;
+        this.hashCount = hashCount;
+        this.md5Count = md5Count;
+    }
+
+    public void add(String md5) {
+        final boolean hex = isMD5(md5);
+        final long h1 = hex ? parseHex(md5, 0) : fnv1a(md5);
+        // Odd, so the positions do not repeat
+        final long h2 = (hex ? parseHex(md5, 16) : mix(h1)) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            final long index = index(h1, h2, i);
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+        md5Count++;
+    }
+
+    /**
+     * @return false if the MD5 was definitely not added, true if it may have been added.
+     */
+    public boolean mightContain(String md5) {
+        final boolean hex = isMD5(md5);
+        final long h1 = hex ? parseHex(md5, 0) : fnv1a(md5);
+        // Odd, so the positions do not repeat
+        final long h2 = (hex ? parseHex(md5, 16) : mix(h1)) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            final long index = index(h1, h2, i);
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of MD5s added.
+     */
+    public long getMD5Count() {
+        return md5Count;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getSizeInBytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    /**
+     * @return the false positive rate expected for the number of MD5s added.
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * md5Count / bitCount), hashCount);
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        final DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(md5Count);
+        out.writeInt(hashCount);
+        out.writeInt(bits.length);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(OutputStream)}.
+     *
+     * @throws IOException if the stream does not hold a filter of this version.
+     */
+    public static MD5BloomFilter readFrom(InputStream inputStream) throws IOException {
+        final DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not an MD5 filter of version " + VERSION);
+        }
+        final long md5Count = in.readLong();
+        final int hashCount = in.readInt();
+        final long[] bits = new long[in.readInt()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = in.readLong();
+        }
+        return new MD5BloomFilter(bits, hashCount, md5Count);
+    }
+
+    private long index(long h1, long h2, int i) {
+        return ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+    }
+
+    private static boolean isMD5(String md5) {
+        if (md5.length() != 32) {
+            return false;
+        }
+        for (int i = 0; i < 32; i++) {
+            if (Character.digit(md5.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseHex(String md5, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 16; i++) {
+            value = (value << 4) | Character.digit(md5.charAt(i), 16);
+        }
+        return value;
+    }
+
+    private static long fnv1a(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Finalizer of MurmurHash3.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,65 @@
+package uk.ac.ebi.interpro.scan.precalc.berkeley.conversion.toi5;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ebi.interpro.scan.model.Signature;
+import uk.ac.ebi.interpro.scan.model.SignatureLibrary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for {@link SignatureCache}, with the signature library releases "loaded" from a list.
+ */
+public class SignatureCacheTest {
+
+    private final List<String> loadedReleases = new ArrayList<>();
+
+    private final SignatureCache cache = new SignatureCache() {
+        @Override
+        protected List<Signature> loadRelease(SignatureLibrary library, String version) {
+            loadedReleases.add(library.getName() + "-" + version);
+            if (library == SignatureLibrary.PFAM && "32.0".equals(version)) {
+                return Arrays.asList(new Signature("PF00001"), new Signature("PF00002"),
+                        new Signature("PF00003"), new Signature("PF00003"));
+            }
+            return Collections.emptyList();
+        }
+    };
+
+    @Test
+    public void testReleaseIsLoadedOnce() {
+        Signature signature = cache.getSignature(SignatureLibrary.PFAM, "32.0", "PF00001");
+        assertEquals("PF00001", signature.getAccession());
+        assertSame(signature, cache.getSignature(SignatureLibrary.PFAM, "32.0", "PF00001"));
+        assertEquals("PF00002", cache.getSignature(SignatureLibrary.PFAM, "32.0", "PF00002").getAccession());
+        assertNull(cache.getSignature(SignatureLibrary.PFAM, "32.0", "PF99999"), "Not in this release");
+
+        assertEquals(Collections.singletonList("Pfam-32.0"), loadedReleases);
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getReleaseLoadCount());
+    }
+
+    @Test
+    public void testReleasesAreKeyedByVersion() {
+        assertNotNull(cache.getSignature(SignatureLibrary.PFAM, "32.0", "PF00001"));
+        assertNull(cache.getSignature(SignatureLibrary.PFAM, "31.0", "PF00001"));
+        assertNull(cache.getSignature(SignatureLibrary.TIGRFAM, "32.0", "PF00001"));
+
+        assertEquals(3, cache.getReleaseLoadCount());
+
+        cache.clear();
+        assertNotNull(cache.getSignature(SignatureLibrary.PFAM, "32.0", "PF00001"));
+        assertEquals(4, cache.getReleaseLoadCount());
+    }
+
+    @Test
+    public void testDuplicatedSignaturesAreNotReturned() {
+        assertNull(cache.getSignature(SignatureLibrary.PFAM, "32.0", "PF00003"));
+        assertEquals(1, cache.getMissCount());
+    }
+}
@@ -0,0 +1,163 @@
+package uk.ac.ebi.interpro.scan.precalc.berkeley.iprscan;
+
+import com.sleepycat.persist.EntityCursor;
+import com.sleepycat.persist.PrimaryIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.dbstore.BerkeleyDBStore;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests {@link ParallelMatchDBBuilder} against an in memory HSQLDB stand-in for the partitions of
+ * the IPRSCAN lookup table.
+ */
+public class ParallelMatchDBBuilderTest {
+
+    private static final String URL = "jdbc:hsqldb:mem:iprscan";
+
+    // One table per partition, as HSQLDB has no partitions
+    private static final String PARTITION_QUERY =
+            "select PROTEIN_MD5, SIGNATURE_LIBRARY_NAME, SIGNATURE_LIBRARY_RELEASE, " +
+                    "SIGNATURE_ACCESSION, MODEL_ACCESSION,  SEQ_START, SEQ_END, FRAGMENTS, SEQUENCE_SCORE, SEQUENCE_EVALUE, " +
+                    "HMM_BOUNDS, HMM_START, HMM_END, HMM_LENGTH,  ENVELOPE_START, ENVELOPE_END,  SCORE,  EVALUE," +
+                    "SEQ_FEATURE" +
+                    "       from  LOOKUP_partitionName " +
+                    "       order by  PROTEIN_MD5";
+
+    private static final List<String> PARTITIONS = Arrays.asList("UPI00000", "UPI00001", "UPI00002", "UPI00003");
+
+    private static final int PROTEINS_PER_PARTITION = 25;
+
+    @TempDir
+    Path tempDir;
+
+    private Connection connection;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        // Kept open, so the in memory database lives until the end of the test
+        connection = DriverManager.getConnection(URL, "SA", "");
+        for (int partition = 0; partition < PARTITIONS.size(); partition++) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table LOOKUP_" + PARTITIONS.get(partition) + " (PROTEIN_MD5 varchar(32), " +
+                        "SIGNATURE_LIBRARY_NAME varchar(50), SIGNATURE_LIBRARY_RELEASE varchar(20), SIGNATURE_ACCESSION varchar(50), " +
+                        "MODEL_ACCESSION varchar(50), SEQ_START integer, SEQ_END integer, FRAGMENTS varchar(100), " +
+                        "SEQUENCE_SCORE double, SEQUENCE_EVALUE double, HMM_BOUNDS varchar(10), HMM_START integer, HMM_END integer, " +
+                        "HMM_LENGTH integer, ENVELOPE_START integer, ENVELOPE_END integer, SCORE double, EVALUE double, SEQ_FEATURE varchar(100))");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("insert into LOOKUP_" + PARTITIONS.get(partition) +
+                    " values (?, ?, '32.0', ?, ?, 1, 100, '1-100-S', 32.1, 1.0E-10, '[]', 1, 90, 100, 1, 100, 32.1, 1.0E-10, null)")) {
+                // Inserted in reverse, so the order comes from the query
+                for (int protein = PROTEINS_PER_PARTITION - 1; protein >= 0; protein--) {
+                    final String md5 = md5(partition, protein);
+                    addRow(insert, md5, "PFAM", "PF00001");
+                    addRow(insert, md5, "PFAM", "PF00002");
+                    // Not a recognised signature library
+                    addRow(insert, md5, "UNKNOWN", "UN00001");
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("shutdown");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void testPartitionsAreStoredInOrder() {
+        final File directory = tempDir.toFile();
+        final ParallelMatchDBBuilder builder = builder(PARTITION_QUERY);
+        final List<String> storedMD5s = new ArrayList<>();
+        try (BerkeleyDBStore lookupMatchDB = new BerkeleyDBStore()) {
+            lookupMatchDB.create(directory.getPath(), directory);
+            builder.build(lookupMatchDB, PARTITIONS);
+
+            final PrimaryIndex<Long, KVSequenceEntry> primIDX = lookupMatchDB.getEntityStore().getPrimaryIndex(Long.class, KVSequenceEntry.class);
+            try (EntityCursor<KVSequenceEntry> cursor = primIDX.entities()) {
+                for (KVSequenceEntry entry : cursor) {
+                    storedMD5s.add(entry.getProteinMD5());
+                    assertEquals(2, entry.getSequenceHits().size());
+                    assertTrue(entry.getSequenceHits().contains("PFAM,32.0,PF00001,PF00001,1,100,1-100-S,32.1,1.0E-10,[],1,90,100,1,100,32.1,1.0E-10,"));
+                }
+            }
+        }
+
+        final List<String> expectedMD5s = new ArrayList<>();
+        for (int partition = 0; partition < PARTITIONS.size(); partition++) {
+            for (int protein = 0; protein < PROTEINS_PER_PARTITION; protein++) {
+                expectedMD5s.add(md5(partition, protein));
+            }
+        }
+        assertEquals(expectedMD5s, storedMD5s, "Stored in the MD5 order of each partition, partition after partition");
+        assertEquals(PARTITIONS.size(), builder.getPartitionsRead());
+        assertEquals(PARTITIONS.size() * PROTEINS_PER_PARTITION * 3, builder.getRowCount());
+        assertEquals(PARTITIONS.size() * PROTEINS_PER_PARTITION, builder.getProteinCount());
+        assertEquals(PARTITIONS.size() * PROTEINS_PER_PARTITION * 2, builder.getMatchCount());
+    }
+
+    @Test
+    public void testFailedPartitionFailsTheBuild() {
+        final File directory = tempDir.toFile();
+        try (BerkeleyDBStore lookupMatchDB = new BerkeleyDBStore()) {
+            lookupMatchDB.create(directory.getPath(), directory);
+            final List<String> partitions = new ArrayList<>(PARTITIONS);
+            partitions.add(1, "MISSING");
+            final IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> builder(PARTITION_QUERY).build(lookupMatchDB, partitions));
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+    }
+
+    @Test
+    public void testNoPartitions() {
+        final File directory = tempDir.toFile();
+        try (BerkeleyDBStore lookupMatchDB = new BerkeleyDBStore()) {
+            lookupMatchDB.create(directory.getPath(), directory);
+            final ParallelMatchDBBuilder builder = builder(PARTITION_QUERY);
+            builder.build(lookupMatchDB, Collections.emptyList());
+            assertEquals(0, builder.getProteinCount());
+        }
+    }
+
+    private static ParallelMatchDBBuilder builder(String partitionQuery) {
+        // Small chunks and queues, so the readers are blocked by the writer
+        final ParallelMatchDBBuilder builder = new ParallelMatchDBBuilder(
+                () -> DriverManager.getConnection(URL, "SA", ""), partitionQuery, 3, 1, 10);
+        builder.setChunkSize(2);
+        builder.setSyncInterval(30);
+        return builder;
+    }
+
+    private static void addRow(PreparedStatement insert, String md5, String library, String accession) throws SQLException {
+        insert.setString(1, md5);
+        insert.setString(2, library);
+        insert.setString(3, accession);
+        insert.setString(4, accession);
+        insert.addBatch();
+    }
+
+    private static String md5(int partition, int protein) {
+        return String.format("%02d%030X", partition, protein);
+    }
+}
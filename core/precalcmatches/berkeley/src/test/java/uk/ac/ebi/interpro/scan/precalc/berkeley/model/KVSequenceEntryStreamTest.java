@@ -0,0 +1,73 @@
+package uk.ac.ebi.interpro.scan.precalc.berkeley.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for the {@link KVSequenceEntryStream} writer and reader.
+ */
+public class KVSequenceEntryStreamTest {
+
+    @Test
+    public void testEntriesAreReadAsWritten() throws IOException {
+        final List<KVSequenceEntry> entries = Arrays.asList(
+                entry("0A1B2C3D4E5F60718293A4B5C6D7E8F9", "PF00001,32.0,1,1,100", "PF00002,32.0,4,20,200"),
+                entry("0A1B2C3D4E5F60718293A4B5C6D7E8FA"),
+                entry("0A1B2C3D4E5F60718293A4B5C6D7E8FB", "cd00001,3.16,2,é site,1"));
+        final byte[] bytes = write(entries);
+
+        final List<KVSequenceEntry> read = new ArrayList<>();
+        try (KVSequenceEntryStream.Reader reader = new KVSequenceEntryStream.Reader(new ByteArrayInputStream(bytes))) {
+            KVSequenceEntry entry;
+            while ((entry = reader.read()) != null) {
+                read.add(entry);
+            }
+            assertNull(reader.read());
+        }
+        assertEquals(entries, read);
+    }
+
+    @Test
+    public void testTruncatedStreamIsDetected() throws IOException {
+        final byte[] bytes = write(Arrays.asList(entry("0A1B2C3D4E5F60718293A4B5C6D7E8F9", "PF00001,32.0,1,1,100")));
+        final byte[] truncated = Arrays.copyOf(bytes, bytes.length - 4);
+        try (KVSequenceEntryStream.Reader reader = new KVSequenceEntryStream.Reader(new ByteArrayInputStream(truncated))) {
+            assertNotNull(reader.read());
+            assertThrows(EOFException.class, reader::read);
+        }
+    }
+
+    @Test
+    public void testOtherContentIsRejected() {
+        final byte[] xml = "<?xml version=\"1.0\"?><kvSequenceEntryXML/>".getBytes();
+        assertThrows(IOException.class, () -> new KVSequenceEntryStream.Reader(new ByteArrayInputStream(xml)));
+    }
+
+    private static byte[] write(List<KVSequenceEntry> entries) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (KVSequenceEntryStream.Writer writer = new KVSequenceEntryStream.Writer(out)) {
+            for (KVSequenceEntry entry : entries) {
+                writer.write(entry);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static KVSequenceEntry entry(String md5, String... hits) {
+        final KVSequenceEntry entry = new KVSequenceEntry();
+        entry.setProteinMD5(md5);
+        for (String hit : hits) {
+            entry.addMatch(hit);
+        }
+        return entry;
+    }
+}
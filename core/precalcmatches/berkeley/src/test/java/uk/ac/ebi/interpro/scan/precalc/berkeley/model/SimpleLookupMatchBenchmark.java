@@ -0,0 +1,138 @@
+package uk.ac.ebi.interpro.scan.precalc.berkeley.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a batch of lookup hits by {@link SimpleLookupMatch} against the previous String.split parser,
+ * when converting the matches (all the fields read) and when checking the analysis versions
+ * (only the library and release read).
+ * <p/>
+ * Excluded from the default build; compile with the jmh profile and run the main method:
+ * <pre>
+ * mvn -Pjmh test-compile
+ * </pre>
+ * Use -prof gc to compare the allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimpleLookupMatchBenchmark {
+
+    private static final String MD5 = "00006F313F29B29DA473B6DDF28AF744";
+
+    private final String[] hits = new String[1000];
+
+    public SimpleLookupMatchBenchmark() {
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = "PFAM,32.0,PF" + (10000 + i) + ",PF" + (10000 + i) + "," + (i + 1) + "," + (i + 120)
+                    + "," + (i + 1) + "-" + (i + 120) + "-S,45.3,2.1E-12,[],3,118,120," + i + "," + (i + 121)
+                    + ",44.9,3.4E-12,";
+        }
+    }
+
+    @Benchmark
+    public void splitParser(Blackhole blackhole) {
+        for (String hit : hits) {
+            final SplitLookupMatch match = new SplitLookupMatch(hit);
+            blackhole.consume(match.signatureAccession);
+            blackhole.consume(match.sequenceStart + match.sequenceEnd + match.envelopeStart + match.envelopeEnd);
+            blackhole.consume(match.sequenceScore + match.locationEValue);
+        }
+    }
+
+    @Benchmark
+    public void tokenizer(Blackhole blackhole) {
+        for (String hit : hits) {
+            final SimpleLookupMatch match = new SimpleLookupMatch(MD5, hit);
+            blackhole.consume(match.getSignatureAccession());
+            blackhole.consume(match.getSequenceStart() + match.getSequenceEnd() + match.getEnvelopeStart() + match.getEnvelopeEnd());
+            blackhole.consume(match.getSequenceScore() + match.getLocationEValue());
+        }
+    }
+
+    @Benchmark
+    public void versionCheckSplitParser(Blackhole blackhole) {
+        for (String hit : hits) {
+            final SplitLookupMatch match = new SplitLookupMatch(hit);
+            blackhole.consume(match.signatureLibraryName);
+            blackhole.consume(match.sigLibRelease);
+        }
+    }
+
+    @Benchmark
+    public void versionCheckTokenizer(Blackhole blackhole) {
+        for (String hit : hits) {
+            blackhole.consume(SimpleLookupMatch.signatureLibraryNameOf(hit));
+            blackhole.consume(SimpleLookupMatch.sigLibReleaseOf(hit));
+        }
+    }
+
+    /**
+     * The parser SimpleLookupMatch used before the LookupHitTokenizer, for comparison.
+     */
+    private static final class SplitLookupMatch {
+        final String signatureLibraryName;
+        final String sigLibRelease;
+        final String signatureAccession;
+        final String modelAccession;
+        final Integer sequenceStart;
+        final Integer sequenceEnd;
+        final String fragments;
+        final Double sequenceScore;
+        final Double sequenceEValue;
+        final String hmmBounds;
+        final Integer hmmStart;
+        final Integer hmmEnd;
+        final Integer hmmLength;
+        final Integer envelopeStart;
+        final Integer envelopeEnd;
+        final Double locationScore;
+        final Double locationEValue;
+        final String seqFeature;
+
+        SplitLookupMatch(String lookupMatch) {
+            final String[] tokens = lookupMatch.split(",");
+            signatureLibraryName = tokens[0];
+            sigLibRelease = tokens[1];
+            signatureAccession = tokens[2];
+            modelAccession = tokens[3];
+            sequenceStart = Integer.parseInt(tokens[4]);
+            sequenceEnd = Integer.parseInt(tokens[5]);
+            fragments = tokens[6];
+            sequenceScore = Double.parseDouble(tokens[7]);
+            sequenceEValue = Double.parseDouble(tokens[8]);
+            hmmBounds = tokens[9];
+            hmmStart = Integer.parseInt(tokens[10]);
+            hmmEnd = Integer.parseInt(tokens[11]);
+            hmmLength = Integer.parseInt(tokens[12]);
+            envelopeStart = Integer.parseInt(tokens[13]);
+            envelopeEnd = Integer.parseInt(tokens[14]);
+            locationScore = Double.parseDouble(tokens[15]);
+            locationEValue = Double.parseDouble(tokens[16]);
+            seqFeature = tokens.length == 18 ? tokens[17] : "";
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SimpleLookupMatchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
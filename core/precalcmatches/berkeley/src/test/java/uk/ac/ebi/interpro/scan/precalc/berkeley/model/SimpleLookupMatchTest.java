@@ -0,0 +1,109 @@
+package uk.ac.ebi.interpro.scan.precalc.berkeley.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for the parsing of the lookup hits by {@link SimpleLookupMatch}, {@link SimpleLookupSite}
+ * and {@link LookupHitTokenizer}.
+ */
+public class SimpleLookupMatchTest {
+
+    private static final String MD5 = "00006F313F29B29DA473B6DDF28AF744";
+
+    @Test
+    public void testMatchWithoutSeqFeature() {
+        final SimpleLookupMatch match = new SimpleLookupMatch(MD5,
+                "SMART,7.1,SM00929,SM00929,92,132,92-132-S,85.9,4.9E-21,[],1,43,43,0,0,4.9E-21,85.9,");
+        assertEquals(MD5, match.getProteinMD5());
+        assertEquals("SMART", match.getSignatureLibraryName());
+        assertEquals("7.1", match.getSigLibRelease());
+        assertEquals("SM00929", match.getSignatureAccession());
+        assertEquals("SM00929", match.getModelAccession());
+        assertEquals(92, match.getSequenceStart());
+        assertEquals(132, match.getSequenceEnd());
+        assertEquals("92-132-S", match.getFragments());
+        assertEquals(85.9, match.getSequenceScore());
+        assertEquals(4.9E-21, match.getSequenceEValue());
+        assertEquals("[]", match.getHmmBounds());
+        assertEquals(1, match.getHmmStart());
+        assertEquals(43, match.getHmmEnd());
+        assertEquals(43, match.getHmmLength());
+        assertEquals(0, match.getEnvelopeStart());
+        assertEquals(0, match.getEnvelopeEnd());
+        assertEquals(4.9E-21, match.getLocationScore());
+        assertEquals(85.9, match.getLocationEValue());
+        assertEquals("", match.getSeqFeature());
+    }
+
+    @Test
+    public void testMatchWithSeqFeature() {
+        final SimpleLookupMatch match = new SimpleLookupMatch(MD5,
+                "MOBIDB,2.0,mobidb-lite,mobidb-lite,1,20,1-20-S,0.0,0.0,,0,0,0,0,0,0.0,0.0,Polar residues");
+        assertEquals("", match.getHmmBounds());
+        assertEquals("Polar residues", match.getSeqFeature());
+    }
+
+    @Test
+    public void testInvalidMatches() {
+        assertThrows(IllegalArgumentException.class, () -> new SimpleLookupMatch(MD5, "SMART,7.1,SM00929,SM00929,92,132"));
+        assertThrows(NumberFormatException.class, () -> new SimpleLookupMatch(MD5,
+                "SMART,7.1,SM00929,SM00929,92x,132,92-132-S,85.9,4.9E-21,[],1,43,43,0,0,4.9E-21,85.9,"));
+    }
+
+    @Test
+    public void testVersionColumns() {
+        final String hit = "PFAM,32.0,PF00001,PF00001,1,100,1-100-S,32.1,1.0E-10,..,1,90,100,1,100,32.1,1.0E-10,";
+        assertEquals("PFAM", SimpleLookupMatch.signatureLibraryNameOf(hit));
+        assertEquals("32.0", SimpleLookupMatch.sigLibReleaseOf(hit));
+        assertNull(SimpleLookupMatch.sigLibReleaseOf("PFAM"));
+    }
+
+    @Test
+    public void testSite() {
+        final SimpleLookupSite site = new SimpleLookupSite(MD5, "SFLD,4,SFLDS00029,5,347,3,C,105,105");
+        assertEquals("SFLD", site.getSignatureLibraryName());
+        assertEquals("SFLDS00029", site.getSignatureAccession());
+        assertEquals(5, site.getLocationStart());
+        assertEquals(347, site.getLocationEnd());
+        assertEquals(3, site.getNumSites());
+        assertEquals("C", site.getResidue());
+        assertEquals(105, site.getResidueStart());
+        assertEquals(105, site.getResidueEnd());
+        assertNull(site.getDescription());
+
+        assertEquals("Active site", new SimpleLookupSite(MD5, "CDD,3.16,cd00001,1,100,2,H,10,10,Active site").getDescription());
+    }
+
+    @Test
+    public void testTokenizerAsSplit() {
+        for (String hit : new String[]{"a,b,c", "a,,c,,", "", ",", "a"}) {
+            final int[] fieldEnds = new int[8];
+            final String[] tokens = hit.split(",");
+            final int fieldCount = LookupHitTokenizer.tokenize(hit, fieldEnds);
+            // String.split returns the empty string for an empty input
+            assertEquals(hit.isEmpty() ? 0 : tokens.length, fieldCount, hit);
+            for (int i = 0; i < fieldCount; i++) {
+                assertEquals(tokens[i], hit.substring(LookupHitTokenizer.start(fieldEnds, i), fieldEnds[i]), hit);
+            }
+        }
+    }
+
+    @Test
+    public void testParseInt() {
+        final String hit = "x,-2147483648,2147483647,+7,2147483648,-,4a";
+        final int[] fieldEnds = new int[7];
+        LookupHitTokenizer.tokenize(hit, fieldEnds);
+        assertEquals(Integer.MIN_VALUE, parseInt(hit, fieldEnds, 1));
+        assertEquals(Integer.MAX_VALUE, parseInt(hit, fieldEnds, 2));
+        assertEquals(7, parseInt(hit, fieldEnds, 3));
+        assertThrows(NumberFormatException.class, () -> parseInt(hit, fieldEnds, 4));
+        assertThrows(NumberFormatException.class, () -> parseInt(hit, fieldEnds, 5));
+        assertThrows(NumberFormatException.class, () -> parseInt(hit, fieldEnds, 6));
+    }
+
+    private static int parseInt(String hit, int[] fieldEnds, int field) {
+        return LookupHitTokenizer.parseInt(hit, LookupHitTokenizer.start(fieldEnds, field), fieldEnds[field]);
+    }
+}
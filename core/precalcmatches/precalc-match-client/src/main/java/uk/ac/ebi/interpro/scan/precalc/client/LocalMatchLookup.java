@@ -0,0 +1,153 @@
+package uk.ac.ebi.interpro.scan.precalc.client;
+
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.BerkeleyMD5DBService;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.BerkeleyMatchDBService;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.BerkeleySiteDBService;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.MD5BatchReader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Looks up the precalculated matches in-process, from the BerkeleyDB stores of a lookup service
+ * (e.g. on storage shared by the nodes of a cluster), without the lookup service, HTTP or XML.
+ * <p/>
+ * The lookup directory holds the three stores served by the lookup service: {@value #MATCH_DB_DIRECTORY},
+ * {@value #SITE_DB_DIRECTORY} and {@value #MD5_DB_DIRECTORY}.  They are opened read-only, without locking,
+ * so any number of processes can share them.  As the stores do not record the version of their data, it is
+ * given with the directory, and reported as the server version.
+ * <p/>
+ * Thread-safe.
+ */
+public class LocalMatchLookup implements AutoCloseable {
+
+    public static final String MATCH_DB_DIRECTORY = "match_db";
+
+    public static final String SITE_DB_DIRECTORY = "site_db";
+
+    public static final String MD5_DB_DIRECTORY = "md5_db";
+
+    private final String version;
+
+    private final BerkeleyMatchDBService matchDBService;
+
+    private final BerkeleySiteDBService siteDBService;
+
+    private final BerkeleyMD5DBService md5DBService;
+
+    private final MD5BatchReader batchReader = new MD5BatchReader();
+
+    private final AtomicLong lookupCount = new AtomicLong();
+
+    private final AtomicLong md5Count = new AtomicLong();
+
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+
+    /**
+     * @param lookupPath           directory of the stores.
+     * @param version              version of the data of the stores, as reported by the lookup service serving them.
+     * @param cacheSizeInMegabytes size of the cache of each store.
+     * @throws IllegalArgumentException if the directory or the version is missing.
+     * @throws RuntimeException         if a store can not be opened.
+     */
+    public LocalMatchLookup(String lookupPath, String version, int cacheSizeInMegabytes) {
+        if (version == null || version.trim().isEmpty()) {
+            throw new IllegalArgumentException("The version of the local lookup data in " + lookupPath + " must be set");
+        }
+        for (String directory : Arrays.asList(MATCH_DB_DIRECTORY, SITE_DB_DIRECTORY, MD5_DB_DIRECTORY)) {
+            if (!new File(lookupPath, directory).isDirectory()) {
+                throw new IllegalArgumentException("The local lookup directory " + lookupPath + " has no " + directory + " store");
+            }
+        }
+        this.version = version.trim();
+        BerkeleyMatchDBService matchDBService = null;
+        BerkeleySiteDBService siteDBService = null;
+        try {
+            matchDBService = new BerkeleyMatchDBService(new File(lookupPath, MATCH_DB_DIRECTORY).getPath(), cacheSizeInMegabytes, 0);
+            siteDBService = new BerkeleySiteDBService(new File(lookupPath, SITE_DB_DIRECTORY).getPath(), cacheSizeInMegabytes, 0);
+            // Without the MD5 filter of the lookup service: building it would read the whole MD5 store
+            this.md5DBService = new BerkeleyMD5DBService(new File(lookupPath, MD5_DB_DIRECTORY).getPath(), cacheSizeInMegabytes);
+        } catch (RuntimeException e) {
+            if (siteDBService != null) {
+                siteDBService.shutdown();
+            }
+            if (matchDBService != null) {
+                matchDBService.shutdown();
+            }
+            throw e;
+        }
+        this.matchDBService = matchDBService;
+        this.siteDBService = siteDBService;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @param md5s any number of MD5 checksums.
+     * @return the matches of the proteins, in MD5 order.
+     */
+    public List<KVSequenceEntry> getMatches(String... md5s) {
+        final long start = System.nanoTime();
+        final List<KVSequenceEntry> matches = batchReader.read(matchDBService.getMD5Index(), Arrays.asList(md5s));
+        countLookup(md5s.length, start);
+        return matches;
+    }
+
+    /**
+     * @param md5s any number of MD5 checksums.
+     * @return the site matches of the proteins, in MD5 order.
+     */
+    public List<KVSequenceEntry> getSites(String... md5s) {
+        final long start = System.nanoTime();
+        final List<KVSequenceEntry> sites = batchReader.read(siteDBService.getMD5Index(), Arrays.asList(md5s));
+        countLookup(md5s.length, start);
+        return sites;
+    }
+
+    /**
+     * @param md5s any number of MD5 checksums.
+     * @return the MD5s of the proteins that have been analysed, in the order requested.
+     */
+    public List<String> getMD5sOfProteinsAlreadyAnalysed(String... md5s) {
+        final long start = System.nanoTime();
+        final List<String> md5sAlreadyAnalysed = new ArrayList<>();
+        for (String md5 : md5s) {
+            if (md5DBService.getPrimIDX().contains(md5)) {
+                md5sAlreadyAnalysed.add(md5);
+            }
+        }
+        countLookup(md5s.length, start);
+        return md5sAlreadyAnalysed;
+    }
+
+    private void countLookup(int md5s, long startNanos) {
+        lookupCount.incrementAndGet();
+        md5Count.addAndGet(md5s);
+        totalLatencyNanos.addAndGet(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return a summary of the lookups made, for logging.
+     */
+    public String getStatistics() {
+        final long count = lookupCount.get();
+        return "local lookups: " + count
+                + " md5s: " + md5Count.get()
+                + " mean latency: " + (count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / count)) + " millis";
+    }
+
+    @Override
+    public void close() {
+        batchReader.shutdown();
+        matchDBService.shutdown();
+        siteDBService.shutdown();
+        md5DBService.shutdown();
+    }
+}
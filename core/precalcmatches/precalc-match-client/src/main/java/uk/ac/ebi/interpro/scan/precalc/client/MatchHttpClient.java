@@ -1,5 +1,6 @@
 package uk.ac.ebi.interpro.scan.precalc.client;
 
+import org.apache.http.Consts;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
@@ -7,7 +8,6 @@ import org.apache.http.NameValuePair;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
-import org.apache.http.client.HttpClient;
 
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.config.RequestConfig;
@@ -15,33 +15,46 @@ import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
 
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntryStream;
 import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntryXML;
 import uk.ac.ebi.interpro.scan.util.Utilities;
 
-import javax.xml.bind.JAXBException;
 import javax.xml.transform.stream.StreamSource;
 import java.io.BufferedInputStream;
-import java.io.FileInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Client to query the REST web service for matches
  * and return an unmarshalled BerkeleyMatchXML object.
+ * If a local lookup path is set, the matches are read in-process from the
+ * stores of the service instead (see {@link LocalMatchLookup}).
  *
  * @author Phil Jones, Gift Nuka
  * @version $Id$
@@ -73,6 +86,112 @@ public class MatchHttpClient {
 
     public static final String SERVER_VERSION_PREFIX = "SERVER:";
 
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+
+    private int maxConnections = 20;
+
+    private int maxConnectionsPerRoute = 10;
+
+    private int connectTimeoutMillis = 10000;
+
+    private int connectionRequestTimeoutMillis = 60000;
+
+    private int socketTimeoutMillis = 180000;
+
+    private long idleConnectionTimeoutMillis = 30000;
+
+    private long connectionTimeToLiveMillis = 300000;
+
+    private CloseableHttpClient httpClient;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong failedRequestCount = new AtomicLong();
+
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    private boolean binaryResponse = true;
+
+    private String lookupCachePath;
+
+    private long lookupCacheMaxProteins = 1000000;
+
+    private volatile MatchLookupCache lookupCache;
+
+    private boolean lookupCacheUnavailable = false;
+
+    private String localLookupPath;
+
+    private String localLookupVersion;
+
+    private int localLookupCacheSizeMegabytes = 256;
+
+    private volatile LocalMatchLookup localLookup;
+
+    private boolean localLookupUnavailable = false;
+
+    private long serverVersionTimeToLiveMillis = 60000;
+
+    private final Object serverVersionLock = new Object();
+
+    private volatile String serverVersion;
+
+    private volatile long serverVersionExpiryMillis;
+
+    /**
+     * Passes the matches (or sites) of the response to a consumer as they are read, from the binary
+     * stream if the server sent it, or else from the XML once unmarshalled.
+     */
+    private class SequenceEntryHandler implements ResponseHandler<Integer> {
+
+        private final Consumer<KVSequenceEntry> consumer;
+
+        SequenceEntryHandler(Consumer<KVSequenceEntry> consumer) {
+            this.consumer = consumer;
+        }
+
+        public Integer handleResponse(HttpResponse response) throws IOException {
+            HttpEntity responseEntity = response.getEntity();
+            if (responseEntity == null) {
+                return 0;
+            }
+            final ContentType contentType = ContentType.get(responseEntity);
+            int entryCount = 0;
+            if (contentType != null && KVSequenceEntryStream.CONTENT_TYPE.equalsIgnoreCase(contentType.getMimeType())) {
+                try (KVSequenceEntryStream.Reader reader = new KVSequenceEntryStream.Reader(responseEntity.getContent())) {
+                    KVSequenceEntry entry;
+                    while ((entry = reader.read()) != null) {
+                        consumer.accept(entry);
+                        entryCount++;
+                    }
+                }
+            } else {
+                // Stream in the response to the unmarshaller
+                BufferedInputStream bis = null;
+                KVSequenceEntryXML entryXML;
+                try {
+                    bis = new BufferedInputStream(responseEntity.getContent());
+                    entryXML = (KVSequenceEntryXML) unmarshaller.unmarshal(new StreamSource(bis));
+                } finally {
+                    if (bis != null) {
+                        bis.close();
+                    }
+                }
+                if (entryXML != null && entryXML.getMatches() != null) {
+                    for (KVSequenceEntry entry : entryXML.getMatches()) {
+                        consumer.accept(entry);
+                        entryCount++;
+                    }
+                }
+            }
+            return entryCount;
+        }
+    }
+
     public MatchHttpClient(Jaxb2Marshaller unmarshaller) {
         this.unmarshaller = unmarshaller;
     }
@@ -108,100 +227,141 @@ public class MatchHttpClient {
         return proxyPort;
     }
 
-    public KVSequenceEntryXML getMatches(String... md5s) throws IOException {
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("Call to MatchHttpClient.getMatches:");
-            for (String md5 : md5s) {
-                LOG.debug("Protein match requested for MD5: " + md5);
-            }
-        }
-
-        if (url == null || url.isEmpty()) {
-            throw new IllegalStateException("The url must be set for the MatchHttpClient.getMatches method to function");
-        }
+    /**
+     * The connection settings below, like the proxy, are read when the shared client is created by the first request.
+     *
+     * @param maxConnections the maximum number of pooled connections.
+     */
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
 
+    /**
+     * @param maxConnectionsPerRoute the maximum number of pooled connections to the lookup service (or proxy).
+     */
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
 
-//        HttpClient httpclient = new DefaultHttpClient();
-        CloseableHttpClient httpclient = HttpClients.createDefault();
+    public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
 
-        //set the proxy if needed
-        if (isProxyEnabled()) {
-            LOG.debug("Using a Proxy server in getMatches: " + proxyHost + ":" + proxyPort);
+    /**
+     * @param connectionRequestTimeoutMillis how long to wait for a pooled connection to be available.
+     */
+    public void setConnectionRequestTimeoutMillis(int connectionRequestTimeoutMillis) {
+        this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+    }
 
-            HttpHost proxy = new HttpHost(proxyHost, Integer.parseInt(proxyPort));
-            httpclient = getClient(proxy);
+    /**
+     * @param socketTimeoutMillis how long to wait for data from the lookup service (0 waits forever).
+     */
+    public void setSocketTimeoutMillis(int socketTimeoutMillis) {
+        this.socketTimeoutMillis = socketTimeoutMillis;
+    }
 
-            //httpclient.getParams().setParameter(ConnRoutePNames.DEFAULT_PROXY, proxy);
-            //httpclient = HttpClients.createDefault();
-            HttpGet httpget = new HttpGet("http://localhost/");
-            CloseableHttpResponse response = httpclient.execute(httpget);
-            try {
-                //do something
-                LOG.warn("HTTP Proxy Warning: this run is configured to use an http proxy, InterProscan is however unable to handle this properly.  ");
-            } finally {
-                response.close();
-            }
+    /**
+     * @param idleConnectionTimeoutMillis how long a pooled connection is kept alive while not used.
+     */
+    public void setIdleConnectionTimeoutMillis(long idleConnectionTimeoutMillis) {
+        this.idleConnectionTimeoutMillis = idleConnectionTimeoutMillis;
+    }
 
-            //try use newer API as ConnRoutePNames is deprecated
-//            CloseableHttpClient client = HttpClients.custom()
-//                .setRoutePlanner(
-//                     new SystemDefaultRoutePlanner(ProxySelector.getDefault()))
-//                .build();
+    public void setConnectionTimeToLiveMillis(long connectionTimeToLiveMillis) {
+        this.connectionTimeToLiveMillis = connectionTimeToLiveMillis;
+    }
 
-        }
+    /**
+     * @param binaryResponse true (the default) to ask the server for the matches and sites as a binary
+     *                       KVSequenceEntryStream, false to ask for XML.  Servers that do not support the
+     *                       binary stream answer with XML either way.
+     */
+    public void setBinaryResponse(boolean binaryResponse) {
+        this.binaryResponse = binaryResponse;
+    }
 
+    /**
+     * @param lookupCachePath directory of the local cache of the lookups (see {@link MatchLookupCache}),
+     *                        or empty (the default) to request every lookup from the service.
+     */
+    public void setLookupCachePath(String lookupCachePath) {
+        this.lookupCachePath = lookupCachePath;
+    }
 
-        final List<NameValuePair> qparams = new ArrayList<NameValuePair>();
-        for (String md5 : md5s) {
-            qparams.add(new BasicNameValuePair(MD5_PARAMETER, md5));
-        }
-        UrlEncodedFormEntity encodedParameterEntity;
-        encodedParameterEntity = new UrlEncodedFormEntity(qparams, "UTF-8");
+    /**
+     * @param lookupCacheMaxProteins maximum number of proteins in the local cache of the lookups.
+     */
+    public void setLookupCacheMaxProteins(long lookupCacheMaxProteins) {
+        this.lookupCacheMaxProteins = lookupCacheMaxProteins;
+    }
 
-        // Using HttpPost to ensure no problems with long URLs.
-        HttpPost post = new HttpPost(url + MATCH_SERVICE_PATH);
+    /**
+     * @param localLookupPath directory of the BerkeleyDB stores of a lookup service, to look up the matches
+     *                        in-process (see {@link LocalMatchLookup}) rather than from the service, or empty
+     *                        (the default) to use the service.
+     */
+    public void setLocalLookupPath(String localLookupPath) {
+        this.localLookupPath = localLookupPath;
+    }
 
-        long startGetMatches = System.currentTimeMillis();
-        post.setEntity(encodedParameterEntity);
+    /**
+     * @param localLookupVersion version of the data of the local lookup stores, as reported by the lookup service
+     *                           serving them (e.g. 5.39-77.0).
+     */
+    public void setLocalLookupVersion(String localLookupVersion) {
+        this.localLookupVersion = localLookupVersion;
+    }
 
+    /**
+     * @param localLookupCacheSizeMegabytes size of the cache of each of the local lookup stores.
+     */
+    public void setLocalLookupCacheSizeMegabytes(int localLookupCacheSizeMegabytes) {
+        this.localLookupCacheSizeMegabytes = localLookupCacheSizeMegabytes;
+    }
 
-        ResponseHandler<KVSequenceEntryXML> handler = new ResponseHandler<KVSequenceEntryXML>() {
-            public KVSequenceEntryXML handleResponse(
-                    HttpResponse response) throws IOException {
-                HttpEntity responseEntity = response.getEntity();
-//                Utilities.verboseLog("response:" + response.toString());
-//                Utilities.verboseLog("responseEntity:" + responseEntity.toString());
-                if (responseEntity != null) {
-                    // Stream in the response to the unmarshaller
-                    BufferedInputStream bis = null;
+    /**
+     * @param serverVersionTimeToLiveMillis how long the version of the lookup service is reused before it is
+     *                                      requested again, so the batches of a run do not each ask for it.
+     */
+    public void setServerVersionTimeToLiveMillis(long serverVersionTimeToLiveMillis) {
+        this.serverVersionTimeToLiveMillis = serverVersionTimeToLiveMillis;
+    }
 
-                    try {
-                        bis = new BufferedInputStream(responseEntity.getContent());
-//                      Utilities.verboseLog("xmlBufferedInputStream:" + bis.toString());
-//                        if (testXMResponse()){
-//                            FileInputStream htmlFileInputStream = new FileInputStream("input/htmlTest.html");
-//                            return (KVSequenceEntryXML) unmarshaller.unmarshal(new StreamSource(htmlFileInputStream));
-//                        }
-                        return (KVSequenceEntryXML) unmarshaller.unmarshal(new StreamSource(bis));
-                    } finally {
-                        if (bis != null) {
-                            bis.close();
-                        }
-                    }
-                }
-                return null;
+    public KVSequenceEntryXML getMatches(String... md5s) throws IOException {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Call to MatchHttpClient.getMatches:");
+            for (String md5 : md5s) {
+                LOG.debug("Protein match requested for MD5: " + md5);
             }
-        };
-
+        }
 
-        KVSequenceEntryXML matchXML = httpclient.execute(post, handler);
-//        httpclient.getConnectionManager().shutdown();
-        httpclient.close();
-//        Utilities.verboseLog("matchXML:" + matchXML.toString());
-        long timeToGetMatches = System.currentTimeMillis() - startGetMatches;
-//        System.out.println(Utilities.getTimeNow() + " Took  " + timeToGetMatches + " millis to get  matches  for  " + md5s.length  + " md5s");
+        final List<KVSequenceEntry> matches = new ArrayList<>();
+        streamMatches(matches::add, md5s);
+        return new KVSequenceEntryXML(matches);
+    }
 
-        return matchXML;
+    /**
+     * Passes the matches to the consumer one by one, as they are read from the response.
+     *
+     * @param consumer of the matches, in MD5 order (the matches in the local cache first, if enabled).
+     * @param md5s     any number of MD5 checksums.
+     * @return the number of matches read.
+     * @throws IOException in the event of a problem communicating with the server.
+     */
+    public int streamMatches(Consumer<KVSequenceEntry> consumer, String... md5s) throws IOException {
+        final LocalMatchLookup local = getLocalLookup();
+        if (local != null) {
+            return streamEntries(local.getMatches(md5s), consumer);
+        }
+        if (url == null || url.isEmpty()) {
+            throw new IllegalStateException("The url must be set for the MatchHttpClient.getMatches method to function");
+        }
+        final MatchLookupCache cache = getLookupCache();
+        if (cache == null) {
+            return execute(createSequenceEntryPost(MATCH_SERVICE_PATH, md5s), new SequenceEntryHandler(consumer));
+        }
+        return streamThroughCache(MATCH_SERVICE_PATH, consumer, md5s, cache::getMatches, cache::putMatches);
     }
 
 
@@ -214,95 +374,130 @@ public class MatchHttpClient {
      */
     public KVSequenceEntryXML getSites(String... md5s) throws IOException {
         if (LOG.isDebugEnabled()) {
-            LOG.debug("Call to MatchHttpClient.getMatches:");
+            LOG.debug("Call to MatchHttpClient.getSites:");
             for (String md5 : md5s) {
-                LOG.debug("Protein match requested for MD5: " + md5);
+                LOG.debug("Protein site requested for MD5: " + md5);
             }
         }
 
+        final List<KVSequenceEntry> sites = new ArrayList<>();
+        streamSites(sites::add, md5s);
+        return new KVSequenceEntryXML(sites);
+    }
+
+    /**
+     * Passes the site matches to the consumer one by one, as they are read from the response.
+     *
+     * @param consumer of the sites, in MD5 order (the sites in the local cache first, if enabled).
+     * @param md5s     any number of MD5 checksums.
+     * @return the number of sites read.
+     * @throws IOException in the event of a problem communicating with the server.
+     */
+    public int streamSites(Consumer<KVSequenceEntry> consumer, String... md5s) throws IOException {
+        final LocalMatchLookup local = getLocalLookup();
+        if (local != null) {
+            return streamEntries(local.getSites(md5s), consumer);
+        }
         if (url == null || url.isEmpty()) {
-            throw new IllegalStateException("The url must be set for the MatchHttpClient.getMatches method to function");
+            throw new IllegalStateException("The url must be set for the MatchHttpClient.getSites method to function");
         }
-
-
-//        HttpClient httpclient = new DefaultHttpClient();
-        CloseableHttpClient httpclient = HttpClients.createDefault();
-        final List<NameValuePair> qparams = new ArrayList<NameValuePair>();
-        for (String md5 : md5s) {
-            qparams.add(new BasicNameValuePair(MD5_PARAMETER, md5));
+        final MatchLookupCache cache = getLookupCache();
+        if (cache == null) {
+            return execute(createSequenceEntryPost(SITE_SERVICE_PATH, md5s), new SequenceEntryHandler(consumer));
         }
-        UrlEncodedFormEntity encodedParameterEntity;
-        encodedParameterEntity = new UrlEncodedFormEntity(qparams, "UTF-8");
-
-        // Using HttpPost to ensure no problems with long URLs.
-        HttpPost post = new HttpPost(url + SITE_SERVICE_PATH);
-
-        long startGetMatches = System.currentTimeMillis();
-        post.setEntity(encodedParameterEntity);
-
+        return streamThroughCache(SITE_SERVICE_PATH, consumer, md5s, cache::getSites, cache::putSites);
+    }
 
-        ResponseHandler<KVSequenceEntryXML> handler = new ResponseHandler<KVSequenceEntryXML>() {
-            public KVSequenceEntryXML handleResponse(
-                    HttpResponse response) throws IOException {
-                HttpEntity responseEntity = response.getEntity();
-//                Utilities.verboseLog("response:" + response.toString());
-//                Utilities.verboseLog("responseEntity:" + responseEntity.toString());
-                if (responseEntity != null) {
-                    // Stream in the response to the unmarshaller
-                    BufferedInputStream bis = null;
+    private static int streamEntries(List<KVSequenceEntry> entries, Consumer<KVSequenceEntry> consumer) {
+        entries.forEach(consumer);
+        return entries.size();
+    }
 
-                    try {
-                        bis = new BufferedInputStream(responseEntity.getContent());
-//                      Utilities.verboseLog("xmlBufferedInputStream:" + bis.toString());
-//                        if (testXMResponse()){
-//                            FileInputStream htmlFileInputStream = new FileInputStream("input/htmlTest.html");
-//                            return (KVSequenceEntryXML) unmarshaller.unmarshal(new StreamSource(htmlFileInputStream));
-//                        }
-                        return (KVSequenceEntryXML) unmarshaller.unmarshal(new StreamSource(bis));
-                    } finally {
-                        if (bis != null) {
-                            bis.close();
-                        }
-                    }
+    /**
+     * Passes the cached entries of the MD5s to the consumer, then requests the others from the service
+     * and caches them.
+     */
+    private int streamThroughCache(String servicePath, Consumer<KVSequenceEntry> consumer, String[] md5s,
+                                   Function<String, List<KVSequenceEntry>> cachedEntries,
+                                   Consumer<Map<String, List<KVSequenceEntry>>> cacheEntries) throws IOException {
+        int entryCount = 0;
+        final List<String> uncachedMD5s = new ArrayList<>();
+        for (String md5 : md5s) {
+            final List<KVSequenceEntry> entries = cachedEntries.apply(md5);
+            if (entries == null) {
+                uncachedMD5s.add(md5);
+            } else {
+                for (KVSequenceEntry entry : entries) {
+                    consumer.accept(entry);
+                    entryCount++;
                 }
-                return null;
-            }
-        };
-        //set the proxy if needed
-        if (isProxyEnabled()) {
-            LOG.debug("Using a Proxy server in getMatches: " + proxyHost + ":" + proxyPort);
-
-            HttpHost proxy = new HttpHost(proxyHost, Integer.parseInt(proxyPort));
-            httpclient = getClient(proxy);
-
-            //httpclient.getParams().setParameter(ConnRoutePNames.DEFAULT_PROXY, proxy);
-            //httpclient = HttpClients.createDefault();
-            HttpGet httpget = new HttpGet("http://localhost/");
-            CloseableHttpResponse response = httpclient.execute(httpget);
-            try {
-                //do something
-            } finally {
-                response.close();
             }
-
-            //try use newer API as ConnRoutePNames is deprecated
-//            CloseableHttpClient client = HttpClients.custom()
-//                .setRoutePlanner(
-//                     new SystemDefaultRoutePlanner(ProxySelector.getDefault()))
-//                .build();
-
         }
+        if (uncachedMD5s.isEmpty()) {
+            return entryCount;
+        }
+        final Map<String, List<KVSequenceEntry>> md5ToEntries = new HashMap<>(uncachedMD5s.size() * 4 / 3 + 1);
+        for (String md5 : uncachedMD5s) {
+            md5ToEntries.put(md5, new ArrayList<>());
+        }
+        entryCount += execute(createSequenceEntryPost(servicePath, uncachedMD5s.toArray(new String[0])),
+                new SequenceEntryHandler(entry -> {
+                    final List<KVSequenceEntry> entries = md5ToEntries.get(entry.getProteinMD5());
+                    if (entries != null) {
+                        entries.add(entry);
+                    }
+                    consumer.accept(entry);
+                }));
+        cacheEntries.accept(md5ToEntries);
+        return entryCount;
+    }
 
-        KVSequenceEntryXML siteXML = httpclient.execute(post, handler);
-//        httpclient.getConnectionManager().shutdown();
-        httpclient.close();
-//        Utilities.verboseLog("matchXML:" + matchXML.toString());
-        long timeToGetMatches = System.currentTimeMillis() - startGetMatches;
-//        System.out.println(Utilities.getTimeNow() + " Took  " + timeToGetMatches + " millis to get  matches  for  " + md5s.length  + " md5s");
+    /**
+     * Using HttpPost to ensure no problems with long URLs.
+     */
+    private HttpPost createPost(String servicePath, String... md5s) {
+        final List<NameValuePair> qparams = new ArrayList<NameValuePair>(md5s.length);
+        for (String md5 : md5s) {
+            qparams.add(new BasicNameValuePair(MD5_PARAMETER, md5));
+        }
+        HttpPost post = new HttpPost(url + servicePath);
+        post.setEntity(new UrlEncodedFormEntity(qparams, Consts.UTF_8));
+        return post;
+    }
 
-        return siteXML;
+    /**
+     * Asks for the binary stream of matches (or sites) if enabled, still accepting XML from older servers.
+     */
+    private HttpPost createSequenceEntryPost(String servicePath, String... md5s) {
+        HttpPost post = createPost(servicePath, md5s);
+        if (binaryResponse) {
+            post.setHeader("Accept", KVSequenceEntryStream.CONTENT_TYPE + ", application/xml;q=0.5");
+        } else {
+            post.setHeader("Accept", "application/xml");
+        }
+        return post;
     }
 
+    /**
+     * Executes the request with the shared client, recording its latency.
+     */
+    private <T> T execute(HttpUriRequest request, ResponseHandler<T> handler) throws IOException {
+        final long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            T response = getClient().execute(request, handler);
+            succeeded = true;
+            return response;
+        } finally {
+            final long latency = System.nanoTime() - start;
+            requestCount.incrementAndGet();
+            if (!succeeded) {
+                failedRequestCount.incrementAndGet();
+            }
+            totalLatencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        }
+    }
 
     public boolean testXMResponse() {
         boolean testXMResponse = false;
@@ -332,22 +527,13 @@ public class MatchHttpClient {
      * @throws IOException in the event of a problem communicating with the server.
      */
     public List<String> getMD5sOfProteinsAlreadyAnalysed(String... md5s) throws IOException {
+        final LocalMatchLookup local = getLocalLookup();
+        if (local != null) {
+            return local.getMD5sOfProteinsAlreadyAnalysed(md5s);
+        }
         if (url == null || url.isEmpty()) {
             throw new IllegalStateException("The url must be set for the MatchHttpClient.getMD5sOfProteinsAlreadyAnalysed method to function");
         }
-        CloseableHttpClient httpclient = getClient(); //new DefaultHttpClient();
-        final List<NameValuePair> qparams = new ArrayList<NameValuePair>();
-        for (String md5 : md5s) {
-            qparams.add(new BasicNameValuePair(MD5_PARAMETER, md5));
-        }
-        UrlEncodedFormEntity encodedParameterEntity;
-        encodedParameterEntity = new UrlEncodedFormEntity(qparams, "UTF-8");
-
-        // Using HttpPost to ensure no problems with long URLs.
-        HttpPost post = new HttpPost(url + PROTEINS_TO_ANALYSE_SERVICE_PATH);
-        post.setEntity(encodedParameterEntity);
-
-
         ResponseHandler<List<String>> handler = new ResponseHandler<List<String>>() {
             public List<String> handleResponse(
                     HttpResponse response) throws IOException {
@@ -375,36 +561,117 @@ public class MatchHttpClient {
             }
         };
 
-        //set the proxy if needed
-        if (isProxyEnabled()) {
-            LOG.debug("Using a Proxy server in getMD5sOfProteinsAlreadyAnalysed : " + proxyHost + ":" + proxyPort);
-            HttpHost proxy = new HttpHost(proxyHost, Integer.parseInt(proxyPort));
-            httpclient = getClient(proxy);
-            //httpclient.getParams().setParameter(ConnRoutePNames.DEFAULT_PROXY, proxy);
+        final MatchLookupCache cache = getLookupCache();
+        if (cache == null) {
+            return execute(createPost(PROTEINS_TO_ANALYSE_SERVICE_PATH, md5s), handler);
+        }
+        final String serverVersion = getServerVersion();
+        if (serverVersion == null || serverVersion.isEmpty()) {
+            // The cached lookups may be of another version of the lookup service
+            return execute(createPost(PROTEINS_TO_ANALYSE_SERVICE_PATH, md5s), handler);
+        }
+        cache.checkServerVersion(serverVersion);
+        final List<String> md5sAlreadyAnalysed = new ArrayList<>();
+        final List<String> uncachedMD5s = new ArrayList<>();
+        for (String md5 : md5s) {
+            if (cache.isAnalysed(md5)) {
+                md5sAlreadyAnalysed.add(md5);
+            } else {
+                uncachedMD5s.add(md5);
+            }
+        }
+        if (!uncachedMD5s.isEmpty()) {
+            final List<String> lookedUpMD5s = execute(createPost(PROTEINS_TO_ANALYSE_SERVICE_PATH, uncachedMD5s.toArray(new String[0])), handler);
+            cache.putAnalysed(lookedUpMD5s);
+            md5sAlreadyAnalysed.addAll(lookedUpMD5s);
+        }
+        return md5sAlreadyAnalysed;
+    }
 
+    /**
+     * Returns the local cache of the lookups, opened on first use and emptied if it was filled by another
+     * version of the lookup service.  The cache is not used if the version of the lookup service is unknown,
+     * as its lookups could not be told apart from those of another version.
+     *
+     * @return the cache, or null if it is not configured or can not be opened.
+     */
+    public synchronized MatchLookupCache getLookupCache() throws IOException {
+        if (lookupCache == null && !lookupCacheUnavailable && lookupCachePath != null && !lookupCachePath.trim().isEmpty()) {
+            final String serverVersion;
+            try {
+                serverVersion = getServerVersion();
+            } catch (IOException e) {
+                LOG.warn("Unable to get the version of the lookup service, looking up all the proteins from the service", e);
+                lookupCacheUnavailable = true;
+                return null;
+            }
+            if (serverVersion == null || serverVersion.isEmpty()) {
+                LOG.warn("The version of the lookup service is unknown, looking up all the proteins from the service");
+                lookupCacheUnavailable = true;
+                return null;
+            }
+            try {
+                lookupCache = new MatchLookupCache(lookupCachePath.trim(), lookupCacheMaxProteins);
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to open the lookup cache at " + lookupCachePath + ", looking up all the proteins from the service", e);
+                lookupCacheUnavailable = true;
+                return null;
+            }
+            lookupCache.checkServerVersion(serverVersion);
         }
+        return lookupCache;
+    }
 
-        List<String> response = httpclient.execute(post, handler);
-        httpclient.close();
-//        httpclient.getConnectionManager().shutdown();
-        return response;
+    /**
+     * Returns the in-process lookup from the local stores, opened on first use.
+     *
+     * @return the local lookup, or null if it is not configured or can not be opened (the lookups then go to the service).
+     */
+    public synchronized LocalMatchLookup getLocalLookup() {
+        if (localLookup == null && !localLookupUnavailable && localLookupPath != null && !localLookupPath.trim().isEmpty()) {
+            try {
+                localLookup = new LocalMatchLookup(localLookupPath.trim(), localLookupVersion, localLookupCacheSizeMegabytes);
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to open the local lookup at " + localLookupPath + ", looking up the proteins from the service", e);
+                localLookupUnavailable = true;
+            }
+        }
+        return localLookup;
     }
 
+    /**
+     * Returns the version of the lookup service, requested at most once every
+     * {@link #setServerVersionTimeToLiveMillis(long) time to live} so it is not requested for each batch.
+     */
     public String getServerVersion() throws IOException {
 
         LOG.debug("Call to MatchHttpClient.getServerVersion:");
 
+        final LocalMatchLookup local = getLocalLookup();
+        if (local != null) {
+            return local.getVersion();
+        }
+
         if (url == null || url.isEmpty()) {
             throw new IllegalStateException("The url must be set for the MatchHttpClient.getServerVersion method to function");
         }
 
-        String serverVersion = "5.33-72.0"; //TODO this is for TEM and testing only as the server with the correct versionis not yet ready;
-
-        if (! url.isEmpty()){
-            return serverVersion;
+        String version = serverVersion;
+        if (version != null && System.currentTimeMillis() < serverVersionExpiryMillis) {
+            return version;
+        }
+        synchronized (serverVersionLock) {
+            version = serverVersion;
+            if (version == null || System.currentTimeMillis() >= serverVersionExpiryMillis) {
+                version = requestServerVersion();
+                serverVersionExpiryMillis = System.currentTimeMillis() + serverVersionTimeToLiveMillis;
+                serverVersion = version;
+            }
+            return version;
         }
-        CloseableHttpClient httpclient = getClient();
+    }
 
+    private String requestServerVersion() throws IOException {
         // Use HttpGet as the URL will be very short
         HttpGet get = new HttpGet(url + VERSION_PATH);
 
@@ -420,10 +687,9 @@ public class MatchHttpClient {
                     BufferedReader reader = null;
                     try {
                         reader = new BufferedReader(new InputStreamReader(responseEntity.getContent()));
-                        String line;
-                        line = reader.readLine().trim();
-                        if (!line.isEmpty()) {
-                            serverVersion = line;
+                        String line = reader.readLine();
+                        if (line != null && !line.trim().isEmpty()) {
+                            serverVersion = line.trim();
                         }
 
                     } finally {
@@ -442,17 +708,7 @@ public class MatchHttpClient {
             }
         };
 
-        //set the proxy if needed
-        if (isProxyEnabled()) {
-            LOG.debug("Using a Proxy server in getServerVersion: " + proxyHost + ":" + proxyPort);
-            HttpHost proxy = new HttpHost(proxyHost, Integer.parseInt(proxyPort));
-            httpclient = getClient(proxy);
-        }
-
-        serverVersion = httpclient.execute(get, handler);
-        httpclient.close();
-        //httpclient.getConnectionManager().shutdown();
-        return serverVersion;
+        return execute(get, handler);
 
     }
 
@@ -462,8 +718,8 @@ public class MatchHttpClient {
      * @return
      */
     public boolean isConfigured() {
-        LOG.debug("lookup url: " + url);
-        return url != null && !url.isEmpty();
+        LOG.debug("lookup url: " + url + " local lookup: " + localLookupPath);
+        return (url != null && !url.isEmpty()) || getLocalLookup() != null;
     }
 
     /**
@@ -483,23 +739,97 @@ public class MatchHttpClient {
     }
 
 
-    public CloseableHttpClient getClient() {
-        CloseableHttpClient httpclient = HttpClients.createDefault();
-        return httpclient;
+    /**
+     * Returns the client shared by all the requests, created on first use from the connection settings
+     * (and the proxy, if enabled).  Connections to the lookup service are pooled and kept alive between
+     * requests, and gzip or deflate encoded responses are decoded.
+     *
+     * @return the shared, thread-safe client.
+     */
+    public synchronized CloseableHttpClient getClient() {
+        if (httpClient == null) {
+            connectionManager = new PoolingHttpClientConnectionManager(connectionTimeToLiveMillis, TimeUnit.MILLISECONDS);
+            connectionManager.setMaxTotal(maxConnections);
+            connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+            connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+            final RequestConfig requestConfig = RequestConfig.custom()
+                    .setConnectTimeout(connectTimeoutMillis)
+                    .setConnectionRequestTimeout(connectionRequestTimeoutMillis)
+                    .setSocketTimeout(socketTimeoutMillis)
+                    .setContentCompressionEnabled(true)
+                    .build();
+            final HttpClientBuilder builder = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(requestConfig)
+                    .evictExpiredConnections()
+                    .evictIdleConnections(idleConnectionTimeoutMillis, TimeUnit.MILLISECONDS);
+            //set the proxy if needed
+            if (isProxyEnabled()) {
+                LOG.debug("Using a Proxy server: " + proxyHost + ":" + proxyPort);
+                builder.setProxy(new HttpHost(proxyHost, Integer.parseInt(proxyPort)));
+            }
+            httpClient = builder.build();
+        }
+        return httpClient;
     }
 
-    public CloseableHttpClient getClient(HttpHost proxy) {
-        CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
-        CloseableHttpClient httpclient = HttpClients.custom()
-//                .setConnectionManager(connManager)
-//                .setDefaultCookieStore(cookieStore)
-//                .setDefaultCredentialsProvider(credentialsProvider)
-                .setProxy(proxy)
-//                .setDefaultRequestConfig(defaultRequestConfig)
-                .build();
+    /**
+     * Closes the shared client and its pooled connections, the lookup cache and the local lookup, and forgets the
+     * version of the lookup service.  The next request creates a new client.
+     */
+    public synchronized void close() throws IOException {
+        if (localLookup != null) {
+            localLookup.close();
+            localLookup = null;
+        }
+        if (httpClient != null) {
+            httpClient.close();
+            httpClient = null;
+            connectionManager = null;
+        }
+        if (lookupCache != null) {
+            lookupCache.close();
+            lookupCache = null;
+        }
+        serverVersion = null;
+    }
 
-        return httpclient;
+    /**
+     * @return the statistics of the connection pool, or null if no request has been made yet.
+     */
+    public synchronized PoolStats getPoolStats() {
+        return connectionManager == null ? null : connectionManager.getTotalStats();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
 
+    public long getFailedRequestCount() {
+        return failedRequestCount.get();
+    }
+
+    public long getMeanLatencyMillis() {
+        final long count = requestCount.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / count);
+    }
+
+    public long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    /**
+     * @return a summary of the requests made and of the connection pool, for logging.
+     */
+    public String getStatistics() {
+        final PoolStats poolStats = getPoolStats();
+        return "requests: " + getRequestCount()
+                + " failed: " + getFailedRequestCount()
+                + " mean latency: " + getMeanLatencyMillis() + " millis"
+                + " max latency: " + getMaxLatencyMillis() + " millis"
+                + (poolStats == null ? "" : " connection pool: " + poolStats)
+                + (lookupCache == null ? "" : " " + lookupCache.getStatistics())
+                + (localLookup == null ? "" : " " + localLookup.getStatistics());
     }
 
     public CloseableHttpClient getClient(HttpHost proxy, CredentialsProvider credsProvider) throws Exception {
@@ -0,0 +1,318 @@
+package uk.ac.ebi.interpro.scan.precalc.client;
+
+import org.apache.log4j.Logger;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.WriteBatch;
+import uk.ac.ebi.interpro.scan.persistence.kvstore.LevelDBStore;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntryStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local, on-disk cache of the precalculated match lookups, so the proteins looked up again by later runs
+ * are not requested from the lookup service.
+ * <p/>
+ * For each protein MD5 known by the lookup service, the cache holds its matches and, when they were
+ * looked up, its sites, as returned by the service.  The cache is only valid for one version of the
+ * lookup service (InterProScan and InterPro data version): it is emptied when the server version changes.
+ * <p/>
+ * The number of proteins is bounded: once full, the proteins cached first are evicted.
+ * <p/>
+ * Thread-safe.  The LevelDB store can only be opened by one process at a time.
+ */
+public class MatchLookupCache implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(MatchLookupCache.class.getName());
+
+    // Key prefixes
+    private static final byte ANALYSED = 'A';
+
+    private static final byte MATCHES = 'M';
+
+    private static final byte SITES = 'S';
+
+    private static final byte SEQUENCE = 'Q';
+
+    private static final byte[] VERSION_KEY = {'V'};
+
+    private static final byte[] COUNTERS_KEY = {'C'};
+
+    /**
+     * Fraction of the maximum number of proteins kept when evicting, so the eviction is not run on every put.
+     */
+    private static final double EVICTION_LOW_WATER_MARK = 0.9;
+
+    private final LevelDBStore store;
+
+    private final DB db;
+
+    private final long maxProteins;
+
+    private String serverVersion;
+
+    private long proteinCount;
+
+    private long nextSequence;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param path        directory of the LevelDB store, created if needed.
+     * @param maxProteins maximum number of proteins cached.
+     * @throws IllegalStateException if the store can not be opened, e.g. if used by another process.
+     */
+    public MatchLookupCache(String path, long maxProteins) {
+        this.maxProteins = Math.max(1, maxProteins);
+        this.store = new LevelDBStore(path);
+        this.db = store.getLevelDBStore();
+        if (db == null) {
+            throw new IllegalStateException("Unable to open the lookup cache at " + path);
+        }
+        final byte[] version = db.get(VERSION_KEY);
+        serverVersion = version == null ? null : new String(version, StandardCharsets.UTF_8);
+        final byte[] counters = db.get(COUNTERS_KEY);
+        if (counters != null) {
+            final ByteBuffer buffer = ByteBuffer.wrap(counters);
+            proteinCount = buffer.getLong();
+            nextSequence = buffer.getLong();
+        }
+        LOG.debug("Opened the lookup cache at " + path + " for server version " + serverVersion + " with " + proteinCount + " proteins");
+    }
+
+    /**
+     * Empties the cache if it holds the lookups of another version of the lookup service.
+     *
+     * @param version of the lookup service, as returned by /version.
+     */
+    public synchronized void checkServerVersion(String version) {
+        if (version == null || version.equals(serverVersion)) {
+            return;
+        }
+        LOG.info("Lookup service version changed from " + serverVersion + " to " + version + ", emptying the lookup cache");
+        try (DBIterator iterator = db.iterator()) {
+            iterator.seekToFirst();
+            WriteBatch batch = db.createWriteBatch();
+            int batchSize = 0;
+            while (iterator.hasNext()) {
+                batch.delete(iterator.next().getKey());
+                if (++batchSize == 10000) {
+                    write(batch);
+                    batch = db.createWriteBatch();
+                    batchSize = 0;
+                }
+            }
+            batch.put(VERSION_KEY, version.getBytes(StandardCharsets.UTF_8));
+            proteinCount = 0;
+            nextSequence = 0;
+            batch.put(COUNTERS_KEY, counters());
+            write(batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        serverVersion = version;
+    }
+
+    public synchronized String getServerVersion() {
+        return serverVersion;
+    }
+
+    /**
+     * @return true if the lookup service was known to have the matches of the protein.
+     */
+    public boolean isAnalysed(String md5) {
+        final boolean analysed = db.get(key(ANALYSED, md5)) != null;
+        (analysed ? hitCount : missCount).incrementAndGet();
+        return analysed;
+    }
+
+    /**
+     * Records the proteins known by the lookup service, evicting the oldest ones if the cache is full.
+     */
+    public synchronized void putAnalysed(Collection<String> md5s) {
+        final WriteBatch batch = db.createWriteBatch();
+        try {
+            for (String md5 : md5s) {
+                final byte[] analysedKey = key(ANALYSED, md5);
+                if (db.get(analysedKey) != null) {
+                    continue;
+                }
+                final byte[] sequence = ByteBuffer.allocate(8).putLong(nextSequence++).array();
+                batch.put(analysedKey, sequence);
+                batch.put(key(SEQUENCE, sequence), md5.getBytes(StandardCharsets.UTF_8));
+                proteinCount++;
+            }
+            batch.put(COUNTERS_KEY, counters());
+            write(batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (proteinCount > maxProteins) {
+            evict((long) (maxProteins * EVICTION_LOW_WATER_MARK));
+        }
+    }
+
+    /**
+     * @return the matches of the protein, or null if they are not cached.
+     */
+    public List<KVSequenceEntry> getMatches(String md5) {
+        return get(MATCHES, md5);
+    }
+
+    /**
+     * Caches the matches of the proteins, if they are known by the lookup service.
+     *
+     * @param md5ToMatches the matches looked up, by MD5 (with an empty list for proteins without matches).
+     */
+    public void putMatches(Map<String, List<KVSequenceEntry>> md5ToMatches) {
+        put(MATCHES, md5ToMatches);
+    }
+
+    /**
+     * @return the sites of the protein, or null if they are not cached.
+     */
+    public List<KVSequenceEntry> getSites(String md5) {
+        return get(SITES, md5);
+    }
+
+    public void putSites(Map<String, List<KVSequenceEntry>> md5ToSites) {
+        put(SITES, md5ToSites);
+    }
+
+    public synchronized long getProteinCount() {
+        return proteinCount;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public String getStatistics() {
+        return "lookup cache proteins: " + getProteinCount()
+                + " hits: " + getHitCount()
+                + " misses: " + getMissCount()
+                + " evicted: " + getEvictionCount();
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    private List<KVSequenceEntry> get(byte kind, String md5) {
+        final byte[] value = db.get(key(kind, md5));
+        if (value == null) {
+            return null;
+        }
+        final List<KVSequenceEntry> entries = new ArrayList<>();
+        try (KVSequenceEntryStream.Reader reader = new KVSequenceEntryStream.Reader(new ByteArrayInputStream(value))) {
+            KVSequenceEntry entry;
+            while ((entry = reader.read()) != null) {
+                entries.add(entry);
+            }
+        } catch (IOException e) {
+            LOG.warn("Ignoring the unreadable lookup cache entry of " + md5, e);
+            return null;
+        }
+        return entries;
+    }
+
+    private synchronized void put(byte kind, Map<String, List<KVSequenceEntry>> md5ToEntries) {
+        final WriteBatch batch = db.createWriteBatch();
+        try {
+            for (Map.Entry<String, List<KVSequenceEntry>> md5Entries : md5ToEntries.entrySet()) {
+                // Only the proteins known by the lookup service are cached, so they are evicted with it
+                if (db.get(key(ANALYSED, md5Entries.getKey())) == null) {
+                    continue;
+                }
+                final ByteArrayOutputStream value = new ByteArrayOutputStream();
+                try (KVSequenceEntryStream.Writer writer = new KVSequenceEntryStream.Writer(value)) {
+                    for (KVSequenceEntry entry : md5Entries.getValue()) {
+                        writer.write(entry);
+                    }
+                }
+                batch.put(key(kind, md5Entries.getKey()), value.toByteArray());
+            }
+            write(batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Evicts the proteins cached first, down to the given number of proteins.
+     */
+    private void evict(long targetCount) {
+        final byte[] sequencePrefix = {SEQUENCE};
+        try (DBIterator iterator = db.iterator()) {
+            iterator.seek(sequencePrefix);
+            final WriteBatch batch = db.createWriteBatch();
+            long evicted = 0;
+            while (proteinCount > targetCount && iterator.hasNext()) {
+                final Map.Entry<byte[], byte[]> sequenceEntry = iterator.next();
+                if (sequenceEntry.getKey()[0] != SEQUENCE) {
+                    break;
+                }
+                final String md5 = new String(sequenceEntry.getValue(), StandardCharsets.UTF_8);
+                batch.delete(sequenceEntry.getKey());
+                batch.delete(key(ANALYSED, md5));
+                batch.delete(key(MATCHES, md5));
+                batch.delete(key(SITES, md5));
+                proteinCount--;
+                evicted++;
+            }
+            batch.put(COUNTERS_KEY, counters());
+            write(batch);
+            evictionCount.addAndGet(evicted);
+            LOG.debug("Evicted " + evicted + " proteins from the lookup cache");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(WriteBatch batch) throws IOException {
+        try {
+            db.write(batch);
+        } finally {
+            batch.close();
+        }
+    }
+
+    private byte[] counters() {
+        return ByteBuffer.allocate(16).putLong(proteinCount).putLong(nextSequence).array();
+    }
+
+    private static byte[] key(byte kind, String md5) {
+        return key(kind, md5.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] key(byte kind, byte[] suffix) {
+        final byte[] key = Arrays.copyOf(new byte[]{kind}, suffix.length + 1);
+        System.arraycopy(suffix, 0, key, 1, suffix.length);
+        return key;
+    }
+}
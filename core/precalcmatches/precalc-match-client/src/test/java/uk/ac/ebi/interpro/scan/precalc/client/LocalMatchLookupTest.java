@@ -0,0 +1,130 @@
+package uk.ac.ebi.interpro.scan.precalc.client;
+
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentConfig;
+import com.sleepycat.persist.EntityStore;
+import com.sleepycat.persist.PrimaryIndex;
+import com.sleepycat.persist.StoreConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.BerkeleyConsideredProtein;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the {@link MatchHttpClient} looks up the matches from the local stores of a {@link LocalMatchLookup},
+ * without a lookup service.
+ */
+public class LocalMatchLookupTest {
+
+    private static final String MD5_1 = "A0000000000000000000000000000001";
+
+    private static final String MD5_2 = "A0000000000000000000000000000002";
+
+    private static final String MD5_NO_MATCH = "A0000000000000000000000000000003";
+
+    private static final String MD5_UNKNOWN = "B0000000000000000000000000000004";
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void createStores() {
+        createEntryStore(tempDir.resolve(LocalMatchLookup.MATCH_DB_DIRECTORY).toFile(),
+                entry(MD5_1, "PF00001,32.0,1,1,100"), entry(MD5_2, "PF00002,32.0,5,1,50"), entry(MD5_2, "PF00003,32.0,60,1,90"));
+        createEntryStore(tempDir.resolve(LocalMatchLookup.SITE_DB_DIRECTORY).toFile(),
+                entry(MD5_2, "cd00001,3.16,1,10,C"));
+        final File md5Directory = tempDir.resolve(LocalMatchLookup.MD5_DB_DIRECTORY).toFile();
+        md5Directory.mkdirs();
+        final Environment environment = new Environment(md5Directory, createEnvironmentConfig());
+        final EntityStore store = new EntityStore(environment, "EntityStore", createStoreConfig());
+        try {
+            final PrimaryIndex<String, BerkeleyConsideredProtein> primaryIndex = store.getPrimaryIndex(String.class, BerkeleyConsideredProtein.class);
+            for (String md5 : Arrays.asList(MD5_1, MD5_2, MD5_NO_MATCH)) {
+                primaryIndex.putNoReturn(new BerkeleyConsideredProtein(md5));
+            }
+        } finally {
+            store.close();
+            environment.close();
+        }
+    }
+
+    @Test
+    public void testLocalLookup() throws IOException {
+        final MatchHttpClient matchClient = new MatchHttpClient(null);
+        matchClient.setLocalLookupPath(tempDir.toString());
+        matchClient.setLocalLookupVersion("5.39-77.0");
+        try {
+            assertTrue(matchClient.isConfigured());
+            assertEquals("5.39-77.0", matchClient.getServerVersion());
+            assertEquals(Arrays.asList(MD5_2, MD5_NO_MATCH, MD5_1),
+                    matchClient.getMD5sOfProteinsAlreadyAnalysed(MD5_2, MD5_UNKNOWN, MD5_NO_MATCH, MD5_1));
+
+            final List<KVSequenceEntry> matches = matchClient.getMatches(MD5_2, MD5_NO_MATCH, MD5_1).getMatches();
+            assertEquals(3, matches.size());
+            assertEquals(MD5_1, matches.get(0).getProteinMD5());
+            assertEquals(Collections.singleton("PF00001,32.0,1,1,100"), matches.get(0).getSequenceHits());
+            assertEquals(MD5_2, matches.get(2).getProteinMD5());
+
+            final List<KVSequenceEntry> sites = matchClient.getSites(MD5_1, MD5_2).getMatches();
+            assertEquals(1, sites.size());
+            assertEquals(MD5_2, sites.get(0).getProteinMD5());
+            assertTrue(matchClient.getStatistics().contains("local lookups: 3 md5s: 9"), matchClient.getStatistics());
+        } finally {
+            matchClient.close();
+        }
+        assertNull(matchClient.getLookupCache());
+    }
+
+    @Test
+    public void testLocalLookupNeedsVersion() {
+        final MatchHttpClient matchClient = new MatchHttpClient(null);
+        matchClient.setLocalLookupPath(tempDir.toString());
+        assertNull(matchClient.getLocalLookup());
+        assertFalse(matchClient.isConfigured());
+        assertThrows(IllegalArgumentException.class, () -> new LocalMatchLookup(tempDir.resolve("missing").toString(), "5.39-77.0", 10));
+    }
+
+    private static KVSequenceEntry entry(String md5, String hit) {
+        final KVSequenceEntry entry = new KVSequenceEntry();
+        entry.setProteinMD5(md5);
+        entry.addMatch(hit);
+        return entry;
+    }
+
+    private static void createEntryStore(File directory, KVSequenceEntry... entries) {
+        directory.mkdirs();
+        final Environment environment = new Environment(directory, createEnvironmentConfig());
+        final EntityStore store = new EntityStore(environment, "EntityStore", createStoreConfig());
+        try {
+            final PrimaryIndex<Long, KVSequenceEntry> primaryIndex = store.getPrimaryIndex(Long.class, KVSequenceEntry.class);
+            for (KVSequenceEntry entry : entries) {
+                primaryIndex.putNoReturn(entry);
+            }
+        } finally {
+            store.close();
+            environment.close();
+        }
+    }
+
+    private static EnvironmentConfig createEnvironmentConfig() {
+        final EnvironmentConfig environmentConfig = new EnvironmentConfig();
+        environmentConfig.setAllowCreate(true);
+        return environmentConfig;
+    }
+
+    private static StoreConfig createStoreConfig() {
+        final StoreConfig storeConfig = new StoreConfig();
+        storeConfig.setAllowCreate(true);
+        return storeConfig;
+    }
+}
@@ -0,0 +1,182 @@
+package uk.ac.ebi.interpro.scan.precalc.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntryStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the {@link MatchHttpClient} serves repeated lookups from its {@link MatchLookupCache},
+ * against a local server that knows the proteins whose MD5 starts with "A".
+ */
+public class MatchHttpClientLookupCacheTest {
+
+    private static final String MD5_1 = "A0000000000000000000000000000001";
+
+    private static final String MD5_2 = "A0000000000000000000000000000002";
+
+    private static final String MD5_UNKNOWN = "B0000000000000000000000000000003";
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+
+    private MatchHttpClient matchClient;
+
+    private final List<String> requestedMD5s = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicInteger versionRequestCount = new AtomicInteger();
+
+    // Response of the version service, or null if it does not know its version
+    private volatile String serverVersion = MatchHttpClient.SERVER_VERSION_PREFIX + "5.60-92.0";
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(MatchHttpClient.PROTEINS_TO_ANALYSE_SERVICE_PATH, exchange -> {
+            final StringBuilder body = new StringBuilder();
+            for (String md5 : readMD5s(exchange.getRequestBody())) {
+                if (md5.startsWith("A")) {
+                    body.append(md5).append('\n');
+                }
+            }
+            exchange.getResponseHeaders().add("Content-Type", "text/tab-separated-values");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.createContext(MatchHttpClient.VERSION_PATH, exchange -> {
+            versionRequestCount.incrementAndGet();
+            final byte[] body = (serverVersion == null ? "\n" : serverVersion).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext(MatchHttpClient.MATCH_SERVICE_PATH, exchange -> {
+            final List<String> md5s = readMD5s(exchange.getRequestBody());
+            exchange.getResponseHeaders().add("Content-Type", KVSequenceEntryStream.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, 0);
+            try (KVSequenceEntryStream.Writer writer = new KVSequenceEntryStream.Writer(exchange.getResponseBody())) {
+                for (String md5 : md5s) {
+                    // The second protein has no matches
+                    if (MD5_1.equals(md5)) {
+                        writer.write(entry(md5, "PF00001,32.0,1,1,100"));
+                    }
+                }
+            }
+        });
+        server.start();
+        matchClient = new MatchHttpClient(null);
+        matchClient.setUrl("http://localhost:" + server.getAddress().getPort());
+        matchClient.setLookupCachePath(tempDir.toString());
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        matchClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testRepeatedLookupsAreServedLocally() throws IOException {
+        assertEquals(new HashSet<>(Arrays.asList(MD5_1, MD5_2)),
+                new HashSet<>(matchClient.getMD5sOfProteinsAlreadyAnalysed(MD5_1, MD5_2, MD5_UNKNOWN)));
+        assertEquals(Collections.singletonList(entry(MD5_1, "PF00001,32.0,1,1,100")), matchClient.getMatches(MD5_1, MD5_2).getMatches());
+        assertEquals(Arrays.asList(MD5_1, MD5_2, MD5_UNKNOWN, MD5_1, MD5_2), requestedMD5s);
+        matchClient.getMD5sOfProteinsAlreadyAnalysed(MD5_1, MD5_2);
+        assertEquals("5.60-92.0", matchClient.getServerVersion());
+        assertEquals(1, versionRequestCount.get(), "The version should be requested once, not for each batch");
+
+        // Another run, using the same cache
+        matchClient.close();
+        requestedMD5s.clear();
+        assertEquals(new HashSet<>(Arrays.asList(MD5_1, MD5_2)),
+                new HashSet<>(matchClient.getMD5sOfProteinsAlreadyAnalysed(MD5_1, MD5_2, MD5_UNKNOWN)));
+        assertEquals(Collections.singletonList(entry(MD5_1, "PF00001,32.0,1,1,100")), matchClient.getMatches(MD5_1, MD5_2).getMatches());
+        assertEquals(Collections.singletonList(MD5_UNKNOWN), requestedMD5s, "Only the unknown protein should be requested again");
+        assertEquals(2, matchClient.getLookupCache().getHitCount());
+    }
+
+    @Test
+    public void testServerVersionChangeEmptiesCache() throws IOException {
+        // Request the version for each batch
+        matchClient.setServerVersionTimeToLiveMillis(0);
+        assertEquals(new HashSet<>(Arrays.asList(MD5_1, MD5_2)),
+                new HashSet<>(matchClient.getMD5sOfProteinsAlreadyAnalysed(MD5_1, MD5_2)));
+        assertEquals("5.60-92.0", matchClient.getLookupCache().getServerVersion());
+
+        // The lookup service is updated between two runs
+        matchClient.close();
+        requestedMD5s.clear();
+        serverVersion = MatchHttpClient.SERVER_VERSION_PREFIX + "5.61-93.0";
+        assertEquals(new HashSet<>(Arrays.asList(MD5_1, MD5_2)),
+                new HashSet<>(matchClient.getMD5sOfProteinsAlreadyAnalysed(MD5_1, MD5_2)));
+        assertEquals(Arrays.asList(MD5_1, MD5_2), requestedMD5s, "The proteins should be looked up again from the new version");
+        assertEquals("5.61-93.0", matchClient.getLookupCache().getServerVersion());
+
+        // And during a run, once the version is requested again
+        requestedMD5s.clear();
+        serverVersion = MatchHttpClient.SERVER_VERSION_PREFIX + "5.62-94.0";
+        matchClient.getMD5sOfProteinsAlreadyAnalysed(MD5_1, MD5_2);
+        assertEquals(Arrays.asList(MD5_1, MD5_2), requestedMD5s, "The proteins should be looked up again from the new version");
+        assertEquals(0, matchClient.getLookupCache().getHitCount());
+    }
+
+    @Test
+    public void testCacheNotUsedWhenServerVersionUnknown() throws IOException {
+        serverVersion = null;
+        assertEquals(new HashSet<>(Arrays.asList(MD5_1, MD5_2)),
+                new HashSet<>(matchClient.getMD5sOfProteinsAlreadyAnalysed(MD5_1, MD5_2)));
+        matchClient.getMD5sOfProteinsAlreadyAnalysed(MD5_1, MD5_2);
+        assertEquals(Arrays.asList(MD5_1, MD5_2, MD5_1, MD5_2), requestedMD5s);
+        assertNull(matchClient.getLookupCache());
+    }
+
+    private List<String> readMD5s(InputStream requestBody) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = requestBody) {
+            int read;
+            while ((read = in.read()) != -1) {
+                body.write(read);
+            }
+        }
+        final List<String> md5s = new ArrayList<>();
+        for (String parameter : body.toString("UTF-8").split("&")) {
+            if (parameter.startsWith("md5=")) {
+                md5s.add(URLDecoder.decode(parameter.substring(4), "UTF-8"));
+            }
+        }
+        requestedMD5s.addAll(md5s);
+        return md5s;
+    }
+
+    private static KVSequenceEntry entry(String md5, String hit) {
+        final KVSequenceEntry entry = new KVSequenceEntry();
+        entry.setProteinMD5(md5);
+        entry.addMatch(hit);
+        return entry;
+    }
+}
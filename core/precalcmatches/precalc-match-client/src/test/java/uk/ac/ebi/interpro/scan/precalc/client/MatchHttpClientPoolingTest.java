@@ -0,0 +1,91 @@
+package uk.ac.ebi.interpro.scan.precalc.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.pool.PoolStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the connection pooling and gzip decoding of the {@link MatchHttpClient},
+ * against a local server answering the isPrecalculated requests.
+ */
+public class MatchHttpClientPoolingTest {
+
+    private HttpServer server;
+
+    private MatchHttpClient matchClient;
+
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<>());
+
+    private final Set<String> acceptEncodings = Collections.synchronizedSet(new HashSet<>());
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(MatchHttpClient.PROTEINS_TO_ANALYSE_SERVICE_PATH, exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            acceptEncodings.add(String.valueOf(acceptEncoding));
+            try (InputStream requestBody = exchange.getRequestBody()) {
+                while (requestBody.read() != -1) {
+                    // Consume the request
+                }
+            }
+            final byte[] body = "ABC\nDEF\n".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream responseBody = new GZIPOutputStream(exchange.getResponseBody())) {
+                responseBody.write(body);
+            }
+        });
+        server.start();
+        matchClient = new MatchHttpClient(null);
+        matchClient.setUrl("http://localhost:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        matchClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testConnectionIsReusedAndResponseDecoded() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            List<String> analysed = matchClient.getMD5sOfProteinsAlreadyAnalysed("ABC", "DEF", "GHI");
+            assertEquals(Arrays.asList("ABC", "DEF"), analysed);
+        }
+
+        assertEquals(1, clientPorts.size(), "The connection should have been kept alive between the requests");
+        assertTrue(acceptEncodings.iterator().next().contains("gzip"));
+        assertEquals(5, matchClient.getRequestCount());
+        assertEquals(0, matchClient.getFailedRequestCount());
+        PoolStats poolStats = matchClient.getPoolStats();
+        assertEquals(0, poolStats.getLeased());
+        assertEquals(1, poolStats.getAvailable());
+    }
+
+    @Test
+    public void testFailedRequestsAreCounted() throws IOException {
+        server.stop(0);
+        assertThrows(IOException.class, () -> matchClient.getMD5sOfProteinsAlreadyAnalysed("ABC"));
+        assertEquals(1, matchClient.getRequestCount());
+        assertEquals(1, matchClient.getFailedRequestCount());
+    }
+}
@@ -0,0 +1,120 @@
+package uk.ac.ebi.interpro.scan.precalc.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntryStream;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntryXML;
+
+import javax.xml.transform.stream.StreamResult;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the {@link MatchHttpClient} reads the matches from the binary stream when the server
+ * sends it, and from XML otherwise, against a local server answering the match requests.
+ */
+public class MatchHttpClientResponseFormatTest {
+
+    private static final List<KVSequenceEntry> ENTRIES = Arrays.asList(
+            entry(1, "0A1B2C3D4E5F60718293A4B5C6D7E8F9", "PF00001,32.0,1,1,100", "PF00002,32.0,4,20,200"),
+            entry(2, "0A1B2C3D4E5F60718293A4B5C6D7E8FA", "PF00003,32.0,1,1,100"));
+
+    private HttpServer server;
+
+    private MatchHttpClient matchClient;
+
+    private Jaxb2Marshaller jaxb2;
+
+    /**
+     * Whether the local server supports the binary stream, like the current lookup service.
+     */
+    private boolean serverSupportsStream = true;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        jaxb2 = new Jaxb2Marshaller();
+        jaxb2.setClassesToBeBound(KVSequenceEntryXML.class, KVSequenceEntry.class);
+        jaxb2.afterPropertiesSet();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(MatchHttpClient.MATCH_SERVICE_PATH, exchange -> {
+            try (InputStream requestBody = exchange.getRequestBody()) {
+                while (requestBody.read() != -1) {
+                    // Consume the request
+                }
+            }
+            final String accept = exchange.getRequestHeaders().getFirst("Accept");
+            if (serverSupportsStream && accept != null && accept.contains(KVSequenceEntryStream.CONTENT_TYPE)) {
+                exchange.getResponseHeaders().add("Content-Type", KVSequenceEntryStream.CONTENT_TYPE);
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, 0);
+                try (KVSequenceEntryStream.Writer writer = new KVSequenceEntryStream.Writer(new GZIPOutputStream(exchange.getResponseBody()))) {
+                    for (KVSequenceEntry entry : ENTRIES) {
+                        writer.write(entry);
+                    }
+                }
+            } else {
+                exchange.getResponseHeaders().add("Content-Type", "application/xml");
+                exchange.sendResponseHeaders(200, 0);
+                try (Writer writer = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+                    jaxb2.marshal(new KVSequenceEntryXML(ENTRIES), new StreamResult(writer));
+                }
+            }
+        });
+        server.start();
+        matchClient = new MatchHttpClient(jaxb2);
+        matchClient.setUrl("http://localhost:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        matchClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testBinaryStream() throws IOException {
+        final List<KVSequenceEntry> streamed = new ArrayList<>();
+        assertEquals(2, matchClient.streamMatches(streamed::add, "0A1B2C3D4E5F60718293A4B5C6D7E8F9", "0A1B2C3D4E5F60718293A4B5C6D7E8FA"));
+        assertEquals(ENTRIES, streamed);
+        assertEquals(ENTRIES, matchClient.getMatches("0A1B2C3D4E5F60718293A4B5C6D7E8F9").getMatches());
+    }
+
+    @Test
+    public void testXMLFromServerWithoutBinaryStream() throws IOException {
+        serverSupportsStream = false;
+        assertEquals(ENTRIES, matchClient.getMatches("0A1B2C3D4E5F60718293A4B5C6D7E8F9").getMatches());
+    }
+
+    @Test
+    public void testXMLWhenBinaryResponseDisabled() throws IOException {
+        matchClient.setBinaryResponse(false);
+        final List<KVSequenceEntry> streamed = new ArrayList<>();
+        assertEquals(2, matchClient.streamMatches(streamed::add, "0A1B2C3D4E5F60718293A4B5C6D7E8F9"));
+        assertEquals(ENTRIES, streamed);
+    }
+
+    private static KVSequenceEntry entry(long matchId, String md5, String... hits) {
+        final KVSequenceEntry entry = new KVSequenceEntry();
+        entry.setMatchId(matchId);
+        entry.setProteinMD5(md5);
+        for (String hit : hits) {
+            entry.addMatch(hit);
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,98 @@
+package uk.ac.ebi.interpro.scan.precalc.client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for {@link MatchLookupCache}.
+ */
+public class MatchLookupCacheTest {
+
+    private static final String MD5_1 = "0A1B2C3D4E5F60718293A4B5C6D7E8F9";
+
+    private static final String MD5_2 = "0A1B2C3D4E5F60718293A4B5C6D7E8FA";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testLookupsAreKeptBetweenRuns() {
+        try (MatchLookupCache cache = new MatchLookupCache(tempDir.toString(), 100)) {
+            cache.checkServerVersion("5.39-77.0");
+            assertFalse(cache.isAnalysed(MD5_1));
+            cache.putAnalysed(Arrays.asList(MD5_1, MD5_2));
+            final Map<String, List<KVSequenceEntry>> matches = new HashMap<>();
+            matches.put(MD5_1, Collections.singletonList(entry(MD5_1, "PF00001,32.0,1,1,100")));
+            matches.put(MD5_2, Collections.emptyList());
+            cache.putMatches(matches);
+        }
+
+        try (MatchLookupCache cache = new MatchLookupCache(tempDir.toString(), 100)) {
+            cache.checkServerVersion("5.39-77.0");
+            assertEquals(2, cache.getProteinCount());
+            assertTrue(cache.isAnalysed(MD5_1));
+            assertEquals(Collections.singletonList(entry(MD5_1, "PF00001,32.0,1,1,100")), cache.getMatches(MD5_1));
+            assertEquals(Collections.emptyList(), cache.getMatches(MD5_2), "Analysed, without matches");
+            assertNull(cache.getSites(MD5_1), "Sites not looked up");
+            assertEquals(1, cache.getHitCount());
+        }
+    }
+
+    @Test
+    public void testServerVersionChangeEmptiesTheCache() {
+        try (MatchLookupCache cache = new MatchLookupCache(tempDir.toString(), 100)) {
+            cache.checkServerVersion("5.39-77.0");
+            cache.putAnalysed(Collections.singletonList(MD5_1));
+            cache.putMatches(Collections.singletonMap(MD5_1, Collections.singletonList(entry(MD5_1, "PF00001,32.0,1,1,100"))));
+
+            cache.checkServerVersion("5.40-78.0");
+            assertEquals("5.40-78.0", cache.getServerVersion());
+            assertEquals(0, cache.getProteinCount());
+            assertFalse(cache.isAnalysed(MD5_1));
+            assertNull(cache.getMatches(MD5_1));
+        }
+    }
+
+    @Test
+    public void testOnlyAnalysedProteinsAreCached() {
+        try (MatchLookupCache cache = new MatchLookupCache(tempDir.toString(), 100)) {
+            cache.putMatches(Collections.singletonMap(MD5_1, Collections.<KVSequenceEntry>emptyList()));
+            assertNull(cache.getMatches(MD5_1));
+        }
+    }
+
+    @Test
+    public void testOldestProteinsAreEvicted() {
+        try (MatchLookupCache cache = new MatchLookupCache(tempDir.toString(), 10)) {
+            for (int i = 0; i < 11; i++) {
+                final String md5 = String.format("%032X", i);
+                cache.putAnalysed(Collections.singletonList(md5));
+                cache.putSites(Collections.singletonMap(md5, Collections.singletonList(entry(md5, "cd00001,3.16,1,site,1"))));
+            }
+
+            assertEquals(9, cache.getProteinCount());
+            assertEquals(2, cache.getEvictionCount());
+            assertFalse(cache.isAnalysed(String.format("%032X", 0)));
+            assertNull(cache.getSites(String.format("%032X", 1)));
+            assertTrue(cache.isAnalysed(String.format("%032X", 2)));
+            assertNotNull(cache.getSites(String.format("%032X", 10)));
+        }
+    }
+
+    private static KVSequenceEntry entry(String md5, String hit) {
+        final KVSequenceEntry entry = new KVSequenceEntry();
+        entry.setProteinMD5(md5);
+        entry.addMatch(hit);
+        return entry;
+    }
+}
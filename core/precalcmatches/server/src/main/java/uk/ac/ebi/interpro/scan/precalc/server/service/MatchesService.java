@@ -3,6 +3,7 @@ package uk.ac.ebi.interpro.scan.precalc.server.service;
 import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Web service interface - just the ability to "getMatches"
@@ -38,6 +39,15 @@ public interface MatchesService {
      */
     List<KVSequenceEntry> getMatches(List<String> proteinMD5s);
 
+    /**
+     * As {@link #getMatches(List)}, passing the matches to the consumer as they are read
+     * rather than returning them all at once.
+     *
+     * @param proteinMD5s md5 checksum of sequences.
+     * @param consumer    of the matches for these proteins, in MD5 order.
+     */
+    void streamMatches(List<String> proteinMD5s, Consumer<KVSequenceEntry> consumer);
+
     /**
      * Web service request for a set of sites, based upon
      * protein MD5 sequence checksums.
@@ -47,6 +57,15 @@ public interface MatchesService {
      */
     List<KVSequenceEntry> getSites(List<String> proteinMD5s);
 
+    /**
+     * As {@link #getSites(List)}, passing the site matches to the consumer as they are read
+     * rather than returning them all at once.
+     *
+     * @param proteinMD5s md5 checksum of sequences.
+     * @param consumer    of the site matches for these proteins, in MD5 order.
+     */
+    void streamSites(List<String> proteinMD5s, Consumer<KVSequenceEntry> consumer);
+
     /**
      * Web service request for a List of protein sequence MD5
      * checksums where the protein sequence has been run through
@@ -60,6 +79,14 @@ public interface MatchesService {
     List<String> isPrecalculated(List<String> proteinMD5s);
 
     String getServerVersion();
+
+    /**
+     * Lookup statistics over the last minutes, per endpoint (requests, MD5s and latency percentiles).
+     *
+     * @return the statistics, as tab separated values.
+     */
+    String getStatistics();
+
     /**
      * Cleanly shuts down the Berkeley DB environment.
      */
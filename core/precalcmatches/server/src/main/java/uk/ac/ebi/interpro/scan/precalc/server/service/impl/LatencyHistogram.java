@@ -0,0 +1,131 @@
+package uk.ac.ebi.interpro.scan.precalc.server.service.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies (any unit, e.g. microseconds), for percentiles.
+ * <p/>
+ * Log-linear buckets, as HdrHistogram: each power of 2 is split into 16 sub-buckets, so a recorded value is
+ * reported with a relative error below 1/16, from 0 to Long.MAX_VALUE, in a fixed 8 KB array.
+ * <p/>
+ * Thread-safe: recording is a single atomic increment.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    public void record(long value) {
+        counts.incrementAndGet(index(Math.max(0, value)));
+    }
+
+    /**
+     * @return the values recorded so far.
+     */
+    public Snapshot snapshot() {
+        final long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return new Snapshot(snapshot);
+    }
+
+    /**
+     * @return the values recorded since the last reset, and starts recording again from zero.
+     */
+    public Snapshot snapshotAndReset() {
+        final long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.getAndSet(i, 0);
+        }
+        return new Snapshot(snapshot);
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the highest value of the bucket.
+     */
+    static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final long subBucket = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Immutable counts of a histogram.
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+
+        private final long count;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long count = 0;
+            for (long bucketCount : counts) {
+                count += bucketCount;
+            }
+            this.count = count;
+        }
+
+        /**
+         * @return a snapshot of the values of both snapshots.
+         */
+        public Snapshot merge(Snapshot other) {
+            final long[] merged = counts.clone();
+            for (int i = 0; i < merged.length; i++) {
+                merged[i] += other.counts[i];
+            }
+            return new Snapshot(merged);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @param percentile in [0, 100].
+         * @return the highest value of the bucket holding the percentile, or 0 if nothing was recorded.
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long cumulativeCount = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulativeCount += counts[i];
+                if (cumulativeCount >= rank) {
+                    return highestValue(i);
+                }
+            }
+            return getMax();
+        }
+
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return highestValue(i);
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package uk.ac.ebi.interpro.scan.precalc.server.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Merges the MD5s of concurrent lookups into batches, so the MD5s shared by several requests are looked up
+ * once, and each batch is read with one sorted index scan.
+ * <p/>
+ * The first request of a batch (the leader) waits for up to the coalescing window, or until the batch is full,
+ * for other requests to join, then runs the lookup of all their MD5s on its own thread; the other requests wait
+ * for its result.  A request is only delayed when other lookups are in flight: on an idle server, or when a request
+ * fills a batch on its own, the lookup runs at once.
+ * <p/>
+ * Thread-safe.
+ *
+ * @param <V> looked up value of an MD5.
+ */
+class MD5RequestCoalescer<V> {
+
+    private final Function<Collection<String>, Map<String, V>> batchLookup;
+
+    private final long windowNanos;
+
+    private final int maxBatchMD5s;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * The batch that requests can join, or null.  Guarded by this.
+     */
+    private Batch openBatch;
+
+    private final LongAdder requestCount = new LongAdder();
+
+    private final LongAdder batchCount = new LongAdder();
+
+    private final LongAdder requestedMD5Count = new LongAdder();
+
+    private final LongAdder lookedUpMD5Count = new LongAdder();
+
+    /**
+     * @param batchLookup  looks up the MD5s of a batch (sorted, without duplicates), returning the values found by MD5.
+     * @param windowMicros maximum time a batch waits for other requests to join.
+     * @param maxBatchMD5s maximum number of MD5s of a batch (not counting the duplicates).
+     */
+    MD5RequestCoalescer(Function<Collection<String>, Map<String, V>> batchLookup, long windowMicros, int maxBatchMD5s) {
+        this.batchLookup = batchLookup;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, windowMicros));
+        this.maxBatchMD5s = Math.max(1, maxBatchMD5s);
+    }
+
+    /**
+     * @param md5s of a request, in any order, possibly with duplicates.
+     * @return the values found for the MD5s of the batch the request was part of, by MD5
+     * (so possibly including MD5s of other requests).
+     */
+    Map<String, V> lookup(Collection<String> md5s) {
+        requestCount.increment();
+        requestedMD5Count.add(md5s.size());
+        inFlight.incrementAndGet();
+        try {
+            final Batch batch;
+            final boolean leader;
+            final boolean waitForOthers;
+            synchronized (this) {
+                if (openBatch != null && openBatch.md5s.size() + openBatch.countNew(md5s) <= maxBatchMD5s) {
+                    batch = openBatch;
+                    leader = false;
+                    waitForOthers = false;
+                    batch.md5s.addAll(md5s);
+                    if (batch.md5s.size() >= maxBatchMD5s) {
+                        openBatch = null;
+                        batch.full.countDown();
+                    }
+                } else {
+                    batch = new Batch(md5s);
+                    leader = true;
+                    waitForOthers = windowNanos > 0 && inFlight.get() > 1 && batch.md5s.size() < maxBatchMD5s;
+                    if (waitForOthers) {
+                        openBatch = batch;
+                    }
+                }
+            }
+            if (!leader) {
+                return batch.awaitResult();
+            }
+            if (waitForOthers) {
+                try {
+                    batch.full.await(windowNanos, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                synchronized (this) {
+                    if (openBatch == batch) {
+                        openBatch = null;
+                    }
+                }
+            }
+            return batch.run();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return "[requests] [batches] [MD5s requested] [MD5s looked up]" since the last reset.
+     */
+    String resetStatistics() {
+        return requestCount.sumThenReset() + " " + batchCount.sumThenReset() + " "
+                + requestedMD5Count.sumThenReset() + " " + lookedUpMD5Count.sumThenReset();
+    }
+
+    private final class Batch {
+
+        // Guarded by the coalescer until the batch is closed, then only read by the leader
+        private final TreeSet<String> md5s;
+
+        private final CountDownLatch full = new CountDownLatch(1);
+
+        private final CompletableFuture<Map<String, V>> result = new CompletableFuture<>();
+
+        private Batch(Collection<String> md5s) {
+            this.md5s = new TreeSet<>(md5s);
+        }
+
+        /**
+         * @return the number of MD5s not in the batch yet (counting the duplicates of the request).
+         */
+        private int countNew(Collection<String> requestMD5s) {
+            int count = 0;
+            for (String md5 : requestMD5s) {
+                if (!md5s.contains(md5)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private Map<String, V> run() {
+            final ArrayList<String> sortedMD5s;
+            synchronized (MD5RequestCoalescer.this) {
+                sortedMD5s = new ArrayList<>(md5s);
+            }
+            batchCount.increment();
+            lookedUpMD5Count.add(sortedMD5s.size());
+            try {
+                final Map<String, V> values = batchLookup.apply(sortedMD5s);
+                result.complete(values);
+                return values;
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        private Map<String, V> awaitResult() {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the lookup of a batch of MD5s", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Failed to look up a batch of MD5s", e.getCause());
+            }
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package uk.ac.ebi.interpro.scan.precalc.server.service.impl;
 
-import com.sleepycat.persist.EntityCursor;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
@@ -9,13 +8,21 @@ import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
 import uk.ac.ebi.interpro.scan.precalc.server.service.MatchesService;
 
 import uk.ac.ebi.interpro.scan.util.Utilities;
-import java.lang.InterruptedException;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.BerkeleyMatchDBService;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.BerkeleySiteDBService;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.BerkeleyMD5DBService;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.MD5BloomFilter;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.MD5BatchReader;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 import java.util.Timer;
 import java.util.TimerTask;
@@ -51,40 +58,53 @@ public class MatchesServiceImpl implements MatchesService {
     private String serviceName;
     private Timer timer = new Timer ();
 
-    private AtomicInteger   md5TotalRequests;
-    private AtomicInteger   newMD5TotalCount;
-    private AtomicLong  md5TotalTimeToGetMatches;
+    /**
+     * Length of the rolling window of the statistics returned by {@link #getStatistics()}, in one minute slots.
+     */
+    private static final int STATISTICS_WINDOW_MINUTES = 15;
 
-    private AtomicInteger   totalRequests;
-    private AtomicInteger   md5TotalCount;
-    private AtomicLong  totalTimeToGetMatches;
+    // Daily counts, reset by resetCountRequests() without blocking the request threads
+    private final LongAdder md5TotalRequests = new LongAdder();
+    private final LongAdder newMD5TotalCount = new LongAdder();
+    private final LongAdder md5TotalTimeToGetMatches = new LongAdder();
 
-    private AtomicInteger   sitesTotalRequests;
-    private AtomicInteger   sitesTotalCount;
-    private AtomicLong  totalTimeToGetSites;
+    private final LongAdder totalRequests = new LongAdder();
+    private final LongAdder md5TotalCount = new LongAdder();
+    private final LongAdder totalTimeToGetMatches = new LongAdder();
 
-    private ReentrantLock lock;
+    // MD5s answered by the MD5 filter, and MD5s it let through which are not in the MD5 database
+    private final LongAdder md5FilterNegatives = new LongAdder();
+    private final LongAdder md5FilterFalsePositives = new LongAdder();
 
-    public MatchesServiceImpl(String interproscanVersion) {
-        System.out.println(Utilities.getTimeNow() + " Starting matchservice ...");
+    private int batchLookupThreads = 1;
 
-        Assert.notNull(interproscanVersion, "Interproscan version cannot be null");
-        this.interproscanVersion = interproscanVersion;
+    private int minMD5sPerLookupThread = 1000;
 
-        md5TotalRequests = new AtomicInteger();
-        newMD5TotalCount = new AtomicInteger();
-        md5TotalTimeToGetMatches  = new AtomicLong();
+    private volatile MD5BatchReader batchReader = new MD5BatchReader();
 
+    private long coalescingWindowMicros = 0;
 
-        totalRequests = new AtomicInteger();
-        md5TotalCount = new AtomicInteger();
-        totalTimeToGetMatches  = new AtomicLong();
+    private int maxCoalescedMD5s = 10000;
 
-        sitesTotalRequests = new AtomicInteger();
-        sitesTotalCount = new AtomicInteger();
-        totalTimeToGetSites  = new AtomicLong();
+    // Null when the requests are not coalesced
+    private volatile MD5RequestCoalescer<List<KVSequenceEntry>> matchCoalescer;
+    private volatile MD5RequestCoalescer<List<KVSequenceEntry>> siteCoalescer;
+    private volatile MD5RequestCoalescer<Boolean> md5Coalescer;
 
-        lock = new ReentrantLock();
+    // Time to look up the MD5s of a request, in microseconds, since the daily reset and over the rolling window
+    private final LatencyHistogram matchesLatency = new LatencyHistogram();
+    private final LatencyHistogram sitesLatency = new LatencyHistogram();
+    private final LatencyHistogram md5Latency = new LatencyHistogram();
+
+    private final RollingLatencyHistogram matchesWindow = new RollingLatencyHistogram(STATISTICS_WINDOW_MINUTES);
+    private final RollingLatencyHistogram sitesWindow = new RollingLatencyHistogram(STATISTICS_WINDOW_MINUTES);
+    private final RollingLatencyHistogram md5Window = new RollingLatencyHistogram(STATISTICS_WINDOW_MINUTES);
+
+    public MatchesServiceImpl(String interproscanVersion) {
+        System.out.println(Utilities.getTimeNow() + " Starting matchservice ...");
+
+        Assert.notNull(interproscanVersion, "Interproscan version cannot be null");
+        this.interproscanVersion = interproscanVersion;
 
         TimerTask hourlyTask = new TimerTask () {
             @Override
@@ -92,9 +112,17 @@ public class MatchesServiceImpl implements MatchesService {
                 resetCountRequests();
             }
         };
-        // schedule the task to run starting now and then every 24 hours ...
-        timer.schedule (hourlyTask, 0l, 1000*60*60*24);
+        // schedule the task to run every 24 hours, from a day after the start (there is nothing to report before)
+        timer.schedule (hourlyTask, 1000*60*60*24, 1000*60*60*24);
 //        timer.schedule (hourlyTask, 0l, 1000*60*5);
+
+        TimerTask windowTask = new TimerTask () {
+            @Override
+            public void run () {
+                rotateStatisticsWindow();
+            }
+        };
+        timer.schedule (windowTask, 1000*60, 1000*60);
     }
 
 
@@ -114,48 +142,130 @@ public class MatchesServiceImpl implements MatchesService {
     }
 
     /**
-     * Web service request for a set of matches, based upon
-     * protein MD5 sequence checksums.
-     *
-     * @param proteinMD5s md5 checksum of sequences.
-     * @return a List of matches for these proteins.
+     * @param batchLookupThreads maximum number of threads reading the matches (or sites) of a request.
      */
-    public List<KVSequenceEntry> getMatches(List<String> proteinMD5s) {
-        Assert.notNull(berkeleyMatchDBService.getMD5Index(), "The MD5 index must not be null.");
-        List<KVSequenceEntry> matches = new ArrayList<>();
+    public void setBatchLookupThreads(int batchLookupThreads) {
+        this.batchLookupThreads = batchLookupThreads;
+        updateBatchReader();
+    }
 
-        for (String md5 : proteinMD5s) {
-            EntityCursor<KVSequenceEntry> matchCursor = null;
-            try {
-                matchCursor = berkeleyMatchDBService.getMD5Index().entities(md5, true, md5, true);
+    /**
+     * @param minMD5sPerLookupThread minimum number of MD5s read by each thread, so small requests are not split.
+     */
+    public void setMinMD5sPerLookupThread(int minMD5sPerLookupThread) {
+        this.minMD5sPerLookupThread = minMD5sPerLookupThread;
+        updateBatchReader();
+    }
 
-                KVSequenceEntry currentMatch;
-                while ((currentMatch = matchCursor.next()) != null) {
-                    matches.add(currentMatch);
-                }
-            } finally {
-                if (matchCursor != null) {
-                    matchCursor.close();
+    private void updateBatchReader() {
+        final MD5BatchReader previousReader = batchReader;
+        batchReader = new MD5BatchReader(batchLookupThreads, minMD5sPerLookupThread);
+        previousReader.shutdown();
+    }
+
+    /**
+     * @param coalescingWindowMicros maximum time a lookup waits for concurrent lookups to merge with,
+     *                               or 0 to look up the MD5s of each request on its own.
+     */
+    public void setCoalescingWindowMicros(long coalescingWindowMicros) {
+        this.coalescingWindowMicros = coalescingWindowMicros;
+        updateCoalescers();
+    }
+
+    /**
+     * @param maxCoalescedMD5s maximum number of distinct MD5s looked up together.
+     */
+    public void setMaxCoalescedMD5s(int maxCoalescedMD5s) {
+        this.maxCoalescedMD5s = maxCoalescedMD5s;
+        updateCoalescers();
+    }
+
+    private void updateCoalescers() {
+        if (coalescingWindowMicros <= 0) {
+            matchCoalescer = null;
+            siteCoalescer = null;
+            md5Coalescer = null;
+            return;
+        }
+        matchCoalescer = new MD5RequestCoalescer<>(
+                md5s -> entriesByMD5(batchReader.read(berkeleyMatchDBService.getMD5Index(), md5s)),
+                coalescingWindowMicros, maxCoalescedMD5s);
+        siteCoalescer = new MD5RequestCoalescer<>(
+                md5s -> entriesByMD5(batchReader.read(berkeleySiteDBService.getMD5Index(), md5s)),
+                coalescingWindowMicros, maxCoalescedMD5s);
+        md5Coalescer = new MD5RequestCoalescer<>(md5s -> {
+            final Map<String, Boolean> precalculated = new HashMap<>();
+            for (String md5 : md5s) {
+                if (isPrecalculated(md5)) {
+                    precalculated.put(md5, Boolean.TRUE);
                 }
             }
+            return precalculated;
+        }, coalescingWindowMicros, maxCoalescedMD5s);
+    }
+
+    private static Map<String, List<KVSequenceEntry>> entriesByMD5(List<KVSequenceEntry> entries) {
+        final Map<String, List<KVSequenceEntry>> entriesByMD5 = new HashMap<>();
+        for (KVSequenceEntry entry : entries) {
+            entriesByMD5.computeIfAbsent(entry.getProteinMD5(), md5 -> new ArrayList<>(1)).add(entry);
         }
+        return entriesByMD5;
+    }
 
+    /**
+     * Passes the entries of the MD5s of a request to the consumer, in MD5 order, from the entries of a coalesced lookup.
+     */
+    private static void streamEntriesOf(Collection<String> md5s, Map<String, List<KVSequenceEntry>> entriesByMD5, Consumer<KVSequenceEntry> consumer) {
+        for (String md5 : new TreeSet<>(md5s)) {
+            final List<KVSequenceEntry> md5Entries = entriesByMD5.get(md5);
+            if (md5Entries != null) {
+                md5Entries.forEach(consumer);
+            }
+        }
+    }
+
+    private static long microsSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Web service request for a set of matches, based upon
+     * protein MD5 sequence checksums.
+     *
+     * @param proteinMD5s md5 checksum of sequences.
+     * @return a List of matches for these proteins, in MD5 order.
+     */
+    public List<KVSequenceEntry> getMatches(List<String> proteinMD5s) {
+        final List<KVSequenceEntry> matches = new ArrayList<>(proteinMD5s.size());
+        streamMatches(proteinMD5s, matches::add);
         return matches;
     }
 
-    public void countMatchesRequests(int md5Count, long timeToGetMatches){
-        if (lock.isLocked()){
-          //wait for few millis 
-          try {
-              Thread.sleep(1000);
-          } catch (InterruptedException iexc){
-              //we are not so much bothered by this interuption
-              //System.out.println(Utilities.getTimeNow() + " countRequests Thread.currentThread().interrupt()");
-          }         
+    /**
+     * As {@link #getMatches(List)}, passing the matches to the consumer as they are read.
+     * The latency recorded includes the time taken by the consumer, e.g. to write the matches out.
+     *
+     * @param proteinMD5s md5 checksum of sequences.
+     * @param consumer    of the matches for these proteins, in MD5 order.
+     */
+    public void streamMatches(List<String> proteinMD5s, Consumer<KVSequenceEntry> consumer) {
+        Assert.notNull(berkeleyMatchDBService.getMD5Index(), "The MD5 index must not be null.");
+        final long start = System.nanoTime();
+        final MD5RequestCoalescer<List<KVSequenceEntry>> coalescer = matchCoalescer;
+        if (coalescer == null) {
+            batchReader.read(berkeleyMatchDBService.getMD5Index(), proteinMD5s, consumer);
+        } else {
+            streamEntriesOf(proteinMD5s, coalescer.lookup(proteinMD5s), consumer);
         }
-        totalRequests.incrementAndGet();
-        md5TotalCount.addAndGet(md5Count);
-        totalTimeToGetMatches.addAndGet(timeToGetMatches);
+        final long latency = microsSince(start);
+        matchesLatency.record(latency);
+        matchesWindow.record(latency, proteinMD5s.size());
+    }
+
+    public void countMatchesRequests(int md5Count, long timeToGetMatches){
+        totalRequests.increment();
+        md5TotalCount.add(md5Count);
+        totalTimeToGetMatches.add(timeToGetMatches);
     }
 
     /**
@@ -163,96 +273,60 @@ public class MatchesServiceImpl implements MatchesService {
      * protein MD5 sequence checksums.
      *
      * @param proteinMD5s md5 checksum of sequences.
-     * @return a List of site matches for these proteins.
+     * @return a List of site matches for these proteins, in MD5 order.
      */
     public List<KVSequenceEntry> getSites(List<String> proteinMD5s) {
-        Assert.notNull(berkeleySiteDBService.getMD5Index(), "The MD5 index must not be null.");
-        List<KVSequenceEntry> sites = new ArrayList<>();
-
-        for (String md5 : proteinMD5s) {
-            EntityCursor<KVSequenceEntry> siteCursor = null;
-            try {
-                siteCursor = berkeleySiteDBService.getMD5Index().entities(md5, true, md5, true);
+        final List<KVSequenceEntry> sites = new ArrayList<>(proteinMD5s.size());
+        streamSites(proteinMD5s, sites::add);
+        return sites;
+    }
 
-                KVSequenceEntry currentMatch;
-                while ((currentMatch = siteCursor.next()) != null) {
-                    sites.add(currentMatch);
-                }
-            } finally {
-                if (siteCursor != null) {
-                    siteCursor.close();
-                }
-            }
+    /**
+     * As {@link #getSites(List)}, passing the site matches to the consumer as they are read.
+     * The latency recorded includes the time taken by the consumer, e.g. to write the sites out.
+     *
+     * @param proteinMD5s md5 checksum of sequences.
+     * @param consumer    of the site matches for these proteins, in MD5 order.
+     */
+    public void streamSites(List<String> proteinMD5s, Consumer<KVSequenceEntry> consumer) {
+        Assert.notNull(berkeleySiteDBService.getMD5Index(), "The MD5 index must not be null.");
+        final long start = System.nanoTime();
+        final MD5RequestCoalescer<List<KVSequenceEntry>> coalescer = siteCoalescer;
+        if (coalescer == null) {
+            batchReader.read(berkeleySiteDBService.getMD5Index(), proteinMD5s, consumer);
+        } else {
+            streamEntriesOf(proteinMD5s, coalescer.lookup(proteinMD5s), consumer);
         }
-
-        return sites;
+        final long latency = microsSince(start);
+        sitesLatency.record(latency);
+        sitesWindow.record(latency, proteinMD5s.size());
     }
 
 
     @Override
     public void countMD5Requests(int md5Count, long timeToGetMatches){
-        if (lock.isLocked()){
-            //wait for few millis
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException iexc){
-                //we are not so much bothered by this interuption
-                //System.out.println(Utilities.getTimeNow() + " countRequests Thread.currentThread().interrupt()");
-            }
-        }
-        md5TotalRequests.incrementAndGet();
-        newMD5TotalCount.addAndGet(md5Count);
-        md5TotalTimeToGetMatches.addAndGet(timeToGetMatches);
+        md5TotalRequests.increment();
+        newMD5TotalCount.add(md5Count);
+        md5TotalTimeToGetMatches.add(timeToGetMatches);
     }
 
     public void resetCountRequests(){
+        // Each count is reset on its own: a request counted meanwhile may be split between two days
+        long hourlyTotalRequests = totalRequests.sumThenReset();
+        long hourlyMd5TotalCount = md5TotalCount.sumThenReset();
+        long hourlyTotalTimeToGetMatches = totalTimeToGetMatches.sumThenReset();
 
-        int hourlyMD5TotalRequests = 0;
-        int hourlyMD5Md5TotalCount = 0;
-        long hourlyMD5TotalTimeToGetMatches = 0l;
-
-       int hourlyTotalRequests = 0;
-       int hourlyMd5TotalCount = 0;
-       long hourlyTotalTimeToGetMatches = 0l;
-
-       lock.lock();
-       try {
-         hourlyTotalRequests = totalRequests.getAndSet(0);
-         hourlyMd5TotalCount = md5TotalCount.getAndSet(0);
-         hourlyTotalTimeToGetMatches = totalTimeToGetMatches.getAndSet(0);
-
-//         int ihourlyTotalRequests = totalRequests.get();
-//         int ihourlyMd5TotalCount = md5TotalCount.get();
-//         long ihourlyTotalTimeToGetMatches = totalTimeToGetMatches.get();
-
-//         String outMessage1 = Utilities.getTimeNow() + " test... " + this.serviceName + " request_count: " + ihourlyTotalRequests + " " + ihourlyMd5TotalCount  + " " + ihourlyTotalTimeToGetMatches;
-
-         //System.out.println(outMessage1);
-       } finally {
-         lock.unlock();
-       }
-
-        lock.lock();
-        try {
-            hourlyMD5TotalRequests = md5TotalRequests.getAndSet(0);
-            hourlyMD5Md5TotalCount = newMD5TotalCount.getAndSet(0);
-            hourlyMD5TotalTimeToGetMatches = md5TotalTimeToGetMatches.getAndSet(0);
-
-//            int ihourlyMD5TotalRequests = md5TotalRequests.get();
-//            int ihourlyMD5Md5TotalCount = newMD5TotalCount.get();
-//            long ihourlyMD5TotalTimeToGetMatches = md5TotalTimeToGetMatches.get();
-//
-//            String outMessage2 = Utilities.getTimeNow() + " test... " + this.serviceName + " request_count: " + ihourlyMD5TotalRequests + " " + ihourlyMD5Md5TotalCount  + " " + ihourlyMD5TotalTimeToGetMatches;
-//
-//            System.out.println(outMessage2);
-        } finally {
-            lock.unlock();
-        }
+        long hourlyMD5TotalRequests = md5TotalRequests.sumThenReset();
+        long hourlyMD5Md5TotalCount = newMD5TotalCount.sumThenReset();
+        long hourlyMD5TotalTimeToGetMatches = md5TotalTimeToGetMatches.sumThenReset();
 
        //log the hourly values
         // " " + this.serviceName +
        String outMessage = " match_counts: " + hourlyTotalRequests + " " + hourlyMd5TotalCount  + " " + hourlyTotalTimeToGetMatches +
-               " md5_counts: " + hourlyMD5TotalRequests + " " + hourlyMD5Md5TotalCount  + " " + hourlyMD5TotalTimeToGetMatches;
+               " md5_counts: " + hourlyMD5TotalRequests + " " + hourlyMD5Md5TotalCount  + " " + hourlyMD5TotalTimeToGetMatches +
+               " " + resetMD5FilterCounts() +
+               " " + resetLatencyStatistics() +
+               " " + resetCoalescingStatistics();
         if (hourlyTotalRequests > 0) {
             //not yet for jetty, but should it not say its alive
             System.out.println(Utilities.getTimeNow() + outMessage);
@@ -261,6 +335,81 @@ public class MatchesServiceImpl implements MatchesService {
 
     }
 
+    /**
+     * @return the p50 and p99 lookup times in microseconds since the last reset:
+     * "latency_us_p50_p99: [matches] [sites] [md5s]".
+     */
+    String resetLatencyStatistics() {
+        final StringBuilder statistics = new StringBuilder("latency_us_p50_p99:");
+        for (LatencyHistogram histogram : new LatencyHistogram[]{matchesLatency, sitesLatency, md5Latency}) {
+            final LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+            statistics.append(' ').append(snapshot.getPercentile(50)).append(' ').append(snapshot.getPercentile(99));
+        }
+        return statistics.toString();
+    }
+
+    /**
+     * Starts a new minute of the rolling window of the statistics.
+     */
+    void rotateStatisticsWindow() {
+        matchesWindow.rotate();
+        sitesWindow.rotate();
+        md5Window.rotate();
+    }
+
+    /**
+     * Lookup statistics over the last minutes, per endpoint, as tab separated values:
+     * the number of requests and MD5s, and the p50, p90, p99 and maximum lookup times in microseconds.
+     *
+     * @return the statistics, one line per endpoint after a header line.
+     */
+    @Override
+    public String getStatistics() {
+        final StringBuilder statistics = new StringBuilder("window_minutes\t").append(STATISTICS_WINDOW_MINUTES).append('\n')
+                .append("endpoint\trequests\tmd5s\tp50_us\tp90_us\tp99_us\tmax_us\n");
+        appendStatistics(statistics, "matches", matchesWindow);
+        appendStatistics(statistics, "sites", sitesWindow);
+        appendStatistics(statistics, "isPrecalculated", md5Window);
+        return statistics.toString();
+    }
+
+    private static void appendStatistics(StringBuilder statistics, String endpoint, RollingLatencyHistogram window) {
+        final LatencyHistogram.Snapshot snapshot = window.snapshot();
+        statistics.append(endpoint)
+                .append('\t').append(snapshot.getCount())
+                .append('\t').append(window.getMD5Count())
+                .append('\t').append(snapshot.getPercentile(50))
+                .append('\t').append(snapshot.getPercentile(90))
+                .append('\t').append(snapshot.getPercentile(99))
+                .append('\t').append(snapshot.getMax())
+                .append('\n');
+    }
+
+    /**
+     * @return the requests, batches, MD5s requested and MD5s looked up of the coalesced lookups since the last reset:
+     * "coalescing: [matches] [sites] [md5s]".
+     */
+    String resetCoalescingStatistics() {
+        final MD5RequestCoalescer<?>[] coalescers = {matchCoalescer, siteCoalescer, md5Coalescer};
+        final StringBuilder statistics = new StringBuilder("coalescing:");
+        for (MD5RequestCoalescer<?> coalescer : coalescers) {
+            statistics.append(' ').append(coalescer == null ? "0 0 0 0" : coalescer.resetStatistics());
+        }
+        return statistics.toString();
+    }
+
+    /**
+     * @return the MD5 filter statistics since the last reset: "md5_filter: [size in bytes] [negatives] [false positives] [false positive rate]".
+     */
+    String resetMD5FilterCounts() {
+        final long negatives = md5FilterNegatives.sumThenReset();
+        final long falsePositives = md5FilterFalsePositives.sumThenReset();
+        final MD5BloomFilter filter = berkeleyMD5Service == null ? null : berkeleyMD5Service.getMD5Filter();
+        final double falsePositiveRate = negatives + falsePositives == 0 ? 0 : (double) falsePositives / (negatives + falsePositives);
+        return "md5_filter: " + (filter == null ? 0 : filter.getSizeInBytes()) + " " + negatives + " " + falsePositives
+                + " " + String.format("%.4f", falsePositiveRate);
+    }
+
     /**
      * Web service request for a List of protein sequence MD5
      * checksums where the protein sequence has been run through
@@ -274,15 +423,44 @@ public class MatchesServiceImpl implements MatchesService {
     public List<String> isPrecalculated(List<String> proteinMD5s) {
         Assert.notNull(berkeleyMD5Service, "The berkeleyMD5Service field is null.");
         Assert.notNull(berkeleyMD5Service.getPrimIDX(), "The berkeleyMD5Service.getPrimIDX() method is returning null.");
+        final long start = System.nanoTime();
         List<String> md5ToCalculate = new ArrayList<String>();
-        for (String md5 : proteinMD5s) {
-            if (berkeleyMD5Service.getPrimIDX().get(md5) != null) {
-                md5ToCalculate.add(md5);
+        final MD5RequestCoalescer<Boolean> coalescer = md5Coalescer;
+        if (coalescer == null) {
+            for (String md5 : proteinMD5s) {
+                if (isPrecalculated(md5)) {
+                    md5ToCalculate.add(md5);
+                }
+            }
+        } else {
+            final Map<String, Boolean> precalculated = coalescer.lookup(proteinMD5s);
+            for (String md5 : proteinMD5s) {
+                if (precalculated.containsKey(md5)) {
+                    md5ToCalculate.add(md5);
+                }
             }
         }
+        final long latency = microsSince(start);
+        md5Latency.record(latency);
+        md5Window.record(latency, proteinMD5s.size());
         return md5ToCalculate;
     }
 
+    private boolean isPrecalculated(String md5) {
+        // Only the MD5s that may be in the database are looked up
+        if (!berkeleyMD5Service.mightContain(md5)) {
+            md5FilterNegatives.increment();
+            return false;
+        }
+        if (berkeleyMD5Service.getPrimIDX().get(md5) != null) {
+            return true;
+        }
+        if (berkeleyMD5Service.getMD5Filter() != null) {
+            md5FilterFalsePositives.increment();
+        }
+        return false;
+    }
+
     /**
      * Web service request for the interproscan version on which the
      * lookup service is based. Necessary for the client to check if
@@ -298,6 +476,7 @@ public class MatchesServiceImpl implements MatchesService {
      */
     @Override
     public void shutdown() {
+        batchReader.shutdown();
         berkeleyMatchDBService.shutdown();
         berkeleyMD5Service.shutdown();
         berkeleySiteDBService.shutdown();
@@ -0,0 +1,86 @@
+package uk.ac.ebi.interpro.scan.precalc.server.service.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and MD5 counts of the lookups of an endpoint over a rolling window, kept as a ring of
+ * {@link LatencyHistogram}s, one per slot of the window.
+ * <p/>
+ * {@link #rotate()} is called at the end of each slot (e.g. every minute, by a timer): it clears the oldest slot
+ * and makes it the current one, so the window always covers the last slotCount slots.  A lookup finishing
+ * during a rotation may be recorded in the previous slot.
+ * <p/>
+ * Thread-safe: recording never blocks.
+ */
+public class RollingLatencyHistogram {
+
+    private final Slot[] slots;
+
+    private volatile int current;
+
+    /**
+     * @param slotCount number of slots of the window.
+     */
+    public RollingLatencyHistogram(int slotCount) {
+        if (slotCount < 1) {
+            throw new IllegalArgumentException("A rolling window needs at least one slot: " + slotCount);
+        }
+        slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * @param latency  of a lookup.
+     * @param md5Count number of MD5s of the lookup.
+     */
+    public void record(long latency, int md5Count) {
+        final Slot slot = slots[current];
+        slot.latency.record(latency);
+        slot.md5Count.add(md5Count);
+    }
+
+    /**
+     * Starts a new slot, dropping the oldest one from the window.  Only called by one thread at a time.
+     */
+    public void rotate() {
+        final int next = (current + 1) % slots.length;
+        slots[next].latency.snapshotAndReset();
+        slots[next].md5Count.reset();
+        current = next;
+    }
+
+    /**
+     * @return the latencies recorded over the window.
+     */
+    public LatencyHistogram.Snapshot snapshot() {
+        LatencyHistogram.Snapshot snapshot = slots[0].latency.snapshot();
+        for (int i = 1; i < slots.length; i++) {
+            snapshot = snapshot.merge(slots[i].latency.snapshot());
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the number of MD5s looked up over the window.
+     */
+    public long getMD5Count() {
+        long md5Count = 0;
+        for (Slot slot : slots) {
+            md5Count += slot.md5Count.sum();
+        }
+        return md5Count;
+    }
+
+    public int getSlotCount() {
+        return slots.length;
+    }
+
+    private static final class Slot {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private final LongAdder md5Count = new LongAdder();
+    }
+}
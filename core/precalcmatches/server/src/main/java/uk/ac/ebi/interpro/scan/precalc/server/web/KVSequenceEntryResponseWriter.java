@@ -0,0 +1,163 @@
+package uk.ac.ebi.interpro.scan.precalc.server.web;
+
+import org.apache.log4j.Logger;
+import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntryStream;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntryXML;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.xml.transform.stream.StreamResult;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the matches (or sites) of a lookup request in the format accepted by the client:
+ * the binary {@link KVSequenceEntryStream}, gzip'd if the client accepts it, or the
+ * {@link KVSequenceEntryXML} for older clients that do not ask for it.
+ * <p/>
+ * The binary stream is written as the entries are read, so neither the server nor the client
+ * hold the whole response.  The XML document is marshalled from all the entries at once.
+ */
+class KVSequenceEntryResponseWriter {
+
+    private static final Logger LOGGER = Logger.getLogger(KVSequenceEntryResponseWriter.class.getName());
+
+    /**
+     * Number of entries written between flushes of the binary stream, so the client
+     * receives the first entries before the whole response is written.
+     */
+    private static final int FLUSH_INTERVAL = 1000;
+
+    private final Jaxb2Marshaller berkeleyJaxb2;
+
+    KVSequenceEntryResponseWriter(Jaxb2Marshaller berkeleyJaxb2) {
+        this.berkeleyJaxb2 = berkeleyJaxb2;
+    }
+
+    /**
+     * Reads the entries of a request, passing each to the consumer as it is read.
+     */
+    interface EntrySource {
+
+        void forEach(Consumer<KVSequenceEntry> consumer);
+    }
+
+    void write(HttpServletRequest request, HttpServletResponse response, List<KVSequenceEntry> entries) {
+        write(request, response, entries::forEach);
+    }
+
+    void write(HttpServletRequest request, HttpServletResponse response, EntrySource entries) {
+        if (accepts(request.getHeader("Accept"), KVSequenceEntryStream.CONTENT_TYPE)) {
+            writeStream(request, response, entries);
+        } else {
+            final List<KVSequenceEntry> allEntries = new ArrayList<>();
+            entries.forEach(allEntries::add);
+            writeXML(response, allEntries);
+        }
+    }
+
+    /**
+     * Writes the entries as they are read.  If reading them fails part way, the stream is not ended,
+     * so the client sees a truncated response rather than fewer entries: unless nothing was sent yet,
+     * in which case the failure is rethrown for the usual error response.
+     */
+    private void writeStream(HttpServletRequest request, HttpServletResponse response, EntrySource entries) {
+        response.setContentType(KVSequenceEntryStream.CONTENT_TYPE);
+        response.addHeader("Vary", "Accept, Accept-Encoding");
+        final boolean gzip = accepts(request.getHeader("Accept-Encoding"), "gzip");
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        OutputStream out = null;
+        try {
+            out = response.getOutputStream();
+            if (gzip) {
+                out = new GZIPOutputStream(out, 8192, true);
+            }
+            final KVSequenceEntryStream.Writer writer = new KVSequenceEntryStream.Writer(out);
+            final int[] written = {0};
+            entries.forEach(entry -> {
+                try {
+                    writer.write(entry);
+                    if (++written[0] % FLUSH_INTERVAL == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.close();
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.error("IOException thrown when attempting to output the KVSequenceEntry stream in response to query: ", e);
+        } catch (RuntimeException e) {
+            if (!response.isCommitted()) {
+                response.reset();
+                throw e;
+            }
+            LOGGER.error("Failed to read the entries of the KVSequenceEntry stream after the response was committed: ", e);
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException closeException) {
+                    LOGGER.error("Unable to close the response output stream.");
+                }
+            }
+        }
+    }
+
+    private void writeXML(HttpServletResponse response, List<KVSequenceEntry> entries) {
+        KVSequenceEntryXML entryXML = new KVSequenceEntryXML(entries);
+        response.setContentType("application/xml");
+        response.addHeader("Vary", "Accept");
+        Writer out = null;
+        try {
+            out = response.getWriter();
+            berkeleyJaxb2.marshal(entryXML, new StreamResult(out));
+        } catch (IOException e) {
+            LOGGER.error("IOException thrown when attempting to output 'BerkeleyMatchXML' in response to query: ");
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    LOGGER.error("Unable to close the response Writer stream.");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the Accept (or Accept-Encoding) header lists the value, with a non-zero quality.
+     */
+    static boolean accepts(String header, String value) {
+        if (header == null) {
+            return false;
+        }
+        for (String element : header.split(",")) {
+            final String[] parameters = element.split(";");
+            if (!parameters[0].trim().equalsIgnoreCase(value)) {
+                continue;
+            }
+            for (int i = 1; i < parameters.length; i++) {
+                final String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
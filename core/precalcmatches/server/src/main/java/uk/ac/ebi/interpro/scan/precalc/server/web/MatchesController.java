@@ -6,16 +6,12 @@ import org.springframework.oxm.jaxb.Jaxb2Marshaller;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
-import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
-import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntryXML;
 import uk.ac.ebi.interpro.scan.precalc.server.service.MatchesService;
 
 import uk.ac.ebi.interpro.scan.util.Utilities;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.transform.stream.StreamResult;
-import java.io.IOException;
-import java.io.Writer;
 import java.util.Arrays;
 import java.util.List;
 
@@ -36,7 +32,7 @@ public class MatchesController {
 
     private MatchesService matchService;
 
-    private Jaxb2Marshaller berkeleyJaxb2;
+    private KVSequenceEntryResponseWriter responseWriter;
 
     @Autowired
     public void setMatchService(MatchesService matchService) {
@@ -46,35 +42,20 @@ public class MatchesController {
 
     @Autowired
     public void setBerkeleyJaxb2(Jaxb2Marshaller berkeleyJaxb2) {
-        this.berkeleyJaxb2 = berkeleyJaxb2;
+        this.responseWriter = new KVSequenceEntryResponseWriter(berkeleyJaxb2);
     }
 
     @RequestMapping
-    public void getMatches(HttpServletResponse response,
+    public void getMatches(HttpServletRequest request,
+                           HttpServletResponse response,
                            @RequestParam(value = "md5", required = true) String[] md5Array) {
         long startGetMatches = System.currentTimeMillis();
-        List<KVSequenceEntry> matches = matchService.getMatches(Arrays.asList(md5Array));
+        final List<String> md5s = Arrays.asList(md5Array);
+        // The matches are written out as they are read
+        responseWriter.write(request, response, consumer -> matchService.streamMatches(md5s, consumer));
         long timeToGetMatches = System.currentTimeMillis() - startGetMatches;
         matchService.countMatchesRequests(md5Array.length, timeToGetMatches);
         //Integer timeProcessingPartitionSeconds = (int) timeProcessingPartition / 1000;
         //System.out.println(Utilities.getTimeNow() + " Took  " + timeToGetMatches + " millis to get  matches  for  " + md5Array.length  + " md5s");
-
-        KVSequenceEntryXML matchXML = new KVSequenceEntryXML(matches);
-        response.setContentType("application/xml");
-        Writer out = null;
-        try {
-            out = response.getWriter();
-            berkeleyJaxb2.marshal(matchXML, new StreamResult(out));
-        } catch (IOException e) {
-            LOGGER.error("IOException thrown when attempting to output 'BerkeleyMatchXML' in response to query: ");
-        } finally {
-            if (out != null) {
-                try {
-                    out.close();
-                } catch (IOException e) {
-                    LOGGER.error("Unable to close the response Writer stream.");
-                }
-            }
-        }
     }
 }
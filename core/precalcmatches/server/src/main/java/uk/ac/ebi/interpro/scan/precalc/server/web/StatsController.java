@@ -0,0 +1,35 @@
+package uk.ac.ebi.interpro.scan.precalc.server.web;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import uk.ac.ebi.interpro.scan.precalc.server.service.MatchesService;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Reports the lookup statistics of the server over the last minutes (requests, MD5s and latency
+ * percentiles per endpoint), for monitoring.
+ */
+@Controller
+@RequestMapping("/stats")
+public class StatsController {
+
+    private static final Logger LOGGER = Logger.getLogger(StatsController.class.getName());
+
+    @Autowired
+    private MatchesService matchService;
+
+    @RequestMapping
+    public void getStats(HttpServletResponse response) {
+        response.setContentType("text/tab-separated-values");
+        try (Writer out = response.getWriter()) {
+            out.write(matchService.getStatistics());
+        } catch (IOException e) {
+            LOGGER.error("IOException thrown when attempting to output the lookup statistics.");
+        }
+    }
+}
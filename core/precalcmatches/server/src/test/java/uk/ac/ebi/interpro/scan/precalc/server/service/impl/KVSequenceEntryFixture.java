@@ -0,0 +1,79 @@
+package uk.ac.ebi.interpro.scan.precalc.server.service.impl;
+
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentConfig;
+import com.sleepycat.persist.EntityStore;
+import com.sleepycat.persist.PrimaryIndex;
+import com.sleepycat.persist.StoreConfig;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.BerkeleyMatchDBService;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a BerkeleyDB match (or site) store of random protein MD5s, as read by {@link BerkeleyMatchDBService}.
+ */
+class KVSequenceEntryFixture {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final List<String> md5s = new ArrayList<>();
+
+    /**
+     * @param directory  of the store, created if needed.
+     * @param md5Count   number of protein MD5s in the store.
+     * @param seed       of the random MD5s and hits.
+     */
+    KVSequenceEntryFixture(File directory, int md5Count, long seed) {
+        directory.mkdirs();
+        final Random random = new Random(seed);
+        final EnvironmentConfig environmentConfig = new EnvironmentConfig();
+        environmentConfig.setAllowCreate(true);
+        environmentConfig.setTransactional(false);
+        final StoreConfig storeConfig = new StoreConfig();
+        storeConfig.setAllowCreate(true);
+        storeConfig.setTransactional(false);
+        storeConfig.setDeferredWrite(true);
+        final Environment environment = new Environment(directory, environmentConfig);
+        final EntityStore store = new EntityStore(environment, "EntityStore", storeConfig);
+        try {
+            final PrimaryIndex<Long, KVSequenceEntry> primaryIndex = store.getPrimaryIndex(Long.class, KVSequenceEntry.class);
+            for (int i = 0; i < md5Count; i++) {
+                final String md5 = randomMD5(random);
+                md5s.add(md5);
+                // Some proteins have their hits in several entries
+                final int entryCount = 1 + random.nextInt(3) / 2;
+                for (int entry = 0; entry < entryCount; entry++) {
+                    final KVSequenceEntry sequenceEntry = new KVSequenceEntry();
+                    sequenceEntry.setProteinMD5(md5);
+                    for (int hit = random.nextInt(5); hit >= 0; hit--) {
+                        sequenceEntry.addMatch("PF" + random.nextInt(20000) + ",32.0," + random.nextInt(500) + ",1," + random.nextInt(500));
+                    }
+                    primaryIndex.putNoReturn(sequenceEntry);
+                }
+            }
+            store.sync();
+        } finally {
+            store.close();
+            environment.close();
+        }
+    }
+
+    /**
+     * @return the MD5s in the store, in the order they were generated.
+     */
+    List<String> getMD5s() {
+        return md5s;
+    }
+
+    static String randomMD5(Random random) {
+        final char[] md5 = new char[32];
+        for (int i = 0; i < md5.length; i++) {
+            md5[i] = HEX[random.nextInt(16)];
+        }
+        return new String(md5);
+    }
+}
@@ -0,0 +1,45 @@
+package uk.ac.ebi.interpro.scan.precalc.server.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        final Random random = new Random(5);
+        for (int i = 0; i < 100000; i++) {
+            final long value = random.nextLong() >>> (1 + random.nextInt(63));
+            final int index = LatencyHistogram.index(value);
+            final long highestValue = LatencyHistogram.highestValue(index);
+            assertTrue(value <= highestValue, value + " in bucket " + index);
+            assertTrue(highestValue - value <= value / 16, value + " in bucket " + index);
+            assertTrue(index == 0 || LatencyHistogram.highestValue(index - 1) < value, value + " in bucket " + index);
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(LatencyHistogram.index(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500, snapshot.getPercentile(50), 500 / 16);
+        assertEquals(990, snapshot.getPercentile(99), 990 / 16);
+        assertEquals(1000, snapshot.getMax(), 1000 / 16);
+        assertEquals(1, snapshot.getPercentile(0));
+
+        assertEquals(0, histogram.snapshot().getCount(), "Reset");
+        histogram.record(7);
+        assertEquals(1001, histogram.snapshot().merge(snapshot).getCount());
+    }
+}
@@ -0,0 +1,130 @@
+package uk.ac.ebi.interpro.scan.precalc.server.service.impl;
+
+import com.sleepycat.persist.EntityCursor;
+import com.sleepycat.persist.SecondaryIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.BerkeleyMatchDBService;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.MD5BatchReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Per-request latency of reading the matches of a batch of MD5s, one EntityCursor per MD5
+ * (as MatchesServiceImpl used to) against {@link MD5BatchReader}, on a generated BerkeleyDB store.
+ * <p/>
+ * Excluded from the default build; compile with the jmh profile and run the main method:
+ * <pre>
+ * mvn -Pjmh test-compile
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MD5BatchReaderBenchmark {
+
+    /**
+     * Number of MD5s in the store.
+     */
+    @Param({"200000"})
+    public int storeSize;
+
+    /**
+     * Number of MD5s requested, 3/4 of them in the store.
+     */
+    @Param({"1", "10", "100", "1000", "10000"})
+    public int batchSize;
+
+    private File storeDirectory;
+
+    private BerkeleyMatchDBService matchDBService;
+
+    private MD5BatchReader reader;
+
+    private MD5BatchReader parallelReader;
+
+    private List<String> requestedMD5s;
+
+    @Setup(Level.Trial)
+    public void createStore() throws IOException {
+        storeDirectory = Files.createTempDirectory("md5BatchReaderBenchmark").toFile();
+        final KVSequenceEntryFixture fixture = new KVSequenceEntryFixture(storeDirectory, storeSize, 42);
+        matchDBService = new BerkeleyMatchDBService(storeDirectory.getAbsolutePath());
+        reader = new MD5BatchReader();
+        parallelReader = new MD5BatchReader(4, 1000);
+        final Random random = new Random(batchSize);
+        requestedMD5s = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            requestedMD5s.add(random.nextInt(4) == 0
+                    ? KVSequenceEntryFixture.randomMD5(random)
+                    : fixture.getMD5s().get(random.nextInt(storeSize)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteStore() throws IOException {
+        parallelReader.shutdown();
+        matchDBService.shutdown();
+        try (Stream<Path> paths = Files.walk(storeDirectory.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public List<KVSequenceEntry> cursorPerMD5() {
+        final SecondaryIndex<String, Long, KVSequenceEntry> index = matchDBService.getMD5Index();
+        final List<KVSequenceEntry> entries = new ArrayList<>();
+        for (String md5 : requestedMD5s) {
+            try (EntityCursor<KVSequenceEntry> cursor = index.entities(md5, true, md5, true)) {
+                KVSequenceEntry entry;
+                while ((entry = cursor.next()) != null) {
+                    entries.add(entry);
+                }
+            }
+        }
+        return entries;
+    }
+
+    @Benchmark
+    public List<KVSequenceEntry> sortedSingleCursor() {
+        return reader.read(matchDBService.getMD5Index(), requestedMD5s);
+    }
+
+    @Benchmark
+    public List<KVSequenceEntry> sortedParallelCursors() {
+        return parallelReader.read(matchDBService.getMD5Index(), requestedMD5s);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MD5BatchReaderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
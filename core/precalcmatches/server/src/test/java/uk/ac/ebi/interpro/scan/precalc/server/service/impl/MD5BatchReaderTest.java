@@ -0,0 +1,113 @@
+package uk.ac.ebi.interpro.scan.precalc.server.service.impl;
+
+import com.sleepycat.persist.EntityCursor;
+import com.sleepycat.persist.SecondaryIndex;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.BerkeleyMatchDBService;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.MD5BatchReader;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for {@link MD5BatchReader}, checked against reading the MD5s one by one.
+ */
+public class MD5BatchReaderTest {
+
+    @TempDir
+    static Path tempDir;
+
+    private static KVSequenceEntryFixture fixture;
+
+    private static BerkeleyMatchDBService matchDBService;
+
+    @BeforeAll
+    public static void createStore() {
+        fixture = new KVSequenceEntryFixture(tempDir.resolve("matches").toFile(), 5000, 42);
+        matchDBService = new BerkeleyMatchDBService(tempDir.resolve("matches").toString());
+    }
+
+    @AfterAll
+    public static void closeStore() {
+        matchDBService.shutdown();
+    }
+
+    @Test
+    public void testSameAsReadingOneByOne() {
+        final List<String> md5s = requestedMD5s(300);
+        final List<KVSequenceEntry> expected = readOneByOne(md5s);
+
+        assertEquals(expected, new MD5BatchReader().read(matchDBService.getMD5Index(), md5s));
+    }
+
+    @Test
+    public void testSplitOverThreads() {
+        final List<String> md5s = requestedMD5s(3000);
+        final List<KVSequenceEntry> expected = readOneByOne(md5s);
+        final MD5BatchReader reader = new MD5BatchReader(3, 100);
+        try {
+            assertEquals(expected, reader.read(matchDBService.getMD5Index(), md5s));
+
+            final List<KVSequenceEntry> streamed = new ArrayList<>();
+            reader.read(matchDBService.getMD5Index(), md5s, streamed::add);
+            assertEquals(expected, streamed);
+        } finally {
+            reader.shutdown();
+        }
+    }
+
+    @Test
+    public void testDuplicatedAndUnknownMD5s() {
+        final String md5 = fixture.getMD5s().get(0);
+        final List<String> md5s = new ArrayList<>();
+        md5s.add(md5);
+        md5s.add("00000000000000000000000000000000");
+        md5s.add(md5);
+        final List<KVSequenceEntry> entries = new MD5BatchReader().read(matchDBService.getMD5Index(), md5s);
+
+        assertEquals(readOneByOne(Collections.singletonList(md5)), entries);
+        assertTrue(new MD5BatchReader().read(matchDBService.getMD5Index(), Collections.<String>emptyList()).isEmpty());
+    }
+
+    /**
+     * Some of the MD5s in the store and some unknown MD5s, in random order.
+     */
+    private List<String> requestedMD5s(int count) {
+        final Random random = new Random(count);
+        final List<String> md5s = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (random.nextInt(4) == 0) {
+                md5s.add(KVSequenceEntryFixture.randomMD5(random));
+            } else {
+                md5s.add(fixture.getMD5s().get(random.nextInt(fixture.getMD5s().size())));
+            }
+        }
+        return md5s;
+    }
+
+    /**
+     * As MatchesServiceImpl used to read the matches, in MD5 order.
+     */
+    private List<KVSequenceEntry> readOneByOne(List<String> md5s) {
+        final SecondaryIndex<String, Long, KVSequenceEntry> index = matchDBService.getMD5Index();
+        final List<KVSequenceEntry> entries = new ArrayList<>();
+        for (String md5 : new TreeSet<>(md5s)) {
+            try (EntityCursor<KVSequenceEntry> cursor = index.entities(md5, true, md5, true)) {
+                for (KVSequenceEntry entry : cursor) {
+                    entries.add(entry);
+                }
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,171 @@
+package uk.ac.ebi.interpro.scan.precalc.server.service.impl;
+
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentConfig;
+import com.sleepycat.persist.EntityStore;
+import com.sleepycat.persist.PrimaryIndex;
+import com.sleepycat.persist.StoreConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.BerkeleyConsideredProtein;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.BerkeleyMD5DBService;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.MD5BloomFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for {@link MD5BloomFilter}, and its use by {@link BerkeleyMD5DBService} and {@link MatchesServiceImpl}.
+ */
+public class MD5BloomFilterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testNoFalseNegatives() {
+        final Random random = new Random(1);
+        final MD5BloomFilter filter = new MD5BloomFilter(10000, 0.01);
+        final List<String> md5s = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            md5s.add(KVSequenceEntryFixture.randomMD5(random));
+        }
+        md5s.forEach(filter::add);
+        md5s.forEach(md5 -> assertTrue(filter.mightContain(md5), md5));
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain(KVSequenceEntryFixture.randomMD5(random))) {
+                falsePositives++;
+            }
+        }
+        assertEquals(0.01, filter.getExpectedFalsePositiveRate(), 0.002);
+        assertTrue(falsePositives < 1500, "False positives: " + falsePositives);
+        assertEquals(10000, filter.getMD5Count());
+        assertEquals(7, filter.getHashCount());
+    }
+
+    @Test
+    public void testNotMD5s() {
+        final MD5BloomFilter filter = new MD5BloomFilter(100, 0.01);
+        for (String value : Arrays.asList("", "not an md5", "ZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZ")) {
+            filter.add(value);
+            assertTrue(filter.mightContain(value), value);
+        }
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        final MD5BloomFilter filter = new MD5BloomFilter(1000, 0.05);
+        filter.add("0A1B2C3D4E5F60718293A4B5C6D7E8F9");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filter.writeTo(out);
+
+        final MD5BloomFilter read = MD5BloomFilter.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(read.mightContain("0A1B2C3D4E5F60718293A4B5C6D7E8F9"));
+        assertEquals(1, read.getMD5Count());
+        assertEquals(filter.getHashCount(), read.getHashCount());
+        assertEquals(filter.getSizeInBytes(), read.getSizeInBytes());
+        assertThrows(IOException.class, () -> MD5BloomFilter.readFrom(new ByteArrayInputStream(new byte[16])));
+    }
+
+    @Test
+    public void testPrecalculatedLookupsAreFiltered() {
+        final File directory = tempDir.resolve("md5").toFile();
+        final List<String> md5s = createMD5Store(directory, 2000, 3);
+
+        BerkeleyMD5DBService md5Service = new BerkeleyMD5DBService(directory.getPath());
+        try {
+            assertTrue(md5Service.mightContain("not looked up without a filter"));
+            md5Service.initializeMD5Filter();
+            assertNotNull(md5Service.getMD5Filter());
+            assertEquals(2000, md5Service.getMD5Filter().getMD5Count());
+
+            final MatchesServiceImpl matchesService = new MatchesServiceImpl("5.39-77.0");
+            matchesService.setBerkeleyMD5Service(md5Service);
+            final Random random = new Random(2);
+            final List<String> requested = new ArrayList<>(md5s.subList(0, 10));
+            for (int i = 0; i < 1000; i++) {
+                requested.add(KVSequenceEntryFixture.randomMD5(random));
+            }
+            assertEquals(md5s.subList(0, 10), matchesService.isPrecalculated(requested));
+            final String[] counts = matchesService.resetMD5FilterCounts().split(" ");
+            assertEquals(md5Service.getMD5Filter().getSizeInBytes(), Long.parseLong(counts[1]));
+            assertEquals(1000, Long.parseLong(counts[2]) + Long.parseLong(counts[3]), "Negatives and false positives");
+            assertTrue(Long.parseLong(counts[3]) < 50);
+        } finally {
+            md5Service.shutdown();
+        }
+
+        // Loaded from the persisted filter
+        assertTrue(new File(directory.getPath() + ".filter").isFile());
+        md5Service = new BerkeleyMD5DBService(directory.getPath());
+        try {
+            md5Service.initializeMD5Filter();
+            assertTrue(md5s.stream().allMatch(md5Service::mightContain));
+        } finally {
+            md5Service.shutdown();
+        }
+    }
+
+    @Test
+    public void testFilterRebuiltForReplacedDatabase() {
+        final File directory = tempDir.resolve("md5").toFile();
+        createMD5Store(directory, 500, 3);
+        BerkeleyMD5DBService md5Service = new BerkeleyMD5DBService(directory.getPath());
+        try {
+            md5Service.initializeMD5Filter();
+        } finally {
+            md5Service.shutdown();
+        }
+
+        // Another database of the same number of MD5s, in place of the first
+        for (File databaseFile : directory.listFiles()) {
+            assertTrue(databaseFile.delete());
+        }
+        final List<String> md5s = createMD5Store(directory, 500, 4);
+        for (File databaseFile : directory.listFiles()) {
+            assertTrue(databaseFile.setLastModified(databaseFile.lastModified() + 2000));
+        }
+        md5Service = new BerkeleyMD5DBService(directory.getPath());
+        try {
+            md5Service.initializeMD5Filter();
+            assertTrue(md5s.stream().allMatch(md5Service::mightContain), "The filter should have been rebuilt");
+        } finally {
+            md5Service.shutdown();
+        }
+    }
+
+    private static List<String> createMD5Store(File directory, int md5Count, long seed) {
+        directory.mkdirs();
+        final EnvironmentConfig environmentConfig = new EnvironmentConfig();
+        environmentConfig.setAllowCreate(true);
+        final StoreConfig storeConfig = new StoreConfig();
+        storeConfig.setAllowCreate(true);
+        final Environment environment = new Environment(directory, environmentConfig);
+        final EntityStore store = new EntityStore(environment, "EntityStore", storeConfig);
+        final List<String> md5s = new ArrayList<>();
+        try {
+            final PrimaryIndex<String, BerkeleyConsideredProtein> primaryIndex = store.getPrimaryIndex(String.class, BerkeleyConsideredProtein.class);
+            final Random random = new Random(seed);
+            for (int i = 0; i < md5Count; i++) {
+                final String md5 = KVSequenceEntryFixture.randomMD5(random);
+                md5s.add(md5);
+                primaryIndex.putNoReturn(new BerkeleyConsideredProtein(md5));
+            }
+        } finally {
+            store.close();
+            environment.close();
+        }
+        return md5s;
+    }
+}
@@ -0,0 +1,137 @@
+package uk.ac.ebi.interpro.scan.precalc.server.service.impl;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.BerkeleyMatchDBService;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for {@link MD5RequestCoalescer}, and the coalesced lookups of {@link MatchesServiceImpl}.
+ */
+public class MD5RequestCoalescerTest {
+
+    @TempDir
+    static Path tempDir;
+
+    private static KVSequenceEntryFixture fixture;
+
+    private static BerkeleyMatchDBService matchDBService;
+
+    @BeforeAll
+    public static void createStore() {
+        fixture = new KVSequenceEntryFixture(tempDir.resolve("matches").toFile(), 2000, 7);
+        matchDBService = new BerkeleyMatchDBService(tempDir.resolve("matches").toString());
+    }
+
+    @AfterAll
+    public static void closeStore() {
+        matchDBService.shutdown();
+    }
+
+    @Test
+    public void testConcurrentRequestsAreMerged() throws Exception {
+        final List<Collection<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        final MD5RequestCoalescer<String> coalescer = new MD5RequestCoalescer<>(md5s -> {
+            batches.add(md5s);
+            if (batches.size() == 1) {
+                firstBatchStarted.countDown();
+                await(releaseFirstBatch);
+            }
+            final Map<String, String> values = new HashMap<>();
+            for (String md5 : md5s) {
+                values.put(md5, md5.toLowerCase());
+            }
+            return values;
+        }, TimeUnit.SECONDS.toMicros(10), 3);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            // The first request is looked up at once, as nothing else is in flight
+            final Future<Map<String, String>> first = executor.submit(() -> coalescer.lookup(Collections.singletonList("A")));
+            assertTrue(firstBatchStarted.await(10, TimeUnit.SECONDS));
+            // The next ones share a batch, looked up when full (B is only counted once)
+            final Future<Map<String, String>> second = executor.submit(() -> coalescer.lookup(Arrays.asList("C", "B")));
+            final Future<Map<String, String>> third = executor.submit(() -> coalescer.lookup(Arrays.asList("B", "D")));
+
+            assertEquals("c", second.get(10, TimeUnit.SECONDS).get("C"));
+            assertEquals("d", third.get(10, TimeUnit.SECONDS).get("D"));
+            assertSame(second.get(), third.get());
+            releaseFirstBatch.countDown();
+            assertEquals(Collections.singletonMap("A", "a"), first.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(Arrays.asList(Collections.singletonList("A"), Arrays.asList("B", "C", "D")), batches);
+        assertEquals("3 2 5 4", coalescer.resetStatistics());
+    }
+
+    @Test
+    public void testFailureIsPropagated() {
+        final MD5RequestCoalescer<String> coalescer = new MD5RequestCoalescer<>(md5s -> {
+            throw new IllegalStateException("Database closed");
+        }, 1000, 10);
+        assertThrows(IllegalStateException.class, () -> coalescer.lookup(Collections.singletonList("A")));
+    }
+
+    @Test
+    public void testCoalescedMatchesAreSplitPerRequest() throws Exception {
+        final MatchesServiceImpl matchesService = new MatchesServiceImpl("5.39-77.0");
+        matchesService.setBerkeleyMatchDBService(matchDBService);
+        final List<List<String>> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            // Overlapping requests, with MD5s not in the store
+            final List<String> request = new ArrayList<>(fixture.getMD5s().subList(i * 50, i * 50 + 100));
+            request.add(String.format("%032d", i));
+            Collections.reverse(request);
+            requests.add(request);
+        }
+        final List<List<KVSequenceEntry>> expected = new ArrayList<>();
+        for (List<String> request : requests) {
+            expected.add(matchesService.getMatches(request));
+        }
+
+        matchesService.setCoalescingWindowMicros(TimeUnit.MILLISECONDS.toMicros(5));
+        matchesService.setMaxCoalescedMD5s(500);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<List<KVSequenceEntry>>> results = new ArrayList<>();
+            for (List<String> request : requests) {
+                results.add(executor.submit(() -> matchesService.getMatches(request)));
+            }
+            for (int i = 0; i < requests.size(); i++) {
+                assertEquals(expected.get(i), results.get(i).get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(matchesService.resetLatencyStatistics().startsWith("latency_us_p50_p99: "));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
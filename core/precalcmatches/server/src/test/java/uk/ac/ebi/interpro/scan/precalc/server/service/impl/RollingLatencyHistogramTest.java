@@ -0,0 +1,66 @@
+package uk.ac.ebi.interpro.scan.precalc.server.service.impl;
+
+import uk.ac.ebi.interpro.scan.precalc.berkeley.service.BerkeleyMatchDBService;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for {@link RollingLatencyHistogram}, and the statistics of {@link MatchesServiceImpl}.
+ */
+public class RollingLatencyHistogramTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRotation() {
+        final RollingLatencyHistogram window = new RollingLatencyHistogram(3);
+        window.record(1000, 10);
+        window.rotate();
+        window.record(2000, 20);
+        window.rotate();
+        window.record(3000, 30);
+        assertEquals(3, window.snapshot().getCount());
+        assertEquals(60, window.getMD5Count());
+
+        // The first slot is dropped
+        window.rotate();
+        assertEquals(2, window.snapshot().getCount());
+        assertEquals(50, window.getMD5Count());
+        assertEquals(2000, window.snapshot().getPercentile(50), 2000 / 16);
+
+        window.rotate();
+        window.rotate();
+        assertEquals(0, window.snapshot().getCount());
+        assertEquals(0, window.getMD5Count());
+        assertThrows(IllegalArgumentException.class, () -> new RollingLatencyHistogram(0));
+    }
+
+    @Test
+    public void testStatistics() {
+        new KVSequenceEntryFixture(tempDir.resolve("matches").toFile(), 100, 11);
+        final BerkeleyMatchDBService matchDBService = new BerkeleyMatchDBService(tempDir.resolve("matches").toString());
+        try {
+            final MatchesServiceImpl matchesService = new MatchesServiceImpl("5.39-77.0");
+            matchesService.setBerkeleyMatchDBService(matchDBService);
+            matchesService.getMatches(Collections.nCopies(5, "0A1B2C3D4E5F60718293A4B5C6D7E8F9"));
+            matchesService.getMatches(Collections.nCopies(2, "0A1B2C3D4E5F60718293A4B5C6D7E8F9"));
+            matchesService.countMatchesRequests(7, 1);
+
+            final String[] lines = matchesService.getStatistics().split("\n");
+            assertEquals(5, lines.length);
+            assertEquals("window_minutes\t15", lines[0]);
+            assertEquals("endpoint\trequests\tmd5s\tp50_us\tp90_us\tp99_us\tmax_us", lines[1]);
+            assertTrue(lines[2].startsWith("matches\t2\t7\t"), lines[2]);
+            assertTrue(lines[4].startsWith("isPrecalculated\t0\t0\t"), lines[4]);
+        } finally {
+            matchDBService.shutdown();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package uk.ac.ebi.interpro.scan.precalc.server.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntry;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntryStream;
+import uk.ac.ebi.interpro.scan.precalc.berkeley.model.KVSequenceEntryXML;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for the format negotiation of {@link KVSequenceEntryResponseWriter}.
+ */
+public class KVSequenceEntryResponseWriterTest {
+
+    private final List<KVSequenceEntry> entries = Arrays.asList(
+            entry(1, "0A1B2C3D4E5F60718293A4B5C6D7E8F9", "PF00001,32.0,1,1,100"),
+            entry(2, "0A1B2C3D4E5F60718293A4B5C6D7E8FA", "PF00002,32.0,4,20,200"));
+
+    @Test
+    public void testGzipBinaryStream() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept", KVSequenceEntryStream.CONTENT_TYPE + ", application/xml;q=0.5");
+        request.addHeader("Accept-Encoding", "gzip,deflate");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        new KVSequenceEntryResponseWriter(jaxb2()).write(request, response, entries);
+
+        assertEquals(KVSequenceEntryStream.CONTENT_TYPE, response.getContentType());
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals(entries, read(new KVSequenceEntryStream.Reader(
+                new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())))));
+    }
+
+    @Test
+    public void testXMLForOlderClients() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "gzip,deflate");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        new KVSequenceEntryResponseWriter(jaxb2()).write(request, response, entries);
+
+        assertEquals("application/xml", response.getContentType());
+        assertNull(response.getHeader("Content-Encoding"));
+        assertTrue(response.getContentAsString().contains("<hit>PF00002,32.0,4,20,200</hit>"));
+    }
+
+    @Test
+    public void testEntriesWrittenAsTheyAreRead() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept", KVSequenceEntryStream.CONTENT_TYPE);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final List<KVSequenceEntry> streamed = new ArrayList<>();
+        new KVSequenceEntryResponseWriter(jaxb2()).write(request, response, consumer -> {
+            for (int i = 0; i < 2500; i++) {
+                final KVSequenceEntry entry = entry(i, String.format("%032X", i), "PF00001,32.0,1,1,100");
+                streamed.add(entry);
+                consumer.accept(entry);
+                if (i == 1000) {
+                    // The first entries have already been sent
+                    assertTrue(response.isCommitted());
+                }
+            }
+        });
+
+        assertEquals(streamed, read(new KVSequenceEntryStream.Reader(new ByteArrayInputStream(response.getContentAsByteArray()))));
+    }
+
+    @Test
+    public void testFailedLookupIsNotAShortResponse() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept", KVSequenceEntryStream.CONTENT_TYPE);
+
+        // Nothing sent yet: the failure is left to the usual error handling
+        final MockHttpServletResponse uncommitted = new MockHttpServletResponse();
+        assertThrows(IllegalStateException.class, () -> new KVSequenceEntryResponseWriter(jaxb2()).write(request, uncommitted, consumer -> {
+            consumer.accept(entries.get(0));
+            throw new IllegalStateException("Lookup failed");
+        }));
+        assertFalse(uncommitted.isCommitted());
+
+        // Some entries sent: the stream is not ended, so the client sees it is truncated
+        final MockHttpServletResponse committed = new MockHttpServletResponse();
+        new KVSequenceEntryResponseWriter(jaxb2()).write(request, committed, consumer -> {
+            for (int i = 0; i < 1500; i++) {
+                consumer.accept(entries.get(i % 2));
+            }
+            throw new IllegalStateException("Lookup failed");
+        });
+        assertTrue(committed.isCommitted());
+        assertThrows(EOFException.class, () -> read(new KVSequenceEntryStream.Reader(new ByteArrayInputStream(committed.getContentAsByteArray()))));
+    }
+
+    @Test
+    public void testAccepts() {
+        assertTrue(KVSequenceEntryResponseWriter.accepts("text/html, " + KVSequenceEntryStream.CONTENT_TYPE, KVSequenceEntryStream.CONTENT_TYPE));
+        assertTrue(KVSequenceEntryResponseWriter.accepts("gzip;q=0.8, deflate", "gzip"));
+        assertFalse(KVSequenceEntryResponseWriter.accepts("gzip;q=0", "gzip"));
+        assertFalse(KVSequenceEntryResponseWriter.accepts("application/xml", KVSequenceEntryStream.CONTENT_TYPE));
+        assertFalse(KVSequenceEntryResponseWriter.accepts(null, "gzip"));
+    }
+
+    private static List<KVSequenceEntry> read(KVSequenceEntryStream.Reader reader) throws IOException {
+        final List<KVSequenceEntry> read = new ArrayList<>();
+        try {
+            KVSequenceEntry entry;
+            while ((entry = reader.read()) != null) {
+                read.add(entry);
+            }
+        } finally {
+            reader.close();
+        }
+        return read;
+    }
+
+    private static Jaxb2Marshaller jaxb2() throws Exception {
+        final Jaxb2Marshaller jaxb2 = new Jaxb2Marshaller();
+        jaxb2.setClassesToBeBound(KVSequenceEntryXML.class, KVSequenceEntry.class);
+        jaxb2.afterPropertiesSet();
+        return jaxb2;
+    }
+
+    private static KVSequenceEntry entry(long matchId, String md5, String hit) {
+        final KVSequenceEntry entry = new KVSequenceEntry();
+        entry.setMatchId(matchId);
+        entry.setProteinMD5(md5);
+        entry.addMatch(hit);
+        return entry;
+    }
+}